@@ -0,0 +1,60 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+
+/**
+ * PIVDataObject.decode() for every container with a decoder of its own. Each decode is of a new data
+ * object, as the test atoms decode what they read; decoders that cache what they decoded, such as the
+ * certificate containers, would otherwise do nothing after the first call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecodeBenchmarks {
+
+    // Fixtures.DECODED_OIDS; annotation values have to be spelled out
+    @Param({
+            APDUConstants.CARD_CAPABILITY_CONTAINER_OID,
+            APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID,
+            APDUConstants.CARDHOLDER_FINGERPRINTS_OID,
+            APDUConstants.SECURITY_OBJECT_OID,
+            APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_CARD_AUTHENTICATION_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_DIGITAL_SIGNATURE_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_KEY_MANAGEMENT_OID,
+            APDUConstants.PRINTED_INFORMATION_OID,
+            APDUConstants.DISCOVERY_OBJECT_OID,
+            APDUConstants.KEY_HISTORY_OBJECT_OID,
+            APDUConstants.CARDHOLDER_IRIS_IMAGES_OID,
+            APDUConstants.BIOMETRIC_INFORMATION_TEMPLATES_GROUP_TEMPLATE_OID,
+            APDUConstants.SECURE_MESSAGING_CERTIFICATE_SIGNER_OID,
+            APDUConstants.PAIRING_CODE_REFERENCE_DATA_CONTAINER_OID })
+    public String oid;
+
+    private byte[] m_container;
+
+    @Setup
+    public void setup() {
+        m_container = Fixtures.container(oid);
+        // the first decode of each container writes it to the artifact directory; keep that out of the measurement
+        Fixtures.decode(oid, m_container);
+    }
+
+    @Benchmark
+    public PIVDataObject decode() {
+        return Fixtures.decode(oid, m_container);
+    }
+}
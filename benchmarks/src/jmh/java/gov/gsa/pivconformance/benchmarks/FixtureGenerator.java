@@ -0,0 +1,439 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.icao.DataGroupHash;
+import org.bouncycastle.asn1.icao.LDSSecurityObject;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CertificatePolicies;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x509.PolicyInformation;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.CMSProcessableByteArray;
+import org.bouncycastle.cms.CMSSignedDataGenerator;
+import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.APDUUtils;
+import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
+
+/**
+ * Writes the synthetic containers the benchmarks read, one &lt;oid&gt;.bin file per container in the
+ * layout ContainerDump writes, along with the trust anchor the certificates chain to.
+ *
+ * The containers have the tags SP 800-73-4 lists, in order, with values of the sizes a production
+ * card carries: RSA 2048 certificates, a signed CHUID with its embedded content signer certificate,
+ * biometrics with CBEFF headers and detached signatures, and a Security Object holding the hashes of
+ * the CHUID, fingerprints, facial image and Printed Information. Keys and filler bytes are new on
+ * every run, so regenerated fixtures only compare to results measured with the same fixtures.
+ *
+ * Run with the benchmarks' generateFixtures task.
+ */
+public class FixtureGenerator {
+    private static final Logger s_logger = LoggerFactory.getLogger(FixtureGenerator.class);
+
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final ASN1ObjectIdentifier PIV_CHUID_SECURITY_OBJECT = new ASN1ObjectIdentifier("2.16.840.1.101.3.6.1");
+    private static final ASN1ObjectIdentifier PIV_BIOMETRIC_OBJECT = new ASN1ObjectIdentifier("2.16.840.1.101.3.6.2");
+    private static final ASN1ObjectIdentifier PIV_CONTENT_SIGNING = new ASN1ObjectIdentifier("2.16.840.1.101.3.6.7");
+    private static final ASN1ObjectIdentifier PIV_FASC_N = new ASN1ObjectIdentifier("2.16.840.1.101.3.6.6");
+    private static final ASN1ObjectIdentifier LDS_SECURITY_OBJECT = new ASN1ObjectIdentifier("2.23.136.1.1.1");
+    private static final String COMMON_CARD_AUTH_POLICY = "2.16.840.1.101.3.2.1.3.17";
+    private static final String COMMON_HARDWARE_POLICY = "2.16.840.1.101.3.2.1.3.7";
+    private static final byte[] NO_VALUE = new byte[0];
+    private static final byte[] ERROR_DETECTION_CODE = { (byte) 0xFE, 0x00 };
+
+    // realistic BDB sizes: two INCITS 378 minutiae records, an INCITS 385 token image, two ISO 19794-6 iris images
+    private static final int FINGERPRINT_BDB_LENGTH = 1200;
+    private static final int FACIAL_IMAGE_BDB_LENGTH = 11000;
+    private static final int IRIS_BDB_LENGTH = 6000;
+
+    private final Random m_random = new Random();
+    private final Map<String, byte[]> m_containers = new LinkedHashMap<String, byte[]>();
+    private final byte[] m_fascn = new byte[25];
+    private KeyPair m_caKeys;
+    private X509Certificate m_trustAnchor;
+    private KeyPair m_signerKeys;
+    private X509Certificate m_contentSigner;
+    private long m_serial = 1;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "src/jmh/resources/" + Fixtures.FIXTURE_DIR);
+        FixtureGenerator generator = new FixtureGenerator();
+        generator.generate();
+        generator.write(dir);
+    }
+
+    /**
+     * Builds the keys, certificates and containers
+     *
+     * @throws Exception if a certificate or signature can't be made
+     */
+    public void generate() throws Exception {
+        m_random.nextBytes(m_fascn);
+        m_caKeys = rsaKeys();
+        X500Name caName = new X500Name("CN=Benchmark Root CA,OU=PIV Conformance,O=U.S. Government,C=US");
+        X509v3CertificateBuilder ca = certificateBuilder(caName, caName, m_caKeys);
+        ca.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        ca.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+        m_trustAnchor = sign(ca, m_caKeys);
+
+        m_signerKeys = rsaKeys();
+        X509v3CertificateBuilder signer = certificateBuilder(caName, new X500Name("CN=Benchmark Content Signer,OU=PIV Conformance,O=U.S. Government,C=US"), m_signerKeys);
+        signer.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature));
+        signer.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.getInstance(PIV_CONTENT_SIGNING)));
+        m_contentSigner = sign(signer, m_caKeys);
+
+        m_containers.put(APDUConstants.CARD_CAPABILITY_CONTAINER_OID, cardCapabilityContainer());
+        m_containers.put(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid());
+        m_containers.put(APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID,
+                certificateContainer(endEntity("PIV Authentication", Fixtures.PIV_AUTHENTICATION_POLICY, rsaKeys()), null));
+        m_containers.put(APDUConstants.X509_CERTIFICATE_FOR_CARD_AUTHENTICATION_OID,
+                certificateContainer(endEntity("Card Authentication", COMMON_CARD_AUTH_POLICY, rsaKeys()), null));
+        m_containers.put(APDUConstants.X509_CERTIFICATE_FOR_DIGITAL_SIGNATURE_OID,
+                certificateContainer(endEntity("Digital Signature", COMMON_HARDWARE_POLICY, rsaKeys()), null));
+        m_containers.put(APDUConstants.X509_CERTIFICATE_FOR_KEY_MANAGEMENT_OID,
+                certificateContainer(endEntity("Key Management", COMMON_HARDWARE_POLICY, rsaKeys()), null));
+        m_containers.put(APDUConstants.CARDHOLDER_FINGERPRINTS_OID,
+                biometric(TagConstants.FINGERPRINT_I_AND_II_TAG, 0x001B, 0x0201, 0x000008, FINGERPRINT_BDB_LENGTH));
+        m_containers.put(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID,
+                biometric(TagConstants.IMAGE_FOR_VISUAL_VERIFICATION_TAG, 0x001B, 0x0501, 0x000002, FACIAL_IMAGE_BDB_LENGTH));
+        m_containers.put(APDUConstants.CARDHOLDER_IRIS_IMAGES_OID,
+                biometric(TagConstants.IMAGES_FOR_IRIS_TAG, 0x0101, 0x0009, 0x000010, IRIS_BDB_LENGTH));
+        m_containers.put(APDUConstants.PRINTED_INFORMATION_OID, printedInformation());
+        m_containers.put(APDUConstants.DISCOVERY_OBJECT_OID, discoveryObject());
+        m_containers.put(APDUConstants.KEY_HISTORY_OBJECT_OID, container(
+                APDUUtils.getTLV(TagConstants.KEYS_WITH_ON_CARD_CERTS_TAG, new byte[] { 0x00 }),
+                APDUUtils.getTLV(TagConstants.KEYS_WITH_OFF_CARD_CERTS_TAG, new byte[] { 0x00 }),
+                ERROR_DETECTION_CODE));
+        m_containers.put(APDUConstants.BIOMETRIC_INFORMATION_TEMPLATES_GROUP_TEMPLATE_OID, biometricInformationTemplates());
+        m_containers.put(APDUConstants.SECURE_MESSAGING_CERTIFICATE_SIGNER_OID, secureMessagingCertificateSigner());
+        m_containers.put(APDUConstants.PAIRING_CODE_REFERENCE_DATA_CONTAINER_OID, container(
+                APDUUtils.getTLV(TagConstants.PAIRING_CODE_TAG, "80274153".getBytes(StandardCharsets.US_ASCII)),
+                ERROR_DETECTION_CODE));
+        // last, as it holds the hashes of the containers above
+        m_containers.put(APDUConstants.SECURITY_OBJECT_OID, securityObject());
+    }
+
+    /**
+     * Writes the containers and the trust anchor
+     *
+     * @param dir directory to write to, created if needed
+     * @throws IOException if a file can't be written
+     */
+    public void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<String, byte[]> e : m_containers.entrySet()) {
+            Files.write(dir.resolve(e.getKey() + ".bin"), e.getValue());
+            s_logger.info("{}: {} bytes", APDUConstants.oidNameMap.get(e.getKey()), e.getValue().length);
+        }
+        try {
+            Files.write(dir.resolve(Fixtures.TRUST_ANCHOR), m_trustAnchor.getEncoded());
+        } catch (CertificateEncodingException e) {
+            throw new IOException(e);
+        }
+        s_logger.info("Wrote {} containers to {}", m_containers.size(), dir.toAbsolutePath());
+    }
+
+    private KeyPair rsaKeys() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048, new SecureRandom());
+        return kpg.generateKeyPair();
+    }
+
+    private X509v3CertificateBuilder certificateBuilder(X500Name issuer, X500Name subject, KeyPair keys) {
+        long now = System.currentTimeMillis();
+        Date notBefore = new Date(now - 24L * 60 * 60 * 1000);
+        // valid for as long as the fixtures are likely to be checked in
+        Date notAfter = new Date(now + 20L * 365 * 24 * 60 * 60 * 1000);
+        return new JcaX509v3CertificateBuilder(issuer, BigInteger.valueOf(m_serial++), notBefore, notAfter, subject, keys.getPublic());
+    }
+
+    private X509Certificate sign(X509v3CertificateBuilder builder, KeyPair issuerKeys) throws Exception {
+        String algorithm = issuerKeys.getPrivate().getAlgorithm().equals("EC") ? "SHA256withECDSA" : SIGNATURE_ALGORITHM;
+        return new JcaX509CertificateConverter().getCertificate(builder.build(new JcaContentSignerBuilder(algorithm).build(issuerKeys.getPrivate())));
+    }
+
+    private X509Certificate endEntity(String keyName, String policyOid, KeyPair keys) throws Exception {
+        X500Name issuer = X500Name.getInstance(m_trustAnchor.getSubjectX500Principal().getEncoded());
+        X500Name subject = new X500Name("CN=Benchmark Cardholder " + keyName + ",OU=PIV Conformance,O=U.S. Government,C=US");
+        X509v3CertificateBuilder builder = certificateBuilder(issuer, subject, keys);
+        builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature));
+        builder.addExtension(Extension.certificatePolicies, false,
+                new CertificatePolicies(new PolicyInformation(new ASN1ObjectIdentifier(policyOid))));
+        // the extensions that take a production PIV certificate to its usual size
+        JcaX509ExtensionUtils utils = new JcaX509ExtensionUtils();
+        builder.addExtension(Extension.authorityKeyIdentifier, false, utils.createAuthorityKeyIdentifier(m_trustAnchor));
+        builder.addExtension(Extension.subjectKeyIdentifier, false, utils.createSubjectKeyIdentifier(keys.getPublic()));
+        builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(new GeneralName[] {
+                new GeneralName(GeneralName.otherName, new DERSequence(new ASN1Encodable[] { PIV_FASC_N,
+                        new DERTaggedObject(true, 0, new DEROctetString(m_fascn)) })),
+                new GeneralName(GeneralName.uniformResourceIdentifier, "urn:uuid:" + UUID.randomUUID()) }));
+        builder.addExtension(Extension.cRLDistributionPoints, false, new CRLDistPoint(new DistributionPoint[] {
+                new DistributionPoint(new DistributionPointName(new GeneralNames(
+                        new GeneralName(GeneralName.uniformResourceIdentifier, "http://crl.benchmark.example/BenchmarkRootCA.crl"))), null, null) }));
+        builder.addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(new AccessDescription[] {
+                new AccessDescription(AccessDescription.id_ad_caIssuers,
+                        new GeneralName(GeneralName.uniformResourceIdentifier, "http://aia.benchmark.example/BenchmarkRootCA.p7c")),
+                new AccessDescription(AccessDescription.id_ad_ocsp,
+                        new GeneralName(GeneralName.uniformResourceIdentifier, "http://ocsp.benchmark.example")) }));
+        return sign(builder, m_caKeys);
+    }
+
+    // a CMS signature over content that is carried next to it, as for the CHUID and biometrics
+    private byte[] detachedSignature(ASN1ObjectIdentifier contentType, byte[] content, boolean includeSignerCert) throws Exception {
+        CMSSignedDataGenerator gen = new CMSSignedDataGenerator();
+        gen.addSignerInfoGenerator(new JcaSignerInfoGeneratorBuilder(new JcaDigestCalculatorProviderBuilder().build())
+                .build(new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(m_signerKeys.getPrivate()), m_contentSigner));
+        if (includeSignerCert) {
+            gen.addCertificates(new JcaCertStore(Collections.singletonList(m_contentSigner)));
+        }
+        return gen.generate(new CMSProcessableByteArray(contentType, content), false).getEncoded();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            os.write(part, 0, part.length);
+        }
+        return os.toByteArray();
+    }
+
+    private static byte[] container(byte[]... tlvs) {
+        return APDUUtils.getTLV(new byte[] { 0x53 }, concat(tlvs));
+    }
+
+    private byte[] filler(int length) {
+        byte[] rv = new byte[length];
+        m_random.nextBytes(rv);
+        return rv;
+    }
+
+    private byte[] cardCapabilityContainer() {
+        // GSC-RID, manufacturer ID, card type and a 14 byte card ID
+        byte[] cardIdentifier = concat(new byte[] { (byte) 0xA0, 0x00, 0x00, 0x01, 0x16, (byte) 0xFF, 0x02 }, filler(14));
+        return container(
+                APDUUtils.getTLV(TagConstants.CARD_IDENTIFIER_TAG, cardIdentifier),
+                APDUUtils.getTLV(TagConstants.CAPABILITY_CONTAINER_VERSION_NUMBER_TAG, new byte[] { 0x21 }),
+                APDUUtils.getTLV(TagConstants.CAPABILITY_GRAMMAR_VERSION_NUMBER_TAG, new byte[] { 0x21 }),
+                APDUUtils.getTLV(TagConstants.APPLICATIONS_CARDURL_TAG, NO_VALUE),
+                APDUUtils.getTLV(TagConstants.PKCS15_TAG, new byte[] { 0x00 }),
+                APDUUtils.getTLV(TagConstants.REGISTERED_DATA_MODEL_NUMBER_TAG, new byte[] { 0x10 }),
+                APDUUtils.getTLV(TagConstants.ACCESS_CONTROL_RULE_TABLE_TAG, NO_VALUE),
+                APDUUtils.getTLV(TagConstants.CARD_APDUS_TAG, NO_VALUE),
+                APDUUtils.getTLV(TagConstants.REDIRECTION_TAG_TAG, NO_VALUE),
+                APDUUtils.getTLV(TagConstants.CAPABILITY_TUPLES_TAG, NO_VALUE),
+                APDUUtils.getTLV(TagConstants.STATUS_TUPLES_TAG, NO_VALUE),
+                APDUUtils.getTLV(TagConstants.NEXT_CCC_TAG, NO_VALUE),
+                ERROR_DETECTION_CODE);
+    }
+
+    private byte[] chuid() throws Exception {
+        // the signature covers every TLV but the signature itself, as the CHUID decoder rebuilds them
+        byte[] signed = concat(
+                APDUUtils.getTLV(TagConstants.FASC_N_TAG, m_fascn),
+                APDUUtils.getTLV(TagConstants.GUID_TAG, filler(16)),
+                APDUUtils.getTLV(TagConstants.CHUID_EXPIRATION_DATE_TAG, "20341231".getBytes(StandardCharsets.US_ASCII)),
+                APDUUtils.getTLV(TagConstants.CARDHOLDER_UUID_TAG, filler(16)));
+        byte[] signature = detachedSignature(PIV_CHUID_SECURITY_OBJECT, concat(signed, ERROR_DETECTION_CODE), true);
+        return container(signed, APDUUtils.getTLV(TagConstants.ISSUER_ASYMMETRIC_SIGNATURE_TAG, signature), ERROR_DETECTION_CODE);
+    }
+
+    private static byte[] certificateContainer(X509Certificate cert, byte[] extra) throws Exception {
+        return container(
+                APDUUtils.getTLV(TagConstants.CERTIFICATE_TAG, cert.getEncoded()),
+                APDUUtils.getTLV(TagConstants.CERTINFO_TAG, new byte[] { 0x00 }),
+                extra == null ? NO_VALUE : extra,
+                ERROR_DETECTION_CODE);
+    }
+
+    // a date as the CBEFF header carries it, one byte for each pair of digits of YYYYMMDDhhmmss then Z
+    private static byte[] cbeffDate(int year, int month, int day) {
+        return new byte[] { (byte) (year / 100), (byte) (year % 100), (byte) month, (byte) day, 0, 0, 0, 'Z' };
+    }
+
+    private byte[] biometric(byte[] tag, int formatOwner, int formatType, int biometricType, int bdbLength) throws Exception {
+        byte[] bdb = filler(bdbLength);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        // patron header version 03, signed but not encrypted
+        header.write(0x03);
+        header.write(0x0D);
+        header.write(bdbLength >>> 24);
+        header.write(bdbLength >>> 16);
+        header.write(bdbLength >>> 8);
+        header.write(bdbLength);
+        // the signature block length, filled in below
+        header.write(0);
+        header.write(0);
+        header.write(formatOwner >>> 8);
+        header.write(formatOwner);
+        header.write(formatType >>> 8);
+        header.write(formatType);
+        header.write(cbeffDate(2024, 1, 15), 0, 8);
+        header.write(cbeffDate(2024, 1, 15), 0, 8);
+        header.write(cbeffDate(2036, 1, 15), 0, 8);
+        header.write(biometricType >>> 16);
+        header.write(biometricType >>> 8);
+        header.write(biometricType);
+        // raw data type, quality not reported
+        header.write(0x01);
+        header.write(0xFE);
+        byte[] creator = new byte[18];
+        byte[] name = "PIV Benchmark".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(name, 0, creator, 0, name.length);
+        header.write(creator, 0, creator.length);
+        header.write(m_fascn, 0, m_fascn.length);
+        header.write(new byte[4], 0, 4);
+        byte[] cbeffHeader = header.toByteArray();
+
+        // the signature covers the header and BDB; the header gives the SB length, so sign twice
+        byte[] sb = detachedSignature(PIV_BIOMETRIC_OBJECT, concat(cbeffHeader, bdb), false);
+        cbeffHeader[6] = (byte) (sb.length >>> 8);
+        cbeffHeader[7] = (byte) sb.length;
+        byte[] signedContent = concat(cbeffHeader, bdb);
+        sb = detachedSignature(PIV_BIOMETRIC_OBJECT, signedContent, false);
+        if ((cbeffHeader[6] & 0xFF) != (sb.length >>> 8 & 0xFF) || (cbeffHeader[7] & 0xFF) != (sb.length & 0xFF)) {
+            throw new IllegalStateException("Signature block length changed when the header was signed");
+        }
+        return container(APDUUtils.getTLV(tag, concat(signedContent, sb)), ERROR_DETECTION_CODE);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] printedInformation() {
+        return container(
+                APDUUtils.getTLV(TagConstants.NAME_TAG, ascii("BENCHMARK, CARDHOLDER Q")),
+                APDUUtils.getTLV(TagConstants.EMPLOYEE_AFFILIATION_TAG, ascii("Employee")),
+                APDUUtils.getTLV(TagConstants.PRINTED_INFORMATION_EXPIRATION_DATE_TAG, ascii("2034DEC31")),
+                APDUUtils.getTLV(TagConstants.AGENCY_CARD_SERIAL_NUMBER_TAG, ascii("0000800734")),
+                APDUUtils.getTLV(TagConstants.ISSUER_IDENTIFICATION_TAG, ascii("GSA0000001")),
+                APDUUtils.getTLV(TagConstants.ORGANIZATIONAL_AFFILIATION_L1_TAG, ascii("General Services")),
+                APDUUtils.getTLV(TagConstants.ORGANIZATIONAL_AFFILIATION_L2_TAG, ascii("Administration")),
+                ERROR_DETECTION_CODE);
+    }
+
+    private static byte[] discoveryObject() {
+        byte[] aid = { (byte) 0xA0, 0x00, 0x00, 0x03, 0x08, 0x00, 0x00, 0x10, 0x00, 0x01, 0x00 };
+        return APDUUtils.getTLV(new byte[] { 0x7E }, concat(
+                APDUUtils.getTLV(TagConstants.PIV_CARD_APPLICATION_AID_TAG, aid),
+                APDUUtils.getTLV(TagConstants.PIN_USAGE_POLICY_TAG, new byte[] { 0x40, 0x00 })));
+    }
+
+    private static byte[] biometricInformationTemplates() {
+        // the on-card comparison parameters of one finger: reference, minutiae format and limits
+        byte[] bit = concat(
+                APDUUtils.getTLV(new byte[] { (byte) 0x83 }, new byte[] { (byte) 0x96 }),
+                APDUUtils.getTLV(new byte[] { (byte) 0xA1 }, concat(
+                        APDUUtils.getTLV(new byte[] { (byte) 0x81 }, new byte[] { 0x08 }),
+                        APDUUtils.getTLV(new byte[] { (byte) 0x82 }, new byte[] { 0x00 }),
+                        APDUUtils.getTLV(new byte[] { (byte) 0x87 }, new byte[] { 0x01, 0x01 }),
+                        APDUUtils.getTLV(new byte[] { (byte) 0x88 }, new byte[] { 0x00, 0x07 }))));
+        return APDUUtils.getTLV(new byte[] { 0x7F, 0x61 }, concat(
+                APDUUtils.getTLV(TagConstants.NUMBER_OF_FINGERS_TAG, new byte[] { 0x01 }),
+                APDUUtils.getTLV(TagConstants.BIT_FOR_FIRST_FINGER_TAG, bit)));
+    }
+
+    private byte[] secureMessagingCertificateSigner() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+        kpg.initialize(new ECGenParameterSpec("secp256r1"));
+        X509Certificate cert = endEntity("Secure Messaging Signer", COMMON_HARDWARE_POLICY, kpg.generateKeyPair());
+        // an intermediate card verifiable certificate of the size cipher suite 2 gives: profile,
+        // issuer, GUID, uncompressed P-256 key, role and an ECDSA signature
+        byte[] cvc = concat(
+                APDUUtils.getTLV(new byte[] { 0x5F, 0x29 }, new byte[] { (byte) 0x80 }),
+                APDUUtils.getTLV(new byte[] { 0x42 }, filler(8)),
+                APDUUtils.getTLV(new byte[] { 0x5F, 0x20 }, filler(16)),
+                APDUUtils.getTLV(new byte[] { 0x7F, 0x49 }, concat(
+                        APDUUtils.getTLV(new byte[] { 0x06 }, new byte[] { 0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x3D, 0x03, 0x01, 0x07 }),
+                        APDUUtils.getTLV(new byte[] { (byte) 0x86 }, concat(new byte[] { 0x04 }, filler(64))))),
+                APDUUtils.getTLV(new byte[] { 0x5F, 0x4C }, new byte[] { 0x12 }),
+                APDUUtils.getTLV(new byte[] { 0x5F, 0x37 }, filler(72)));
+        return certificateContainer(cert, APDUUtils.getTLV(TagConstants.INTERMEDIATE_CVC_TAG, cvc));
+    }
+
+    private byte[] securityObject() throws Exception {
+        // hash what the Security Object test hashes: the decoded content of each container
+        HashMap<String, byte[]> elements = Fixtures.securityObjectElements(m_containers);
+        String[] hashed = {
+                APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID,
+                APDUConstants.CARDHOLDER_FINGERPRINTS_OID,
+                APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID,
+                APDUConstants.PRINTED_INFORMATION_OID };
+        int[] ids = {
+                APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_ID,
+                APDUConstants.CARDHOLDER_FINGERPRINTS_ID,
+                APDUConstants.CARDHOLDER_FACIAL_IMAGE_ID,
+                APDUConstants.PRINTED_INFORMATION_ID };
+
+        ByteArrayOutputStream mapping = new ByteArrayOutputStream();
+        DataGroupHash[] hashes = new DataGroupHash[hashed.length];
+        for (int i = 0; i < hashed.length; i++) {
+            int dataGroup = i + 1;
+            mapping.write(dataGroup);
+            mapping.write(ids[i] >>> 8);
+            mapping.write(ids[i]);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(elements.get(hashed[i]));
+            hashes[i] = new DataGroupHash(dataGroup, new DEROctetString(digest));
+        }
+        LDSSecurityObject lds = new LDSSecurityObject(new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256), hashes);
+
+        // the LDS security object is carried in the signed data, which is signed by the CHUID signer
+        CMSSignedDataGenerator gen = new CMSSignedDataGenerator();
+        gen.addSignerInfoGenerator(new JcaSignerInfoGeneratorBuilder(new JcaDigestCalculatorProviderBuilder().build())
+                .build(new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(m_signerKeys.getPrivate()), m_contentSigner));
+        byte[] so = gen.generate(new CMSProcessableByteArray(LDS_SECURITY_OBJECT, lds.getEncoded()), true).getEncoded();
+
+        return container(
+                APDUUtils.getTLV(TagConstants.MAPPING_OF_DG_TO_CONTAINER_ID_TAG, mapping.toByteArray()),
+                APDUUtils.getTLV(TagConstants.SECURITY_OBJECT_TAG, so),
+                ERROR_DETECTION_CODE);
+    }
+}
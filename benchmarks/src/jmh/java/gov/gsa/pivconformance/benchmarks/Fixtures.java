@@ -0,0 +1,137 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.CardCapabilityContainer;
+import gov.gsa.pivconformance.cardlib.card.client.CardHolderBiometricData;
+import gov.gsa.pivconformance.cardlib.card.client.CardHolderUniqueIdentifier;
+import gov.gsa.pivconformance.cardlib.card.client.KeyHistoryObject;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObjectFactory;
+import gov.gsa.pivconformance.cardlib.card.client.PrintedInformation;
+
+/**
+ * The checked-in synthetic containers the benchmarks run against, read from the classpath as
+ * FixtureGenerator wrote them
+ */
+public final class Fixtures {
+    public static final String FIXTURE_DIR = "fixtures";
+    public static final String TRUST_ANCHOR = "trust-anchor.cer";
+    /** the id-fpki-common-authentication policy the PIV Authentication certificate asserts */
+    public static final String PIV_AUTHENTICATION_POLICY = "2.16.840.1.101.3.2.1.3.13";
+
+    /** the containers with a decoder of their own, one for each PIVDataObject subclass and OID */
+    public static final String[] DECODED_OIDS = {
+            APDUConstants.CARD_CAPABILITY_CONTAINER_OID,
+            APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID,
+            APDUConstants.CARDHOLDER_FINGERPRINTS_OID,
+            APDUConstants.SECURITY_OBJECT_OID,
+            APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_CARD_AUTHENTICATION_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_DIGITAL_SIGNATURE_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_KEY_MANAGEMENT_OID,
+            APDUConstants.PRINTED_INFORMATION_OID,
+            APDUConstants.DISCOVERY_OBJECT_OID,
+            APDUConstants.KEY_HISTORY_OBJECT_OID,
+            APDUConstants.CARDHOLDER_IRIS_IMAGES_OID,
+            APDUConstants.BIOMETRIC_INFORMATION_TEMPLATES_GROUP_TEMPLATE_OID,
+            APDUConstants.SECURE_MESSAGING_CERTIFICATE_SIGNER_OID,
+            APDUConstants.PAIRING_CODE_REFERENCE_DATA_CONTAINER_OID };
+
+    private Fixtures() {
+    }
+
+    private static byte[] load(String name) {
+        String path = "/" + FIXTURE_DIR + "/" + name;
+        try (InputStream is = Fixtures.class.getResourceAsStream(path)) {
+            if (is == null) {
+                throw new IllegalStateException("Missing fixture " + path + "; run the generateFixtures task");
+            }
+            return is.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets a container as GET DATA returns it
+     *
+     * @param oid the container OID
+     * @return the container bytes
+     */
+    public static byte[] container(String oid) {
+        return load(oid + ".bin");
+    }
+
+    /**
+     * Gets the self-signed certificate every fixture certificate chains to
+     *
+     * @return the trust anchor
+     */
+    public static X509Certificate trustAnchor() {
+        try {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(load(TRUST_ANCHOR)));
+        } catch (CertificateException e) {
+            throw new IllegalStateException("Unable to read " + TRUST_ANCHOR, e);
+        }
+    }
+
+    /**
+     * Decodes a container into a new data object, as AtomHelper does for a test
+     *
+     * @param oid the container OID
+     * @param bytes the container bytes
+     * @return the decoded data object
+     */
+    public static PIVDataObject decode(String oid, byte[] bytes) {
+        PIVDataObject o = PIVDataObjectFactory.createDataObjectForOid(oid);
+        o.setContainerName(APDUConstants.getFileNameForOid(oid));
+        o.setBytes(bytes);
+        if (!o.decode()) {
+            throw new IllegalStateException("Unable to decode " + APDUConstants.oidNameMap.get(oid));
+        }
+        return o;
+    }
+
+    /**
+     * Gets the content the Security Object hashes for each container, as the Security Object
+     * conformance test gathers it
+     *
+     * @param containers container bytes by OID
+     * @return the hashed content by OID
+     */
+    public static HashMap<String, byte[]> securityObjectElements(Map<String, byte[]> containers) {
+        HashMap<String, byte[]> rv = new HashMap<String, byte[]>();
+        for (Map.Entry<String, byte[]> e : containers.entrySet()) {
+            String oid = e.getKey();
+            if (oid.equals(APDUConstants.SECURITY_OBJECT_OID)) {
+                continue;
+            }
+            PIVDataObject o = decode(oid, e.getValue());
+            if (o instanceof CardCapabilityContainer) {
+                rv.put(oid, ((CardCapabilityContainer) o).getSignedContent());
+            } else if (o instanceof CardHolderUniqueIdentifier) {
+                rv.put(oid, ((CardHolderUniqueIdentifier) o).getChuidContainer());
+            } else if (o instanceof CardHolderBiometricData) {
+                rv.put(oid, ((CardHolderBiometricData) o).getCbeffContainer());
+            } else if (o instanceof PrintedInformation) {
+                rv.put(oid, ((PrintedInformation) o).getSignedContent());
+            } else if (o instanceof KeyHistoryObject) {
+                rv.put(oid, ((KeyHistoryObject) o).getTlvBuf());
+            } else {
+                rv.put(oid, o.getBytes());
+            }
+        }
+        return rv;
+    }
+}
@@ -0,0 +1,104 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+
+/**
+ * Hex encoding and decoding of a 40 KB input, about the size of a large facial image container.
+ *
+ * The codec and replaceAll cases are the ways the code printed and parsed hex before HexUtil was
+ * shared; the rest are HexUtil writing into a new string and into a reused builder, array or buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HexBenchmarks {
+
+    private static final int INPUT_LENGTH = 40 * 1024;
+
+    private byte[] m_bytes;
+    private String m_hex;
+    private String m_spacedHex;
+    private StringBuilder m_builder;
+    private char[] m_chars;
+    private ByteBuffer m_buffer;
+    private byte[] m_decoded;
+
+    @Setup
+    public void setup() {
+        m_bytes = new byte[INPUT_LENGTH];
+        new Random(0x5e).nextBytes(m_bytes);
+        m_hex = HexUtil.toLowerHexString(m_bytes);
+        m_spacedHex = HexUtil.toHexString(m_bytes, 0, m_bytes.length, true, ' ');
+        int spacedLength = HexUtil.encodedLength(INPUT_LENGTH, ' ');
+        m_builder = new StringBuilder(spacedLength);
+        m_chars = new char[spacedLength];
+        m_buffer = ByteBuffer.allocateDirect(spacedLength);
+        m_decoded = new byte[INPUT_LENGTH];
+    }
+
+    @Benchmark
+    public String codecEncode() {
+        return Hex.encodeHexString(m_bytes);
+    }
+
+    @Benchmark
+    public String codecEncodeSpaced() {
+        return Hex.encodeHexString(m_bytes).replaceAll("..(?=.)", "$0 ");
+    }
+
+    @Benchmark
+    public byte[] codecDecodeSpaced() throws DecoderException {
+        return Hex.decodeHex(m_spacedHex.replace(" ", "").toLowerCase());
+    }
+
+    @Benchmark
+    public String encode() {
+        return HexUtil.toLowerHexString(m_bytes);
+    }
+
+    @Benchmark
+    public String encodeSpaced() {
+        return HexUtil.toHexString(m_bytes, 0, m_bytes.length, true, ' ');
+    }
+
+    @Benchmark
+    public StringBuilder appendSpaced() {
+        m_builder.setLength(0);
+        return HexUtil.appendHex(m_builder, m_bytes, 0, m_bytes.length, true, ' ');
+    }
+
+    @Benchmark
+    public int encodeSpacedIntoChars() {
+        return HexUtil.encode(m_bytes, 0, m_bytes.length, m_chars, 0, true, ' ');
+    }
+
+    @Benchmark
+    public ByteBuffer encodeSpacedIntoBuffer() {
+        m_buffer.clear();
+        return HexUtil.encode(m_bytes, 0, m_bytes.length, m_buffer, true, ' ');
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return HexUtil.parseHex(m_hex);
+    }
+
+    @Benchmark
+    public int decodeSpacedIntoArray() {
+        return HexUtil.parseHex(m_spacedHex, 0, m_spacedHex.length(), m_decoded, 0);
+    }
+}
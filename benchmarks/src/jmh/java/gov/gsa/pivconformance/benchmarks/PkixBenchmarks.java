@@ -0,0 +1,77 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.X509CertificateDataObject;
+import gov.gsa.pivconformance.conformancelib.utilities.Validator;
+
+/**
+ * Path building and validation of the PIV Authentication certificate to the fixture trust anchor,
+ * with each provider the Validator supports. AIA chasing is off, so no network is involved.
+ *
+ * The Validator reads its key store from the file system relative to the working directory, so the
+ * benchmark gives it one of its own holding only the fixture trust anchor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PkixBenchmarks {
+
+    @Param({ "SunRsaSign", "BC" })
+    public String provider;
+
+    private static final String STORE_PASS = "changeit";
+
+    private Path m_keyStore;
+    private Validator m_validator;
+    private X509Certificate m_eeCert;
+    private X509Certificate m_trustAnchor;
+
+    @Setup
+    public void setup() throws Exception {
+        m_trustAnchor = Fixtures.trustAnchor();
+        KeyStore ks = KeyStore.getInstance("JKS");
+        ks.load(null, null);
+        ks.setCertificateEntry("trust-anchor", m_trustAnchor);
+        m_keyStore = Files.createTempFile("benchmark-cacerts", ".jks");
+        try (OutputStream os = Files.newOutputStream(m_keyStore)) {
+            ks.store(os, STORE_PASS.toCharArray());
+        }
+
+        m_validator = new Validator(provider, m_keyStore.toAbsolutePath().toString(), STORE_PASS);
+        // without a pdval.properties alongside, the Validator falls back to the SUN builder whatever the provider
+        m_validator.setCertPathBuilder("BC".equals(provider) ? "BC" : "SUN");
+        m_validator.setDownloadAia(false);
+        m_eeCert = ((X509CertificateDataObject) Fixtures.decode(APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID,
+                Fixtures.container(APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID))).getCertificate();
+        if (!isValid()) {
+            throw new IllegalStateException("PIV Authentication fixture does not validate with " + provider);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(m_keyStore);
+    }
+
+    @Benchmark
+    public boolean isValid() throws Exception {
+        return m_validator.isValid(m_eeCert, Fixtures.PIV_AUTHENTICATION_POLICY, m_trustAnchor);
+    }
+}
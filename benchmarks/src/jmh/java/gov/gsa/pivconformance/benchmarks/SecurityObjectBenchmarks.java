@@ -0,0 +1,55 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.SecurityObject;
+
+/**
+ * The Security Object check of the data group hashes against the containers they were taken over
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SecurityObjectBenchmarks {
+
+    private byte[] m_securityObject;
+    private HashMap<String, byte[]> m_hashedContent;
+
+    @Setup
+    public void setup() {
+        // decoding the CHUID makes its signer the one the Security Object is checked with
+        Fixtures.decode(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, Fixtures.container(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        Map<String, byte[]> containers = new LinkedHashMap<String, byte[]>();
+        for (String oid : Fixtures.DECODED_OIDS) {
+            containers.put(oid, Fixtures.container(oid));
+        }
+        m_hashedContent = Fixtures.securityObjectElements(containers);
+        m_securityObject = containers.get(APDUConstants.SECURITY_OBJECT_OID);
+        if (!decodeAndVerifyHashes()) {
+            throw new IllegalStateException("Security Object fixture hashes do not match");
+        }
+    }
+
+    /**
+     * A SecurityObject checks its hashes once, so each check is of a newly decoded one; the Security
+     * Object case of DecodeBenchmarks is the part of this that is not the hash check
+     */
+    @Benchmark
+    public boolean decodeAndVerifyHashes() {
+        SecurityObject so = (SecurityObject) Fixtures.decode(APDUConstants.SECURITY_OBJECT_OID, m_securityObject);
+        so.setMapOfDataElements(m_hashedContent);
+        return so.verifyHashes();
+    }
+}
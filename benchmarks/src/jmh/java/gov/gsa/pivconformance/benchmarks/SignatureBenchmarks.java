@@ -0,0 +1,49 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.SignedPIVDataObject;
+
+/**
+ * CMS signature verification of the signed containers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SignatureBenchmarks {
+
+    @Param({
+            APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID,
+            APDUConstants.CARDHOLDER_FINGERPRINTS_OID,
+            APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID,
+            APDUConstants.CARDHOLDER_IRIS_IMAGES_OID,
+            APDUConstants.SECURITY_OBJECT_OID })
+    public String oid;
+
+    private SignedPIVDataObject m_signed;
+
+    @Setup
+    public void setup() {
+        // decoding the CHUID makes its signer the one the other containers are checked with
+        Fixtures.decode(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, Fixtures.container(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        m_signed = (SignedPIVDataObject) Fixtures.decode(oid, Fixtures.container(oid));
+        if (!m_signed.verifySignature()) {
+            throw new IllegalStateException(APDUConstants.oidNameMap.get(oid) + " fixture signature does not verify");
+        }
+    }
+
+    @Benchmark
+    public boolean verifySignature() {
+        return m_signed.verifySignature();
+    }
+}
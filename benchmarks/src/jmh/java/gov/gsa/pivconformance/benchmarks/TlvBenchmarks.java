@@ -0,0 +1,121 @@
+package gov.gsa.pivconformance.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.tlv.BerTag;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlv;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvBuilder;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvParser;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvs;
+import gov.gsa.pivconformance.cardlib.tlv.ContainerValidator;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+import gov.gsa.pivconformance.cardlib.tlv.IBerTlvLogger;
+import gov.gsa.pivconformance.cardlib.tlv.TagBoundaryManager;
+
+/**
+ * BER-TLV parsing, building, hex conversion and one-pass validation of whole containers, from the
+ * smallest signed container to the largest
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TlvBenchmarks {
+    private static final IBerTlvLogger QUIET = new IBerTlvLogger() {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(String aFormat, Object... args) {
+        }
+    };
+
+    @Param({
+            APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID,
+            APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID,
+            APDUConstants.SECURITY_OBJECT_OID,
+            APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID })
+    public String oid;
+
+    private final BerTlvParser m_copyingParser = new BerTlvParser(QUIET);
+    private final BerTlvParser m_viewingParser = new BerTlvParser(QUIET, true);
+    private byte[] m_container;
+    private String m_hex;
+    private BerTag m_outerTag;
+    private BerTag[] m_tags;
+    private byte[][] m_values;
+    private ContainerValidator m_validator;
+
+    @Setup
+    public void setup() {
+        m_container = Fixtures.container(oid);
+        m_hex = HexUtil.toHexString(m_container);
+
+        BerTlv outer = m_copyingParser.parse(m_container).getList().get(0);
+        m_outerTag = outer.getTag();
+        List<BerTlv> inner = m_copyingParser.parse(outer.getBytesValue()).getList();
+        m_tags = new BerTag[inner.size()];
+        m_values = new byte[inner.size()][];
+        for (int i = 0; i < m_tags.length; i++) {
+            m_tags[i] = inner.get(i).getTag();
+            m_values[i] = inner.get(i).getBytesValue();
+        }
+
+        m_validator = new TagBoundaryManager().getValidator(TagBoundaryManager.containerId(oid));
+        if (m_validator.validate(m_container) != 0) {
+            throw new IllegalStateException(APDUConstants.oidNameMap.get(oid) + " fixture does not validate");
+        }
+    }
+
+    // the container and the TLVs in it, as the decoders parse them
+    private static BerTlvs parseContainer(BerTlvParser parser, byte[] container) {
+        BerTlv outer = parser.parse(container).getList().get(0);
+        return parser.parseValue(outer);
+    }
+
+    @Benchmark
+    public BerTlvs parseCopies() {
+        return parseContainer(m_copyingParser, m_container);
+    }
+
+    @Benchmark
+    public BerTlvs parseViews() {
+        return parseContainer(m_viewingParser, m_container);
+    }
+
+    @Benchmark
+    public byte[] build() {
+        BerTlvBuilder builder = BerTlvBuilder.template(m_outerTag);
+        for (int i = 0; i < m_tags.length; i++) {
+            builder.addBytes(m_tags[i], m_values[i]);
+        }
+        return builder.buildArray();
+    }
+
+    @Benchmark
+    public String toHexString() {
+        return HexUtil.toHexString(m_container);
+    }
+
+    @Benchmark
+    public byte[] parseHex() {
+        return HexUtil.parseHex(m_hex);
+    }
+
+    @Benchmark
+    public int validate() {
+        return m_validator.validate(m_container);
+    }
+}
@@ -60,6 +60,9 @@ public class APDUConstants {
 	public static final int INCORREECT_PARAMETER = 0x6A80;
 	public static final int FUNCTION_NOT_SUPPORTED = 0x6A81;
 	public static final int INCORREECT_PARAMETER_P2 = 0x6A86;
+	public static final int WRONG_LENGTH = 0x6700;
+	public static final int INS_NOT_SUPPORTED = 0x6D00;
+	public static final int CLA_NOT_SUPPORTED = 0x6E00;
 
 	public static final String CARD_CAPABILITY_CONTAINER_OID = "2.16.840.1.101.3.7.1.219.0";
 	public static final byte[] CARD_CAPABILITY_CONTAINER_TAG = { 0x5F, (byte) 0xC1, 0x07 };
@@ -182,7 +185,7 @@ public class APDUConstants {
 	public static final String RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_12_NAME = "Retired X.509 Certificate for Key Management 12";
 
 	public static final String RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_13_OID = "2.16.840.1.101.3.7.2.16.13";
-	public static final byte[] RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_13_TAG = { 0x5F, (byte) 0xC1, 0x13 };
+	public static final byte[] RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_13_TAG = { 0x5F, (byte) 0xC1, 0x19 };
 	public static final int RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_13_ID = 0x1013;
 	public static final String RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_13_NAME = "Retired X.509 Certificate for Key Management 13";
 
@@ -192,7 +195,7 @@ public class APDUConstants {
 	public static final String RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_14_NAME = "Retired X.509 Certificate for Key Management 14";
 
 	public static final String RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_15_OID = "2.16.850.1.101.3.7.2.16.15";
-	public static final byte[] RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_15_TAG = { 0x5F, (byte) 0xC1, 0x15 };
+	public static final byte[] RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_15_TAG = { 0x5F, (byte) 0xC1, 0x1b };
 	public static final int RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_15_ID = 0x1015;
 	public static final String RETIRED_X_509_CERTIFICATE_FOR_KEY_MANAGEMENT_15_NAME = "Retired X.509 Certificate for Key Management 15";
 
@@ -218,6 +218,58 @@ public class APDUUtils {
 
         return rv_pivGetData;
     }
+    /**
+     *
+     * Return APDU value for GET DATA, optionally asking for the whole container in a single
+     * extended length response
+     *
+     * @param data Byte array with the GET DATA data field
+     * @param extended true to encode Lc and Le as extended length fields
+     * @return Byte array with GET DATA APDU
+     */
+    public static byte[] PIVGetDataAPDU(byte[] data, boolean extended) {
+        if(!extended) {
+            return PIVGetDataAPDU(data);
+        }
+        RequestAPDUWrapper request = new RequestAPDUWrapper(APDUConstants.COMMAND, APDUConstants.GET & 0xff, 0x3f, 0xff,
+                data, RequestAPDUWrapper.LE_MAX);
+        request.setExtendedApdu(true);
+        return request.getBytes();
+    }
+
+    /**
+     *
+     * Checks the card capabilities in the ATR historical bytes (ISO/IEC 7816-4 compact-TLV tag 7,
+     * third software function table) for the extended Lc and Le fields bit
+     *
+     * @param historicalBytes Byte array with the historical bytes from the ATR
+     * @return true if the card advertises extended length support
+     */
+    public static boolean HistoricalBytesIndicateExtendedLength(byte[] historicalBytes) {
+        if(historicalBytes == null || historicalBytes.length < 2) {
+            return false;
+        }
+        int end;
+        if(historicalBytes[0] == (byte) 0x80) {
+            end = historicalBytes.length;
+        } else if(historicalBytes[0] == 0x00) {
+            // the last three bytes are the status indicator
+            end = historicalBytes.length - 3;
+        } else {
+            return false;
+        }
+        int i = 1;
+        while(i < end) {
+            int tag = (historicalBytes[i] >> 4) & 0x0f;
+            int length = historicalBytes[i] & 0x0f;
+            if(tag == 0x07 && length >= 3 && i + 3 < historicalBytes.length) {
+                return (historicalBytes[i + 3] & 0x40) != 0;
+            }
+            i += 1 + length;
+        }
+        return false;
+    }
+
     /**
      * 
      * @param data
@@ -5,10 +5,10 @@ import gov.gsa.pivconformance.cardlib.tlv.BerTlv;
 import gov.gsa.pivconformance.cardlib.tlv.BerTlvParser;
 import gov.gsa.pivconformance.cardlib.tlv.BerTlvs;
 import gov.gsa.pivconformance.cardlib.tlv.CCTTlvLogger;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
 import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
 
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +55,8 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
             // Establishing channel
             CardChannel channel = card.getBasicChannel();
             cardHandle.setCurrentChannel(channel);
+            // whatever the outcome, the security status that came before is gone
+            cardHandle.resetSessionState();
             
             PCSCWrapper pcsc = PCSCWrapper.getInstance();
 
@@ -72,6 +74,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
             	// XXX *** TODO: handle 61XX
             	if(response.getSW1() == 0x61) {
             		s_logger.info("SW1 == 61");
+            		cardHandle.setPivSelected(true);
             		return MiddlewareStatus.PIV_OK;
             	}
 
@@ -87,6 +90,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
             // Populated the response in ApplicationProperties
             byte[] properties = response.getData();
             if(properties != null) applicationProperties.setBytes(properties);
+            cardHandle.setPivSelected(true);
 
         }
         catch (Exception ex) {
@@ -129,7 +133,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 s_logger.error("Failed to populate VERIFY APDU buffer");
             }
             byte[] rawAPDU = baos.toByteArray();
-            //s_logger.error("VERIFY APDU: {}", Hex.encodeHexString(rawAPDU));
+            //s_logger.error("VERIFY APDU: {}", HexUtil.toLowerHexString(rawAPDU));
             CardChannel channel = cardHandle.getCurrentChannel();
             CommandAPDU verifyApdu = new CommandAPDU(rawAPDU);
             ResponseAPDU resp = null;
@@ -144,12 +148,15 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
             }
             if(resp.getSW() == 0x9000) {
                 cardHandle.setCurrentChannel(channel);
+                // with no PIN, 9000 means the PIN was verified earlier
+                cardHandle.setPinVerified(true);
                 s_logger.debug("Successfully logged into card application");
             } else {
-                s_logger.error("Login failed: {}", Hex.encodeHexString(resp.getBytes()));
+                cardHandle.setPinVerified(false);
+                s_logger.error("Login failed: {}", HexUtil.toLowerHexString(resp.getBytes()));
                 s_logger.error("Card: {}", cardHandle.getCard());
-                //s_logger.error("Last command APDU: {}", Hex.encodeHexString(m_lastCommandAPDU.getBytes()));
-                s_logger.error("Last response APDU: {}", Hex.encodeHexString(m_lastResponseAPDU.getBytes()));
+                //s_logger.error("Last command APDU: {}", HexUtil.toLowerHexString(m_lastCommandAPDU.getBytes()));
+                s_logger.error("Last response APDU: {}", HexUtil.toLowerHexString(m_lastResponseAPDU.getBytes()));
                 return MiddlewareStatus.PIV_AUTHENTICATION_FAILURE;
             }
 
@@ -237,14 +244,8 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
             baos.write(oidBytes.length);
             baos.write(oidBytes);
 
-            //Construct APDU command using APDUUtils and applicationAID that was passed in.
-            CommandAPDU cmd = new CommandAPDU(APDUUtils.PIVGetDataAPDU(baos.toByteArray()));
-
-            PCSCWrapper pcsc = PCSCWrapper.getInstance();
             // Transmit command and get response
-            m_lastCommandAPDU = cmd; m_lastResponseAPDU = null;
-            ResponseAPDU response = pcsc.transmit(channel, cmd);
-            m_lastResponseAPDU = response;
+            ResponseAPDU response = transmitGetData(cardHandle, channel, baos.toByteArray());
 
             //Check for Successful execution status word
             if(response.getSW() != APDUConstants.SUCCESSFUL_EXEC) {
@@ -255,6 +256,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 }
                 else if(response.getSW() == APDUConstants.SECURITY_STATUS_NOT_SATISFIED){
                     s_logger.info("Security status not satisfied");
+                    cardHandle.setPinVerified(false);
                     return MiddlewareStatus.PIV_SECURITY_CONDITIONS_NOT_SATISFIED;
                 }
 
@@ -301,6 +303,91 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
         return MiddlewareStatus.PIV_OK;
     }
 
+    /**
+     *
+     * Sends GET DATA, asking for the whole container in one extended length response when the card
+     * and reader may support it and falling back to short APDUs with GET RESPONSE chaining when
+     * they do not. Any extended length response other than a container, a GET RESPONSE chain or
+     * "not found" is retried with a short APDU before it is reported. The outcome of the first
+     * conclusive exchange is remembered in the card handle: the card supports extended length once a
+     * container comes back, or once the short retry gets the same status back, and does not once the
+     * card or reader rejects the length fields or only the short retry gets an answer. A rejection
+     * overrides what the ATR said.
+     *
+     * @param cardHandle CardHandle object that encapsulates connection to a card
+     * @param channel CardChannel on which the PIV application was selected
+     * @param dataField Byte array with the GET DATA data field
+     * @return ResponseAPDU from the card, or null if no valid response was received
+     * @throws CardException if the reader fails to transmit a short APDU
+     */
+    private ResponseAPDU transmitGetData(CardHandle cardHandle, CardChannel channel, byte[] dataField) throws CardException {
+        PCSCWrapper pcsc = PCSCWrapper.getInstance();
+        CardHandle.ExtendedLengthSupport support = cardHandle.getExtendedLengthSupport();
+        if(support != CardHandle.ExtendedLengthSupport.NOT_SUPPORTED) {
+            CommandAPDU cmd = new CommandAPDU(APDUUtils.PIVGetDataAPDU(dataField, true));
+            m_lastCommandAPDU = cmd; m_lastResponseAPDU = null;
+            ResponseAPDU response = null;
+            try {
+                response = pcsc.transmit(channel, cmd);
+            } catch(CardException e) {
+                s_logger.warn("Extended length GET DATA failed, falling back to short APDUs: {}", e.getMessage());
+            }
+            if(response != null && isGetDataAnswer(response.getSW())) {
+                if(support == CardHandle.ExtendedLengthSupport.UNKNOWN && response.getSW() != APDUConstants.APP_NOT_FOUND) {
+                    s_logger.info("Card accepted extended length GET DATA");
+                    cardHandle.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.SUPPORTED);
+                }
+                m_lastResponseAPDU = response;
+                return response;
+            }
+            if(response == null || isExtendedLengthRejected(response.getSW())) {
+                s_logger.info("Extended length GET DATA was not accepted ({}), using short APDUs for this card",
+                        response == null ? "no response" : Integer.toHexString(response.getSW()));
+                cardHandle.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.NOT_SUPPORTED);
+            } else {
+                s_logger.debug("Extended length GET DATA returned {}, retrying with a short APDU", Integer.toHexString(response.getSW()));
+                ResponseAPDU shortResponse = transmitShortGetData(pcsc, channel, dataField);
+                if(shortResponse == null) {
+                    return null;
+                }
+                if(shortResponse.getSW() == response.getSW()) {
+                    // the status is about the container rather than the length fields
+                    if(cardHandle.getExtendedLengthSupport() == CardHandle.ExtendedLengthSupport.UNKNOWN) {
+                        cardHandle.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.SUPPORTED);
+                    }
+                } else if(isGetDataAnswer(shortResponse.getSW())) {
+                    s_logger.info("Only short GET DATA was answered ({} extended), using short APDUs for this card",
+                            Integer.toHexString(response.getSW()));
+                    cardHandle.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.NOT_SUPPORTED);
+                }
+                return shortResponse;
+            }
+        }
+        return transmitShortGetData(pcsc, channel, dataField);
+    }
+
+    private ResponseAPDU transmitShortGetData(PCSCWrapper pcsc, CardChannel channel, byte[] dataField) throws CardException {
+        CommandAPDU cmd = new CommandAPDU(APDUUtils.PIVGetDataAPDU(dataField));
+        m_lastCommandAPDU = cmd; m_lastResponseAPDU = null;
+        ResponseAPDU response = pcsc.transmit(channel, cmd);
+        m_lastResponseAPDU = response;
+        return response;
+    }
+
+    /**
+     * Status words that settle a GET DATA whatever length fields it was sent with
+     */
+    private static boolean isGetDataAnswer(int sw) {
+        return sw == APDUConstants.SUCCESSFUL_EXEC || sw == APDUConstants.APP_NOT_FOUND || (sw >> 8) == 0x61;
+    }
+
+    /**
+     * Status words a card returns when it does not understand extended length Lc/Le fields
+     */
+    private static boolean isExtendedLengthRejected(int sw) {
+        return sw == APDUConstants.WRONG_LENGTH || sw == APDUConstants.INS_NOT_SUPPORTED || sw == APDUConstants.CLA_NOT_SUPPORTED;
+    }
+
     /**
      *
      * @param cardHandle CardHandle object that encapsulates connection to a card
@@ -346,6 +433,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 }
                 else if(response.getSW() == APDUConstants.SECURITY_STATUS_NOT_SATISFIED){
                     s_logger.info("Security status not satisfied");
+                    cardHandle.setPinVerified(false);
                     return MiddlewareStatus.PIV_SECURITY_CONDITIONS_NOT_SATISFIED;
                 }
 
@@ -409,7 +497,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
             	return MiddlewareStatus.PIV_INVALID_CARD_HANDLE;
             
             byte[] rawAPDU = APDUUtils.PIVGeneralAuthenticateAPDU(keyReference, algorithmIdentifier, algorithmInput.getBytes());
-            s_logger.info("GENERAL AUTHENTICATE APDU: {}", Hex.encodeHexString(rawAPDU));
+            s_logger.info("GENERAL AUTHENTICATE APDU: {}", HexUtil.toLowerHexString(rawAPDU));
             
             
             CommandAPDU cmd = new CommandAPDU(rawAPDU);
@@ -425,6 +513,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
 
                 if(response.getSW() == APDUConstants.SECURITY_STATUS_NOT_SATISFIED){
                     s_logger.error("Security condition not satisfied");
+                    cardHandle.setPinVerified(false);
                     return MiddlewareStatus.PIV_SECURITY_CONDITIONS_NOT_SATISFIED;
                 }
                 else if(response.getSW() == APDUConstants.INCORREECT_PARAMETER){
@@ -448,7 +537,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
     		cardHandle.setCurrentChannel(channel);
     	} catch(Exception e) {
     		s_logger.error("Failed to complete pivCrypt operation for algorithm {} (key {}",
-    				Hex.encodeHexString(new byte[] {algorithmIdentifier}), Hex.encodeHexString(new byte[] {keyReference}), e);
+    				HexUtil.toLowerHexString(new byte[] {algorithmIdentifier}), HexUtil.toLowerHexString(new byte[] {keyReference}), e);
     	}
         return null;
     }
@@ -476,7 +565,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
 
             //Construct APDU command using APDUUtils and keyReference, cryptographicMechanism that was passed in.
             byte[] rawAPDU = APDUUtils.PIVGenerateKeyPairAPDU(keyReference, cryptographicMechanism, null);
-            s_logger.info("GENERATE APDU: {}", Hex.encodeHexString(rawAPDU));
+            s_logger.info("GENERATE APDU: {}", HexUtil.toLowerHexString(rawAPDU));
 
             CommandAPDU cmd = new CommandAPDU(rawAPDU);
 
@@ -493,6 +582,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
 
                 if(response.getSW() == APDUConstants.SECURITY_STATUS_NOT_SATISFIED){
                     s_logger.error("Security condition not satisfied");
+                    cardHandle.setPinVerified(false);
                     return MiddlewareStatus.PIV_SECURITY_CONDITIONS_NOT_SATISFIED;
                 }
                 else if(response.getSW() == APDUConstants.INCORREECT_PARAMETER){
@@ -558,7 +648,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 s_logger.error("Failed to populate SM APDU buffer");
             }
             byte[] rawAPDU = baos.toByteArray();
-            s_logger.info("SM APDU: {}", Hex.encodeHexString(rawAPDU));
+            s_logger.info("SM APDU: {}", HexUtil.toLowerHexString(rawAPDU));
             CardChannel channel = cardHandle.getCurrentChannel();
             CommandAPDU smApdu = new CommandAPDU(rawAPDU);
             ResponseAPDU resp = null;
@@ -575,7 +665,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 cardHandle.setCurrentChannel(channel);
                 s_logger.info("Successfully established secure messaging");
             } else {
-                s_logger.error("Error establishing secure messaging: {}", Hex.encodeHexString(resp.getBytes()));
+                s_logger.error("Error establishing secure messaging: {}", HexUtil.toLowerHexString(resp.getBytes()));
                 return MiddlewareStatus.PIV_SM_FAILED;
             }
 
@@ -624,7 +714,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 baosDataField.write(data.getBytes());
             }
 
-            s_logger.debug("dataField: {}", Hex.encodeHexString(baosDataField.toByteArray()));
+            s_logger.debug("dataField: {}", HexUtil.toLowerHexString(baosDataField.toByteArray()));
 
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             try {
@@ -638,7 +728,7 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 s_logger.error("Failed to populate PUT DATA APDU buffer");
             }
             byte[] rawAPDU = baos.toByteArray();
-            s_logger.info("PUT DATA APDU: {}", Hex.encodeHexString(rawAPDU));
+            s_logger.info("PUT DATA APDU: {}", HexUtil.toLowerHexString(rawAPDU));
             CardChannel channel = cardHandle.getCurrentChannel();
             CommandAPDU smApdu = new CommandAPDU(rawAPDU);
             ResponseAPDU resp = null;
@@ -655,16 +745,16 @@ abstract public class AbstractPIVApplication implements IPIVApplication {
                 cardHandle.setCurrentChannel(channel);
                 s_logger.info("Successfully wrote data object to the card.");
             } else if(resp.getSW() == 0x6A82){
-                s_logger.error("Failed to write object to the card, security condition not satisfied: {}", Hex.encodeHexString(resp.getBytes()));
+                s_logger.error("Failed to write object to the card, security condition not satisfied: {}", HexUtil.toLowerHexString(resp.getBytes()));
                 return MiddlewareStatus.PIV_SECURITY_CONDITIONS_NOT_SATISFIED;
             } else if(resp.getSW() == 0x6A81){
-                s_logger.error("Failed to write object to the card, function is not supported: {}", Hex.encodeHexString(resp.getBytes()));
+                s_logger.error("Failed to write object to the card, function is not supported: {}", HexUtil.toLowerHexString(resp.getBytes()));
                 return MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED;
             } else if(resp.getSW() == 0x6A84){
-                s_logger.error("Failed to write object to the card, not enough memory: {}", Hex.encodeHexString(resp.getBytes()));
+                s_logger.error("Failed to write object to the card, not enough memory: {}", HexUtil.toLowerHexString(resp.getBytes()));
                 return MiddlewareStatus.PIV_INSUFFICIENT_CARD_RESOURCE;
             } else {
-                s_logger.error("Failed to write object to the card: {}", Hex.encodeHexString(resp.getBytes()));
+                s_logger.error("Failed to write object to the card: {}", HexUtil.toLowerHexString(resp.getBytes()));
                 return MiddlewareStatus.PIV_CARD_READER_ERROR;
             }
 
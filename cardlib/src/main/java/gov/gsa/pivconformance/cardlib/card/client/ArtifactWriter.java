@@ -27,31 +27,60 @@ import org.slf4j.LoggerFactory;
 public class ArtifactWriter {
 	private static final Logger s_logger = LoggerFactory.getLogger(ArtifactWriter.class);
 	private static final String m_artifactDir = Paths.get(".").toAbsolutePath().normalize().toString();
-	static HashMap<String, ArrayList<String>> m_artifactCache = new HashMap<String, ArrayList<String>>();
+	// artifact directory for a thread testing its own card, in place of the working directory
+	private static final ThreadLocal<String> s_threadArtifactDir = new ThreadLocal<String>();
+	// files written so far, by the directory they were written to
+	static final HashMap<String, ArrayList<String>> m_artifactCache = new HashMap<String, ArrayList<String>>();
+
+	private final String m_rootDir;
 	
 	public ArtifactWriter(String subDir) {
+			m_rootDir = getArtifactDirectory();
 			init(subDir);
 	}
+
+	/**
+	 * Sets the directory that artifacts from the current thread are written beneath
+	 * 
+	 * @param dir the artifact directory, or null to use the working directory
+	 */
+	public static void setArtifactDirectoryForCurrentThread(String dir) {
+		if (dir == null)
+			s_threadArtifactDir.remove();
+		else
+			s_threadArtifactDir.set(dir);
+	}
+
+	/**
+	 * Gets the directory that artifacts from the current thread are written beneath
+	 * 
+	 * @return the artifact directory
+	 */
+	public static String getArtifactDirectory() {
+		String rv = s_threadArtifactDir.get();
+		return rv != null ? rv : m_artifactDir;
+	}
 	
 	void init(String artifactSubDir) {
 		String sep = File.separator;
-        String cwd = m_artifactDir;
         String artifactPath = null;
 
-        artifactPath = cwd + sep + artifactSubDir;
+        artifactPath = m_rootDir + sep + artifactSubDir;
         
         if (!Files.exists(Paths.get(artifactPath))) {
             File file = new File(artifactPath);
-            boolean exists = file.mkdir();
+            boolean exists = file.mkdirs();
             if (exists){
                s_logger.debug("Artifact subdirectory " + artifactSubDir + " created successfully");
-            } else{
+            } else if (!file.isDirectory()) {
                System.out.println("Couldn’t create directory " + artifactSubDir);
             }
         }
         
-        if (m_artifactCache.get(artifactSubDir) == null)
-        	m_artifactCache.put(artifactSubDir, new ArrayList<String>());
+        synchronized (m_artifactCache) {
+        	if (m_artifactCache.get(artifactPath) == null)
+        		m_artifactCache.put(artifactPath, new ArrayList<String>());
+        }
 	}
 	
 	/**
@@ -64,18 +93,27 @@ public class ArtifactWriter {
 
 	public boolean saveObject(String artifactSubDir, String containerName, byte[] bytes) {
 		boolean result = false;
-		String filePath = m_artifactDir + File.separator + artifactSubDir + File.separator  + containerName;
-		if (!m_artifactCache.containsKey(artifactSubDir))
-			init(artifactSubDir);
+		String artifactPath = m_rootDir + File.separator + artifactSubDir;
+		String filePath = artifactPath + File.separator  + containerName;
+		ArrayList<String> written;
+		boolean alreadyWritten;
+		synchronized (m_artifactCache) {
+			if (!m_artifactCache.containsKey(artifactPath))
+				init(artifactSubDir);
+			written = m_artifactCache.get(artifactPath);
+			alreadyWritten = written.contains(filePath);
+		}
 
-		if (!m_artifactCache.get(artifactSubDir).contains(filePath)) {
+		if (!alreadyWritten) {
 	    	try {
 	    		FileOutputStream fos = new FileOutputStream(filePath);
 	    		fos.write(bytes);
 	    		fos.flush();
 	    		fos.close();
 	    		s_logger.debug("Wrote " + filePath);
-				m_artifactCache.get(artifactSubDir).add(filePath);
+				synchronized (m_artifactCache) {
+					written.add(filePath);
+				}
 	    		result = true;
 	    	} catch (IOException e) {
 	    		// TODO Auto-generated catch block
@@ -94,22 +132,24 @@ public class ArtifactWriter {
 	
 	public static boolean prependNames(String timeStamp) {
 		boolean result = false;
-	    Iterator<?> it = m_artifactCache.entrySet().iterator();
-		while (it.hasNext()) {
-			@SuppressWarnings("rawtypes")
-			Map.Entry mapElement = (Map.Entry)it.next(); 
-			@SuppressWarnings("unchecked")
-			ArrayList<String> pathList = (ArrayList<String>) mapElement.getValue();
-			for (String p : pathList) {
-				int index = p.lastIndexOf(File.separator) + 1;
-				String baseName = p.substring(index);
-				String newBaseName = timeStamp + "-" + baseName;
-				File f = new File(p);
-				File g = new File(m_artifactDir + File.separator + mapElement.getKey() + File.separator + newBaseName);
-				try {
-					result = f.renameTo(g);
-				} catch (Exception e) {
-					e.printStackTrace();
+		synchronized (m_artifactCache) {
+			Iterator<?> it = m_artifactCache.entrySet().iterator();
+			while (it.hasNext()) {
+				@SuppressWarnings("rawtypes")
+				Map.Entry mapElement = (Map.Entry)it.next(); 
+				@SuppressWarnings("unchecked")
+				ArrayList<String> pathList = (ArrayList<String>) mapElement.getValue();
+				for (String p : pathList) {
+					int index = p.lastIndexOf(File.separator) + 1;
+					String baseName = p.substring(index);
+					String newBaseName = timeStamp + "-" + baseName;
+					File f = new File(p);
+					File g = new File(mapElement.getKey() + File.separator + newBaseName);
+					try {
+						result = f.renameTo(g);
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
 				}
 			}
 		}
@@ -118,6 +158,8 @@ public class ArtifactWriter {
 	}
 
 	public static void clean() {
-		m_artifactCache = new HashMap<String, ArrayList<String>>();
+		synchronized (m_artifactCache) {
+			m_artifactCache.clear();
+		}
 	}
 }
@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -97,7 +96,7 @@ public class BiometricInformationTemplatesGroupTemplate extends PIVDataObject {
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
         try{
             byte[] rawBytes = this.getBytes();
@@ -127,7 +126,7 @@ public class BiometricInformationTemplatesGroupTemplate extends PIVDataObject {
                         m_bITForSecondFinger = tlv.getBytesValue();
 
                 } else {
-                    s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                    s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
                 }
             }
         }catch (Exception ex) {
@@ -1,20 +1,67 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
-import java.util.HashMap;
+import javax.smartcardio.Card;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvReader;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
+
 import static gov.gsa.pivconformance.cardlib.card.client.APDUConstants.getFileNameForOid;
 
 /**
  * PIV Application class that caches the contents of containers read from the card.
+ *
+ * Containers are cached by card identity, made up of the ATR and the FASC-N and GUID from the CHUID,
+ * so containers read from one card are never served for another. The identity is established on the
+ * first read after each pivConnect().
+ *
+ * If a persistent store has been set, containers are served from it before going to the card, so
+ * a test run can be repeated while only the operations that need the card, such as VERIFY and
+ * GENERAL AUTHENTICATE, reach it.
  */
 public class CachingDefaultPIVApplication extends DefaultPIVApplication {
     private static final Logger s_logger = LoggerFactory.getLogger(CachingDefaultPIVApplication.class);
-    
-    static HashMap<String, byte[]> m_containerMap = new HashMap<String, byte[]>();
-    
+
+    private static final String SESSION_IDENTITY_PREFIX = "session:";
+    private static volatile MappedContainerStore s_persistentStore = null;
+
+    private final ContainerCache m_cache;
+
+    public CachingDefaultPIVApplication() {
+        this(ContainerCache.getInstance());
+    }
+
+    public CachingDefaultPIVApplication(ContainerCache cache) {
+        m_cache = cache;
+    }
+
+    /**
+     * Gets the cache holding the containers read by this application
+     * @return the container cache
+     */
+    public ContainerCache getCache() {
+        return m_cache;
+    }
+
+    /**
+     * Sets the persistent store that containers are read from before going to the card, and saved to after
+     * @param store the persistent store, or null to read only from the card
+     */
+    public static void setPersistentStore(MappedContainerStore store) {
+        s_persistentStore = store;
+    }
+
+    /**
+     * Gets the persistent store that containers are read from before going to the card
+     * @return the persistent store, or null if none is in use
+     */
+    public static MappedContainerStore getPersistentStore() {
+        return s_persistentStore;
+    }
+
     // Cache the buffers coming back from pivGetData to minimize churn
 	/**
 	 * Obtains and caches the given container OID from the card
@@ -25,11 +72,23 @@ public class CachingDefaultPIVApplication extends DefaultPIVApplication {
 	@Override
 	public MiddlewareStatus pivGetData(CardHandle cardHandle, String OID, PIVDataObject data) {
     	MiddlewareStatus result = MiddlewareStatus.PIV_OK;
-    	byte[] dataBytes = m_containerMap.get(OID);
+    	String identity = getCardIdentity(cardHandle);
+    	byte[] dataBytes = identity == null ? null : m_cache.get(identity, OID);
+    	// containers are only persisted for cards that can be recognized again later
+    	MappedContainerStore store = identity == null || identity.startsWith(SESSION_IDENTITY_PREFIX) ? null : s_persistentStore;
+    	if(dataBytes == null && store != null) {
+    		dataBytes = store.getBytes(identity, OID);
+    		if(dataBytes != null) {
+    			m_cache.put(identity, OID, dataBytes);
+    		}
+    	}
     	if(dataBytes == null) {  // Not cached
 			result = super.pivGetData(cardHandle, OID, data);
-			if (result == MiddlewareStatus.PIV_OK) {
-				m_containerMap.put(OID, data.getBytes());
+			if (result == MiddlewareStatus.PIV_OK && identity != null) {
+				m_cache.put(identity, OID, data.getBytes());
+				if (store != null && data.getBytes() != null) {
+					store.put(identity, OID, data.getBytes());
+				}
 			}
 		} else {
 			data.setBytes(dataBytes);
@@ -40,11 +99,95 @@ public class CachingDefaultPIVApplication extends DefaultPIVApplication {
 
     	return result;
     }
-	
+
+	/**
+	 * Establishes the identity of the card in the card handle, reading the CHUID if necessary
+	 * @param cardHandle the card handle
+	 * @return the card identity, or null if there is no card
+	 */
+	String getCardIdentity(CardHandle cardHandle) {
+		if (cardHandle == null) {
+			return null;
+		}
+		synchronized (cardHandle) {
+			String identity = cardHandle.getCardIdentity();
+			if (identity != null) {
+				return identity;
+			}
+			Card card = cardHandle.getCard();
+			if (card == null) {
+				return null;
+			}
+			String atr = HexUtil.toLowerHexString(card.getATR().getBytes());
+			PIVDataObject chuid = new CardHolderUniqueIdentifier();
+			String chuidIdentity = null;
+			if (super.pivGetData(cardHandle, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid) == MiddlewareStatus.PIV_OK) {
+				chuidIdentity = chuidIdentity(chuid.getBytes());
+			}
+			if (chuidIdentity != null) {
+				identity = atr + "/" + chuidIdentity;
+				m_cache.put(identity, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid.getBytes());
+				MappedContainerStore store = s_persistentStore;
+				if (store != null) {
+					store.put(identity, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid.getBytes());
+				}
+			} else {
+				// nothing to tell this card apart from another of the same type, so only share within this connection
+				identity = SESSION_IDENTITY_PREFIX + atr + "/" + Integer.toHexString(System.identityHashCode(card));
+				s_logger.warn("Unable to identify card from its CHUID, containers will be cached for this connection only");
+			}
+			s_logger.debug("Card identity: {}", identity);
+			cardHandle.setCardIdentity(identity);
+			return identity;
+		}
+	}
+
+	/**
+	 * Extracts the FASC-N and GUID from an encoded CHUID
+	 * @param chuid the CHUID container, including the 0x53 wrapper
+	 * @return the hex encoded FASC-N and GUID, or null if neither could be found
+	 */
+	static String chuidIdentity(byte[] chuid) {
+		if (chuid == null) {
+			return null;
+		}
+		byte[] fascn = null;
+		byte[] guid = null;
+		try {
+			// only two values are wanted, so pull them out rather than build the TLV tree
+			BerTlvReader outer = new BerTlvReader(chuid);
+			if (!outer.hasNext()) {
+				return null;
+			}
+			outer.next();
+			BerTlvReader values = new BerTlvReader(outer.getValueBuffer());
+			while (values.hasNext()) {
+				// the CHUID tags are taken whole, although some have the constructed bit set
+				if (values.next() == BerTlvReader.Event.END) {
+					continue;
+				}
+				if (values.getTag() == (TagConstants.FASC_N_TAG[0] & 0xFF)) {
+					fascn = values.readValue();
+				} else if (values.getTag() == (TagConstants.GUID_TAG[0] & 0xFF)) {
+					guid = values.readValue();
+				} else {
+					values.skipValue();
+				}
+			}
+		} catch (Exception e) {
+			s_logger.debug("Unable to parse CHUID for card identity: {}", e.getMessage());
+			return null;
+		}
+		if (fascn == null && guid == null) {
+			return null;
+		}
+		return (fascn == null ? "" : HexUtil.toLowerHexString(fascn)) + "/" + (guid == null ? "" : HexUtil.toLowerHexString(guid));
+	}
+
 	/**
 	 * Clears container cache
 	 */
     public void clearCache() {
-    	m_containerMap.clear();
-    }    
+    	m_cache.clear();
+    }
 }
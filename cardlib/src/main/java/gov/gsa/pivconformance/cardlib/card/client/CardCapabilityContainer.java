@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -244,7 +243,7 @@ public class CardCapabilityContainer extends PIVDataObject {
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
         try{
             byte [] raw = super.getBytes();
@@ -265,7 +264,7 @@ public class CardCapabilityContainer extends PIVDataObject {
             List<BerTlv> values = outer.getList();
             for(BerTlv tlv : values) {
                 if(tlv.isPrimitive()) {
-                    s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                    s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
 
                     BerTlvs outer2 = tp.parse(tlv.getBytesValue());
 
@@ -278,7 +277,7 @@ public class CardCapabilityContainer extends PIVDataObject {
                     List<BerTlv> values2 = outer2.getList();
                     for(BerTlv tlv2 : values2) {
                         if(tlv2.isPrimitive()) {
-                            s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv2.getTag().bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                            s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getBytesValue()));
                         } else {
                         	super.m_tagList.add(tlv2.getTag());
                             if(Arrays.equals(tlv2.getTag().bytes,TagConstants.CARD_IDENTIFIER_TAG)) {
@@ -384,7 +383,7 @@ public class CardCapabilityContainer extends PIVDataObject {
                     m_signedContent = scos.toByteArray();
 
                 } else {
-                    s_logger.info("Object: {}", Hex.encodeHexString(tlv.getTag().bytes));
+                    s_logger.info("Object: {}", HexUtil.toLowerHexString(tlv.getTag().bytes));
                 }
             }
         } catch (Exception ex) {
@@ -2,6 +2,11 @@ package gov.gsa.pivconformance.cardlib.card.client;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.cardlib.utils.TransmitCounters;
+
+import java.util.concurrent.locks.ReentrantLock;
+
 import javax.smartcardio.Card;
 import javax.smartcardio.CardChannel;
 
@@ -53,6 +58,121 @@ public class CardHandle {
         return m_card;
     }
 
+    /**
+     *
+     * Get the extended length APDU support negotiated for the card
+     *
+     * @return ExtendedLengthSupport value for the card
+     */
+    public ExtendedLengthSupport getExtendedLengthSupport() {
+        return m_extendedLengthSupport;
+    }
+
+    /**
+     *
+     * Set the extended length APDU support negotiated for the card
+     *
+     * @param extendedLengthSupport ExtendedLengthSupport value
+     */
+    public void setExtendedLengthSupport(ExtendedLengthSupport extendedLengthSupport) {
+        m_extendedLengthSupport = extendedLengthSupport;
+    }
+
+    /**
+     *
+     * Get the identity of the card, used to key cached containers
+     *
+     * @return String identifying the card, or null if it has not been established
+     */
+    public String getCardIdentity() {
+        return m_cardIdentity;
+    }
+
+    /**
+     *
+     * Set the identity of the card, used to key cached containers
+     *
+     * @param cardIdentity String identifying the card
+     */
+    public void setCardIdentity(String cardIdentity) {
+        m_cardIdentity = cardIdentity;
+    }
+
+    /**
+     *
+     * Gets the connection and round trip counts for the card behind this handle
+     *
+     * @return the counters for this card handle
+     */
+    public TransmitCounters getTransmitCounters() {
+        return m_transmitCounters;
+    }
+
+    /**
+     *
+     * Indicates whether the PIV Card Application is known to be the currently selected application,
+     * so that it need not be selected again
+     *
+     * @return true if the PIV Card Application was selected on this connection and nothing since
+     * has deselected it
+     */
+    public boolean isPivSelected() {
+        return m_pivSelected;
+    }
+
+    /**
+     *
+     * Records whether the PIV Card Application is the currently selected application
+     *
+     * @param pivSelected true once the PIV Card Application has been selected
+     */
+    public void setPivSelected(boolean pivSelected) {
+        m_pivSelected = pivSelected;
+    }
+
+    /**
+     *
+     * Indicates whether a PIN is known to have been verified in the current security status of the
+     * PIV Card Application, so that it need not be verified again
+     *
+     * @return true if a PIN was verified and the card has not reported 6982 since
+     */
+    public boolean isPinVerified() {
+        return m_pinVerified;
+    }
+
+    /**
+     *
+     * Records whether a PIN has been verified in the current security status of the card
+     *
+     * @param pinVerified true once a VERIFY has succeeded, false when the card reports 6982
+     */
+    public void setPinVerified(boolean pinVerified) {
+        m_pinVerified = pinVerified;
+    }
+
+    /**
+     *
+     * Forgets what is known of the selected application and security status, for when the card
+     * has been reset or connected to anew
+     */
+    public void resetSessionState() {
+        m_pivSelected = false;
+        m_pinVerified = false;
+    }
+
+    /**
+     *
+     * Gets the lock that must be held to send the card a sequence of commands, such as SELECT, VERIFY
+     * and GENERAL AUTHENTICATE, so that no other thread talking to the card can send anything in between.
+     * The transmitter only keeps a single command and its GET RESPONSE chain together.
+     *
+     * @return the card's lock, which is reentrant
+     */
+    public ReentrantLock getLock() {
+        return m_lock;
+    }
+
     /**
      * Initialize an invalid card handle object
      */
@@ -61,6 +181,8 @@ public class CardHandle {
         m_card = null;
         m_currentChannel = null;
         m_valid = false;
+        m_extendedLengthSupport = ExtendedLengthSupport.UNKNOWN;
+        m_cardIdentity = null;
     }
 
     /**
@@ -110,5 +232,23 @@ public class CardHandle {
 
 
     private CardChannel m_currentChannel;
+    // negotiated by whichever thread reads a container first
+    private volatile ExtendedLengthSupport m_extendedLengthSupport;
+    private volatile String m_cardIdentity;
+    private final TransmitCounters m_transmitCounters = new TransmitCounters();
+    private final ReentrantLock m_lock = new ReentrantLock();
+    // what is known of the card's state, shared with the thread reading containers ahead
+    private volatile boolean m_pivSelected = false;
+    private volatile boolean m_pinVerified = false;
+
+    /**
+     * Whether the card and reader accept extended length Lc/Le fields. UNKNOWN means the ATR did
+     * not say and the first GET DATA will act as the probe.
+     */
+    public enum ExtendedLengthSupport {
+        UNKNOWN,
+        SUPPORTED,
+        NOT_SUPPORTED
+    }
 
 }
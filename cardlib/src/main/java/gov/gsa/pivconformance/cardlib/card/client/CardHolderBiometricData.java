@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -219,7 +218,7 @@ public class CardHolderBiometricData extends SignedPIVDataObject {
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
     	boolean certFound = false;        
         ByteArrayOutputStream signedContentOutputStream = new ByteArrayOutputStream();
@@ -228,14 +227,16 @@ public class CardHolderBiometricData extends SignedPIVDataObject {
         try {
             byte[] rawBytes = this.getBytes();
 
-            s_logger.trace("rawBytes: {}", Hex.encodeHexString(rawBytes));
-
             if(rawBytes == null){
                 s_logger.error("No buffer to decode for {}.", APDUConstants.oidNameMap.get(super.getOID()));
                 return false;
             }
 
-            BerTlvParser tlvp = new BerTlvParser(new CCTTlvLogger(this.getClass()));
+            if (s_logger.isTraceEnabled())
+                s_logger.trace("rawBytes: {}", HexUtil.toLowerHexString(rawBytes));
+
+            // the nested TLVs are views of rawBytes, so the biometric data is copied once, when it is kept
+            BerTlvParser tlvp = new BerTlvParser(new CCTTlvLogger(this.getClass()), true);
             BerTlvs outer = tlvp.parse(rawBytes);
 
             if(outer == null){
@@ -246,9 +247,10 @@ public class CardHolderBiometricData extends SignedPIVDataObject {
             List<BerTlv> values = outer.getList();
             for(BerTlv tlv : values) {
                 if(tlv.isPrimitive()) {
-                    s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                    if (s_logger.isTraceEnabled())
+                        s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getValueBuffer()));
 
-                    BerTlvs outer2 = tlvp.parse(tlv.getBytesValue());
+                    BerTlvs outer2 = tlvp.parseValue(tlv);
 
                     if (outer2 == null) {
                         s_logger.error("Error parsing {}, unable to parse TLV value.", APDUConstants.oidNameMap.get(super.getOID()));
@@ -258,7 +260,8 @@ public class CardHolderBiometricData extends SignedPIVDataObject {
                     List<BerTlv> values2 = outer2.getList();
                     for (BerTlv tlv2 : values2) {
                         if (tlv2.isPrimitive()) {
-                            s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv2.getTag().bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                            if (s_logger.isTraceEnabled())
+                                s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getValueBuffer()));
                         } else {
                         	BerTag tag = tlv2.getTag();
                         	byte[] value = tlv2.getBytesValue();
@@ -296,7 +299,7 @@ public class CardHolderBiometricData extends SignedPIVDataObject {
                                 	signedContentOutputStream.write(APDUUtils.getTLV(TagConstants.ERROR_DETECTION_CODE_TAG, value));
 
                             } else {
-                                s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tag.bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                                s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tag.bytes), HexUtil.toLowerHexString(tlv2.getBytesValue()));
                             }
                             m_cbeffContainer = signedContentOutputStream.toByteArray();
                         }
@@ -304,7 +307,8 @@ public class CardHolderBiometricData extends SignedPIVDataObject {
 
                     // Break BC tag into Patron CBEFF header + BDB + SB
                     if (m_biometricData != null) {
-                        s_logger.trace("m_biometricData: {}", Hex.encodeHexString(m_biometricData));
+                        if (s_logger.isTraceEnabled())
+                            s_logger.trace("m_biometricData: {}", HexUtil.toLowerHexString(m_biometricData));
                         //Get Biometric data block (BDB) Length
                         byte[] biometricDataBlockLengthBytes = Arrays.copyOfRange(m_biometricData, 2, 6);
                         //Get Signature block (SB) Length
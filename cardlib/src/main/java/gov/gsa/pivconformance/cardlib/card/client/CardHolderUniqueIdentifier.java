@@ -16,9 +16,9 @@ import gov.gsa.pivconformance.cardlib.tlv.BerTlv;
 import gov.gsa.pivconformance.cardlib.tlv.BerTlvParser;
 import gov.gsa.pivconformance.cardlib.tlv.BerTlvs;
 import gov.gsa.pivconformance.cardlib.tlv.CCTTlvLogger;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
 
-import org.apache.commons.codec.binary.Hex;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -245,11 +245,16 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 	 *
 	 */
 	public static String guid2str(byte[] guid) {
-		String guidStr = null;
-		StringBuilder sb = new StringBuilder();
-		String s = Hex.encodeHexString(guid);
-		guidStr = s.replaceFirst( "([0-9a-fA-F]{8})([0-9a-fA-F]{4})([0-9a-fA-F]{4})([0-9a-fA-F]{4})([0-9a-fA-F]+)", "$1-$2-$3-$4-$5" );
-		return guidStr;
+		// too short for the 8-4-4-4 grouping and at least one digit after it, so left undivided
+		if (guid.length < 11) {
+			return HexUtil.toLowerHexString(guid);
+		}
+		StringBuilder sb = new StringBuilder(guid.length * 2 + 4);
+		HexUtil.appendHex(sb, guid, 0, 4, false, HexUtil.NO_SEPARATOR).append('-');
+		HexUtil.appendHex(sb, guid, 4, 2, false, HexUtil.NO_SEPARATOR).append('-');
+		HexUtil.appendHex(sb, guid, 6, 2, false, HexUtil.NO_SEPARATOR).append('-');
+		HexUtil.appendHex(sb, guid, 8, 2, false, HexUtil.NO_SEPARATOR).append('-');
+		return HexUtil.appendHex(sb, guid, 10, guid.length - 10, false, HexUtil.NO_SEPARATOR).toString();
 	}
 	/**
 	 * Converts a 200-bit raw FASC-N byte array to a string of digits
@@ -261,30 +266,25 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 
 	public static String cook(byte[] raw) {
 
-		String bitstr = "";
-		// Convert each hex digit to 8 0's and 1's and concatenate to into a string
-		for (byte b : raw) {
-			bitstr += String.format("%8s", Integer.toBinaryString((int) b & 0xff)).replace(' ', '0');
-		}
-		// Create a bit array to read 5 bits at a time.
-		byte[] bits = bitstr.getBytes();
 		int length, value, bctr, pctr;
-		String digits = "";
-		for (length = bits.length, value = 0, bctr = 0, pctr = 0; bctr < length - 5; bctr++) {
+		StringBuilder digits = new StringBuilder(32);
+		// Read the bits most significant first, 5 at a time
+		for (length = raw.length * 8, value = 0, bctr = 0, pctr = 0; bctr < length - 5; bctr++) {
+			int bit = (raw[bctr >>> 3] >>> (7 - (bctr & 7))) & 1;
 			// If this bit is a parity bit, process the value and reset the next digit value
 			if ((bctr + 1) % 5 == 0) {
 				// Check parity
-				if (((pctr % 2) == 0) && bits[bctr] != (byte) '1') {
+				if (((pctr % 2) == 0) && bit != 1) {
 					s_logger.error("Parity OFF error at b[{}]", bctr);
 					return null;
-				} else if (((pctr % 2) == 1) && bits[bctr] != (byte) '0') {
+				} else if (((pctr % 2) == 1) && bit != 0) {
 					s_logger.error("Parity ON error at b[{}]", bctr);
 					return null;
 				}
 
 				// Digit or whitespace? Sentinels, field separators, LRC, are > 9
 				if (value < 10) {
-					digits += Integer.toString(value);
+					digits.append((char) ('0' + value));
 				} else {
 					s_logger.trace("Whitespace char {} ended at bit[{}]",
 							Integer.toBinaryString(value & 0xff).replace(' ', '0'), bctr);
@@ -293,7 +293,7 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 				value = 0;
 				pctr = 0;
 			} else {
-				if ((bits[bctr] & 1) == 1) {
+				if (bit == 1) {
 					pctr++; // Increment parity count
 					// The bits of each digit are encoded in reverse order
 					value |= (1 << (bctr % 5));
@@ -301,7 +301,7 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 			}
 		}
 
-		return digits.length() == 32 ? digits : null;
+		return digits.length() == 32 ? digits.toString() : null;
 	}
 
 	/**
@@ -324,7 +324,7 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 	 * @return True if decode was successful, false otherwise
 	 */
 	@Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
 		SignerInformationStore signers = null;
 		SignerInformation signer = null;
@@ -332,7 +332,7 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 		try {
 			byte[] rawBytes = this.getBytes();
 
-			s_logger.trace("rawBytes: {}", Hex.encodeHexString(rawBytes));
+			s_logger.trace("rawBytes: {}", HexUtil.toLowerHexString(rawBytes));
 
 			if (rawBytes == null) {
 				s_logger.error("No buffer to decode for {}.", APDUConstants.oidNameMap.get(super.getOID()));
@@ -356,8 +356,8 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 			List<BerTlv> values = outer.getList();
 			for (BerTlv tlv : values) {
 				if (tlv.isPrimitive()) {
-					s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes),
-							Hex.encodeHexString(tlv.getBytesValue()));
+					s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes),
+							HexUtil.toLowerHexString(tlv.getBytesValue()));
 
 					BerTlvs outer2 = tlvp.parse(tlv.getBytesValue());
 
@@ -370,8 +370,8 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 					List<BerTlv> values2 = outer2.getList();
 					for (BerTlv tlv2 : values2) {
 						if (tlv2.isPrimitive()) {
-							s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv2.getTag().bytes),
-									Hex.encodeHexString(tlv2.getBytesValue()));
+							s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes),
+									HexUtil.toLowerHexString(tlv2.getBytesValue()));
 						} else {
 
 							BerTag tag = tlv2.getTag();
@@ -383,11 +383,11 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 							if (Arrays.equals(tag.bytes, TagConstants.BUFFER_LENGTH_TAG)) { // EE - Don't use in hash
 																							// (don't add to digest
 																							// input)
-								s_logger.warn("Deprecated tag: {} with value: {}", Hex.encodeHexString(tag.bytes),
-										Hex.encodeHexString(value));
+								s_logger.warn("Deprecated tag: {} with value: {}", HexUtil.toLowerHexString(tag.bytes),
+										HexUtil.toLowerHexString(value));
 							} else if (Arrays.equals(tag.bytes, TagConstants.DEPRECATED_AUTHENTICATION_KEY_MAP)) { // 3D - Dont' use in hash (don't add to digest input)
-								s_logger.warn("Deprecated tag: {} with value: {}", Hex.encodeHexString(tag.bytes),
-										Hex.encodeHexString(value));
+								s_logger.warn("Deprecated tag: {} with value: {}", HexUtil.toLowerHexString(tag.bytes),
+										HexUtil.toLowerHexString(value));
 								m_tagList.add(tag); // TODO: Re-visit this strategy
 								signedContentOutputStream.write(APDUUtils.getTLV(tag.bytes, value));
 							} else if (Arrays.equals(tag.bytes, TagConstants.FASC_N_TAG)) {
@@ -505,8 +505,8 @@ public class CardHolderUniqueIdentifier extends SignedPIVDataObject {
 								m_errorDetectionCode = true;
 								m_tagList.add(tag);
 							} else {
-								s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tag.bytes),
-										Hex.encodeHexString(value));
+								s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tag.bytes),
+										HexUtil.toLowerHexString(value));
 								// Unexpected tags (for future) - we could simply ignore
 								m_tagList.add(tag);
 								signedContentOutputStream.write(APDUUtils.getTLV(tag.bytes, value));
@@ -1,97 +1,287 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import javax.smartcardio.CardChannel;
 import javax.smartcardio.CardException;
-import javax.smartcardio.CommandAPDU;
-import javax.smartcardio.ResponseAPDU;
 
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.events.APDUEvent;
+import gov.gsa.pivconformance.cardlib.events.ConformanceEvent;
+import gov.gsa.pivconformance.cardlib.utils.APDUStatistics;
+import gov.gsa.pivconformance.cardlib.utils.APDUTraceFile;
+import gov.gsa.pivconformance.cardlib.utils.APDUTraceRecorder;
+import gov.gsa.pivconformance.cardlib.utils.IAPDUTraceSink;
 import gov.gsa.pivconformance.cardlib.utils.ITransmitCounter;
 import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
 
 /*
  * Workaround based on logic from the intarsys PCSC wrapper library, adapted to run
  * directly on top of javax.smartcardio.pcsc.
+ *
+ * A transmitter is bound to a single CardChannel for the life of the card session (see
+ * PCSCWrapper.getTransmitter()) and owns the command and response buffers used to talk
+ * to it, so steady-state exchanges do not allocate. The response buffer is allocated up front
+ * at the size of a whole extended-length response, since a reader that handles GET RESPONSE
+ * itself returns it in one transmit, and GET RESPONSE segments are appended to it in place.
  */
 public class ChainingAPDUTransmitter {
-	
+
 	private CardChannel m_channel = null;
     private static final Logger s_logger = LoggerFactory.getLogger(ChainingAPDUTransmitter.class);
     private static final Logger s_apduLogger = LoggerFactory.getLogger("gov.gsa.pivconformance.cardlib.apdu");
 	private final ITransmitCounter m_counter;
-	
+
+	// every APDU on every channel is recorded here, so that the last exchanges can be dumped after a failure
+	private static volatile IAPDUTraceSink s_traceSink = new APDUTraceRecorder();
+
+	// javax.smartcardio requires at least 258 bytes of room for a response, and a reader that
+	// handles GET RESPONSE itself can hand back an entire extended-length response in one go
+	private static final int MIN_SEGMENT_LENGTH = 256 + 2;
+	private static final int MAX_SEGMENT_LENGTH = 65536 + 2;
+	private static final int INITIAL_COMMAND_LENGTH = 261;
+
+	private byte[] m_commandBytes = new byte[INITIAL_COMMAND_LENGTH];
+	private ByteBuffer m_command = ByteBuffer.wrap(m_commandBytes);
+	private final byte[] m_getResponseBytes = { 0x00, (byte) 0xC0, 0x00, 0x00, 0x00 };
+	private final ByteBuffer m_getResponse = ByteBuffer.wrap(m_getResponseBytes);
+	private byte[] m_responseBytes = new byte[MAX_SEGMENT_LENGTH];
+	private ByteBuffer m_response = ByteBuffer.wrap(m_responseBytes);
+	private int m_largestResponse = 0;
+
 	public ChainingAPDUTransmitter(CardChannel c) {
+		this(c, PCSCWrapper.getInstance());
+	}
+
+	public ChainingAPDUTransmitter(CardChannel c, ITransmitCounter counter) {
 		m_channel = c;
-		m_counter = PCSCWrapper.getInstance();
+		m_counter = counter;
+	}
+
+	/**
+	 * Gets the sink every APDU exchanged with a card is recorded in
+	 * @return the trace sink, by default an APDUTraceRecorder, or null if tracing is off
+	 */
+	public static IAPDUTraceSink getTraceSink() {
+		return s_traceSink;
+	}
+
+	/**
+	 * Sets the sink every APDU exchanged with a card is recorded in
+	 * @param sink the trace sink, or null to turn tracing off
+	 */
+	public static void setTraceSink(IAPDUTraceSink sink) {
+		s_traceSink = sink;
+	}
+
+	/**
+	 * Gets the counter round trips on this channel are recorded against
+	 * @return the transmit counter
+	 */
+	public ITransmitCounter getCounter() {
+		return m_counter;
+	}
+
+	/**
+	 * Gets the channel this transmitter is bound to
+	 * @return the card channel
+	 */
+	public CardChannel getChannel() {
+		return m_channel;
+	}
+
+	/**
+	 * Gets the size of the largest response, including status words, seen on this channel
+	 * @return the size in bytes of the largest response
+	 */
+	public int getLargestResponse() {
+		return m_largestResponse;
+	}
+
+	/**
+	 * Gets the current capacity of the reusable response buffer
+	 * @return the response buffer capacity in bytes
+	 */
+	public int getResponseCapacity() {
+		return m_responseBytes.length;
+	}
+
+	/**
+	 * Sets the LE field of an encoded command APDU to the value the card asked for, patching it
+	 * in place if the command has one and appending it otherwise
+	 * @param command the encoded command APDU, with room for two more bytes
+	 * @param length the length of the encoded command APDU
+	 * @param correctLE LE value returned by the card in SW2
+	 * @return the length of the fixed command APDU
+	 */
+	protected int fixLengthExpected(byte[] command, int length, int correctLE) {
+		boolean extended = RequestAPDUWrapper.isExtendedApdu(command, length);
+		if (hasLengthExpected(command, length)) {
+			command[length - 1] = (byte) correctLE;
+			if (extended) {
+				command[length - 2] = 0x00;
+			}
+			return length;
+		}
+		if (extended) {
+			command[length++] = 0x00;
+		}
+		command[length++] = (byte) correctLE;
+		return length;
 	}
 
 	/**
-	 * Formats the request with the appropriate LE byte
-	 * @param request the request APDU
-	 * @param correctLE LE byte
-	 * @return the buffer returned from the smart card application
+	 * Works out from the ISO 7816-4 command cases whether an encoded command APDU ends in an LE field
+	 * @param command the encoded command APDU
+	 * @param length the length of the encoded command APDU
+	 * @return true for case 2 and case 4 commands
 	 */
-	protected RequestAPDUWrapper fixLengthExpected(RequestAPDUWrapper request, int correctLE) {
-		int cla = request.getCla();
-		int ins = request.getIns();
-		int p1 = request.getP1();
-		int p2 = request.getP2();
-		byte[] data = request.getData();
-		if (data == null) {
-			return new RequestAPDUWrapper(cla, ins, p1, p2, correctLE);
-		} else {
-			return new RequestAPDUWrapper(cla, ins, p1, p2, data, correctLE);
+	static boolean hasLengthExpected(byte[] command, int length) {
+		if (length <= 4) {
+			return false;
+		}
+		if (length == 5) {
+			return true;
+		}
+		if (RequestAPDUWrapper.isExtendedApdu(command, length)) {
+			if (length == 7) {
+				return true;
+			}
+			int lc = ((command[5] & 0xFF) << 8) | (command[6] & 0xFF);
+			return length == 7 + lc + 2;
 		}
+		return length == 5 + (command[4] & 0xFF) + 1;
 	}
 
 	/**
-	 *
-	 * @param request the APDU request
-	 * @return a response APDU wrapper containing the requested data
+	 * Sends one command APDU and writes the response into the response buffer at the given offset
+	 * @param command buffer containing the encoded command APDU
+	 * @param commandLength the length of the encoded command APDU
+	 * @param responseOffset the offset in the response buffer at which to store the response
+	 * @param segmentLength the most response bytes, including status words, the card can send back
+	 * @param tag the container tag the exchange is for, or 0, for the flight recorder event
+	 * @return the number of response bytes, including status words, that were received
 	 * @throws CardException if an error occurs
 	 */
-	ResponseAPDUWrapper nativeTransmit(RequestAPDUWrapper request) throws CardException, CardClientException {
-		CommandAPDU cmd = new CommandAPDU(request.getBytes());
-    	ResponseAPDU rsp = null;
+	int nativeTransmit(ByteBuffer command, int commandLength, int responseOffset, int segmentLength, int tag) throws CardException, CardClientException {
+		ensureResponseCapacity(responseOffset + Math.max(segmentLength, MIN_SEGMENT_LENGTH));
+		command.clear();
+		command.limit(commandLength);
+		m_response.clear();
+		m_response.position(responseOffset);
+		int received = 0;
+		IAPDUTraceSink trace = s_traceSink;
+		APDUEvent event = null;
+		if (ConformanceEvent.isRecording()) {
+			event = new APDUEvent();
+			event.begin();
+		}
     	try {
-    		
-			String apduTrace;
-			// Mask PIN
-	    	if (cmd.getINS() == APDUConstants.VERIFY) {
-	    		byte[] maskedPin = cmd.getBytes();
-	    		for (int i = 5, end = i + cmd.getNc(); i < end; i++) {
-	    			maskedPin[i] = (byte) 0xAA;
-	    		}
-	    		apduTrace = String.format("Sending Command APDU %s", Hex.encodeHexString(maskedPin).replaceAll("..(?=.)", "$0 "));
-	    	}
-	    	else {
-	    		apduTrace = String.format("Sending Command APDU %s", Hex.encodeHexString((cmd.getBytes())).replaceAll("..(?=.)", "$0 "));
-	    	}
-    		s_apduLogger.debug(apduTrace);
-    		
-    		m_counter.incrementTransmitCount();
-			rsp = m_channel.transmit(cmd);
-			s_apduLogger.debug(String.format("Received response %s", Hex.encodeHexString((rsp.getBytes())).replaceAll("..(?=.)", "$0 ")));
+    		if (trace != null) {
+    			trace.record(IAPDUTraceSink.COMMAND, command.array(), 0, commandLength);
+    		}
+    		if (s_apduLogger.isDebugEnabled()) {
+    			logAPDU(IAPDUTraceSink.COMMAND, command.array(), 0, commandLength);
+    		}
+    		m_counter.incrementTransmitCount(RequestAPDUWrapper.isExtendedApdu(command.array(), commandLength));
+    		received = m_channel.transmit(command, m_response);
+    		if (trace != null) {
+    			trace.record(IAPDUTraceSink.RESPONSE, m_responseBytes, responseOffset, received);
+    		}
+    		if (s_apduLogger.isDebugEnabled()) {
+    			logAPDU(IAPDUTraceSink.RESPONSE, m_responseBytes, responseOffset, received);
+    		}
 		} catch (CardException e) {
 			s_logger.error("Caught CardException {} transmitting APDU.", e.getMessage(), e);
 			throw e;
 		}
-		return new ResponseAPDUWrapper(rsp.getBytes());
+    	if (received < 2) {
+    		throw new CardClientException("Invalid response received from card reader");
+    	}
+		if (event != null) {
+			byte[] commandBytes = command.array();
+			event.ins = commandBytes[1] & 0xFF;
+			event.tag = tag;
+			event.commandLength = commandLength;
+			event.responseLength = received;
+			event.sw = ((m_responseBytes[responseOffset + received - 2] & 0xFF) << 8) | (m_responseBytes[responseOffset + received - 1] & 0xFF);
+			event.extended = RequestAPDUWrapper.isExtendedApdu(commandBytes, commandLength);
+			event.finish();
+		}
+		return received;
+	}
+
+	// formats an APDU for the apdu logger, masking the PIN of a VERIFY command
+	private static void logAPDU(int direction, byte[] data, int offset, int length) {
+		int pinLength = direction == IAPDUTraceSink.COMMAND ? APDUTraceFile.pinLength(data, offset, length) : 0;
+		if (pinLength > 0) {
+			data = Arrays.copyOfRange(data, offset, offset + length);
+			offset = 0;
+			Arrays.fill(data, 5, 5 + pinLength, (byte) 0xAA);
+		}
+		s_apduLogger.debug(APDUTraceFile.appendRecord(new StringBuilder(), direction, data, offset, length).toString());
 	}
-	
-	protected ResponseAPDUWrapper basicTransmit(RequestAPDUWrapper request)
-			throws CardClientException, CardException {
-		RequestAPDUWrapper encodedRequest = encodeRequest(request);
-		ResponseAPDUWrapper encodedResponse = nativeTransmit(
-				encodedRequest);
-		return decodeResponse(encodedResponse);
+
+	/**
+	 * Sends a command APDU, following any 6C XX and 61 XX status words, and leaves the complete
+	 * response at the start of the response buffer
+	 * @param command buffer containing the encoded command APDU
+	 * @param commandLength the length of the encoded command APDU
+	 * @return the number of response bytes, including status words
+	 * @throws CardClientException if the response is malformed
+	 * @throws CardException if an error occurs
+	 */
+	protected int exchange(byte[] command, int commandLength) throws CardClientException, CardException {
+		// leaves room for an LE field to be appended after a 6C XX
+		ensureCommandCapacity(commandLength + 2);
+		System.arraycopy(command, 0, m_commandBytes, 0, commandLength);
+		int tag = APDUStatistics.getDataTag(m_commandBytes, commandLength);
+		long start = System.nanoTime();
+		int bytesSent = commandLength;
+		int received = nativeTransmit(m_command, commandLength, 0, MAX_SEGMENT_LENGTH, tag);
+		int bytesReceived = received;
+		int getResponseCount = 0;
+		if ((m_responseBytes[received - 2] & 0xFF) == 0x6C) {
+			// wrong LengthExpected field: happens e.g. on ReinerSCT e-com in
+			// combination with Starcos3.0 cards
+			commandLength = fixLengthExpected(m_commandBytes, commandLength, m_responseBytes[received - 1] & 0xFF);
+			received = nativeTransmit(m_command, commandLength, 0, MAX_SEGMENT_LENGTH, tag);
+			bytesSent += commandLength;
+			bytesReceived += received;
+		}
+		if ((m_responseBytes[received - 2] & 0xFF) == 0x61) {
+			s_logger.debug("Using GET RESPONSE to retrieve large object");
+			// each segment is written over the status words of the one before it
+			int dataLength = received - 2;
+			do {
+				// "GET RESPONSE" command
+				// the card announces up to 256 bytes in SW2, with 00 standing for 256
+				int announced = m_responseBytes[dataLength + 1] & 0xFF;
+				m_getResponseBytes[4] = (byte) announced;
+				received = nativeTransmit(m_getResponse, m_getResponseBytes.length, dataLength,
+						(announced == 0 ? 256 : announced) + 2, tag);
+				dataLength += received - 2;
+				getResponseCount++;
+				bytesSent += m_getResponseBytes.length;
+				bytesReceived += received;
+			} while ((m_responseBytes[dataLength] & 0xFF) == 0x61);
+			received = dataLength + 2;
+			if (s_logger.isDebugEnabled()) {
+				s_logger.debug("GET RESPONSE: final size: {}", dataLength);
+				s_logger.debug("Returning status {} following GET RESPONSE", String.format("%1$02X %2$02X",
+						m_responseBytes[dataLength] & 0xFF, m_responseBytes[dataLength + 1] & 0xFF));
+			}
+		}
+		if (received > m_largestResponse) {
+			m_largestResponse = received;
+		}
+		int sw = ((m_responseBytes[received - 2] & 0xFF) << 8) | (m_responseBytes[received - 1] & 0xFF);
+		m_counter.recordExchange(m_commandBytes[1] & 0xFF, tag, sw,
+				getResponseCount, bytesSent, bytesReceived, System.nanoTime() - start);
+		return received;
 	}
 
 	protected ResponseAPDUWrapper decodeResponse(ResponseAPDUWrapper response)
@@ -104,52 +294,48 @@ public class ChainingAPDUTransmitter {
 		return request;
 	}
 
-	public ResponseAPDUWrapper transmit(RequestAPDUWrapper request) throws CardClientException, CardException {
-		ResponseAPDUWrapper response = this.basicTransmit(request);
-		if (response.getSw1() == 0x6C) {
-			// wrong LengthExpected field: happens e.g. on ReinerSCT e-com in
-			// combination with Starcos3.0 cards
-			int le = response.getSw2();
-			RequestAPDUWrapper fixedRequest = fixLengthExpected(request, le);
-			response = this.basicTransmit(fixedRequest);
-		}
-		if (response.getSw1() == 0x61) {
-			s_logger.debug("Using GET RESPONSE to retrieve large object");
-			ByteArrayOutputStream dataBaos = new ByteArrayOutputStream();
-			try {
-				dataBaos.write(response.getData());
-			} catch (IOException e) {
-				s_logger.error("Failed to write data to byte array.", e);
-				throw new CardClientException("Failed to write data to byte array.", e);
-			}
-			do {
-				// "GET RESPONSE" command
-				RequestAPDUWrapper fixedRequest = new RequestAPDUWrapper(0, 0xC0, 0, 0,
-						response.getSw2());
-				response = this.basicTransmit(fixedRequest);
-				try {
-					dataBaos.write(response.getData());
-				} catch (IOException e) {
-					s_logger.error("Caught exception appending to byte array", e);
-					throw new CardClientException("Unable to append to byte array", e);
-				}
-			} while(response.getSw1() == 0x61);
-
-			try {
-				dataBaos.flush();
-			} catch (IOException e) {
-				s_logger.error("Unable to flush byte array output stream", e);
-				throw new CardClientException("Unable to flush byte array output stream for GET RESPONSE handling.", e);
-			}
-			byte[] dataBytes = dataBaos.toByteArray();
-			s_logger.debug("GET RESPONSE: final size: {}", dataBytes.length);
-			ResponseAPDUWrapper fixedResponse = new ResponseAPDUWrapper(dataBytes, response.getSw1(), response.getSw2());
-			s_logger.debug("Returning status {} following GET RESPONSE", String.format("%1$02X %2$02X", response.getSw1(), response.getSw2()));
-			response = fixedResponse;
-		}
+	public synchronized ResponseAPDUWrapper transmit(RequestAPDUWrapper request) throws CardClientException, CardException {
+		byte[] encodedRequest = encodeRequest(request).getBytes();
+		int received = exchange(encodedRequest, encodedRequest.length);
+		ResponseAPDUWrapper response = decodeResponse(new ResponseAPDUWrapper(Arrays.copyOf(m_responseBytes, received)));
 		if (request.isChainedRequest() && request.getNextRequest() != null) {
 			response = transmit(request.getNextRequest());
 		}
 		return response;
 	}
+
+	/**
+	 * Sends a command APDU and copies the complete response into a caller-provided buffer. No
+	 * objects are allocated once the channel's buffers have grown to fit the response.
+	 * @param command buffer containing the encoded command APDU
+	 * @param commandLength the length of the encoded command APDU
+	 * @param response buffer that will receive the response data followed by SW1 SW2
+	 * @return the number of bytes written to the response buffer
+	 * @throws CardClientException if the response is malformed or does not fit in the response buffer
+	 * @throws CardException if an error occurs
+	 */
+	public synchronized int transmit(byte[] command, int commandLength, byte[] response) throws CardClientException, CardException {
+		int received = exchange(command, commandLength);
+		if (received > response.length) {
+			throw new CardClientException("Response of " + received + " bytes does not fit in a buffer of " + response.length + " bytes");
+		}
+		System.arraycopy(m_responseBytes, 0, response, 0, received);
+		return received;
+	}
+
+	private void ensureCommandCapacity(int length) {
+		if (m_commandBytes.length < length) {
+			m_commandBytes = new byte[length];
+			m_command = ByteBuffer.wrap(m_commandBytes);
+		}
+	}
+
+	private void ensureResponseCapacity(int length) {
+		if (m_responseBytes.length < length) {
+			byte[] grown = Arrays.copyOf(m_responseBytes, Math.max(length, m_responseBytes.length * 2));
+			s_logger.debug("Growing response buffer from {} to {} bytes", m_responseBytes.length, grown.length);
+			m_responseBytes = grown;
+			m_response = ByteBuffer.wrap(m_responseBytes);
+		}
+	}
 }
@@ -2,6 +2,7 @@ package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.BerTag;
 import gov.gsa.pivconformance.cardlib.tlv.BerTlv;
+import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -144,7 +145,7 @@ public class ConnectionDescription {
 
         try {
 
-            TerminalFactory tf2 = TerminalFactory.getDefault();
+            TerminalFactory tf2 = PCSCUtils.GetTerminalFactory();
             s_logger.info("Attempting to list card terminals");
             try {
                 for (CardTerminal ct : tf2.terminals().list()) {
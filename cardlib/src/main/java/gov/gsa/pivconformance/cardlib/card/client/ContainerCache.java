@@ -0,0 +1,198 @@
+package gov.gsa.pivconformance.cardlib.card.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of container contents read from cards, keyed by card identity and container OID, so that
+ * any number of card sessions can share it. The cache is bounded by the total size of the cached
+ * containers and evicts the least recently used container when it is full.
+ */
+public class ContainerCache {
+    private static final Logger s_logger = LoggerFactory.getLogger(ContainerCache.class);
+    private static final ContainerCache INSTANCE = new ContainerCache(32 * 1024 * 1024);
+
+    private final LinkedHashMap<String, byte[]> m_entries = new LinkedHashMap<String, byte[]>(64, 0.75f, true);
+    private long m_maxBytes;
+    private long m_bytes = 0;
+    private final AtomicLong m_hits = new AtomicLong();
+    private final AtomicLong m_misses = new AtomicLong();
+    private final AtomicLong m_evictions = new AtomicLong();
+
+    /**
+     * Creates a cache that holds at most the given number of container bytes
+     * @param maxBytes the maximum number of container bytes to hold
+     */
+    public ContainerCache(long maxBytes) {
+        m_maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the cache shared by all card sessions in this JVM
+     * @return the shared cache
+     */
+    public static ContainerCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static String key(String cardIdentity, String oid) {
+        return cardIdentity + "|" + oid;
+    }
+
+    /**
+     * Gets a cached container
+     * @param cardIdentity the identity of the card the container was read from
+     * @param oid the container OID
+     * @return the container bytes, or null if the container is not cached
+     */
+    public byte[] get(String cardIdentity, String oid) {
+        byte[] rv;
+        synchronized (m_entries) {
+            rv = m_entries.get(key(cardIdentity, oid));
+        }
+        if (rv == null) {
+            m_misses.incrementAndGet();
+        } else {
+            m_hits.incrementAndGet();
+        }
+        return rv;
+    }
+
+    /**
+     * Caches a container, evicting the least recently used containers to make room for it
+     * @param cardIdentity the identity of the card the container was read from
+     * @param oid the container OID
+     * @param data the container bytes
+     */
+    public void put(String cardIdentity, String oid, byte[] data) {
+        if (data == null || data.length > m_maxBytes) {
+            return;
+        }
+        synchronized (m_entries) {
+            byte[] previous = m_entries.put(key(cardIdentity, oid), data);
+            if (previous != null) {
+                m_bytes -= previous.length;
+            }
+            m_bytes += data.length;
+            evict(m_maxBytes);
+        }
+    }
+
+    /**
+     * Removes all of the containers cached for a card
+     * @param cardIdentity the identity of the card
+     */
+    public void invalidate(String cardIdentity) {
+        String prefix = cardIdentity + "|";
+        synchronized (m_entries) {
+            Iterator<Map.Entry<String, byte[]>> it = m_entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, byte[]> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    m_bytes -= entry.getValue().length;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached containers
+     */
+    public void clear() {
+        synchronized (m_entries) {
+            m_entries.clear();
+            m_bytes = 0;
+        }
+    }
+
+    private void evict(long limit) {
+        Iterator<Map.Entry<String, byte[]>> it = m_entries.entrySet().iterator();
+        while (m_bytes > limit && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            m_bytes -= eldest.getValue().length;
+            it.remove();
+            m_evictions.incrementAndGet();
+            s_logger.debug("Evicted {} from container cache", eldest.getKey());
+        }
+    }
+
+    /**
+     * Gets the maximum number of container bytes the cache will hold
+     * @return the limit in bytes
+     */
+    public long getMaxBytes() {
+        synchronized (m_entries) {
+            return m_maxBytes;
+        }
+    }
+
+    /**
+     * Sets the maximum number of container bytes the cache will hold, evicting containers if needed
+     * @param maxBytes the limit in bytes
+     */
+    public void setMaxBytes(long maxBytes) {
+        synchronized (m_entries) {
+            m_maxBytes = maxBytes;
+            evict(m_maxBytes);
+        }
+    }
+
+    /**
+     * Gets the number of container bytes currently cached
+     * @return the number of bytes cached
+     */
+    public long getByteCount() {
+        synchronized (m_entries) {
+            return m_bytes;
+        }
+    }
+
+    /**
+     * Gets the number of containers currently cached
+     * @return the number of containers cached
+     */
+    public int getEntryCount() {
+        synchronized (m_entries) {
+            return m_entries.size();
+        }
+    }
+
+    /**
+     * Gets the number of lookups that found a cached container
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return m_hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that did not find a cached container
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return m_misses.get();
+    }
+
+    /**
+     * Gets the number of containers evicted to stay within the size limit
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return m_evictions.get();
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters
+     */
+    public void resetCounters() {
+        m_hits.set(0);
+        m_misses.set(0);
+        m_evictions.set(0);
+    }
+}
@@ -32,16 +32,59 @@ public class DataModelSingleton {
      */
     
     private static final DataModelSingleton INSTANCE = new DataModelSingleton();
+
+    /*
+     * Instance bound to the current thread when several cards are tested at once
+     */
+
+    private static final ThreadLocal<DataModelSingleton> s_threadInstance = new ThreadLocal<DataModelSingleton>();
     
     /**
      * Public accessor of this so it can be instantiated by the framework
      * 
-     * @return
+     * @return the instance bound to the current thread, if any, otherwise the shared instance
      */
     
     public static DataModelSingleton getInstance() {
+        DataModelSingleton rv = s_threadInstance.get();
+        return rv != null ? rv : INSTANCE;
+    }
+
+    /**
+     * Creates an instance that is not shared, for binding to a thread that tests its own card
+     * 
+     * @return a new instance
+     */
+
+    public static DataModelSingleton createIsolatedInstance() {
+        return new DataModelSingleton();
+    }
+
+    /**
+     * Gets the instance shared by threads that have no instance of their own
+     * 
+     * @return the shared instance
+     */
+
+    public static DataModelSingleton getSharedInstance() {
         return INSTANCE;
     }
+
+    /**
+     * Binds an instance to the current thread, so that getInstance() returns it on this thread
+     * 
+     * @param instance the instance to bind, or null to go back to the shared instance
+     * @return the instance that was bound to the current thread before, or null if there was none
+     */
+
+    public static DataModelSingleton bindToCurrentThread(DataModelSingleton instance) {
+        DataModelSingleton previous = s_threadInstance.get();
+        if (instance == null)
+            s_threadInstance.remove();
+        else
+            s_threadInstance.set(instance);
+        return previous;
+    }
     
     /**
      * Reset
@@ -1,6 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
-import org.apache.commons.codec.binary.Hex;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,7 +38,7 @@ public class DefaultPIVApplication extends AbstractPIVApplication {
         // For now, if the caller did not specify an AID, use the default.
         byte[] aid = applicationAID.getBytes();
         if(aid == null) {
-            s_logger.info("Using default AID ({}) to select PIV application", Hex.encodeHexString(APDUConstants.PIV_APPID));
+            s_logger.info("Using default AID ({}) to select PIV application", HexUtil.toLowerHexString(APDUConstants.PIV_APPID));
             applicationAID.setBytes(APDUConstants.PIV_APPID);
         }
         MiddlewareStatus rv = super.pivSelectCardApplication(cardHandle, applicationAID, applicationProperties);
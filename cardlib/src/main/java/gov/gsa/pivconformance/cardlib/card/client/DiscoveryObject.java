@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -200,9 +199,9 @@ public class DiscoveryObject extends PIVDataObject {
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
         byte[] rawBytes = this.getBytes();
-        s_logger.trace("rawBytes: {}", Hex.encodeHexString(rawBytes));
+        s_logger.trace("rawBytes: {}", HexUtil.toLowerHexString(rawBytes));
         if(rawBytes.length == 0) {
             s_logger.info("DiscoveryObject.decode() called for empty discovery object.");
             return false;
@@ -251,7 +250,7 @@ public class DiscoveryObject extends PIVDataObject {
                     }
 
                 } else {
-                    s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                    s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
                 }
             }
 
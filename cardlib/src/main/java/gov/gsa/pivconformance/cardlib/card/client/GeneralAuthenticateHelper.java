@@ -18,7 +18,6 @@ import javax.smartcardio.CardException;
 import javax.smartcardio.CommandAPDU;
 import javax.smartcardio.ResponseAPDU;
 
-import org.apache.commons.codec.binary.Hex;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.DigestInfo;
@@ -32,6 +31,7 @@ import gov.gsa.pivconformance.cardlib.tlv.BerTlvBuilder;
 import gov.gsa.pivconformance.cardlib.tlv.BerTlvParser;
 import gov.gsa.pivconformance.cardlib.tlv.BerTlvs;
 import gov.gsa.pivconformance.cardlib.tlv.CCTTlvLogger;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.cardlib.utils.NullParameters;
 import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
 
@@ -60,7 +60,7 @@ public class GeneralAuthenticateHelper {
 		BerTlvBuilder templateBuilder = new BerTlvBuilder();
 		templateBuilder.addBytes(new BerTag(DYNAMIC_AUTHENTICATION_TEMPLATE), inner);
 		byte[] template = templateBuilder.buildArray();
-		s_logger.debug("Generated challenge for {}: {}", containerOid, Hex.encodeHexString(template));
+		s_logger.debug("Generated challenge for {}: {}", containerOid, HexUtil.toLowerHexString(template));
 		return template;
 	}
 	
@@ -114,6 +114,9 @@ public class GeneralAuthenticateHelper {
 				}
 			}
 		}
+		if(resp.getSW() == APDUConstants.SECURITY_STATUS_NOT_SATISFIED) {
+			ch.setPinVerified(false);
+		}
 		if(resp.getSW1() != 0x90 && resp.getSW2() != 0x00) {
 			s_logger.error("Got status code of {}{} for GENERAL AUTHENTICATE", 
 					Integer.toHexString(resp.getSW1()), Integer.toHexString(resp.getSW2()));
@@ -154,8 +157,8 @@ public class GeneralAuthenticateHelper {
 				s_logger.error("Unable to digest challenge", e);
 				return null;
 			}
-			s_logger.debug("Challenge: {}", Hex.encodeHexString(challenge));
-			s_logger.debug("{} ({}) digest of challenge: {}", digestOid, jceDigestName, Hex.encodeHexString(challengeDigest));
+			s_logger.debug("Challenge: {}", HexUtil.toLowerHexString(challenge));
+			s_logger.debug("{} ({}) digest of challenge: {}", digestOid, jceDigestName, HexUtil.toLowerHexString(challengeDigest));
 			
 			AlgorithmIdentifier digestAlgId = new AlgorithmIdentifier(new ASN1ObjectIdentifier(digestOid), new NullParameters());
 			DigestInfo formattedDigest = new DigestInfo(digestAlgId, challengeDigest);
@@ -198,7 +201,7 @@ public class GeneralAuthenticateHelper {
 		}
     	byte[] challenge = new byte[size];
     	rng.nextBytes(challenge);
-    	s_logger.debug("Challenge bytes: {}", Hex.encodeHexString(challenge));
+    	s_logger.debug("Challenge bytes: {}", HexUtil.toLowerHexString(challenge));
     	return challenge;
     }
     
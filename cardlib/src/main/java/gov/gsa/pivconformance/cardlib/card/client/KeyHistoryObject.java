@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -101,7 +100,7 @@ public class KeyHistoryObject extends PIVDataObject {
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
         byte[] rawBytes = this.getBytes();
         BerTlvParser tlvp = new BerTlvParser(new CCTTlvLogger(this.getClass()));
         BerTlvs outer = tlvp.parse(rawBytes);
@@ -123,9 +122,9 @@ public class KeyHistoryObject extends PIVDataObject {
                 m_content.put(tlv.getTag(), tlv.getBytesValue());
             } else if(!Arrays.equals(tag, TagConstants.ERROR_DETECTION_CODE_TAG) && tlv.getBytesValue().length != 0) {
                 m_content.put(tlv.getTag(), tlv.getBytesValue());
-                s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
             }
-            s_logger.info("found tag: {}", Hex.encodeHexString(tag));
+            s_logger.info("found tag: {}", HexUtil.toLowerHexString(tag));
         }
 
         if (m_keysWithOnCardCerts == -1 || m_keysWithOffCardCerts == -1)
@@ -0,0 +1,373 @@
+package gov.gsa.pivconformance.cardlib.card.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent store of container contents, keyed by card identity and container OID, that lets a test run
+ * be repeated without reading every container from the card again.
+ *
+ * The store is an append-only file of records, each holding the key, the container bytes and a CRC32 of
+ * both. The index is rebuilt from the file when it is opened; a record that fails its checksum ends the
+ * scan and the file is truncated there. Containers are served from a read-only memory mapping of the file,
+ * and each record's checksum is checked again when it is read, so that a file damaged while the store is
+ * open is not served; a record that fails is dropped from the index and the container read from the card.
+ *
+ * When an append would take the file past its size cap, records that have been superseded are dropped by
+ * compacting the file into a new generation, named after the store file with the generation number added
+ * (containers.store.1, containers.store.2 and so on). The old generation can't be replaced in place, since
+ * a mapping can't be released on demand and Windows won't replace or delete a mapped file. It is deleted
+ * once it can be, which may not be until the store is next opened.
+ */
+public class MappedContainerStore implements Closeable {
+    private static final Logger s_logger = LoggerFactory.getLogger(MappedContainerStore.class);
+
+    private static final byte[] MAGIC = { 'P', 'I', 'V', 'C', 'S', '0', '0', '1' };
+    // key length, data length, CRC32 of key and data
+    private static final int RECORD_HEADER_LENGTH = 12;
+
+    private static class Entry {
+        final long recordOffset;
+        final int keyLength;
+        final int dataLength;
+        final int checksum;
+
+        Entry(long recordOffset, int keyLength, int dataLength, int checksum) {
+            this.recordOffset = recordOffset;
+            this.keyLength = keyLength;
+            this.dataLength = dataLength;
+            this.checksum = checksum;
+        }
+
+        long dataOffset() {
+            return recordOffset + RECORD_HEADER_LENGTH + keyLength;
+        }
+
+        int recordLength() {
+            return RECORD_HEADER_LENGTH + keyLength + dataLength;
+        }
+    }
+
+    private final Path m_path;
+    private final long m_maxBytes;
+    private final Map<String, Entry> m_index = new HashMap<String, Entry>();
+    private final CRC32 m_crc = new CRC32();
+    // the generation being read and appended to; 0 is the store file itself
+    private int m_generation = 0;
+    private FileChannel m_channel;
+    private MappedByteBuffer m_map = null;
+    private long m_size = 0;
+    private long m_liveBytes = 0;
+
+    /**
+     * Opens a store, creating the file if it does not exist
+     * @param path the store file
+     * @param maxBytes the size cap for the file, at most 2 GB
+     * @throws IOException if the file cannot be opened or is not a container store
+     */
+    public MappedContainerStore(Path path, long maxBytes) throws IOException {
+        if (maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Container store size cap cannot exceed " + Integer.MAX_VALUE + " bytes");
+        }
+        m_path = path;
+        m_maxBytes = maxBytes;
+        m_generation = latestGeneration();
+        open();
+        deleteOldGenerations();
+    }
+
+    private Path generationPath(int generation) {
+        return generation == 0 ? m_path : Paths.get(m_path.toString() + "." + generation);
+    }
+
+    // the highest numbered generation of the store on disk
+    private int latestGeneration() throws IOException {
+        int rv = 0;
+        Path dir = m_path.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return rv;
+        }
+        String prefix = m_path.getFileName().toString() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, f -> f.getFileName().toString().startsWith(prefix))) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit) && suffix.length() < 10) {
+                    rv = Math.max(rv, Integer.parseInt(suffix));
+                }
+            }
+        }
+        return rv;
+    }
+
+    // removes the generations before the current one, and any compaction that didn't finish, where they
+    // are no longer mapped
+    private void deleteOldGenerations() {
+        for (int generation = 0; generation < m_generation; generation++) {
+            deleteIfUnused(generationPath(generation));
+        }
+        deleteIfUnused(Paths.get(generationPath(m_generation + 1).toString() + ".tmp"));
+    }
+
+    private void deleteIfUnused(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            s_logger.debug("{} is still in use and will be deleted when the store is next opened: {}", file, e.getMessage());
+        }
+    }
+
+    private static String key(String cardIdentity, String oid) {
+        return cardIdentity + "|" + oid;
+    }
+
+    private void open() throws IOException {
+        Path file = generationPath(m_generation);
+        m_channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        m_index.clear();
+        m_map = null;
+        m_liveBytes = 0;
+        if (m_channel.size() == 0) {
+            m_channel.write(ByteBuffer.wrap(MAGIC), 0);
+            m_size = MAGIC.length;
+            return;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        m_channel.read(magic, 0);
+        if (!Arrays.equals(magic.array(), MAGIC)) {
+            m_channel.close();
+            throw new IOException(file + " is not a container store");
+        }
+        scan();
+    }
+
+    private void scan() throws IOException {
+        long fileSize = m_channel.size();
+        long offset = MAGIC.length;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+        CRC32 crc = new CRC32();
+        while (offset + RECORD_HEADER_LENGTH <= fileSize) {
+            header.clear();
+            m_channel.read(header, offset);
+            int keyLength = header.getInt(0);
+            int dataLength = header.getInt(4);
+            int checksum = header.getInt(8);
+            if (keyLength <= 0 || dataLength < 0 || offset + RECORD_HEADER_LENGTH + keyLength + dataLength > fileSize) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(keyLength + dataLength);
+            m_channel.read(body, offset + RECORD_HEADER_LENGTH);
+            crc.reset();
+            crc.update(body.array(), 0, body.capacity());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            index(key, new Entry(offset, keyLength, dataLength, checksum));
+            offset += RECORD_HEADER_LENGTH + keyLength + dataLength;
+        }
+        if (offset < fileSize) {
+            s_logger.warn("Discarding {} bytes of damaged or incomplete records at the end of {}", fileSize - offset, generationPath(m_generation));
+            m_channel.truncate(offset);
+        }
+        m_size = offset;
+        s_logger.debug("Opened container store {} with {} containers in {} bytes", generationPath(m_generation), m_index.size(), m_size);
+    }
+
+    private void index(String key, Entry entry) {
+        Entry previous = m_index.put(key, entry);
+        if (previous != null) {
+            m_liveBytes -= previous.recordLength();
+        }
+        m_liveBytes += entry.recordLength();
+    }
+
+    /**
+     * Gets a stored container as a read-only view of the mapped file, without copying it. The record's
+     * checksum is checked first.
+     * @param cardIdentity the identity of the card the container was read from
+     * @param oid the container OID
+     * @return a buffer positioned at the start of the container, or null if it is not stored or its record is damaged
+     * @throws IOException if the file cannot be mapped
+     */
+    public synchronized ByteBuffer get(String cardIdentity, String oid) throws IOException {
+        String key = key(cardIdentity, oid);
+        Entry entry = m_index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (m_map == null || m_map.capacity() < entry.dataOffset() + entry.dataLength) {
+            // appended to since the last mapping
+            m_map = m_channel.map(FileChannel.MapMode.READ_ONLY, 0, m_size);
+        }
+        ByteBuffer view = m_map.duplicate();
+        view.position((int) entry.recordOffset + RECORD_HEADER_LENGTH);
+        view.limit((int) entry.dataOffset() + entry.dataLength);
+        m_crc.reset();
+        m_crc.update(view);
+        if ((int) m_crc.getValue() != entry.checksum) {
+            s_logger.warn("Record for {} in {} is damaged and will not be used", oid, generationPath(m_generation));
+            m_index.remove(key);
+            m_liveBytes -= entry.recordLength();
+            return null;
+        }
+        view.position((int) entry.dataOffset());
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets a copy of a stored container
+     * @param cardIdentity the identity of the card the container was read from
+     * @param oid the container OID
+     * @return the container bytes, or null if it is not stored or the store cannot be read
+     */
+    public byte[] getBytes(String cardIdentity, String oid) {
+        try {
+            ByteBuffer view = get(cardIdentity, oid);
+            if (view == null) {
+                return null;
+            }
+            byte[] rv = new byte[view.remaining()];
+            view.get(rv);
+            return rv;
+        } catch (IOException e) {
+            s_logger.error("Unable to read {} from container store {}", oid, m_path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Appends a container to the store, unless the same bytes are already stored for it
+     * @param cardIdentity the identity of the card the container was read from
+     * @param oid the container OID
+     * @param data the container bytes
+     * @return true if the container is in the store
+     */
+    public synchronized boolean put(String cardIdentity, String oid, byte[] data) {
+        String key = key(cardIdentity, oid);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        try {
+            Entry existing = m_index.get(key);
+            if (existing != null && existing.dataLength == data.length) {
+                ByteBuffer view = get(cardIdentity, oid);
+                if (view != null && view.equals(ByteBuffer.wrap(data))) {
+                    return true;
+                }
+            }
+            int recordLength = RECORD_HEADER_LENGTH + keyBytes.length + data.length;
+            if (m_size + recordLength > m_maxBytes) {
+                compact();
+                if (m_size + recordLength > m_maxBytes) {
+                    s_logger.warn("Container store {} is full, not storing {}", m_path, oid);
+                    return false;
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(keyBytes);
+            crc.update(data);
+            ByteBuffer record = ByteBuffer.allocate(recordLength);
+            record.putInt(keyBytes.length).putInt(data.length).putInt((int) crc.getValue());
+            record.put(keyBytes).put(data);
+            record.flip();
+            long offset = m_size;
+            while (record.hasRemaining()) {
+                offset += m_channel.write(record, offset);
+            }
+            index(key, new Entry(m_size, keyBytes.length, data.length, (int) crc.getValue()));
+            m_size = offset;
+            return true;
+        } catch (IOException e) {
+            s_logger.error("Unable to write {} to container store {}", oid, m_path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the current record for each container to the next generation of the store and switches to it.
+     * Views handed out by get() keep reading the generation they came from.
+     * @throws IOException if the compacted file cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        if (m_liveBytes + MAGIC.length == m_size) {
+            return;
+        }
+        Path previous = generationPath(m_generation);
+        Path next = generationPath(m_generation + 1);
+        Path compacted = Paths.get(next.toString() + ".tmp");
+        List<Entry> live = new ArrayList<Entry>(m_index.values());
+        live.sort(Comparator.comparingLong(e -> e.recordOffset));
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(MAGIC));
+            for (Entry e : live) {
+                long position = e.recordOffset;
+                long end = e.recordOffset + e.recordLength();
+                while (position < end) {
+                    position += m_channel.transferTo(position, end - position, out);
+                }
+            }
+            out.force(true);
+        }
+        // the new generation has never been mapped, so it can be renamed into place on any platform
+        Files.move(compacted, next, StandardCopyOption.ATOMIC_MOVE);
+        long before = m_size;
+        m_map = null;
+        m_channel.close();
+        m_generation++;
+        open();
+        deleteIfUnused(previous);
+        s_logger.debug("Compacted container store {} from {} to {} bytes in {}", m_path, before, m_size, next);
+    }
+
+    /**
+     * Gets the number of containers in the store
+     * @return the number of containers
+     */
+    public synchronized int getEntryCount() {
+        return m_index.size();
+    }
+
+    /**
+     * Gets the size of the store file
+     * @return the size in bytes
+     */
+    public synchronized long getFileSize() {
+        return m_size;
+    }
+
+    /**
+     * Gets the number of bytes taken up by the current record for each container
+     * @return the size in bytes of the records that would survive compaction
+     */
+    public synchronized long getLiveBytes() {
+        return m_liveBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        m_map = null;
+        if (m_channel.isOpen()) {
+            m_channel.force(true);
+            m_channel.close();
+        }
+    }
+}
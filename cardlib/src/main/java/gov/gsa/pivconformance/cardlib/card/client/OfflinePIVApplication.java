@@ -0,0 +1,126 @@
+package gov.gsa.pivconformance.cardlib.card.client;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static gov.gsa.pivconformance.cardlib.card.client.APDUConstants.getFileNameForOid;
+
+/**
+ * PIV application that serves containers from a directory of container dumps instead of a card, as
+ * written by ContainerDump with one &lt;oid&gt;.bin file per container. Operations that need a live
+ * card, such as VERIFY and GENERAL AUTHENTICATE, are not supported.
+ */
+public class OfflinePIVApplication extends AbstractPIVApplication {
+    private static final Logger s_logger = LoggerFactory.getLogger(OfflinePIVApplication.class);
+
+    private final Path m_directory;
+    private final Map<String, byte[]> m_containers = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * Creates a PIV application backed by a container dump directory
+     * @param directory the directory holding the &lt;oid&gt;.bin files
+     */
+    public OfflinePIVApplication(Path directory) {
+        m_directory = directory;
+    }
+
+    /**
+     * Gets the directory containers are read from
+     * @return the container dump directory
+     */
+    public Path getDirectory() {
+        return m_directory;
+    }
+
+    /**
+     * Gets the bytes of a container from the dump directory
+     * @param OID the container OID
+     * @return the container bytes, or null if the dump does not include the container
+     */
+    public byte[] getContainerBytes(String OID) {
+        byte[] rv = m_containers.get(OID);
+        if (rv == null) {
+            Path file = m_directory.resolve(OID + ".bin");
+            if (!Files.isReadable(file)) {
+                return null;
+            }
+            try {
+                rv = Files.readAllBytes(file);
+            } catch (IOException e) {
+                s_logger.error("Unable to read {} from {}", APDUConstants.oidNameMap.get(OID), file, e);
+                return null;
+            }
+            m_containers.put(OID, rv);
+        }
+        return rv;
+    }
+
+    @Override
+    public MiddlewareStatus pivSelectCardApplication(CardHandle cardHandle, ApplicationAID applicationAID, ApplicationProperties applicationProperties) {
+        // there is only the one application in a dump
+        return MiddlewareStatus.PIV_OK;
+    }
+
+    @Override
+    public MiddlewareStatus pivGetData(CardHandle cardHandle, String OID, PIVDataObject data) {
+        if (APDUConstants.oidMAP.get(OID) == null) {
+            s_logger.error("OID {} is not recognized by oidMAP.", OID);
+            return MiddlewareStatus.PIV_DATA_OBJECT_NOT_FOUND;
+        }
+        byte[] dataBytes = getContainerBytes(OID);
+        if (dataBytes == null) {
+            return MiddlewareStatus.PIV_DATA_OBJECT_NOT_FOUND;
+        }
+        data.setOID(OID);
+        data.setContainerName(getFileNameForOid(OID));
+        data.setBytes(dataBytes);
+        return MiddlewareStatus.PIV_OK;
+    }
+
+    @Override
+    public MiddlewareStatus pivGetAllData(CardHandle cardHandle, String OID, PIVDataObject data) {
+        return pivGetData(cardHandle, OID, data);
+    }
+
+    @Override
+    public MiddlewareStatus pivLogIntoCardApplication(CardHandle cardHandle, byte[] authenticators) {
+        s_logger.debug("pivLogIntoCardApplication() is not supported for a container dump");
+        return MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED;
+    }
+
+    @Override
+    public MiddlewareStatus pivLogoutOfCardApplication(CardHandle cardHandle) {
+        return MiddlewareStatus.PIV_OK;
+    }
+
+    @Override
+    public MiddlewareStatus pivCrypt(CardHandle cardHandle, byte algorithmIdentifier, byte keyReference,
+            PIVDataObject algorithmInput, PIVDataObject algorithmOutput) {
+        s_logger.debug("pivCrypt() is not supported for a container dump");
+        return MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED;
+    }
+
+    @Override
+    public MiddlewareStatus pivGenerateKeyPair(CardHandle cardHandle, byte keyReference, byte cryptographicMechanism, PIVDataObject publicKey) {
+        s_logger.debug("pivGenerateKeyPair() is not supported for a container dump");
+        return MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED;
+    }
+
+    @Override
+    public MiddlewareStatus pivEstablishSecureMessaging(CardHandle cardHandle) {
+        s_logger.debug("pivEstablishSecureMessaging() is not supported for a container dump");
+        return MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED;
+    }
+
+    @Override
+    public MiddlewareStatus pivPutData(CardHandle cardHandle, String OID, PIVDataObject data) {
+        s_logger.debug("pivPutData() is not supported for a container dump");
+        return MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED;
+    }
+}
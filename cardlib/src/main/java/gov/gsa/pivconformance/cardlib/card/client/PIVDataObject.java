@@ -3,8 +3,8 @@ package gov.gsa.pivconformance.cardlib.card.client;
 import java.util.*;
 import java.util.Map.Entry;
 
+import gov.gsa.pivconformance.cardlib.events.DecodeEvent;
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +32,7 @@ public class PIVDataObject {
 	private static final List<String> m_oidList = new ArrayList<String>();
 	private String m_containerName;
 	private ArtifactWriter m_artifactCache;
+	private volatile boolean m_frozen;
 
 	/**
 	 * Initialize an invalid PIV data object
@@ -79,6 +80,7 @@ public class PIVDataObject {
 	 * @param dataBytes Byte array containing raw PIV data object value
 	 */
 	public void setBytes(byte[] dataBytes) {
+		checkNotFrozen();
 		m_dataBytes = dataBytes;
 	}
 
@@ -175,9 +177,9 @@ public class PIVDataObject {
 	 * @throws Exception
 	 */
 
-	private boolean inBounds(String oid, BerTag tag, int valueLen) throws Exception {
+	private boolean inBounds(int containerId, BerTag tag, int valueLen) throws Exception {
 		try {
-			int diff = m_tagLengthRules.lengthDelta(oid, tag, valueLen);
+			int diff = m_tagLengthRules.lengthDelta(containerId, tag.intValue(), valueLen);
 			if (diff != 0) {
 				String tagString = HexUtil.toHexString(tag.bytes);
 				String errStr = (String.format("Tag %s length was %d bytes, differs from 800-73 spec by %d", tagString,
@@ -193,6 +195,14 @@ public class PIVDataObject {
 	}
 
 	public boolean inBounds(String oid) throws Exception {
+		int containerId = TagBoundaryManager.containerId(oid);
+		// A container with only expected tags, all within bounds, passes on one scan of its bytes.
+		// Anything else is checked tag by tag so that what is wrong gets logged.
+		ContainerValidator validator = m_tagLengthRules.getValidator(containerId);
+		if (validator != null && m_dataBytes != null && !m_content.isEmpty()
+				&& (validator.validate(m_dataBytes) & ~ContainerValidator.OUT_OF_ORDER) == 0) {
+			return this.m_lengthOk = true;
+		}
 		// Iterate over each tag and corresponding value
 		Iterator<Map.Entry<BerTag, byte[]>> it = m_content.entrySet().iterator();
 		while (it.hasNext()) {
@@ -200,7 +210,7 @@ public class PIVDataObject {
 			BerTag tag = pair.getKey();
 			byte[] value = pair.getValue();
 			// Check length
-			if (!(this.m_lengthOk = this.inBounds(oid, tag, value.length))) {
+			if (!(this.m_lengthOk = this.inBounds(containerId, tag, value.length))) {
 				return false;
 			}
 		}
@@ -228,14 +238,17 @@ public class PIVDataObject {
 
 	public boolean isOrderCorrect() {
 		boolean rv = true;
+		ContainerValidator validator = m_tagLengthRules.getValidator(TagBoundaryManager.containerId(m_OID));
+		if (validator != null && m_dataBytes != null
+				&& (validator.validate(m_dataBytes) & (ContainerValidator.OUT_OF_ORDER | ContainerValidator.UNEXPECTED_TAG
+						| ContainerValidator.MALFORMED)) == 0) {
+			return rv;
+		}
 		//If organizational affiliation tag is present check the order
-		ArrayList<BerTag> expectTagList = new ArrayList<BerTag>();
-		expectTagList.addAll(expectedTagList());
-		ArrayList<BerTag> gotTagList = new ArrayList<BerTag>();
-		gotTagList.addAll(getTagList());
+		ContainerRuleset ruleSet = m_tagLengthRules.getMaxLenMap(m_OID);
 		int lastIndex = -1;
-		for (BerTag outer : gotTagList) {
-			int thisIndex = expectTagList.indexOf(outer);
+		for (BerTag outer : getTagList()) {
+			int thisIndex = outer == null ? -1 : ruleSet.indexOf(outer.intValue());
 			if(thisIndex < lastIndex) {
 				s_logger.error("Tag is out of order: " + outer.toString());
 				rv = false;
@@ -259,25 +272,27 @@ public class PIVDataObject {
 
 			Logger s_containerLogger = LoggerFactory.getLogger(fqContainerName);
 			s_containerLogger.debug("Container: {}", fqContainerName);
-			s_containerLogger.debug("Raw bytes: {}", Hex.encodeHexString(m_dataBytes));
-
-			List<BerTag> expectedTags = expectedTagList();
-			StringBuffer sb = new StringBuffer("Expected tags per SP 800-73-4 Appendix A: ");
-			boolean firstTag = true;
-			for (BerTag et : expectedTags) {
-				if (!firstTag) sb.append(", ");
-				boolean firstByte = true;
-				for (byte b : et.bytes) {
-					if (firstTag) sb.append ("{ ");
-					if (firstByte) sb.append("{ "); else sb.append(", ");
-					sb.append(String.format("%02X", b & 0xff));
-					firstByte = false;
+			// the hex below is only built for a container log that is at debug
+			boolean debug = s_containerLogger.isDebugEnabled();
+			if (debug) {
+				s_containerLogger.debug("Raw bytes: {}", HexUtil.toLowerHexString(m_dataBytes));
+
+				List<BerTag> expectedTags = expectedTagList();
+				StringBuilder sb = new StringBuilder("Expected tags per SP 800-73-4 Appendix A: ");
+				boolean firstTag = true;
+				for (BerTag et : expectedTags) {
+					if (!firstTag) sb.append(", ");
+					for (int j = 0; j < et.bytes.length; j++) {
+						if (firstTag) sb.append ("{ ");
+						if (j == 0) sb.append("{ "); else sb.append(", ");
+						HexUtil.appendHex(sb, et.bytes, j, 1, true, HexUtil.NO_SEPARATOR);
+					}
+					sb.append(" }");
+					firstTag = false;
 				}
 				sb.append(" }");
-				firstTag = false;
+				s_containerLogger.debug(sb.toString());
 			}
-			sb.append(" }");
-			s_containerLogger.debug(sb.toString());
 
 			for (int i = 0; i < m_tagList.size(); i++) {
 				BerTag tag = m_tagList.get(i);
@@ -286,10 +301,10 @@ public class PIVDataObject {
 						s_containerLogger.debug("Certificate tag");
 					}
 					if (m_content.get(tag) == null) {
-						s_containerLogger.warn("Tag[{}] ({}) is null", i, Hex.encodeHexString(tag.bytes));
-					} else {
-						s_containerLogger.debug("Tag {}: {}", Hex.encodeHexString(tag.bytes),
-								Hex.encodeHexString(m_content.get(tag)));
+						s_containerLogger.warn("Tag[{}] ({}) is null", i, HexUtil.toLowerHexString(tag.bytes));
+					} else if (debug) {
+						s_containerLogger.debug("Tag {}: {}", HexUtil.toLowerHexString(tag.bytes),
+								HexUtil.toLowerHexString(m_content.get(tag)));
 					}
 				} else {
 					s_containerLogger.warn("Tag[{}] is null", i);
@@ -306,6 +321,28 @@ public class PIVDataObject {
 	 * @return bytes in the digest
 	 */
 
+	/**
+	 *
+	 * Decodes the object retrieved from the card and populates its fields, timing the
+	 * decode for the flight recorder. A frozen object has already been decoded and is
+	 * left as it is.
+	 *
+	 * @return True if decode was successful, false otherwise
+	 */
+	public boolean decode() {
+		if (m_frozen) {
+			return true;
+		}
+		DecodeEvent event = new DecodeEvent();
+		event.begin();
+		boolean rv = decodeContents();
+		event.oid = getOID();
+		event.objectType = getClass();
+		event.decoded = rv;
+		event.finish();
+		return rv;
+	}
+
 	/**
 	 *
 	 * Place holder that will throw RuntimeError if the is a missing implementations
@@ -313,13 +350,43 @@ public class PIVDataObject {
 	 *
 	 * @return false
 	 */
-	public boolean decode() {
+	protected boolean decodeContents() {
 		// XXX *** make this throw a RuntimeError once implementations are notionally in
 		// place
 		s_logger.error("decode() called without a concrete implementation.");
 		return false;
 	}
 
+	/**
+	 *
+	 * Marks a successfully decoded object as shared between readers. After this,
+	 * decode() does nothing and the setters that replace its contents throw
+	 * IllegalStateException.
+	 */
+	public void freeze() {
+		m_frozen = true;
+	}
+
+	/**
+	 *
+	 * Returns whether the object has been frozen
+	 *
+	 * @return True if the object has been frozen, false otherwise
+	 */
+	public boolean isFrozen() {
+		return m_frozen;
+	}
+
+	/**
+	 *
+	 * Throws if the object has been frozen, for setters that replace its contents
+	 */
+	protected void checkNotFrozen() {
+		if (m_frozen) {
+			throw new IllegalStateException(getClass().getSimpleName() + " for " + m_OID + " is frozen");
+		}
+	}
+
 	/**
 	 *
 	 * Returns the length of all containers was found to be okay, false otherwise
@@ -340,7 +407,7 @@ public class PIVDataObject {
 	 *         object
 	 */
 	public String toRawHexString() {
-		return Hex.encodeHexString(m_dataBytes);
+		return HexUtil.toLowerHexString(m_dataBytes);
 	}
 
 	/**
@@ -396,6 +463,7 @@ public class PIVDataObject {
 	 * @return Set the list of tags in order for the PIV data object
 	 */
 	public void setTagList(List<BerTag> tagList) {
+		checkNotFrozen();
 		this.m_tagList = tagList;
 	}
 
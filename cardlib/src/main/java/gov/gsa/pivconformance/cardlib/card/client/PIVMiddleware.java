@@ -52,10 +52,29 @@ public class PIVMiddleware {
             Card card = pcsc.connect(t);
 
             if(card != null) {
+                // APDUs on this card are counted against the handle as well as the process
+                cardHandle.getTransmitCounters().incrementConnectCount();
+                pcsc.setCardCounters(card, cardHandle.getTransmitCounters());
                 cardHandle.setConnectionDescription(connectionDescription);
+                // connecting again to a card that is still connected returns the same Card, and the
+                // card keeps its selected application and security status
+                if(card != cardHandle.getCard()) {
+                    cardHandle.resetSessionState();
+                }
                 cardHandle.setCard(card);
                 cardHandle.setValid(true);
                 cardHandle.setCurrentChannel(card.getBasicChannel());
+                // the card may have been swapped, so its identity is established again on first use
+                cardHandle.setCardIdentity(null);
+                // T=0 has no way to carry extended length fields without ENVELOPE
+                if("T=0".equals(card.getProtocol())) {
+                    cardHandle.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.NOT_SUPPORTED);
+                } else if(APDUUtils.HistoricalBytesIndicateExtendedLength(card.getATR().getHistoricalBytes())) {
+                    cardHandle.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.SUPPORTED);
+                } else {
+                    cardHandle.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.UNKNOWN);
+                }
+                s_logger.debug("Extended length APDU support from ATR: {}", cardHandle.getExtendedLengthSupport());
             }
 
         }catch (Exception ex) {
@@ -83,6 +102,9 @@ public class PIVMiddleware {
                 return MiddlewareStatus.PIV_INVALID_CARD_HANDLE;
             }
 
+            PCSCWrapper.getInstance().releaseTransmitter(cardHandle.getCurrentChannel());
+            PCSCWrapper.getInstance().releaseTransmitter(card.getBasicChannel());
+            PCSCWrapper.getInstance().releaseCardCounters(card);
             //XXX Need to figure out if connections needs to be reset or not
             card.disconnect(false);
             //Invalidate cardHandle object
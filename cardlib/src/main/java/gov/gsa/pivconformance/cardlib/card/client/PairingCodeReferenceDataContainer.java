@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,7 +78,7 @@ public class PairingCodeReferenceDataContainer extends PIVDataObject {
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
         try{
             byte[] rawBytes = this.getBytes();
@@ -100,7 +99,7 @@ public class PairingCodeReferenceDataContainer extends PIVDataObject {
             List<BerTlv> values = outer.getList();
             for(BerTlv tlv : values) {
                 if(tlv.isPrimitive()) {
-                    s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                    s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
 
                     BerTlvs outer2 = tlvp.parse(tlv.getBytesValue());
 
@@ -118,7 +117,7 @@ public class PairingCodeReferenceDataContainer extends PIVDataObject {
                                 m_content.put(tlv2.getTag(), tlv2.getBytesValue());
 
                             } else{
-                                s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv2.getTag().bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                                s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getBytesValue()));
                             }
                         } else {
                             if (Arrays.equals(tlv2.getTag().bytes, TagConstants.ERROR_DETECTION_CODE_TAG)) {
@@ -127,7 +126,7 @@ public class PairingCodeReferenceDataContainer extends PIVDataObject {
                                 m_content.put(tlv2.getTag(), tlv2.getBytesValue());
 
                             } else {
-                                s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv2.getTag().bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                                s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getBytesValue()));
                             }
                         }
                     }
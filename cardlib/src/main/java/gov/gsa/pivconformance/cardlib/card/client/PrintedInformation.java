@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -237,7 +236,7 @@ public class PrintedInformation extends PIVDataObject {
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
         try{
             byte[] rawBytes = this.getBytes();
@@ -258,7 +257,7 @@ public class PrintedInformation extends PIVDataObject {
             List<BerTlv> values = outer.getList();
             for(BerTlv tlv : values) {
                 if(tlv.isPrimitive()) {
-                    s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                    s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
 
                     BerTlvs outer2 = tlvp.parse(tlv.getBytesValue());
 
@@ -317,7 +316,7 @@ public class PrintedInformation extends PIVDataObject {
                                 scos.write(APDUUtils.getTLV(TagConstants.ORGANIZATIONAL_AFFILIATION_L2_TAG, tlv2.getBytesValue()));
 
                             }else{
-                                s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv2.getTag().bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                                s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getBytesValue()));
                             }
                         } else {
                         	super.m_tagList.add(tlv2.getTag());
@@ -329,7 +328,7 @@ public class PrintedInformation extends PIVDataObject {
                                 scos.write((byte) 0x00);
 
                             } else {
-                                s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv2.getTag().bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                                s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getBytesValue()));
                             }
                         }
                     }
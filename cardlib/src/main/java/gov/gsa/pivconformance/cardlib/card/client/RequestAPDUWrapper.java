@@ -1,6 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
-import org.apache.commons.codec.binary.Hex;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +13,8 @@ public class RequestAPDUWrapper {
 
 	public static final int LE_MAX = 0;
 	public static final int LE_NONE = -1;
+	/* largest LE that can be requested with an extended length APDU */
+	public static final int LE_MAX_EXTENDED = 65536;
 
 	private RequestAPDUWrapper nextRequest;
 
@@ -227,10 +229,7 @@ public class RequestAPDUWrapper {
 		}
 		if (le == RequestAPDUWrapper.LE_MAX) {
 			if (isExtendedApdu()) {
-				/*
-				 * max value for TCOS 3.0
-				 */
-				return 507;
+				return LE_MAX_EXTENDED + 2;
 			}
 			return 256 + 2;
 		}
@@ -253,6 +252,19 @@ public class RequestAPDUWrapper {
 				|| (le > 255);
 	}
 
+	/**
+	 * Indicates whether an encoded command APDU uses extended length Lc/Le fields. Short APDUs
+	 * never carry a zero Lc, so a zero in the fifth byte of a command of 7 or more bytes marks
+	 * an extended length APDU.
+	 * 
+	 * @param apdu buffer containing the encoded command APDU
+	 * @param length the length of the encoded command APDU
+	 * @return true if the APDU is encoded with extended length fields
+	 */
+	public static boolean isExtendedApdu(byte[] apdu, int length) {
+		return length >= 7 && apdu[4] == 0;
+	}
+
 	public boolean isSensitiveContent() {
 		return sensitiveContent;
 	}
@@ -275,7 +287,8 @@ public class RequestAPDUWrapper {
 
 	@Override
 	public String toString() {
-		return Hex.encodeHexString(getBytes()).replaceAll("..(?=.)", "$0 ");
+		byte[] b = getBytes();
+		return HexUtil.toHexString(b, 0, b.length, false, ' ');
 		//return HexTools.bytesToHexString(getBytes());
 	}
 
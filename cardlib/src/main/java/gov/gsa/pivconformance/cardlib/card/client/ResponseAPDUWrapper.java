@@ -3,10 +3,11 @@ package gov.gsa.pivconformance.cardlib.card.client;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+
 
 // derived from the intarsys ResponseAPDU class
 public class ResponseAPDUWrapper {
@@ -94,7 +95,8 @@ public class ResponseAPDUWrapper {
 
 	@Override
 	public String toString() {
-		return Hex.encodeHexString(getBytes()).replaceAll("..(?=.)", "$0 ");
+		byte[] b = getBytes();
+		return HexUtil.toHexString(b, 0, b.length, false, ' ');
 	}
 
 }
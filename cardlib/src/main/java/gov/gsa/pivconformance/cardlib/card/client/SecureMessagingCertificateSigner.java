@@ -1,7 +1,6 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,7 +85,7 @@ public class SecureMessagingCertificateSigner extends PIVDataObject {    // slf4
      * @return True if decode was successful, false otherwise
      */
     @Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
         if(m_pivAuthCert == null){
 
@@ -104,7 +103,7 @@ public class SecureMessagingCertificateSigner extends PIVDataObject {    // slf4
                 List<BerTlv> values = outer.getList();
                 for(BerTlv tlv : values) {
                     if(tlv.isPrimitive()) {
-                        s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                        s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
 
                         BerTlvs outer2 = tp.parse(tlv.getBytesValue());
 
@@ -118,7 +117,7 @@ public class SecureMessagingCertificateSigner extends PIVDataObject {    // slf4
                         byte[] certInfoBuf = null;
                         for(BerTlv tlv2 : values2) {
                             if(tlv2.isPrimitive()) {
-                                s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv2.getTag().bytes), Hex.encodeHexString(tlv2.getBytesValue()));
+                                s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getBytesValue()));
                             } else {
                                 if(Arrays.equals(tlv2.getTag().bytes, TagConstants.CERTIFICATE_TAG)) {
                                     if (tlv2.hasRawValue()) {
@@ -156,7 +155,7 @@ public class SecureMessagingCertificateSigner extends PIVDataObject {    // slf4
                         m_pivAuthCert = (X509Certificate)cf.generateCertificate(certIS);
                         s_logger.info(m_pivAuthCert.getSubjectDN().toString());
                     } else {
-                        s_logger.info("Object: {}", Hex.encodeHexString(tlv.getTag().bytes));
+                        s_logger.info("Object: {}", HexUtil.toLowerHexString(tlv.getTag().bytes));
                     }
                 }
             }catch (Exception ex) {
@@ -1,7 +1,7 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
+import gov.gsa.pivconformance.cardlib.events.HashVerificationEvent;
 import gov.gsa.pivconformance.cardlib.tlv.*;
-import org.apache.commons.codec.binary.Hex;
 import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.icao.DataGroupHash;
 import org.bouncycastle.asn1.icao.LDSSecurityObject;
@@ -66,6 +66,7 @@ public class SecurityObject extends SignedPIVDataObject {
 	}
 
 	public void setMapOfDataElements(HashMap<String, byte[]> mapOfDataElements) {
+		checkNotFrozen();
 		m_mapOfDataElements = mapOfDataElements;
 	}
 
@@ -86,6 +87,7 @@ public class SecurityObject extends SignedPIVDataObject {
 	 * @param mapping Byte array containing Mapping of DG to ContainerID
 	 */
 	public void setMapping(byte[] mapping) {
+		checkNotFrozen();
 		m_mapping = mapping;
 	}
 
@@ -106,6 +108,7 @@ public class SecurityObject extends SignedPIVDataObject {
 	 * @param so Byte array containing security object value
 	 */
 	public void setSecurtiyObject(byte[] so) {
+		checkNotFrozen();
 		m_so = so;
 	}
 
@@ -126,6 +129,7 @@ public class SecurityObject extends SignedPIVDataObject {
 	 * @param containerIDList HashMap containing container ID list
 	 */
 	public void setContainerIDList(HashMap<Integer, String> containerIDList) {
+		checkNotFrozen();
 		m_containerIDList = containerIDList;
 	}
 
@@ -160,14 +164,14 @@ public class SecurityObject extends SignedPIVDataObject {
 	 * @return True if decode was successful, false otherwise
 	 */
 	@Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 		SignerInformationStore signers = null;
 		SignerInformation signer = null;
 		boolean certFound = false;
 		try {
 			super.m_tagList.clear();
 			byte[] rawBytes = this.getBytes();
-			s_logger.trace("rawBytes: {}", Hex.encodeHexString(rawBytes));
+			s_logger.trace("rawBytes: {}", HexUtil.toLowerHexString(rawBytes));
 			BerTlvParser tlvp = new BerTlvParser(new CCTTlvLogger(this.getClass()));
 			BerTlvs outer = tlvp.parse(rawBytes);
 
@@ -279,8 +283,8 @@ public class SecurityObject extends SignedPIVDataObject {
                 	m_content.put(tag2, tlv.getBytesValue());
                     m_errorDetectionCode = true;
 				} else if (tlv.getBytesValue().length != 0) {
-					s_logger.warn("Unexpected tag: {} with value: {}", Hex.encodeHexString(tlv.getTag().bytes),
-							Hex.encodeHexString(tlv.getBytesValue()));
+					s_logger.warn("Unexpected tag: {} with value: {}", HexUtil.toLowerHexString(tlv.getTag().bytes),
+							HexUtil.toLowerHexString(tlv.getBytesValue()));
 				}
 			}
 		} catch (Exception e) {
@@ -307,6 +311,17 @@ public class SecurityObject extends SignedPIVDataObject {
 	 * @return True if all hashes match, false otherwise
 	 */
 	public boolean verifyHashes() {
+		HashVerificationEvent event = new HashVerificationEvent();
+		event.begin();
+		boolean rv = verifyAllHashes();
+		event.oid = getOID();
+		event.hashCount = m_dghList == null ? 0 : m_dghList.size();
+		event.verified = rv;
+		event.finish();
+		return rv;
+	}
+
+	private boolean verifyAllHashes() {
 		boolean rv_result = false;
 
 		if (m_dghList == null) {
@@ -351,14 +366,14 @@ public class SecurityObject extends SignedPIVDataObject {
 									byte[] digest = md.digest();
 									if (!Arrays.equals(entry.getValue(), digest)) {
 										s_logger.error("Container:        {}", entry.getKey());
-										s_logger.error("Content:          {}", Hex.encodeHexString(content));
-										s_logger.error("Reference digest: {}", Hex.encodeHexString(entry.getValue()));
-										s_logger.error("Computed digest:  {}", Hex.encodeHexString(digest));
+										s_logger.error("Content:          {}", HexUtil.toLowerHexString(content));
+										s_logger.error("Reference digest: {}", HexUtil.toLowerHexString(entry.getValue()));
+										s_logger.error("Computed digest:  {}", HexUtil.toLowerHexString(digest));
 									} else {
 										s_logger.debug("Container:        {}", entry.getKey());
-										s_logger.debug("Content:          {}", Hex.encodeHexString(content));
-										s_logger.debug("Reference digest: {}", Hex.encodeHexString((byte[])entry.getValue()));
-										s_logger.debug("Computed digest:  {}", Hex.encodeHexString(digest));
+										s_logger.debug("Content:          {}", HexUtil.toLowerHexString(content));
+										s_logger.debug("Reference digest: {}", HexUtil.toLowerHexString((byte[])entry.getValue()));
+										s_logger.debug("Computed digest:  {}", HexUtil.toLowerHexString(digest));
 										dgIdx++;
 									}
 								}
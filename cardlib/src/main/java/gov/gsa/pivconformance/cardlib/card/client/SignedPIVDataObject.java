@@ -14,7 +14,6 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 
-import org.apache.commons.codec.binary.Hex;
 import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.DEROctetString;
@@ -39,6 +38,9 @@ import org.bouncycastle.util.Store;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.gsa.pivconformance.cardlib.events.SignatureVerificationEvent;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+
 /**
  * Subclass to handle signed data objects
  */
@@ -341,7 +343,7 @@ public class SignedPIVDataObject extends PIVDataObject {
 							byte[] digest = dos.getOctets();
 							if (digest != null) {
 								m_signedAttrsDigest = digest;
-								s_logger.trace("Reference digest: " + Hex.encodeHexString(digest));
+								s_logger.trace("Reference digest: " + HexUtil.toLowerHexString(digest));
 							} else {
 								s_logger.error("Failed to extract digest");
 							}
@@ -377,7 +379,7 @@ public class SignedPIVDataObject extends PIVDataObject {
 						byte[] signedContentBytes = this.getSignedContent();
 
 						if (signedContentBytes != null) {
-							s_logger.trace("Signed content bytes: " + Hex.encodeHexString(signedContentBytes));
+							s_logger.trace("Signed content bytes: " + HexUtil.toLowerHexString(signedContentBytes));
 							String aName = MessageDigestUtils
 									.getDigestName(new ASN1ObjectIdentifier(signer.getDigestAlgOID()));
 							MessageDigest md = MessageDigest.getInstance(aName, "BC");
@@ -385,7 +387,7 @@ public class SignedPIVDataObject extends PIVDataObject {
 							byte[] digest = md.digest();
 							if (digest != null) {
 								setComputedDigest(digest);
-								s_logger.trace("Computed digest: {} ", Hex.encodeHexString(digest));
+								s_logger.trace("Computed digest: {} ", HexUtil.toLowerHexString(digest));
 							} else {
 								s_logger.error("Failed to digest content");
 							}
@@ -450,6 +452,16 @@ public class SignedPIVDataObject extends PIVDataObject {
      * @return True if signature successfully verified, false otherwise
      */
 	public boolean verifySignature() {
+		SignatureVerificationEvent event = new SignatureVerificationEvent();
+		event.begin();
+		boolean rv = verifyCMSSignature();
+		event.oid = getOID();
+		event.verified = rv;
+		event.finish();
+		return rv;
+	}
+
+	private boolean verifyCMSSignature() {
         boolean rv_result = false;
 
         CMSSignedData s;
@@ -519,8 +531,8 @@ public class SignedPIVDataObject extends PIVDataObject {
                 if (certIt.hasNext()) {
                     X509CertificateHolder certHolder = certIt.next();
                     signerCert = new JcaX509CertificateConverter().getCertificate((certHolder));
-                    // Housekeeping
-                    if (signerCert != null)
+                    // Housekeeping, which a frozen object already had done when it was decoded
+                    if (signerCert != null && !isFrozen())
                     	setSignerCert(signerCert);
                 }
 
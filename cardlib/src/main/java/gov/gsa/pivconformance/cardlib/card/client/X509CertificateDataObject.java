@@ -1,6 +1,5 @@
 package gov.gsa.pivconformance.cardlib.card.client;
 
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,16 +66,18 @@ public class X509CertificateDataObject extends PIVDataObject {
 	 * @return True if decode was successful, false otherwise
 	 */
 	@Override
-	public boolean decode() {
+	protected boolean decodeContents() {
 
 		if (m_cert == null) {
 
 			try {
 				byte[] raw = super.getBytes();
 
-				s_logger.trace("rawBytes: {}", Hex.encodeHexString(raw));
+				if (s_logger.isTraceEnabled())
+					s_logger.trace("rawBytes: {}", HexUtil.toLowerHexString(raw));
 
-				BerTlvParser tp = new BerTlvParser(new CCTTlvLogger(X509CertificateDataObject.class));
+				// the nested TLVs are views of raw, so only the values kept below are copied
+				BerTlvParser tp = new BerTlvParser(new CCTTlvLogger(X509CertificateDataObject.class), true);
 				BerTlvs outer = tp.parse(raw);
 
 				if (outer == null) {
@@ -87,10 +88,10 @@ public class X509CertificateDataObject extends PIVDataObject {
 				List<BerTlv> values = outer.getList();
 				for (BerTlv tlv : values) {
 					if (tlv.isPrimitive()) {
-						s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes),
-								Hex.encodeHexString(tlv.getBytesValue()));
+						if (s_logger.isTraceEnabled())
+							s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getValueBuffer()));
 
-						BerTlvs outer2 = tp.parse(tlv.getBytesValue());
+						BerTlvs outer2 = tp.parseValue(tlv);
 
 						if (outer2 == null) {
 							s_logger.error("Error parsing X.509 Certificate, unable to parse TLV value.");
@@ -102,16 +103,16 @@ public class X509CertificateDataObject extends PIVDataObject {
 						byte[] mSCUIDBuf = null;
 						for (BerTlv tlv2 : values2) {
 							if (tlv2.isPrimitive()) {
-								s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv2.getTag().bytes),
-										Hex.encodeHexString(tlv2.getBytesValue()));
+								if (s_logger.isTraceEnabled())
+									s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes), HexUtil.toLowerHexString(tlv2.getValueBuffer()));
 							} else {
 								super.m_tagList.add(tlv2.getTag());
 								if (Arrays.equals(tlv2.getTag().bytes, TagConstants.CERTIFICATE_TAG)) {
 									if (tlv2.hasRawValue()) {
 										m_rawCertBuf = tlv2.getBytesValue();
 										m_content.put(tlv2.getTag(), tlv2.getBytesValue());
-										s_logger.trace("Tag {}: {}", Hex.encodeHexString(tlv2.getTag().bytes),
-												Hex.encodeHexString(m_rawCertBuf));
+										s_logger.trace("Tag {}: {}", HexUtil.toLowerHexString(tlv2.getTag().bytes),
+												HexUtil.toLowerHexString(m_rawCertBuf));
 									}
 
 									String oid = getOID();
@@ -127,7 +128,7 @@ public class X509CertificateDataObject extends PIVDataObject {
 								if (Arrays.equals(tlv2.getTag().bytes, TagConstants.CERTINFO_TAG)) {
 									certInfoBuf = tlv2.getBytesValue();
 									m_content.put(tlv2.getTag(), tlv2.getBytesValue());
-									s_logger.trace("Got cert info buffer: {}", Hex.encodeHexString(certInfoBuf));
+									s_logger.trace("Got cert info buffer: {}", HexUtil.toLowerHexString(certInfoBuf));
 									if (certInfoBuf != null && Arrays.equals(certInfoBuf, TagConstants.COMPRESSED_TAG)) {
 										m_compressed = true;
 									}
@@ -136,7 +137,7 @@ public class X509CertificateDataObject extends PIVDataObject {
 								if (Arrays.equals(tlv2.getTag().bytes, TagConstants.MSCUID_TAG)) {
 									mSCUIDBuf = tlv2.getBytesValue();
 									m_content.put(tlv2.getTag(), tlv2.getBytesValue());
-									s_logger.trace("Got MSCUID buffer: {}", Hex.encodeHexString(mSCUIDBuf));
+									s_logger.trace("Got MSCUID buffer: {}", HexUtil.toLowerHexString(mSCUIDBuf));
 								}
 							}
 						}
@@ -147,7 +148,7 @@ public class X509CertificateDataObject extends PIVDataObject {
 							return false;
 						}
 					} else {
-						s_logger.trace("Object: {}", Hex.encodeHexString(tlv.getTag().bytes));
+						s_logger.trace("Object: {}", HexUtil.toLowerHexString(tlv.getTag().bytes));
 					}
 				}
 			} catch (Exception ex) {
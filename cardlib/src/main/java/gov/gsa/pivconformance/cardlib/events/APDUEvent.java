@@ -0,0 +1,62 @@
+package gov.gsa.pivconformance.cardlib.events;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One command/response round trip with the reader, including GET RESPONSE commands
+ */
+@Name("gov.gsa.pivconformance.APDU")
+@Label("APDU Round Trip")
+@Category({ "PIV Conformance", "Card I/O" })
+@Description("A command sent to the card and its response, timed from sending to receiving")
+@StackTrace(false)
+public class APDUEvent extends ConformanceEvent {
+	private static final Map<Integer, String> s_oids = new HashMap<>();
+	static {
+		for (Map.Entry<String, byte[]> e : APDUConstants.oidMAP.entrySet()) {
+			int tag = 0;
+			for (byte b : e.getValue()) {
+				tag = (tag << 8) | (b & 0xFF);
+			}
+			s_oids.put(tag, e.getKey());
+		}
+	}
+
+	@Label("Instruction")
+	public int ins;
+
+	@Label("OID")
+	@Description("The container the GET DATA command, or the one that led to this GET RESPONSE, asked for")
+	public String oid;
+
+	@Label("Command Length")
+	@DataAmount
+	public int commandLength;
+
+	@Label("Response Length")
+	@DataAmount
+	public int responseLength;
+
+	@Label("Status Word")
+	public int sw;
+
+	@Label("Extended Length")
+	public boolean extended;
+
+	// the container tag, turned into the OID only when the event is recorded
+	public transient int tag;
+
+	@Override
+	protected void fill() {
+		oid = tag == 0 ? null : s_oids.get(tag);
+	}
+}
@@ -0,0 +1,96 @@
+package gov.gsa.pivconformance.cardlib.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Base of the Java Flight Recorder events emitted by the conformance tools. Every event carries the
+ * identifier of the test running on the thread that emitted it, so that a recording can be broken
+ * down by test as well as by stage.
+ *
+ * Events are meant to be used as begin(), the work, then finish(). When no recording is running,
+ * that costs next to nothing and the event is never filled in. Code that runs for every APDU checks
+ * isRecording() first so that it doesn't create the event at all.
+ */
+@Category("PIV Conformance")
+public abstract class ConformanceEvent extends Event {
+	private static final ThreadLocal<String> s_currentTest = new ThreadLocal<>();
+	private static volatile boolean s_recording = false;
+
+	static {
+		// adding a listener does not start the flight recorder, it only hears about it once it is
+		FlightRecorder.addListener(new FlightRecorderListener() {
+			@Override
+			public void recordingStateChanged(Recording recording) {
+				updateRecording();
+			}
+		});
+		// a recording may have been started before this class was loaded
+		if (FlightRecorder.isInitialized()) {
+			updateRecording();
+		}
+	}
+
+	private static void updateRecording() {
+		boolean running = false;
+		for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+			running |= r.getState() == RecordingState.RUNNING;
+		}
+		s_recording = running;
+	}
+
+	/**
+	 * Indicates whether any flight recording is running, for code that shouldn't create events
+	 * otherwise
+	 * @return true if a recording is running
+	 */
+	public static boolean isRecording() {
+		return s_recording;
+	}
+
+	@Label("Test")
+	String testId;
+
+	/**
+	 * Sets the identifier of the test running on the current thread, to be recorded in the events it
+	 * emits
+	 * @param id the test identifier, or null once the test is done
+	 */
+	public static void setCurrentTest(String id) {
+		if (id == null) {
+			s_currentTest.remove();
+		} else {
+			s_currentTest.set(id);
+		}
+	}
+
+	public static String getCurrentTest() {
+		return s_currentTest.get();
+	}
+
+	/**
+	 * Ends the event and, if a recording wants it, fills it in and commits it
+	 * @return true if the event was committed
+	 */
+	public final boolean finish() {
+		end();
+		if (!shouldCommit()) {
+			return false;
+		}
+		testId = s_currentTest.get();
+		fill();
+		commit();
+		return true;
+	}
+
+	/**
+	 * Fills in any fields that are too costly to set unless the event is recorded
+	 */
+	protected void fill() {
+	}
+}
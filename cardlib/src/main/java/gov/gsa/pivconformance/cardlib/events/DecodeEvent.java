@@ -0,0 +1,24 @@
+package gov.gsa.pivconformance.cardlib.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Decoding of a PIV data object from the bytes read from the card
+ */
+@Name("gov.gsa.pivconformance.Decode")
+@Label("Data Object Decode")
+@Category({ "PIV Conformance", "Data Objects" })
+@Description("A PIV data object parsed and decoded into its fields")
+public class DecodeEvent extends ConformanceEvent {
+	@Label("OID")
+	public String oid;
+
+	@Label("Object Type")
+	public Class<?> objectType;
+
+	@Label("Decoded")
+	public boolean decoded;
+}
@@ -0,0 +1,24 @@
+package gov.gsa.pivconformance.cardlib.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Checking of the data group hashes in the Security Object against the containers they cover
+ */
+@Name("gov.gsa.pivconformance.HashVerification")
+@Label("Security Object Hash Verification")
+@Category({ "PIV Conformance", "Data Objects" })
+@Description("The container hashes in the Security Object compared with the containers read from the card")
+public class HashVerificationEvent extends ConformanceEvent {
+	@Label("OID")
+	public String oid;
+
+	@Label("Hash Count")
+	public int hashCount;
+
+	@Label("Verified")
+	public boolean verified;
+}
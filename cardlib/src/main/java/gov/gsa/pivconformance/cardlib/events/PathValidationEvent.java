@@ -0,0 +1,28 @@
+package gov.gsa.pivconformance.cardlib.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Building and validating a certification path from a certificate on the card to a trust anchor
+ */
+@Name("gov.gsa.pivconformance.PathValidation")
+@Label("Certification Path Validation")
+@Category({ "PIV Conformance", "PKI" })
+@Description("A certification path built from an end-entity certificate to a trust anchor and validated")
+public class PathValidationEvent extends ConformanceEvent {
+	@Label("OID")
+	@Description("The container the end-entity certificate was read from, when known")
+	public String oid;
+
+	@Label("Subject")
+	public String subject;
+
+	@Label("Policy OIDs")
+	public String policyOids;
+
+	@Label("Valid")
+	public boolean valid;
+}
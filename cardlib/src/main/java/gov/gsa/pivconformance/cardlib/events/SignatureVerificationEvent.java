@@ -0,0 +1,21 @@
+package gov.gsa.pivconformance.cardlib.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Verification of the CMS signature on a signed PIV data object
+ */
+@Name("gov.gsa.pivconformance.SignatureVerification")
+@Label("Signature Verification")
+@Category({ "PIV Conformance", "Data Objects" })
+@Description("The CMS signature on a signed PIV data object verified against its signer certificate")
+public class SignatureVerificationEvent extends ConformanceEvent {
+	@Label("OID")
+	public String oid;
+
+	@Label("Verified")
+	public boolean verified;
+}
@@ -0,0 +1,28 @@
+package gov.gsa.pivconformance.cardlib.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Execution of one JUnit test or container in a conformance run
+ */
+@Name("gov.gsa.pivconformance.TestExecution")
+@Label("Test Execution")
+@Category({ "PIV Conformance", "Tests" })
+@Description("A JUnit test, or a container of them, run as part of a conformance test case")
+public class TestExecutionEvent extends ConformanceEvent {
+	@Label("Test Case")
+	@Description("The conformance test case identifier from the configuration database")
+	public String testCase;
+
+	@Label("Unique Id")
+	public String uniqueId;
+
+	@Label("Display Name")
+	public String displayName;
+
+	@Label("Result")
+	public String result;
+}
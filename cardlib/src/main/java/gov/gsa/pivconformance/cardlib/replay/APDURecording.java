@@ -0,0 +1,272 @@
+package gov.gsa.pivconformance.cardlib.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.gsa.pivconformance.cardlib.utils.APDUTraceFile;
+
+/**
+ * A card session recorded from a real reader: the reader name, the ATR and protocol of the card and every
+ * command and response APDU with the time the card took to answer.
+ *
+ * The file starts with the 8 byte magic "APDUREC1" and the reader name, followed by events, each a type
+ * byte and the System.nanoTime() it happened at:
+ * <ul>
+ * <li>CONNECT: the protocol and the ATR</li>
+ * <li>TRANSMIT: the command, the response and the nanoseconds between sending one and receiving the other</li>
+ * <li>DISCONNECT: whether the card was reset</li>
+ * </ul>
+ * The PIN in a VERIFY command is masked before it is written, so recordings never hold a PIN. The
+ * masked command is what replayed VERIFY commands are matched against.
+ */
+public class APDURecording {
+	public static final byte[] MAGIC = { 'A', 'P', 'D', 'U', 'R', 'E', 'C', '1' };
+	public static final String FILE_EXTENSION = ".apdu";
+
+	static final int CONNECT = 1;
+	static final int TRANSMIT = 2;
+	static final int DISCONNECT = 3;
+
+	private static final byte PIN_MASK = (byte) 0xAA;
+
+	/**
+	 * One command and the response the card gave to it
+	 */
+	public static final class Exchange {
+		private final byte[] m_command;
+		private final byte[] m_response;
+		private final long m_durationNanos;
+
+		Exchange(byte[] command, byte[] response, long durationNanos) {
+			m_command = command;
+			m_response = response;
+			m_durationNanos = durationNanos;
+		}
+
+		public byte[] getCommand() {
+			return m_command;
+		}
+
+		public byte[] getResponse() {
+			return m_response;
+		}
+
+		public long getDurationNanos() {
+			return m_durationNanos;
+		}
+	}
+
+	private final String m_readerName;
+	private byte[] m_atr = null;
+	private String m_protocol = "T=1";
+	private final List<Exchange> m_exchanges = new ArrayList<>();
+	// indices of the exchanges for each (masked) command, and for each CLA INS P1 P2, in recorded order
+	private final Map<ByteBuffer, List<Integer>> m_byCommand = new HashMap<>();
+	private final Map<Integer, List<Integer>> m_byHeader = new HashMap<>();
+
+	private APDURecording(String readerName) {
+		m_readerName = readerName;
+	}
+
+	/**
+	 * Reads a recording written by a recording terminal
+	 * @param file the recording
+	 * @return the recording
+	 * @throws IOException if the file is not a recording or cannot be read
+	 */
+	public static APDURecording read(Path file) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			return read(in);
+		}
+	}
+
+	public static APDURecording read(InputStream in) throws IOException {
+		DataInputStream din = new DataInputStream(in);
+		byte[] magic = new byte[MAGIC.length];
+		din.readFully(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not an APDU recording");
+		}
+		APDURecording rv = new APDURecording(din.readUTF());
+		while (true) {
+			int type;
+			try {
+				type = din.readUnsignedByte();
+			} catch (EOFException e) {
+				break;
+			}
+			din.readLong();
+			switch (type) {
+			case CONNECT:
+				String protocol = din.readUTF();
+				byte[] atr = readBytes(din);
+				if (rv.m_atr == null) {
+					rv.m_protocol = protocol;
+					rv.m_atr = atr;
+				}
+				break;
+			case TRANSMIT:
+				byte[] command = readBytes(din);
+				byte[] response = readBytes(din);
+				rv.add(new Exchange(command, response, din.readLong()));
+				break;
+			case DISCONNECT:
+				din.readBoolean();
+				break;
+			default:
+				throw new IOException("Unknown event type " + type + " in APDU recording");
+			}
+		}
+		if (rv.m_atr == null) {
+			throw new IOException("APDU recording holds no card session");
+		}
+		return rv;
+	}
+
+	private static byte[] readBytes(DataInputStream din) throws IOException {
+		int length = din.readInt();
+		if (length < 0) {
+			throw new IOException("Corrupt APDU recording");
+		}
+		byte[] rv = new byte[length];
+		din.readFully(rv);
+		return rv;
+	}
+
+	private void add(Exchange exchange) {
+		int index = m_exchanges.size();
+		m_exchanges.add(exchange);
+		m_byCommand.computeIfAbsent(ByteBuffer.wrap(exchange.getCommand()), k -> new ArrayList<>()).add(index);
+		if (exchange.getCommand().length >= 4) {
+			m_byHeader.computeIfAbsent(header(exchange.getCommand()), k -> new ArrayList<>()).add(index);
+		}
+	}
+
+	public String getReaderName() {
+		return m_readerName;
+	}
+
+	public byte[] getATR() {
+		return m_atr;
+	}
+
+	public String getProtocol() {
+		return m_protocol;
+	}
+
+	public List<Exchange> getExchanges() {
+		return Collections.unmodifiableList(m_exchanges);
+	}
+
+	/**
+	 * Finds the recorded exchange to replay for a command, preferring the first one at or after the
+	 * position the replay has reached. A command that was recorded exactly (with its PIN masked) is
+	 * matched on all of its bytes; one that was not, such as a GENERAL AUTHENTICATE with a fresh
+	 * challenge, is matched on CLA INS P1 P2.
+	 * @param command the command to be replayed, which is not modified
+	 * @param from the index of the exchange following the last one replayed
+	 * @return the index of the exchange, or -1 if nothing like the command was recorded
+	 */
+	public int find(byte[] command, int from) {
+		int rv = next(m_byCommand.get(ByteBuffer.wrap(mask(command))), from);
+		if (rv < 0 && command.length >= 4) {
+			rv = next(m_byHeader.get(header(command)), from);
+		}
+		return rv;
+	}
+
+	// the first index at or after from, wrapping around to the first one
+	private static int next(List<Integer> indices, int from) {
+		if (indices == null) {
+			return -1;
+		}
+		int i = Collections.binarySearch(indices, from);
+		if (i < 0) {
+			i = -i - 1;
+		}
+		return i < indices.size() ? indices.get(i) : indices.get(0);
+	}
+
+	private static Integer header(byte[] command) {
+		return ((command[0] & 0xFF) << 24) | ((command[1] & 0xFF) << 16) | ((command[2] & 0xFF) << 8) | (command[3] & 0xFF);
+	}
+
+	/**
+	 * Masks the PIN in a VERIFY command
+	 * @param command the command
+	 * @return the command itself if it carries no PIN, otherwise a copy with the PIN masked
+	 */
+	static byte[] mask(byte[] command) {
+		int pinLength = APDUTraceFile.pinLength(command, 0, command.length);
+		if (pinLength == 0) {
+			return command;
+		}
+		byte[] rv = command.clone();
+		Arrays.fill(rv, 5, 5 + pinLength, PIN_MASK);
+		return rv;
+	}
+
+	/**
+	 * Writes a recording one event at a time as a card session goes on. Each event is flushed as it is
+	 * written so that a run that is cut short still leaves a usable recording.
+	 */
+	public static final class Writer implements Closeable {
+		private final DataOutputStream m_out;
+
+		public Writer(Path file, String readerName) throws IOException {
+			m_out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+			m_out.write(MAGIC);
+			m_out.writeUTF(readerName);
+			m_out.flush();
+		}
+
+		public synchronized void connect(String protocol, byte[] atr) throws IOException {
+			m_out.writeByte(CONNECT);
+			m_out.writeLong(System.nanoTime());
+			m_out.writeUTF(protocol);
+			writeBytes(atr);
+			m_out.flush();
+		}
+
+		public synchronized void transmit(byte[] command, byte[] response, long durationNanos) throws IOException {
+			m_out.writeByte(TRANSMIT);
+			m_out.writeLong(System.nanoTime());
+			writeBytes(mask(command));
+			writeBytes(response);
+			m_out.writeLong(durationNanos);
+			m_out.flush();
+		}
+
+		public synchronized void disconnect(boolean reset) throws IOException {
+			m_out.writeByte(DISCONNECT);
+			m_out.writeLong(System.nanoTime());
+			m_out.writeBoolean(reset);
+			m_out.flush();
+		}
+
+		private void writeBytes(byte[] data) throws IOException {
+			m_out.writeInt(data.length);
+			m_out.write(data);
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			m_out.close();
+		}
+	}
+}
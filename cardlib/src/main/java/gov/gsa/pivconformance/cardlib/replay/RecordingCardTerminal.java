@@ -0,0 +1,225 @@
+package gov.gsa.pivconformance.cardlib.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Passes everything through to a real reader and writes the card session to an APDURecording that a
+ * ReplayCardTerminal can play back. The recording file is created when a card is first connected to.
+ */
+public class RecordingCardTerminal extends CardTerminal {
+	private static final Logger s_logger = LoggerFactory.getLogger(RecordingCardTerminal.class);
+
+	private final CardTerminal m_terminal;
+	private final Path m_file;
+	private APDURecording.Writer m_writer = null;
+
+	public RecordingCardTerminal(CardTerminal terminal, Path file) {
+		m_terminal = terminal;
+		m_file = file;
+	}
+
+	public Path getFile() {
+		return m_file;
+	}
+
+	@Override
+	public String getName() {
+		return m_terminal.getName();
+	}
+
+	@Override
+	public Card connect(String protocol) throws CardException {
+		Card card = m_terminal.connect(protocol);
+		APDURecording.Writer writer = getWriter();
+		if (writer != null) {
+			try {
+				writer.connect(card.getProtocol(), card.getATR().getBytes());
+			} catch (IOException e) {
+				s_logger.error("Unable to record connection to {} in {}", getName(), m_file, e);
+			}
+		}
+		return new RecordingCard(card, writer);
+	}
+
+	private synchronized APDURecording.Writer getWriter() {
+		if (m_writer == null) {
+			try {
+				m_writer = new APDURecording.Writer(m_file, getName());
+				s_logger.info("Recording the session with the card in {} to {}", getName(), m_file);
+			} catch (IOException e) {
+				s_logger.error("Unable to create APDU recording {}", m_file, e);
+			}
+		}
+		return m_writer;
+	}
+
+	/**
+	 * Closes the recording. Cards connected to afterwards are recorded to a new file with the same name.
+	 */
+	public synchronized void close() {
+		if (m_writer != null) {
+			try {
+				m_writer.close();
+			} catch (IOException e) {
+				s_logger.error("Unable to close APDU recording {}", m_file, e);
+			}
+			m_writer = null;
+		}
+	}
+
+	@Override
+	public boolean isCardPresent() throws CardException {
+		return m_terminal.isCardPresent();
+	}
+
+	@Override
+	public boolean waitForCardPresent(long timeout) throws CardException {
+		return m_terminal.waitForCardPresent(timeout);
+	}
+
+	@Override
+	public boolean waitForCardAbsent(long timeout) throws CardException {
+		return m_terminal.waitForCardAbsent(timeout);
+	}
+
+	@Override
+	public String toString() {
+		return "Recording " + m_terminal + " to " + m_file;
+	}
+
+	private static class RecordingCard extends Card {
+		private final Card m_card;
+		private final APDURecording.Writer m_writer;
+		private final RecordingChannel m_basicChannel;
+
+		RecordingCard(Card card, APDURecording.Writer writer) {
+			m_card = card;
+			m_writer = writer;
+			m_basicChannel = new RecordingChannel(this, card.getBasicChannel());
+		}
+
+		@Override
+		public ATR getATR() {
+			return m_card.getATR();
+		}
+
+		@Override
+		public String getProtocol() {
+			return m_card.getProtocol();
+		}
+
+		@Override
+		public CardChannel getBasicChannel() {
+			return m_basicChannel;
+		}
+
+		@Override
+		public CardChannel openLogicalChannel() throws CardException {
+			return new RecordingChannel(this, m_card.openLogicalChannel());
+		}
+
+		@Override
+		public void beginExclusive() throws CardException {
+			m_card.beginExclusive();
+		}
+
+		@Override
+		public void endExclusive() throws CardException {
+			m_card.endExclusive();
+		}
+
+		@Override
+		public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+			return m_card.transmitControlCommand(controlCode, command);
+		}
+
+		@Override
+		public void disconnect(boolean reset) throws CardException {
+			m_card.disconnect(reset);
+			if (m_writer != null) {
+				try {
+					m_writer.disconnect(reset);
+				} catch (IOException e) {
+					s_logger.error("Unable to record disconnection", e);
+				}
+			}
+		}
+
+		void record(byte[] command, byte[] response, long durationNanos) {
+			if (m_writer != null) {
+				try {
+					m_writer.transmit(command, response, durationNanos);
+				} catch (IOException e) {
+					s_logger.error("Unable to record APDU", e);
+				}
+			}
+		}
+	}
+
+	private static class RecordingChannel extends CardChannel {
+		private final RecordingCard m_card;
+		private final CardChannel m_channel;
+
+		RecordingChannel(RecordingCard card, CardChannel channel) {
+			m_card = card;
+			m_channel = channel;
+		}
+
+		@Override
+		public Card getCard() {
+			return m_card;
+		}
+
+		@Override
+		public int getChannelNumber() {
+			return m_channel.getChannelNumber();
+		}
+
+		@Override
+		public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+			long start = System.nanoTime();
+			ResponseAPDU rv = m_channel.transmit(command);
+			m_card.record(command.getBytes(), rv.getBytes(), System.nanoTime() - start);
+			return rv;
+		}
+
+		@Override
+		public int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+			byte[] commandBytes = new byte[command.remaining()];
+			command.duplicate().get(commandBytes);
+			int responseStart = response.position();
+			long start = System.nanoTime();
+			int rv = m_channel.transmit(command, response);
+			long duration = System.nanoTime() - start;
+			byte[] responseBytes = new byte[rv];
+			ByteBuffer copy = response.duplicate();
+			copy.position(responseStart);
+			copy.get(responseBytes);
+			m_card.record(commandBytes, responseBytes, duration);
+			return rv;
+		}
+
+		@Override
+		public void close() throws CardException {
+			m_channel.close();
+		}
+
+		@Override
+		public String toString() {
+			return "Recording " + m_channel;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package gov.gsa.pivconformance.cardlib.replay;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+
+/**
+ * A virtual reader holding a card that answers with the responses from an APDURecording, so that runs
+ * can be repeated and benchmarked without the card. The card is always present.
+ *
+ * Commands are answered in recorded order: each is matched against the recording from the exchange
+ * after the last one replayed, wrapping around to the start, so a run that makes the same requests as
+ * the recorded one gets the same answers, and one run after another can be replayed from one
+ * recording. Commands that were never recorded get 6F 00. Optionally, each answer is held back for
+ * the time the real card took to give it, scaled by a factor.
+ */
+public class ReplayCardTerminal extends CardTerminal {
+	private static final Logger s_logger = LoggerFactory.getLogger(ReplayCardTerminal.class);
+	private static final byte[] SW_NO_PRECISE_DIAGNOSIS = { 0x6F, 0x00 };
+
+	private final String m_name;
+	private final APDURecording m_recording;
+	private final double m_latencyScale;
+	// index of the exchange following the last one replayed, shared by every connection to the card
+	private int m_position = 0;
+
+	/**
+	 * @param name the name the reader is listed under
+	 * @param recording the card session to replay
+	 * @param latencyScale 0 to answer at once, or the factor to scale the recorded time of each exchange by
+	 */
+	public ReplayCardTerminal(String name, APDURecording recording, double latencyScale) {
+		m_name = name;
+		m_recording = recording;
+		m_latencyScale = latencyScale;
+	}
+
+	@Override
+	public String getName() {
+		return m_name;
+	}
+
+	public APDURecording getRecording() {
+		return m_recording;
+	}
+
+	@Override
+	public Card connect(String protocol) throws CardException {
+		if (!"*".equals(protocol) && !protocol.equalsIgnoreCase(m_recording.getProtocol())) {
+			throw new CardException("Recorded card uses protocol " + m_recording.getProtocol() + ", not " + protocol);
+		}
+		return new ReplayCard();
+	}
+
+	@Override
+	public boolean isCardPresent() {
+		return true;
+	}
+
+	@Override
+	public boolean waitForCardPresent(long timeout) {
+		return true;
+	}
+
+	@Override
+	public boolean waitForCardAbsent(long timeout) {
+		// the card never leaves, so wait out the timeout as a real reader would
+		if (timeout > 0) {
+			LockSupport.parkNanos(timeout * 1000000L);
+		}
+		return false;
+	}
+
+	// finds the answer to a command and holds it back for the recorded time if asked to
+	private synchronized byte[] replay(byte[] command) {
+		int index = m_recording.find(command, m_position);
+		if (index < 0) {
+			s_logger.warn("No recorded exchange matches command {}, answering 6F 00",
+					HexUtil.toHexString(command, 0, Math.min(4, command.length), true, ' '));
+			return SW_NO_PRECISE_DIAGNOSIS;
+		}
+		m_position = index + 1;
+		APDURecording.Exchange exchange = m_recording.getExchanges().get(index);
+		if (m_latencyScale > 0) {
+			long deadline = System.nanoTime() + (long) (exchange.getDurationNanos() * m_latencyScale);
+			long remaining;
+			while ((remaining = deadline - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(remaining);
+			}
+		}
+		return exchange.getResponse();
+	}
+
+	@Override
+	public String toString() {
+		return "Replay of " + m_recording.getReaderName() + " as " + m_name;
+	}
+
+	private class ReplayCard extends Card {
+		private final ReplayChannel m_basicChannel = new ReplayChannel(this, 0);
+		private volatile boolean m_connected = true;
+
+		@Override
+		public ATR getATR() {
+			return new ATR(m_recording.getATR());
+		}
+
+		@Override
+		public String getProtocol() {
+			return m_recording.getProtocol();
+		}
+
+		@Override
+		public CardChannel getBasicChannel() {
+			return m_basicChannel;
+		}
+
+		@Override
+		public CardChannel openLogicalChannel() throws CardException {
+			throw new CardException("Logical channels are not replayed");
+		}
+
+		@Override
+		public void beginExclusive() {
+		}
+
+		@Override
+		public void endExclusive() {
+		}
+
+		@Override
+		public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+			throw new CardException("Control commands are not replayed");
+		}
+
+		@Override
+		public void disconnect(boolean reset) {
+			m_connected = false;
+		}
+
+		byte[] transmit(byte[] command) throws CardException {
+			if (!m_connected) {
+				throw new IllegalStateException("Card has been disconnected");
+			}
+			if (command.length < 4) {
+				throw new CardException("Command APDU of " + command.length + " bytes is too short");
+			}
+			return replay(command);
+		}
+	}
+
+	private static class ReplayChannel extends CardChannel {
+		private final ReplayCard m_card;
+		private final int m_channelNumber;
+
+		ReplayChannel(ReplayCard card, int channelNumber) {
+			m_card = card;
+			m_channelNumber = channelNumber;
+		}
+
+		@Override
+		public Card getCard() {
+			return m_card;
+		}
+
+		@Override
+		public int getChannelNumber() {
+			return m_channelNumber;
+		}
+
+		@Override
+		public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+			return new ResponseAPDU(m_card.transmit(command.getBytes()));
+		}
+
+		@Override
+		public int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+			byte[] commandBytes = new byte[command.remaining()];
+			command.get(commandBytes);
+			byte[] rv = m_card.transmit(commandBytes);
+			if (response.remaining() < rv.length) {
+				throw new CardException("Response buffer of " + response.remaining() + " bytes is too small for " + rv.length);
+			}
+			response.put(rv);
+			return rv.length;
+		}
+
+		@Override
+		public void close() throws CardException {
+			throw new IllegalStateException("The basic channel cannot be closed");
+		}
+	}
+}
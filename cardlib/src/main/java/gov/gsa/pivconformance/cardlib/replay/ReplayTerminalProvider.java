@@ -0,0 +1,229 @@
+package gov.gsa.pivconformance.cardlib.replay;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.TerminalFactory;
+import javax.smartcardio.TerminalFactorySpi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A javax.smartcardio provider of two terminal factory types:
+ * <ul>
+ * <li>Record, which lists the readers of another factory and records the session with the card in each to
+ * &lt;directory&gt;/&lt;reader&gt;.apdu</li>
+ * <li>Replay, which lists a ReplayCardTerminal for a recording, or for each recording in a directory,
+ * under the name of the reader it was recorded in</li>
+ * </ul>
+ * The factories are normally obtained through PCSCUtils.GetTerminalFactory(), which picks one according
+ * to the gov.gsa.pivconformance.record and gov.gsa.pivconformance.replay properties, so that every tool
+ * lists the virtual readers like real ones.
+ */
+public class ReplayTerminalProvider extends Provider {
+	private static final long serialVersionUID = 1L;
+	private static final Logger s_logger = LoggerFactory.getLogger(ReplayTerminalProvider.class);
+
+	public static final String NAME = "PIVConformanceReplay";
+	public static final String RECORD = "Record";
+	public static final String REPLAY = "Replay";
+
+	private static final ReplayTerminalProvider INSTANCE = new ReplayTerminalProvider();
+
+	/**
+	 * Parameters of the Record terminal factory type
+	 */
+	public static final class RecordParameters {
+		final TerminalFactory m_factory;
+		final Path m_directory;
+
+		/**
+		 * @param factory the factory listing the real readers
+		 * @param directory the directory to write a recording for each reader to
+		 */
+		public RecordParameters(TerminalFactory factory, Path directory) {
+			m_factory = factory;
+			m_directory = directory;
+		}
+	}
+
+	/**
+	 * Parameters of the Replay terminal factory type
+	 */
+	public static final class ReplayParameters {
+		final Path m_path;
+		final double m_latencyScale;
+
+		/**
+		 * @param path a recording, or a directory of recordings
+		 * @param latencyScale 0 to answer at once, or the factor to scale the recorded time of each exchange by
+		 */
+		public ReplayParameters(Path path, double latencyScale) {
+			m_path = path;
+			m_latencyScale = latencyScale;
+		}
+	}
+
+	private ReplayTerminalProvider() {
+		super(NAME, "1.0", "Records card sessions and replays them as virtual readers");
+		putService(new Service(this, "TerminalFactory", RECORD, RecordingSpi.class.getName(), null, null) {
+			@Override
+			public Object newInstance(Object parameter) throws NoSuchAlgorithmException {
+				if (!(parameter instanceof RecordParameters)) {
+					throw new NoSuchAlgorithmException("The Record terminal factory needs RecordParameters");
+				}
+				return new RecordingSpi((RecordParameters) parameter);
+			}
+		});
+		putService(new Service(this, "TerminalFactory", REPLAY, ReplaySpi.class.getName(), null, null) {
+			@Override
+			public Object newInstance(Object parameter) throws NoSuchAlgorithmException {
+				if (!(parameter instanceof ReplayParameters)) {
+					throw new NoSuchAlgorithmException("The Replay terminal factory needs ReplayParameters");
+				}
+				try {
+					return new ReplaySpi((ReplayParameters) parameter);
+				} catch (IOException e) {
+					NoSuchAlgorithmException rv = new NoSuchAlgorithmException("Unable to read APDU recordings from " + ((ReplayParameters) parameter).m_path);
+					rv.initCause(e);
+					throw rv;
+				}
+			}
+		});
+	}
+
+	public static ReplayTerminalProvider getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets a factory that records the card sessions in the readers listed by another factory
+	 * @param factory the factory listing the real readers
+	 * @param directory the directory to write a recording for each reader to
+	 * @return the recording factory
+	 * @throws NoSuchAlgorithmException if the factory cannot be created
+	 */
+	public static TerminalFactory recordingFactory(TerminalFactory factory, Path directory) throws NoSuchAlgorithmException {
+		return TerminalFactory.getInstance(RECORD, new RecordParameters(factory, directory), INSTANCE);
+	}
+
+	/**
+	 * Gets a factory listing a virtual reader for a recording, or for each recording in a directory
+	 * @param path a recording, or a directory of recordings
+	 * @param latencyScale 0 to answer at once, or the factor to scale the recorded time of each exchange by
+	 * @return the replay factory
+	 * @throws NoSuchAlgorithmException if the recordings cannot be read
+	 */
+	public static TerminalFactory replayFactory(Path path, double latencyScale) throws NoSuchAlgorithmException {
+		return TerminalFactory.getInstance(REPLAY, new ReplayParameters(path, latencyScale), INSTANCE);
+	}
+
+	static final class RecordingSpi extends TerminalFactorySpi {
+		private final RecordParameters m_parameters;
+		private final Map<String, RecordingCardTerminal> m_terminals = new LinkedHashMap<>();
+
+		RecordingSpi(RecordParameters parameters) {
+			m_parameters = parameters;
+		}
+
+		@Override
+		protected CardTerminals engineTerminals() {
+			return new CardTerminals() {
+				@Override
+				public List<CardTerminal> list(State state) throws CardException {
+					List<CardTerminal> rv = new ArrayList<>();
+					for (CardTerminal t : m_parameters.m_factory.terminals().list(state)) {
+						rv.add(wrap(t));
+					}
+					return rv;
+				}
+
+				@Override
+				public boolean waitForChange(long timeout) throws CardException {
+					return m_parameters.m_factory.terminals().waitForChange(timeout);
+				}
+			};
+		}
+
+		// the same reader is always wrapped by the same terminal, so that one recording holds its whole session
+		private synchronized CardTerminal wrap(CardTerminal terminal) throws CardException {
+			RecordingCardTerminal rv = m_terminals.get(terminal.getName());
+			if (rv == null) {
+				try {
+					Files.createDirectories(m_parameters.m_directory);
+				} catch (IOException e) {
+					throw new CardException("Unable to create " + m_parameters.m_directory, e);
+				}
+				String fileName = terminal.getName().replaceAll("[^A-Za-z0-9._-]+", "_") + APDURecording.FILE_EXTENSION;
+				rv = new RecordingCardTerminal(terminal, m_parameters.m_directory.resolve(fileName));
+				m_terminals.put(terminal.getName(), rv);
+			}
+			return rv;
+		}
+	}
+
+	static final class ReplaySpi extends TerminalFactorySpi {
+		private final List<CardTerminal> m_terminals;
+
+		ReplaySpi(ReplayParameters parameters) throws IOException {
+			List<Path> files = new ArrayList<>();
+			if (Files.isDirectory(parameters.m_path)) {
+				try (DirectoryStream<Path> ds = Files.newDirectoryStream(parameters.m_path, "*" + APDURecording.FILE_EXTENSION)) {
+					for (Path p : ds) {
+						files.add(p);
+					}
+				}
+				Collections.sort(files);
+			} else {
+				files.add(parameters.m_path);
+			}
+			List<CardTerminal> terminals = new ArrayList<>();
+			Set<String> names = new HashSet<>();
+			for (Path file : files) {
+				APDURecording recording = APDURecording.read(file);
+				// several recordings of the same reader are told apart by number
+				String name = recording.getReaderName();
+				for (int n = 2; !names.add(name); n++) {
+					name = recording.getReaderName() + " (" + n + ")";
+				}
+				s_logger.info("Replaying {} exchanges from {} as reader {}", recording.getExchanges().size(), file, name);
+				terminals.add(new ReplayCardTerminal(name, recording, parameters.m_latencyScale));
+			}
+			m_terminals = Collections.unmodifiableList(terminals);
+		}
+
+		@Override
+		protected CardTerminals engineTerminals() {
+			return new CardTerminals() {
+				@Override
+				public List<CardTerminal> list(State state) {
+					// the cards are always present, and never inserted or removed
+					if (state == State.CARD_ABSENT || state == State.CARD_INSERTION || state == State.CARD_REMOVAL) {
+						return Collections.emptyList();
+					}
+					return m_terminals;
+				}
+
+				@Override
+				public boolean waitForChange(long timeout) {
+					return false;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,348 @@
+package gov.gsa.pivconformance.cardlib.simulator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+
+/**
+ * What a simulated PIV card holds: its containers, its private keys, its PIN and the ATR and application
+ * property template it answers with. A profile is read once and shared by every SimulatedPIVCard made from
+ * it, however many there are, so it is never changed once the cards are in use.
+ *
+ * A profile directory is a container dump as written by ContainerDump, one &lt;oid&gt;.bin file per
+ * container holding the data field of the GET DATA response, plus any test key material as one
+ * &lt;key reference&gt;.p8 file per key, such as 9A.p8, holding a PKCS#8 RSA or EC private key in DER or
+ * PEM form. Keys must match the certificates in the dump for signatures to verify. A key that is asked
+ * for but was not supplied is generated for the algorithm of the request the first time it is used, which
+ * gives responses of the right size and format that do not verify against the dump.
+ */
+public class SimulatedCardProfile {
+	private static final Logger s_logger = LoggerFactory.getLogger(SimulatedCardProfile.class);
+
+	public static final String KEY_FILE_EXTENSION = ".p8";
+	public static final String DEFAULT_PIN = "123456";
+	public static final int DEFAULT_PIN_RETRIES = 5;
+
+	// PIV cryptographic algorithm identifiers from SP 800-78-4
+	static final int ALG_RSA_3072 = 0x05;
+	static final int ALG_RSA_1024 = 0x06;
+	static final int ALG_RSA_2048 = 0x07;
+	static final int ALG_ECC_P256 = 0x11;
+	static final int ALG_ECC_P384 = 0x14;
+
+	private static final byte[] APPLICATION_LABEL = "PIV Card Simulator".getBytes(StandardCharsets.US_ASCII);
+
+	private final Map<Integer, byte[]> m_containers;
+	private final Set<Integer> m_protectedTags;
+	private final Map<Integer, PrivateKey> m_keys;
+	// keys generated for requests no key was supplied for, by key reference and algorithm
+	private final Map<Integer, PrivateKey> m_generatedKeys = new ConcurrentHashMap<>();
+	private final byte[] m_pin;
+	private final int m_pinRetries;
+	private final boolean m_extendedLength;
+	private final byte[] m_atr;
+	private final byte[] m_applicationProperties;
+
+	private SimulatedCardProfile(Map<Integer, byte[]> containers, Map<Integer, PrivateKey> keys, String pin, int pinRetries, boolean extendedLength) {
+		m_containers = Collections.unmodifiableMap(containers);
+		Set<Integer> protectedTags = new HashSet<>();
+		for (String oid : APDUConstants.ProtectedContainers()) {
+			byte[] tag = APDUConstants.oidMAP.get(oid);
+			if (tag != null) {
+				protectedTags.add(tag(tag, 0, tag.length));
+			}
+		}
+		m_protectedTags = Collections.unmodifiableSet(protectedTags);
+		m_keys = Collections.unmodifiableMap(keys);
+		m_pin = padPin(pin);
+		m_pinRetries = pinRetries;
+		m_extendedLength = extendedLength;
+		m_atr = atr(extendedLength);
+		m_applicationProperties = applicationProperties();
+	}
+
+	/**
+	 * Reads a profile from a container dump directory with the default PIN and retry limit
+	 * @param directory the directory holding the &lt;oid&gt;.bin and &lt;key reference&gt;.p8 files
+	 * @return the profile
+	 * @throws IOException if the directory holds no containers, or a file in it cannot be read
+	 */
+	public static SimulatedCardProfile load(Path directory) throws IOException {
+		return load(directory, DEFAULT_PIN, DEFAULT_PIN_RETRIES, true);
+	}
+
+	/**
+	 * Reads a profile from a container dump directory
+	 * @param directory the directory holding the &lt;oid&gt;.bin and &lt;key reference&gt;.p8 files
+	 * @param pin the PIN the simulated cards accept
+	 * @param pinRetries the number of wrong PINs that block a card
+	 * @param extendedLength whether the cards accept extended length APDUs
+	 * @return the profile
+	 * @throws IOException if the directory holds no containers, or a file in it cannot be read
+	 */
+	public static SimulatedCardProfile load(Path directory, String pin, int pinRetries, boolean extendedLength) throws IOException {
+		Map<Integer, byte[]> containers = new HashMap<>();
+		for (Map.Entry<String, byte[]> e : APDUConstants.oidMAP.entrySet()) {
+			Path file = directory.resolve(e.getKey() + ".bin");
+			if (Files.isReadable(file)) {
+				containers.put(tag(e.getValue(), 0, e.getValue().length), Files.readAllBytes(file));
+			}
+		}
+		if (containers.isEmpty()) {
+			throw new IOException(directory + " holds no container dump");
+		}
+		Map<Integer, PrivateKey> keys = new HashMap<>();
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory, "*" + KEY_FILE_EXTENSION)) {
+			for (Path file : ds) {
+				String name = file.getFileName().toString();
+				int keyReference;
+				try {
+					keyReference = Integer.parseInt(name.substring(0, name.length() - KEY_FILE_EXTENSION.length()), 16);
+				} catch (NumberFormatException e) {
+					s_logger.warn("Ignoring {}, which is not named after a key reference", file);
+					continue;
+				}
+				keys.put(keyReference, readPrivateKey(file));
+			}
+		}
+		s_logger.info("Simulating a PIV card with {} containers and {} keys from {}", containers.size(), keys.size(), directory);
+		return new SimulatedCardProfile(containers, keys, pin, pinRetries, extendedLength);
+	}
+
+	/**
+	 * Creates a profile from containers and keys held in memory
+	 * @param containers the GET DATA response data field of each container, by container OID
+	 * @param keys the private keys, by key reference
+	 * @param pin the PIN the simulated cards accept
+	 * @param pinRetries the number of wrong PINs that block a card
+	 * @param extendedLength whether the cards accept extended length APDUs
+	 * @return the profile
+	 */
+	public static SimulatedCardProfile create(Map<String, byte[]> containers, Map<Integer, PrivateKey> keys, String pin, int pinRetries, boolean extendedLength) {
+		Map<Integer, byte[]> byTag = new HashMap<>();
+		for (Map.Entry<String, byte[]> e : containers.entrySet()) {
+			byte[] tag = APDUConstants.oidMAP.get(e.getKey());
+			if (tag == null) {
+				throw new IllegalArgumentException("OID " + e.getKey() + " is not a PIV container");
+			}
+			byTag.put(tag(tag, 0, tag.length), e.getValue().clone());
+		}
+		return new SimulatedCardProfile(byTag, new HashMap<>(keys), pin, pinRetries, extendedLength);
+	}
+
+	private static PrivateKey readPrivateKey(Path file) throws IOException {
+		byte[] encoded = Files.readAllBytes(file);
+		String text = new String(encoded, StandardCharsets.US_ASCII);
+		if (text.startsWith("-----BEGIN")) {
+			encoded = Base64.getMimeDecoder().decode(text.replaceAll("-----[A-Z ]+-----", ""));
+		}
+		PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(encoded);
+		for (String algorithm : new String[] { "RSA", "EC" }) {
+			try {
+				return KeyFactory.getInstance(algorithm).generatePrivate(spec);
+			} catch (GeneralSecurityException e) {
+				// try the next algorithm
+			}
+		}
+		throw new IOException(file + " does not hold a PKCS#8 RSA or EC private key");
+	}
+
+	// the tag of a container as an int, as it appears in the GET DATA data field
+	static int tag(byte[] data, int offset, int length) {
+		int rv = 0;
+		for (int i = offset; i < offset + length; i++) {
+			rv = (rv << 8) | (data[i] & 0xFF);
+		}
+		return rv;
+	}
+
+	private static byte[] padPin(String pin) {
+		byte[] rv = new byte[8];
+		Arrays.fill(rv, (byte) 0xFF);
+		byte[] digits = pin.getBytes(StandardCharsets.US_ASCII);
+		if (digits.length > rv.length) {
+			throw new IllegalArgumentException("A PIN has at most 8 digits");
+		}
+		System.arraycopy(digits, 0, rv, 0, digits.length);
+		return rv;
+	}
+
+	// T=1 ATR whose card capabilities advertise command chaining and, if asked, extended Lc and Le fields
+	private static byte[] atr(boolean extendedLength) {
+		byte[] rv = { 0x3B, (byte) 0x85, (byte) 0x80, 0x01, (byte) 0x80, 0x73, 0x00, 0x00, (byte) (extendedLength ? 0xC0 : 0x80), 0x00 };
+		byte tck = 0;
+		for (int i = 1; i < rv.length - 1; i++) {
+			tck ^= rv[i];
+		}
+		rv[rv.length - 1] = tck;
+		return rv;
+	}
+
+	private static byte[] applicationProperties() {
+		byte[] pix = Arrays.copyOfRange(APDUConstants.PIV_APPID, 5, APDUConstants.PIV_APPID.length);
+		byte[] rid = Arrays.copyOfRange(APDUConstants.PIV_APPID, 0, 5);
+		byte[] algorithms = { (byte) 0x80, 0x01, ALG_RSA_2048, (byte) 0x80, 0x01, ALG_ECC_P256, (byte) 0x80, 0x01, ALG_ECC_P384, 0x06, 0x01, 0x00 };
+		int length = 2 + pix.length + 4 + rid.length + 2 + APPLICATION_LABEL.length + 2 + algorithms.length;
+		byte[] rv = new byte[2 + length];
+		int i = 0;
+		rv[i++] = 0x61;
+		rv[i++] = (byte) length;
+		rv[i++] = 0x4F;
+		rv[i++] = (byte) pix.length;
+		System.arraycopy(pix, 0, rv, i, pix.length);
+		i += pix.length;
+		rv[i++] = 0x79;
+		rv[i++] = (byte) (2 + rid.length);
+		rv[i++] = 0x4F;
+		rv[i++] = (byte) rid.length;
+		System.arraycopy(rid, 0, rv, i, rid.length);
+		i += rid.length;
+		rv[i++] = 0x50;
+		rv[i++] = (byte) APPLICATION_LABEL.length;
+		System.arraycopy(APPLICATION_LABEL, 0, rv, i, APPLICATION_LABEL.length);
+		i += APPLICATION_LABEL.length;
+		rv[i++] = (byte) 0xAC;
+		rv[i++] = (byte) algorithms.length;
+		System.arraycopy(algorithms, 0, rv, i, algorithms.length);
+		return rv;
+	}
+
+	/**
+	 * Gets a container
+	 * @param tag the container tag from the GET DATA data field, such as 0x5FC102
+	 * @return the GET DATA response data field, or null if the card has no such container
+	 */
+	byte[] getContainer(int tag) {
+		return m_containers.get(tag);
+	}
+
+	boolean isProtected(int tag) {
+		return m_protectedTags.contains(tag);
+	}
+
+	/**
+	 * Gets the private key to answer a GENERAL AUTHENTICATE with, generating one if none was supplied
+	 * @param keyReference the key reference from P2
+	 * @param algorithm the algorithm identifier from P1
+	 * @return the key, or null if the key reference or algorithm is not one a PIV card signs with, or
+	 * the supplied key is of another algorithm
+	 */
+	PrivateKey getKey(int keyReference, int algorithm) {
+		if (!isAsymmetricKeyReference(keyReference)) {
+			return null;
+		}
+		PrivateKey rv = m_keys.get(keyReference);
+		if (rv != null) {
+			return matches(rv, algorithm) ? rv : null;
+		}
+		return m_generatedKeys.computeIfAbsent((keyReference << 8) | algorithm, k -> generateKey(keyReference, algorithm));
+	}
+
+	private static boolean isAsymmetricKeyReference(int keyReference) {
+		return keyReference == APDUConstants.PIV_AUTHENTICATION_KEY_ID || keyReference == APDUConstants.DIGITAL_SIGNATURE_KEY_ID
+				|| keyReference == APDUConstants.KEY_MANAGEMENT_KEY_ID || keyReference == APDUConstants.CARD_AUTHENTICATION_KEY_ID
+				|| (keyReference >= APDUConstants.RETIRED_KEY_MANAGEMENT_KEY_ID_1 && keyReference <= APDUConstants.RETIRED_KEY_MANAGEMENT_KEY_ID_20);
+	}
+
+	private static boolean matches(PrivateKey key, int algorithm) {
+		if (key instanceof RSAPrivateKey) {
+			return ((RSAPrivateKey) key).getModulus().bitLength() == rsaBits(algorithm);
+		}
+		if (key instanceof ECPrivateKey) {
+			return ((ECPrivateKey) key).getParams().getCurve().getField().getFieldSize() == ecBits(algorithm);
+		}
+		return false;
+	}
+
+	static int rsaBits(int algorithm) {
+		switch (algorithm) {
+		case ALG_RSA_1024:
+			return 1024;
+		case ALG_RSA_2048:
+			return 2048;
+		case ALG_RSA_3072:
+			return 3072;
+		default:
+			return 0;
+		}
+	}
+
+	static int ecBits(int algorithm) {
+		switch (algorithm) {
+		case ALG_ECC_P256:
+			return 256;
+		case ALG_ECC_P384:
+			return 384;
+		default:
+			return 0;
+		}
+	}
+
+	private static PrivateKey generateKey(int keyReference, int algorithm) {
+		try {
+			KeyPairGenerator kpg;
+			if (rsaBits(algorithm) > 0) {
+				kpg = KeyPairGenerator.getInstance("RSA");
+				kpg.initialize(rsaBits(algorithm));
+			} else if (ecBits(algorithm) > 0) {
+				kpg = KeyPairGenerator.getInstance("EC");
+				kpg.initialize(new ECGenParameterSpec(ecBits(algorithm) == 256 ? "secp256r1" : "secp384r1"));
+			} else {
+				return null;
+			}
+			s_logger.warn("No key was supplied for key reference {}, generating one for algorithm {}. Its signatures will not verify.",
+					String.format("%02X", keyReference), String.format("%02X", algorithm));
+			return kpg.generateKeyPair().getPrivate();
+		} catch (GeneralSecurityException e) {
+			s_logger.error("Unable to generate a test key for algorithm {}", String.format("%02X", algorithm), e);
+			return null;
+		}
+	}
+
+	byte[] getPin() {
+		return m_pin;
+	}
+
+	public int getPinRetries() {
+		return m_pinRetries;
+	}
+
+	public boolean isExtendedLength() {
+		return m_extendedLength;
+	}
+
+	public byte[] getATR() {
+		return m_atr.clone();
+	}
+
+	byte[] getApplicationProperties() {
+		return m_applicationProperties;
+	}
+
+	public int getContainerCount() {
+		return m_containers.size();
+	}
+}
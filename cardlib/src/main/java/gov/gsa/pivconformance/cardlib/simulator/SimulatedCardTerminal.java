@@ -0,0 +1,220 @@
+package gov.gsa.pivconformance.cardlib.simulator;
+
+import java.nio.ByteBuffer;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardNotPresentException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * A virtual reader holding a SimulatedPIVCard. The card is present until removeCard() is called, and
+ * insertCard() puts a fresh one, with its PIN retry counter reset, in its place, which lets tools that
+ * wait for cards to be inserted and removed be driven without a person at the reader.
+ */
+public class SimulatedCardTerminal extends CardTerminal {
+	private final String m_name;
+	private final SimulatedCardProfile m_profile;
+	private SimulatedPIVCard m_card;
+	private boolean m_present = true;
+
+	/**
+	 * @param name the name the reader is listed under
+	 * @param profile the containers, keys and PIN of the card in the reader
+	 */
+	public SimulatedCardTerminal(String name, SimulatedCardProfile profile) {
+		m_name = name;
+		m_profile = profile;
+		m_card = new SimulatedPIVCard(profile, name);
+	}
+
+	@Override
+	public String getName() {
+		return m_name;
+	}
+
+	/**
+	 * Gets the simulated card in the reader
+	 * @return the card, or null if there is none
+	 */
+	public synchronized SimulatedPIVCard getCard() {
+		return m_present ? m_card : null;
+	}
+
+	@Override
+	public synchronized Card connect(String protocol) throws CardException {
+		if (!m_present) {
+			throw new CardNotPresentException("No card is present in " + m_name);
+		}
+		if (!"*".equals(protocol) && !"T=1".equalsIgnoreCase(protocol)) {
+			throw new CardException("Simulated card uses protocol T=1, not " + protocol);
+		}
+		return new SimulatedCard(m_card);
+	}
+
+	/**
+	 * Puts a new card in the reader, replacing any card already there
+	 */
+	public synchronized void insertCard() {
+		m_card = new SimulatedPIVCard(m_profile, m_name);
+		m_present = true;
+		notifyAll();
+	}
+
+	/**
+	 * Takes the card out of the reader. Connections to it fail from then on.
+	 */
+	public synchronized void removeCard() {
+		m_present = false;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized boolean isCardPresent() {
+		return m_present;
+	}
+
+	@Override
+	public boolean waitForCardPresent(long timeout) throws CardException {
+		return waitFor(true, timeout);
+	}
+
+	@Override
+	public boolean waitForCardAbsent(long timeout) throws CardException {
+		return waitFor(false, timeout);
+	}
+
+	private synchronized boolean waitFor(boolean present, long timeout) throws CardException {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("timeout must not be negative");
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		try {
+			while (m_present != present) {
+				if (timeout == 0) {
+					wait();
+				} else {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						return false;
+					}
+					wait(remaining);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CardException("Interrupted while waiting for a card in " + m_name, e);
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "Simulated PIV card in " + m_name;
+	}
+
+	private class SimulatedCard extends Card {
+		private final SimulatedPIVCard m_pivCard;
+		private final SimulatedChannel m_basicChannel = new SimulatedChannel(this);
+		private volatile boolean m_connected = true;
+
+		SimulatedCard(SimulatedPIVCard pivCard) {
+			m_pivCard = pivCard;
+		}
+
+		@Override
+		public ATR getATR() {
+			return new ATR(m_profile.getATR());
+		}
+
+		@Override
+		public String getProtocol() {
+			return "T=1";
+		}
+
+		@Override
+		public CardChannel getBasicChannel() {
+			return m_basicChannel;
+		}
+
+		@Override
+		public CardChannel openLogicalChannel() throws CardException {
+			throw new CardException("Logical channels are not simulated");
+		}
+
+		@Override
+		public void beginExclusive() {
+		}
+
+		@Override
+		public void endExclusive() {
+		}
+
+		@Override
+		public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+			throw new CardException("Control commands are not simulated");
+		}
+
+		@Override
+		public void disconnect(boolean reset) {
+			m_connected = false;
+			if (reset) {
+				m_pivCard.reset();
+			}
+		}
+
+		byte[] transmit(byte[] command) throws CardException {
+			if (!m_connected) {
+				throw new IllegalStateException("Card has been disconnected");
+			}
+			if (SimulatedCardTerminal.this.getCard() != m_pivCard) {
+				throw new CardNotPresentException("The card has been removed from " + m_name);
+			}
+			return m_pivCard.transmit(command);
+		}
+	}
+
+	private static class SimulatedChannel extends CardChannel {
+		private final SimulatedCard m_card;
+
+		SimulatedChannel(SimulatedCard card) {
+			m_card = card;
+		}
+
+		@Override
+		public Card getCard() {
+			return m_card;
+		}
+
+		@Override
+		public int getChannelNumber() {
+			return 0;
+		}
+
+		@Override
+		public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+			return new ResponseAPDU(m_card.transmit(command.getBytes()));
+		}
+
+		@Override
+		public int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+			byte[] commandBytes = new byte[command.remaining()];
+			command.get(commandBytes);
+			byte[] rv = m_card.transmit(commandBytes);
+			if (response.remaining() < rv.length) {
+				throw new CardException("Response buffer of " + response.remaining() + " bytes is too small for " + rv.length);
+			}
+			response.put(rv);
+			return rv.length;
+		}
+
+		@Override
+		public void close() throws CardException {
+			throw new IllegalStateException("The basic channel cannot be closed");
+		}
+	}
+}
@@ -0,0 +1,461 @@
+package gov.gsa.pivconformance.cardlib.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+
+/**
+ * A PIV card application in memory, answering the command APDUs the conformance tests send the way a real
+ * card would, for load and scale testing without card readers.
+ *
+ * It implements SELECT, GET DATA, VERIFY, GENERAL AUTHENTICATE and GET RESPONSE with the status words
+ * AbstractPIVApplication expects. A response longer than the Le of a short command is returned in pieces
+ * with 61 XX, and, if the profile allows extended length APDUs, an extended command gets its whole response
+ * at once. Command chaining is accepted for GENERAL AUTHENTICATE.
+ *
+ * The card keeps its own PIN retry counter and security status, and processes one command at a time, so
+ * any number of cards made from the same profile can be used from as many threads at once.
+ */
+public class SimulatedPIVCard {
+	private static final Logger s_logger = LoggerFactory.getLogger(SimulatedPIVCard.class);
+
+	static final int SW_SUCCESS = APDUConstants.SUCCESSFUL_EXEC;
+	static final int SW_BYTES_REMAINING = 0x6100;
+	static final int SW_WRONG_LENGTH = APDUConstants.WRONG_LENGTH;
+	static final int SW_PIN_RETRIES = 0x63C0;
+	static final int SW_SECURITY_STATUS_NOT_SATISFIED = APDUConstants.SECURITY_STATUS_NOT_SATISFIED;
+	static final int SW_AUTHENTICATION_BLOCKED = 0x6983;
+	static final int SW_CONDITIONS_NOT_SATISFIED = 0x6985;
+	static final int SW_WRONG_DATA = APDUConstants.INCORREECT_PARAMETER;
+	static final int SW_NOT_FOUND = APDUConstants.APP_NOT_FOUND;
+	static final int SW_INCORRECT_P1P2 = APDUConstants.INCORREECT_PARAMETER_P2;
+	static final int SW_REFERENCE_DATA_NOT_FOUND = 0x6A88;
+	static final int SW_INS_NOT_SUPPORTED = APDUConstants.INS_NOT_SUPPORTED;
+	static final int SW_CLA_NOT_SUPPORTED = APDUConstants.CLA_NOT_SUPPORTED;
+
+	private static final int INS_GET_RESPONSE = 0xC0;
+	private static final int CLA_CHAINING = APDUConstants.COMMAND_CC;
+	private static final byte[] PIV_RID = Arrays.copyOf(APDUConstants.PIV_APPID, 5);
+
+	private final SimulatedCardProfile m_profile;
+	private final String m_name;
+
+	// state kept by the card between resets
+	private int m_retriesLeft;
+	// state lost on reset
+	private boolean m_selected = true;
+	private boolean m_pinVerified = false;
+	// the part of the last response that has not been fetched with GET RESPONSE yet
+	private byte[] m_pendingResponse = null;
+	private int m_pendingOffset = 0;
+	// the data of the chained commands received so far, and the CLA-less header they were sent with
+	private final ByteArrayOutputStream m_chain = new ByteArrayOutputStream();
+	private int m_chainHeader = -1;
+
+	private long m_commandCount = 0;
+
+	/**
+	 * @param profile the containers, keys and PIN of the card, which may be shared with other cards
+	 * @param name the name the card is logged under
+	 */
+	public SimulatedPIVCard(SimulatedCardProfile profile, String name) {
+		m_profile = profile;
+		m_name = name;
+		m_retriesLeft = profile.getPinRetries();
+	}
+
+	public SimulatedCardProfile getProfile() {
+		return m_profile;
+	}
+
+	public String getName() {
+		return m_name;
+	}
+
+	/**
+	 * Resets the card as a warm reset would: the PIV application is selected again, the PIN has to be
+	 * verified again and any unfinished response or command chain is dropped. The PIN retry counter is kept.
+	 */
+	public synchronized void reset() {
+		m_selected = true;
+		m_pinVerified = false;
+		m_pendingResponse = null;
+		m_chain.reset();
+		m_chainHeader = -1;
+	}
+
+	public synchronized int getRetriesLeft() {
+		return m_retriesLeft;
+	}
+
+	public synchronized boolean isPinVerified() {
+		return m_pinVerified;
+	}
+
+	public synchronized long getCommandCount() {
+		return m_commandCount;
+	}
+
+	/**
+	 * Processes a command APDU
+	 * @param command the command APDU in any of the ISO/IEC 7816-4 short or extended cases
+	 * @return the response APDU, data followed by the status word
+	 */
+	public synchronized byte[] transmit(byte[] command) {
+		m_commandCount++;
+		Command c = Command.parse(command);
+		if (c == null) {
+			return status(SW_WRONG_LENGTH);
+		}
+		if (c.m_extended && !m_profile.isExtendedLength()) {
+			s_logger.debug("{} does not accept extended length APDUs", m_name);
+			return status(SW_WRONG_LENGTH);
+		}
+		if (c.m_ins == INS_GET_RESPONSE) {
+			return getResponse(c);
+		}
+		// any other command abandons what was left of the last response
+		m_pendingResponse = null;
+		if ((c.m_cla & ~CLA_CHAINING) != 0) {
+			return status(SW_CLA_NOT_SUPPORTED);
+		}
+		int header = (c.m_ins << 16) | (c.m_p1 << 8) | c.m_p2;
+		if (m_chainHeader >= 0 && m_chainHeader != header) {
+			m_chain.reset();
+			m_chainHeader = -1;
+		}
+		if ((c.m_cla & CLA_CHAINING) != 0) {
+			if (c.m_ins != (APDUConstants.GENERAL_AUTHENTICATE & 0xFF)) {
+				return status(SW_CLA_NOT_SUPPORTED);
+			}
+			m_chain.write(c.m_data, 0, c.m_data.length);
+			m_chainHeader = header;
+			return status(SW_SUCCESS);
+		}
+		if (m_chainHeader >= 0) {
+			m_chain.write(c.m_data, 0, c.m_data.length);
+			c.m_data = m_chain.toByteArray();
+			m_chain.reset();
+			m_chainHeader = -1;
+		}
+		switch (c.m_ins) {
+		case APDUConstants.SELECT & 0xFF:
+			return select(c);
+		case APDUConstants.GET & 0xFF:
+			return m_selected ? getData(c) : status(SW_INS_NOT_SUPPORTED);
+		case APDUConstants.VERIFY:
+			return m_selected ? verify(c) : status(SW_INS_NOT_SUPPORTED);
+		case APDUConstants.GENERAL_AUTHENTICATE & 0xFF:
+			return m_selected ? generalAuthenticate(c) : status(SW_INS_NOT_SUPPORTED);
+		default:
+			return status(SW_INS_NOT_SUPPORTED);
+		}
+	}
+
+	private byte[] select(Command c) {
+		if (c.m_p1 != 0x04) {
+			return status(SW_INCORRECT_P1P2);
+		}
+		// the AID may be truncated down to the RID
+		byte[] aid = APDUConstants.PIV_APPID;
+		boolean piv = c.m_data.length >= PIV_RID.length && c.m_data.length <= aid.length
+				&& Arrays.equals(c.m_data, Arrays.copyOf(aid, c.m_data.length));
+		if (!piv) {
+			// selecting another application resets the security status of the PIV one
+			m_selected = false;
+			m_pinVerified = false;
+			return status(SW_NOT_FOUND);
+		}
+		m_selected = true;
+		return respond(c, m_profile.getApplicationProperties());
+	}
+
+	private byte[] getData(Command c) {
+		if (c.m_p1 != APDUConstants.P1_3F || c.m_p2 != 0xFF) {
+			return status(SW_INCORRECT_P1P2);
+		}
+		byte[] d = c.m_data;
+		if (d.length < 3 || d[0] != 0x5C || (d[1] & 0xFF) != d.length - 2 || d.length > 5) {
+			return status(SW_WRONG_DATA);
+		}
+		int tag = SimulatedCardProfile.tag(d, 2, d.length - 2);
+		byte[] container = m_profile.getContainer(tag);
+		if (container == null) {
+			return status(SW_NOT_FOUND);
+		}
+		if (m_profile.isProtected(tag) && !m_pinVerified) {
+			return status(SW_SECURITY_STATUS_NOT_SATISFIED);
+		}
+		return respond(c, container);
+	}
+
+	private byte[] verify(Command c) {
+		// this card has a single PIN, used as both the application and the global PIN
+		if (c.m_p2 != 0x80 && c.m_p2 != 0x00) {
+			return status(SW_REFERENCE_DATA_NOT_FOUND);
+		}
+		if (c.m_p1 == 0xFF) {
+			if (c.m_data.length != 0) {
+				return status(SW_WRONG_DATA);
+			}
+			m_pinVerified = false;
+			return status(SW_SUCCESS);
+		}
+		if (c.m_p1 != 0x00) {
+			return status(SW_INCORRECT_P1P2);
+		}
+		if (c.m_data.length == 0) {
+			if (m_retriesLeft == 0) {
+				return status(SW_AUTHENTICATION_BLOCKED);
+			}
+			return status(m_pinVerified ? SW_SUCCESS : SW_PIN_RETRIES | m_retriesLeft);
+		}
+		if (c.m_data.length != 8) {
+			return status(SW_WRONG_DATA);
+		}
+		if (m_retriesLeft == 0) {
+			return status(SW_AUTHENTICATION_BLOCKED);
+		}
+		if (Arrays.equals(c.m_data, m_profile.getPin())) {
+			m_retriesLeft = m_profile.getPinRetries();
+			m_pinVerified = true;
+			return status(SW_SUCCESS);
+		}
+		m_retriesLeft--;
+		m_pinVerified = false;
+		s_logger.debug("Wrong PIN presented to {}, {} tries left", m_name, m_retriesLeft);
+		return status(m_retriesLeft == 0 ? SW_AUTHENTICATION_BLOCKED : SW_PIN_RETRIES | m_retriesLeft);
+	}
+
+	private byte[] generalAuthenticate(Command c) {
+		int algorithm = c.m_p1;
+		int keyReference = c.m_p2;
+		// only the card authentication key may be used without the PIN
+		if (keyReference != APDUConstants.CARD_AUTHENTICATION_KEY_ID && !m_pinVerified) {
+			return status(SW_SECURITY_STATUS_NOT_SATISFIED);
+		}
+		byte[] challenge = challenge(c.m_data);
+		if (challenge == null) {
+			return status(SW_WRONG_DATA);
+		}
+		PrivateKey key = m_profile.getKey(keyReference, algorithm);
+		if (key == null) {
+			return status(SW_INCORRECT_P1P2);
+		}
+		byte[] signature;
+		try {
+			if (key instanceof RSAPrivateKey) {
+				if (challenge.length != (((RSAPrivateKey) key).getModulus().bitLength() + 7) / 8) {
+					return status(SW_WRONG_DATA);
+				}
+				// the challenge comes padded, so the card applies the raw private key operation
+				Cipher rsa = Cipher.getInstance("RSA/ECB/NoPadding");
+				rsa.init(Cipher.ENCRYPT_MODE, key);
+				signature = rsa.doFinal(challenge);
+			} else {
+				if (challenge.length != SimulatedCardProfile.ecBits(algorithm) / 8) {
+					return status(SW_WRONG_DATA);
+				}
+				// the challenge is the digest to sign
+				Signature ecdsa = Signature.getInstance("NONEwithECDSA");
+				ecdsa.initSign(key);
+				ecdsa.update(challenge);
+				signature = ecdsa.sign();
+			}
+		} catch (GeneralSecurityException e) {
+			s_logger.error("{} failed to sign a challenge with key {}", m_name, String.format("%02X", keyReference), e);
+			return status(SW_WRONG_DATA);
+		}
+		// 7C { 82 signature }
+		byte[] inner = tlv(0x82, signature);
+		return respond(c, tlv(0x7C, inner));
+	}
+
+	// the challenge of a 7C { 82 00, 81 challenge } dynamic authentication template, or null if it is not one
+	private static byte[] challenge(byte[] data) {
+		int[] outer = readTlv(data, 0, data.length);
+		if (outer == null || outer[0] != 0x7C || outer[2] + outer[3] != data.length) {
+			return null;
+		}
+		boolean responseRequested = false;
+		byte[] challenge = null;
+		int i = outer[2];
+		int end = outer[2] + outer[3];
+		while (i < end) {
+			int[] inner = readTlv(data, i, end);
+			if (inner == null) {
+				return null;
+			}
+			if (inner[0] == 0x82 && inner[3] == 0) {
+				responseRequested = true;
+			} else if (inner[0] == 0x81) {
+				challenge = Arrays.copyOfRange(data, inner[2], inner[2] + inner[3]);
+			}
+			i = inner[2] + inner[3];
+		}
+		return responseRequested ? challenge : null;
+	}
+
+	// reads a single byte tag TLV: { tag, offset of the tag, offset of the value, length of the value }
+	private static int[] readTlv(byte[] data, int offset, int end) {
+		if (offset + 2 > end) {
+			return null;
+		}
+		int tag = data[offset] & 0xFF;
+		int i = offset + 1;
+		int length = data[i++] & 0xFF;
+		if (length > 0x80) {
+			int n = length & 0x7F;
+			if (n > 3 || i + n > end) {
+				return null;
+			}
+			length = 0;
+			for (int k = 0; k < n; k++) {
+				length = (length << 8) | (data[i++] & 0xFF);
+			}
+		} else if (length == 0x80) {
+			return null;
+		}
+		if (i + length > end) {
+			return null;
+		}
+		return new int[] { tag, offset, i, length };
+	}
+
+	private static byte[] tlv(int tag, byte[] value) {
+		int lengthBytes = value.length < 0x80 ? 1 : value.length < 0x100 ? 2 : 3;
+		byte[] rv = new byte[1 + lengthBytes + value.length];
+		rv[0] = (byte) tag;
+		if (lengthBytes == 1) {
+			rv[1] = (byte) value.length;
+		} else if (lengthBytes == 2) {
+			rv[1] = (byte) 0x81;
+			rv[2] = (byte) value.length;
+		} else {
+			rv[1] = (byte) 0x82;
+			rv[2] = (byte) (value.length >> 8);
+			rv[3] = (byte) value.length;
+		}
+		System.arraycopy(value, 0, rv, 1 + lengthBytes, value.length);
+		return rv;
+	}
+
+	// answers with as much of the data as Le allows, leaving the rest for GET RESPONSE
+	private byte[] respond(Command c, byte[] data) {
+		if (data.length <= c.m_ne) {
+			return response(data, 0, data.length, SW_SUCCESS);
+		}
+		m_pendingResponse = data;
+		m_pendingOffset = c.m_ne;
+		return response(data, 0, c.m_ne, remaining());
+	}
+
+	private byte[] getResponse(Command c) {
+		if (m_pendingResponse == null) {
+			return status(SW_CONDITIONS_NOT_SATISFIED);
+		}
+		if (c.m_p1 != 0 || c.m_p2 != 0) {
+			return status(SW_INCORRECT_P1P2);
+		}
+		byte[] data = m_pendingResponse;
+		int offset = m_pendingOffset;
+		int length = Math.min(c.m_ne, data.length - offset);
+		m_pendingOffset += length;
+		int sw = remaining();
+		if (m_pendingOffset == data.length) {
+			m_pendingResponse = null;
+		}
+		return response(data, offset, length, sw);
+	}
+
+	private int remaining() {
+		int left = m_pendingResponse.length - m_pendingOffset;
+		return left == 0 ? SW_SUCCESS : SW_BYTES_REMAINING | (left > 0xFF ? 0x00 : left);
+	}
+
+	private static byte[] response(byte[] data, int offset, int length, int sw) {
+		byte[] rv = new byte[length + 2];
+		System.arraycopy(data, offset, rv, 0, length);
+		rv[length] = (byte) (sw >> 8);
+		rv[length + 1] = (byte) sw;
+		return rv;
+	}
+
+	private static byte[] status(int sw) {
+		return new byte[] { (byte) (sw >> 8), (byte) sw };
+	}
+
+	/**
+	 * A decoded command APDU
+	 */
+	static final class Command {
+		int m_cla;
+		int m_ins;
+		int m_p1;
+		int m_p2;
+		byte[] m_data;
+		// the maximum number of response bytes expected, 256 when a short command has no Le
+		int m_ne;
+		boolean m_extended;
+
+		// decodes the four ISO/IEC 7816-4 cases, or returns null if the lengths do not add up
+		static Command parse(byte[] apdu) {
+			if (apdu.length < 4) {
+				return null;
+			}
+			Command rv = new Command();
+			rv.m_cla = apdu[0] & 0xFF;
+			rv.m_ins = apdu[1] & 0xFF;
+			rv.m_p1 = apdu[2] & 0xFF;
+			rv.m_p2 = apdu[3] & 0xFF;
+			rv.m_data = new byte[0];
+			rv.m_ne = 256;
+			if (apdu.length == 4) {
+				return rv;
+			}
+			int b = apdu[4] & 0xFF;
+			if (apdu.length == 5) {
+				rv.m_ne = b == 0 ? 256 : b;
+				return rv;
+			}
+			if (b != 0) {
+				// short Lc, then an optional short Le
+				if (apdu.length != 5 + b && apdu.length != 6 + b) {
+					return null;
+				}
+				rv.m_data = Arrays.copyOfRange(apdu, 5, 5 + b);
+				if (apdu.length == 6 + b) {
+					int le = apdu[5 + b] & 0xFF;
+					rv.m_ne = le == 0 ? 256 : le;
+				}
+				return rv;
+			}
+			rv.m_extended = true;
+			if (apdu.length == 7) {
+				int le = ((apdu[5] & 0xFF) << 8) | (apdu[6] & 0xFF);
+				rv.m_ne = le == 0 ? 65536 : le;
+				return rv;
+			}
+			int lc = ((apdu[5] & 0xFF) << 8) | (apdu[6] & 0xFF);
+			if (lc == 0 || (apdu.length != 7 + lc && apdu.length != 9 + lc)) {
+				return null;
+			}
+			rv.m_data = Arrays.copyOfRange(apdu, 7, 7 + lc);
+			if (apdu.length == 9 + lc) {
+				int le = ((apdu[7 + lc] & 0xFF) << 8) | (apdu[8 + lc] & 0xFF);
+				rv.m_ne = le == 0 ? 65536 : le;
+			}
+			return rv;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package gov.gsa.pivconformance.cardlib.simulator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.TerminalFactory;
+import javax.smartcardio.TerminalFactorySpi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A javax.smartcardio provider of the Simulate terminal factory type, which lists a number of virtual
+ * readers named "PIV Card Simulator &lt;n&gt;", each holding its own SimulatedPIVCard made from the same
+ * profile.
+ *
+ * The factory is normally obtained through PCSCUtils.GetTerminalFactory(), which picks it when the
+ * gov.gsa.pivconformance.simulate property names a container dump directory, so that every tool lists
+ * the simulated readers like real ones.
+ */
+public class SimulatorTerminalProvider extends Provider {
+	private static final long serialVersionUID = 1L;
+	private static final Logger s_logger = LoggerFactory.getLogger(SimulatorTerminalProvider.class);
+
+	public static final String NAME = "PIVConformanceSimulator";
+	public static final String SIMULATE = "Simulate";
+	public static final String READER_NAME = "PIV Card Simulator";
+
+	private static final SimulatorTerminalProvider INSTANCE = new SimulatorTerminalProvider();
+
+	/**
+	 * Parameters of the Simulate terminal factory type
+	 */
+	public static final class SimulateParameters {
+		final SimulatedCardProfile m_profile;
+		final int m_readerCount;
+
+		/**
+		 * @param profile the containers, keys and PIN of the simulated cards
+		 * @param readerCount the number of readers to list, each with a card
+		 */
+		public SimulateParameters(SimulatedCardProfile profile, int readerCount) {
+			if (readerCount < 1) {
+				throw new IllegalArgumentException("At least one reader has to be simulated");
+			}
+			m_profile = profile;
+			m_readerCount = readerCount;
+		}
+	}
+
+	private SimulatorTerminalProvider() {
+		super(NAME, "1.0", "Simulates PIV cards in virtual readers");
+		putService(new Service(this, "TerminalFactory", SIMULATE, SimulatorSpi.class.getName(), null, null) {
+			@Override
+			public Object newInstance(Object parameter) throws NoSuchAlgorithmException {
+				if (!(parameter instanceof SimulateParameters)) {
+					throw new NoSuchAlgorithmException("The Simulate terminal factory needs SimulateParameters");
+				}
+				return new SimulatorSpi((SimulateParameters) parameter);
+			}
+		});
+	}
+
+	public static SimulatorTerminalProvider getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets a factory listing simulated readers whose cards hold a container dump
+	 * @param directory the container dump directory, with any test keys, to read the profile from
+	 * @param readerCount the number of readers to list, each with a card
+	 * @return the simulator factory
+	 * @throws NoSuchAlgorithmException if the profile cannot be read
+	 */
+	public static TerminalFactory simulatorFactory(Path directory, int readerCount) throws NoSuchAlgorithmException {
+		SimulatedCardProfile profile;
+		try {
+			profile = SimulatedCardProfile.load(directory);
+		} catch (IOException e) {
+			NoSuchAlgorithmException rv = new NoSuchAlgorithmException("Unable to read a simulated card profile from " + directory);
+			rv.initCause(e);
+			throw rv;
+		}
+		return simulatorFactory(profile, readerCount);
+	}
+
+	/**
+	 * Gets a factory listing simulated readers whose cards are made from a profile
+	 * @param profile the containers, keys and PIN of the simulated cards
+	 * @param readerCount the number of readers to list, each with a card
+	 * @return the simulator factory
+	 * @throws NoSuchAlgorithmException if the factory cannot be created
+	 */
+	public static TerminalFactory simulatorFactory(SimulatedCardProfile profile, int readerCount) throws NoSuchAlgorithmException {
+		return TerminalFactory.getInstance(SIMULATE, new SimulateParameters(profile, readerCount), INSTANCE);
+	}
+
+	static final class SimulatorSpi extends TerminalFactorySpi {
+		private final List<SimulatedCardTerminal> m_terminals;
+
+		SimulatorSpi(SimulateParameters parameters) {
+			List<SimulatedCardTerminal> terminals = new ArrayList<>(parameters.m_readerCount);
+			for (int i = 0; i < parameters.m_readerCount; i++) {
+				terminals.add(new SimulatedCardTerminal(READER_NAME + " " + i, parameters.m_profile));
+			}
+			m_terminals = Collections.unmodifiableList(terminals);
+			s_logger.info("Simulating {} readers with PIV cards", terminals.size());
+		}
+
+		@Override
+		protected CardTerminals engineTerminals() {
+			return new CardTerminals() {
+				@Override
+				public List<CardTerminal> list(State state) {
+					List<CardTerminal> rv = new ArrayList<>(m_terminals.size());
+					for (SimulatedCardTerminal t : m_terminals) {
+						boolean present = t.isCardPresent();
+						if (state == State.ALL || (state == State.CARD_PRESENT && present) || (state == State.CARD_ABSENT && !present)) {
+							rv.add(t);
+						}
+					}
+					return rv;
+				}
+
+				@Override
+				public boolean waitForChange(long timeout) {
+					// changes are only made through the terminals, and are waited for there
+					return false;
+				}
+			};
+		}
+	}
+}
@@ -33,6 +33,20 @@ public class BerTag {
         bytes = new byte[]{(byte) aFirstByte};
     }
 
+    /**
+     * Packs the tag bytes into an int, such as 0x5FC102, for tables keyed by tag. Tags of up to 4
+     * bytes fit and every PIV tag has 3 or fewer.
+     *
+     * @return the tag bytes as an int
+     */
+    public int intValue() {
+        int rv = 0;
+        for (byte b : bytes) {
+            rv = (rv << 8) | (b & 0xFF);
+        }
+        return rv;
+    }
+
     public boolean isConstructed() {
         return (bytes[0] & 0x20) != 0;
     }
@@ -1,5 +1,6 @@
 package gov.gsa.pivconformance.cardlib.tlv;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -7,14 +8,21 @@ import java.util.Arrays;
 import java.util.List;
 
 /**
+ * A TLV and, for constructed TLVs, the TLVs nested in it.
  *
+ * A TLV parsed as a view keeps the offset and length of its value in the buffer it was parsed from
+ * rather than a copy of it, so nested TLVs share one buffer. getBytesValue() copies the value out
+ * the first time it is called. A view keeps the whole buffer reachable and sees any later change to it.
  */
 public class BerTlv {
 
     private final static Charset ASCII = StandardCharsets.US_ASCII;
 
     private final BerTag theTag;
-    private final byte[] theValue;
+    private byte[] theValue;
+    private final byte[] theBuffer;
+    private final int theValueOffset;
+    private final int theValueLength;
     protected final List<BerTlv> theList;
 
     /**
@@ -24,15 +32,34 @@ public class BerTlv {
      * @param aList  set of nested TLVs
      */
     public BerTlv(BerTag aTag, List<BerTlv> aList) {
-        theTag = aTag;
-        theList = aList;
-        theValue = null;
+        this(aTag, aList, null);
     }
 
     public BerTlv(BerTag aTag, List<BerTlv> aList, byte[] aValue) {
         theTag = aTag;
         theList = aList;
         theValue = aValue;
+        theBuffer = aValue;
+        theValueOffset = 0;
+        theValueLength = aValue == null ? 0 : aValue.length;
+    }
+
+    /**
+     * Creates a TLV whose value is a view of part of a buffer
+     *
+     * @param aTag    tag
+     * @param aList   set of nested TLVs, or null for a primitive TLV
+     * @param aBuffer buffer holding the value
+     * @param aOffset offset of the value in the buffer
+     * @param aLength length of the value
+     */
+    public BerTlv(BerTag aTag, List<BerTlv> aList, byte[] aBuffer, int aOffset, int aLength) {
+        theTag = aTag;
+        theList = aList;
+        theValue = null;
+        theBuffer = aBuffer;
+        theValueOffset = aOffset;
+        theValueLength = aLength;
     }
 
     /**
@@ -42,9 +69,7 @@ public class BerTlv {
      * @param aValue value as byte[]
      */
     public BerTlv(BerTag aTag, byte[] aValue) {
-        theTag = aTag;
-        theValue = aValue;
-        theList = null;
+        this(aTag, null, aValue);
     }
 
     //
@@ -60,7 +85,7 @@ public class BerTlv {
     }
 
     public boolean hasRawValue() {
-        return theValue != null;
+        return theBuffer != null;
     }
 
     public boolean isConstructed() {
@@ -111,8 +136,8 @@ public class BerTlv {
     //
 
     public String getHexValue() {
-        if(isConstructed() && theValue == null) throw new IllegalStateException("Tag is CONSTRUCTED "+ HexUtil.toHexString(theTag.bytes));
-        return HexUtil.toHexString(theValue);
+        if(isConstructed() && theBuffer == null) throw new IllegalStateException("Tag is CONSTRUCTED "+ HexUtil.toHexString(theTag.bytes));
+        return HexUtil.toHexString(theBuffer, theValueOffset, theValueLength);
     }
 
     /**
@@ -127,23 +152,56 @@ public class BerTlv {
         if(isConstructed()) {
             throw new IllegalStateException("TLV is constructed");
         }
-        return new String(theValue, aCharset);
+        return new String(theBuffer, theValueOffset, theValueLength, aCharset);
     }
 
     public byte[] getBytesValue() {
-        if(isConstructed() && theValue == null) {
+        if(isConstructed() && theBuffer == null) {
             throw new IllegalStateException("TLV ["+theTag+"]is constructed");
         }
+        if(theValue == null && theBuffer != null) {
+            theValue = Arrays.copyOfRange(theBuffer, theValueOffset, theValueOffset + theValueLength);
+        }
         return theValue;
     }
 
+    /**
+     * Gets the value without copying it
+     *
+     * @return a read-only buffer positioned at the start of the value, or null if there is no value
+     */
+    public ByteBuffer getValueBuffer() {
+        if(theBuffer == null) {
+            return null;
+        }
+        return ByteBuffer.wrap(theBuffer, theValueOffset, theValueLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the length of the value without copying it
+     *
+     * @return the value length, 0 if there is no value
+     */
+    public int getValueLength() {
+        return theValueLength;
+    }
+
+    // the buffer and offset of the value, for parsing the value in place
+    byte[] getValueArray() {
+        return theBuffer;
+    }
+
+    int getValueOffset() {
+        return theValueOffset;
+    }
+
     public int getIntValue() {
         int i=0;
         int j=0;
         int number = 0;
 
-        for (i = 0; i < theValue.length; i++) {
-            j=theValue[i];
+        for (i = theValueOffset; i < theValueOffset + theValueLength; i++) {
+            j=theBuffer[i];
             number = number * 256 + ( j<0 ? j+=256 : j);
         }
         return number;
@@ -162,24 +220,44 @@ public class BerTlv {
         BerTlv berTlv = (BerTlv) o;
 
         if (theTag != null ? !theTag.equals(berTlv.theTag) : berTlv.theTag != null) return false;
-        if (!Arrays.equals(theValue, berTlv.theValue)) return false;
+        if (!valueEquals(berTlv)) return false;
         return theList != null ? theList.equals(berTlv.theList) : berTlv.theList == null;
     }
 
     @Override
     public int hashCode() {
         int result = theTag != null ? theTag.hashCode() : 0;
-        result = 31 * result + Arrays.hashCode(theValue);
+        result = 31 * result + valueHashCode();
         result = 31 * result + (theList != null ? theList.hashCode() : 0);
         return result;
     }
 
+    private boolean valueEquals(BerTlv aOther) {
+        if(theBuffer == null || aOther.theBuffer == null) {
+            return theBuffer == aOther.theBuffer;
+        }
+        return Arrays.equals(theBuffer, theValueOffset, theValueOffset + theValueLength,
+                aOther.theBuffer, aOther.theValueOffset, aOther.theValueOffset + aOther.theValueLength);
+    }
+
+    // the same as Arrays.hashCode() of a copy of the value
+    private int valueHashCode() {
+        if(theBuffer == null) {
+            return 0;
+        }
+        int result = 1;
+        for(int i = theValueOffset; i < theValueOffset + theValueLength; i++) {
+            result = 31 * result + theBuffer[i];
+        }
+        return result;
+    }
+
     @Override
     public String toString() {
 
         return "BerTlv{" +
                 "theTag=" + theTag +
-                ", theValue=" + Arrays.toString(theValue) +
+                ", theValue=" + Arrays.toString(theBuffer == null ? null : getBytesValue()) +
                 ", theList=" + theList +
                 '}';
     }
@@ -12,6 +12,10 @@ public class BerTlvLogger {
     }
 
     public static void log(String aPadding, BerTlv aTlv, IBerTlvLogger aLogger) {
+        // the hex is built eagerly, so skip the walk altogether unless it will be logged
+        if (!aLogger.isDebugEnabled()) {
+            return;
+        }
         if (aTlv == null) {
             aLogger.debug("{} is null", aPadding);
             return;
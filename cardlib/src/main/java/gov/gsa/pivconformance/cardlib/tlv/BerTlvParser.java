@@ -10,13 +10,27 @@ import java.util.List;
 public class BerTlvParser {
 
     private final IBerTlvLogger log;
+    private final boolean views;
 
     public BerTlvParser() {
         this(EMPTY_LOGGER);
     }
 
     public BerTlvParser(IBerTlvLogger aLogger) {
+        this(aLogger, false);
+    }
+
+    /**
+     * Creates a parser
+     *
+     * @param aLogger logger
+     * @param aViews  true to parse TLVs whose values are views of the buffer being parsed, rather than
+     *                copies of it made for every TLV at every level of nesting. The buffer must not be
+     *                changed while the TLVs are in use.
+     */
+    public BerTlvParser(IBerTlvLogger aLogger, boolean aViews) {
         log = aLogger;
+        views = aViews;
     }
 
     public BerTlv parseConstructed(byte[] aBuf) {
@@ -32,13 +46,24 @@ public class BerTlvParser {
         return parse(aBuf, 0, aBuf.length);
     }
 
+    /**
+     * Parses the value of a TLV, in place if the TLV is a view
+     *
+     * @param aTlv the TLV whose value is to be parsed
+     * @return the TLVs in the value
+     */
+    public BerTlvs parseValue(BerTlv aTlv) {
+        return parse(aTlv.getValueArray(), aTlv.getValueOffset(), aTlv.getValueLength());
+    }
+
     public BerTlvs parse(byte[] aBuf, final int aOffset, int aLen) {
         List<BerTlv> tlvs = new ArrayList<BerTlv>();
         if(aLen==0) return new BerTlvs(tlvs);
 
+        // every TLV takes at least two bytes, so this ends however many TLVs there are
         int offset = aOffset;
-        for(int i=0; i<100; i++) {
-            ParseResult result =  parseWithResult(0, aBuf, offset, aLen-offset, false);
+        while(true) {
+            ParseResult result =  parseWithResult(0, aBuf, offset, aOffset+aLen-offset, false);
             tlvs.add(result.tlv);
 
             if(result.offset>=aOffset+aLen) {
@@ -80,6 +105,10 @@ public class BerTlvParser {
                     , levelPadding, lengthBytesCount, valueLength, HexUtil.toFormattedHexString(aBuf, aOffset + tagBytesCount, lengthBytesCount));
         }
 
+        if(views && aOffset+tagBytesCount+lengthBytesCount+valueLength > aBuf.length) {
+            throw new IllegalStateException("Value is out of the range [offset="+aOffset+", len="+valueLength+", array.length="+aBuf.length+", level="+aLevel+"]");
+        }
+
         // value
         if(tag.isConstructed() && recurse) {
 
@@ -90,9 +119,19 @@ public class BerTlvParser {
             if(log.isDebugEnabled()) {
                 log.debug("{}returning constructed offset = {}", levelPadding, resultOffset);
             }
+            if(views) {
+                return new ParseResult(new BerTlv(tag, list, aBuf, aOffset+tagBytesCount+lengthBytesCount, valueLength), resultOffset);
+            }
             byte[] value = new byte[valueLength];
             System.arraycopy(aBuf, aOffset+tagBytesCount+lengthBytesCount, value, 0, valueLength);
             return new ParseResult(new BerTlv(tag, list, value), resultOffset);
+        } else if(views) {
+            int resultOffset = aOffset + tagBytesCount + lengthBytesCount + valueLength;
+            if(log.isDebugEnabled()) {
+                log.debug("{}value = {}", levelPadding, HexUtil.toFormattedHexString(aBuf, aOffset+tagBytesCount+lengthBytesCount, valueLength));
+                log.debug("{}returning primitive offset = {}", levelPadding, resultOffset);
+            }
+            return new ParseResult(new BerTlv(tag, null, aBuf, aOffset+tagBytesCount+lengthBytesCount, valueLength), resultOffset);
         } else {
             // value
             byte[] value = new byte[valueLength];
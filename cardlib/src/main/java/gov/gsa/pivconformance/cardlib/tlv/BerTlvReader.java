@@ -0,0 +1,362 @@
+package gov.gsa.pivconformance.cardlib.tlv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull parser for BER-TLV. Rather than building a tree the way BerTlvParser does, it reports one
+ * event per call to next(): START_CONSTRUCTED and END around the TLVs nested in a constructed TLV,
+ * and PRIMITIVE for a TLV holding a plain value, each with the tag, the offset in the input and the
+ * value length. Nothing is allocated for TLVs the caller does not ask for the value of.
+ *
+ * Input is a ByteBuffer, or an InputStream read as the caller pulls, so a container can be checked
+ * and decoded while the rest of it is still on its way from the card. There is no limit on the number
+ * of TLVs. Input that is not well-formed, such as a length running past the end of the enclosing TLV,
+ * throws a MalformedTlvException giving the offset of the TLV.
+ *
+ * A value is skipped unless readValue() is called before the next event. Calling readValue() or
+ * skipValue() at START_CONSTRUCTED takes the whole value as is, as for the 70 and 71 tags of a
+ * certificate container, and the next event is the matching END.
+ */
+public final class BerTlvReader {
+
+	public enum Event {
+		START_CONSTRUCTED,
+		PRIMITIVE,
+		END
+	}
+
+	private final ByteBuffer m_buffer;
+	private final InputStream m_stream;
+	private final int m_start;
+	private int m_lookahead = -1;
+	private int m_position = 0;
+
+	// offsets of the ends of the constructed TLVs open around the current position
+	private int[] m_ends = new int[8];
+	private int m_depth = 0;
+
+	private Event m_event;
+	private int m_tag;
+	private int m_tagLength;
+	private int m_offset;
+	private int m_valueOffset;
+	private int m_length;
+	private int m_valueRemaining = 0;
+
+	/**
+	 * Creates a reader over the remaining bytes of a buffer. The buffer's position is not changed.
+	 *
+	 * @param aBuffer buffer holding the TLVs
+	 */
+	public BerTlvReader(ByteBuffer aBuffer) {
+		m_buffer = aBuffer;
+		m_stream = null;
+		m_start = aBuffer.position();
+	}
+
+	/**
+	 * Creates a reader over a stream, read only as far as the caller pulls
+	 *
+	 * @param aStream stream of TLVs
+	 */
+	public BerTlvReader(InputStream aStream) {
+		m_buffer = null;
+		m_stream = aStream;
+		m_start = 0;
+	}
+
+	public BerTlvReader(byte[] aBuf) {
+		this(ByteBuffer.wrap(aBuf));
+	}
+
+	/**
+	 * Whether there is another event, either the END of an open constructed TLV or another TLV
+	 *
+	 * @return true if next() will return an event
+	 * @throws IOException if the stream can't be read
+	 */
+	public boolean hasNext() throws IOException {
+		if (m_depth > 0) {
+			return true;
+		}
+		skipRemaining();
+		return peek() >= 0;
+	}
+
+	/**
+	 * Moves to the next event, skipping whatever is left of the current value
+	 *
+	 * @return the event
+	 * @throws IOException if the input is malformed, ends early or can't be read
+	 */
+	public Event next() throws IOException {
+		skipRemaining();
+		if (m_depth > 0) {
+			int end = m_ends[m_depth - 1];
+			if (m_position > end) {
+				throw new MalformedTlvException("TLV runs past the end of the TLV enclosing it", m_offset);
+			}
+			if (m_position == end) {
+				m_depth--;
+				m_event = Event.END;
+				return m_event;
+			}
+		}
+		if (peek() < 0) {
+			if (m_depth > 0) {
+				throw new MalformedTlvException("Input ends inside the value", m_position);
+			}
+			throw new NoSuchElementException("No more TLVs");
+		}
+
+		m_offset = m_position;
+		int b = read();
+		m_tag = b;
+		m_tagLength = 1;
+		boolean constructed = (b & 0x20) != 0;
+		if ((b & 0x1F) == 0x1F) {
+			do {
+				if (m_tagLength == 4) {
+					throw new MalformedTlvException("Tag is longer than 4 bytes", m_offset);
+				}
+				b = read();
+				m_tag = (m_tag << 8) | b;
+				m_tagLength++;
+			} while ((b & 0x80) != 0);
+		}
+
+		b = read();
+		if (b == 0x80) {
+			throw new MalformedTlvException("Indefinite length is not allowed", m_offset);
+		}
+		if ((b & 0x80) != 0) {
+			int n = b & 0x7F;
+			if (n > 3) {
+				throw new MalformedTlvException("Length of more than 3 bytes", m_offset);
+			}
+			m_length = 0;
+			for (int i = 0; i < n; i++) {
+				m_length = (m_length << 8) | read();
+			}
+		} else {
+			m_length = b;
+		}
+
+		m_valueOffset = m_position;
+		int end = m_position + m_length;
+		if (m_depth > 0 && end > m_ends[m_depth - 1]) {
+			throw new MalformedTlvException("Length runs past the end of the TLV enclosing it", m_offset);
+		}
+		if (m_buffer != null && end > m_buffer.limit() - m_start) {
+			throw new MalformedTlvException("Length runs past the end of the input", m_offset);
+		}
+
+		if (constructed) {
+			if (m_depth == m_ends.length) {
+				m_ends = Arrays.copyOf(m_ends, m_depth * 2);
+			}
+			m_ends[m_depth++] = end;
+			m_event = Event.START_CONSTRUCTED;
+		} else {
+			m_valueRemaining = m_length;
+			m_event = Event.PRIMITIVE;
+		}
+		return m_event;
+	}
+
+	/**
+	 * Gets the current event
+	 *
+	 * @return the event last returned by next(), or null before the first
+	 */
+	public Event getEvent() {
+		return m_event;
+	}
+
+	/**
+	 * Gets the tag of the current TLV, such as 0x5FC102
+	 *
+	 * @return the tag bytes as an int
+	 */
+	public int getTag() {
+		return m_tag;
+	}
+
+	/**
+	 * Gets the tag of the current TLV as a BerTag
+	 *
+	 * @return a new BerTag
+	 */
+	public BerTag getBerTag() {
+		byte[] bytes = new byte[m_tagLength];
+		for (int i = 0; i < m_tagLength; i++) {
+			bytes[i] = (byte) (m_tag >>> (8 * (m_tagLength - 1 - i)));
+		}
+		return new BerTag(bytes);
+	}
+
+	/**
+	 * Gets the offset of the current TLV's tag from the start of the input
+	 *
+	 * @return the offset
+	 */
+	public int getOffset() {
+		return m_offset;
+	}
+
+	/**
+	 * Gets the length of the current TLV's value
+	 *
+	 * @return the value length
+	 */
+	public int getLength() {
+		return m_length;
+	}
+
+	/**
+	 * Gets the offset of the current TLV's value from the start of the input
+	 *
+	 * @return the offset
+	 */
+	public int getValueOffset() {
+		return m_valueOffset;
+	}
+
+	/**
+	 * Gets the number of constructed TLVs enclosing the current position
+	 *
+	 * @return 0 at the top level
+	 */
+	public int getDepth() {
+		return m_depth;
+	}
+
+	/**
+	 * Reads the value of the current TLV. At START_CONSTRUCTED the whole value is read and the next event is the END.
+	 *
+	 * @return the value
+	 * @throws IOException if the input ends early or can't be read
+	 */
+	public byte[] readValue() throws IOException {
+		checkValue();
+		takeConstructed();
+		if (m_valueRemaining != m_length) {
+			throw new IllegalStateException("Value has already been read");
+		}
+		byte[] rv = new byte[m_length];
+		if (m_buffer != null) {
+			ByteBuffer value = m_buffer.duplicate();
+			value.position(m_start + m_position);
+			value.get(rv);
+			m_position += m_length;
+		} else {
+			int n = 0;
+			if (m_lookahead >= 0 && m_length > 0) {
+				rv[n++] = (byte) m_lookahead;
+				m_lookahead = -1;
+			}
+			while (n < m_length) {
+				int r = m_stream.read(rv, n, m_length - n);
+				if (r < 0) {
+					throw new MalformedTlvException("Input ends inside the value", m_offset);
+				}
+				n += r;
+			}
+			m_position += m_length;
+		}
+		m_valueRemaining = 0;
+		return rv;
+	}
+
+	/**
+	 * Gets the value of the current TLV without copying it. Only for readers over a ByteBuffer.
+	 *
+	 * @return a read-only view of the value
+	 */
+	public ByteBuffer getValueBuffer() {
+		checkValue();
+		if (m_buffer == null) {
+			throw new IllegalStateException("Values can only be viewed when reading a ByteBuffer");
+		}
+		ByteBuffer rv = m_buffer.duplicate();
+		rv.limit(m_start + m_valueOffset + m_length).position(m_start + m_valueOffset);
+		return rv.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Skips whatever is left of the value of the current TLV. At START_CONSTRUCTED the whole value is
+	 * skipped and the next event is the END.
+	 *
+	 * @throws IOException if the input ends early or can't be read
+	 */
+	public void skipValue() throws IOException {
+		checkValue();
+		takeConstructed();
+		skipRemaining();
+	}
+
+	private void skipRemaining() throws IOException {
+		if (m_valueRemaining == 0) {
+			return;
+		}
+		if (m_buffer != null) {
+			m_position += m_valueRemaining;
+		} else {
+			if (m_lookahead >= 0) {
+				m_lookahead = -1;
+				m_position++;
+				m_valueRemaining--;
+			}
+			while (m_valueRemaining > 0) {
+				long skipped = m_stream.skip(m_valueRemaining);
+				if (skipped <= 0) {
+					// skip() may give up early, read() says whether the input has really ended
+					if (m_stream.read() < 0) {
+						throw new MalformedTlvException("Input ends inside the value", m_offset);
+					}
+					skipped = 1;
+				}
+				m_position += (int) skipped;
+				m_valueRemaining -= (int) skipped;
+			}
+		}
+		m_valueRemaining = 0;
+	}
+
+	private void checkValue() {
+		if (m_event == null || m_event == Event.END) {
+			throw new IllegalStateException("No TLV at " + m_event);
+		}
+	}
+
+	// at START_CONSTRUCTED, treats the value as a primitive one so that it can be read or skipped
+	private void takeConstructed() {
+		if (m_event == Event.START_CONSTRUCTED && m_position == m_valueOffset && m_valueRemaining == 0) {
+			m_valueRemaining = m_length;
+		}
+	}
+
+	private int peek() throws IOException {
+		if (m_buffer != null) {
+			return m_start + m_position < m_buffer.limit() ? m_buffer.get(m_start + m_position) & 0xFF : -1;
+		}
+		if (m_lookahead < 0) {
+			m_lookahead = m_stream.read();
+		}
+		return m_lookahead;
+	}
+
+	private int read() throws IOException {
+		int rv = peek();
+		if (rv < 0) {
+			throw new MalformedTlvException("Input ends inside the tag or length", m_offset);
+		}
+		m_lookahead = -1;
+		m_position++;
+		return rv;
+	}
+}
@@ -1,5 +1,6 @@
 package gov.gsa.pivconformance.cardlib.tlv;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 
@@ -7,12 +8,20 @@ import gov.gsa.pivconformance.cardlib.tlv.TagLengthRule;
 
 /**
  * Each ContainerRuleset consists of a container name and HashMap of TagLengthRules for each tag in the container
-
+ *
+ * The tags are also kept packed into ints, in the order SP 800-73-4 lists them and sorted for lookup, so
+ * that checking a tag read from the card needs no BerTag and allocates nothing.
  */
 public class ContainerRuleset {
 	private String m_containerName = null;
 	private LinkedHashMap<BerTag, TagLengthRule> m_tagRuleset = new LinkedHashMap<BerTag, TagLengthRule>();
-	
+	// tags and rules in the order they were added
+	private int[] m_tags = new int[0];
+	private TagLengthRule[] m_rules = new TagLengthRule[0];
+	// the same tags sorted, with the index of each in m_tags
+	private int[] m_sortedTags = new int[0];
+	private int[] m_sortedIndex = new int[0];
+
 	public ContainerRuleset(String containerName) {
 		this.m_containerName = containerName;
 		this.m_tagRuleset = new LinkedHashMap<BerTag, TagLengthRule>();
@@ -25,13 +34,36 @@ public class ContainerRuleset {
 	 */
 	public void add(BerTag tag, TagLengthRule RULE) {
 		m_tagRuleset.put(tag, RULE);
+		int packed = tag.intValue();
+		int i = Arrays.binarySearch(m_sortedTags, packed);
+		if (i >= 0) {
+			m_rules[m_sortedIndex[i]] = RULE;
+			return;
+		}
+		int n = m_tags.length;
+		m_tags = Arrays.copyOf(m_tags, n + 1);
+		m_rules = Arrays.copyOf(m_rules, n + 1);
+		m_tags[n] = packed;
+		m_rules[n] = RULE;
+
+		int at = -i - 1;
+		int[] sortedTags = new int[n + 1];
+		int[] sortedIndex = new int[n + 1];
+		System.arraycopy(m_sortedTags, 0, sortedTags, 0, at);
+		System.arraycopy(m_sortedIndex, 0, sortedIndex, 0, at);
+		sortedTags[at] = packed;
+		sortedIndex[at] = n;
+		System.arraycopy(m_sortedTags, at, sortedTags, at + 1, n - at);
+		System.arraycopy(m_sortedIndex, at, sortedIndex, at + 1, n - at);
+		m_sortedTags = sortedTags;
+		m_sortedIndex = sortedIndex;
 	}
-	
+
 	/**
 	 * Gets the list of tags and rules for this container
 	 * @return
 	 */
-	
+
 	public String getContainerName() {
 		return m_containerName;
 	}
@@ -39,8 +71,45 @@ public class ContainerRuleset {
 	 * Gets the list of tags and rules for this container
 	 * @return
 	 */
-	
+
 	public HashMap<BerTag, TagLengthRule> getTagRuleset() {
 		return m_tagRuleset;
 	}
+
+	/**
+	 * Gets the position of a tag in the order SP 800-73-4 lists the container's tags
+	 * @param tag the tag packed into an int, as by BerTag.intValue()
+	 * @return the position, or -1 if the tag is not expected in this container
+	 */
+	public int indexOf(int tag) {
+		int i = Arrays.binarySearch(m_sortedTags, tag);
+		return i >= 0 ? m_sortedIndex[i] : -1;
+	}
+
+	/**
+	 * Gets the length rule for a tag
+	 * @param tag the tag packed into an int, as by BerTag.intValue()
+	 * @return the rule, or null if the tag is not expected in this container
+	 */
+	public TagLengthRule getRule(int tag) {
+		int i = Arrays.binarySearch(m_sortedTags, tag);
+		return i >= 0 ? m_rules[m_sortedIndex[i]] : null;
+	}
+
+	/**
+	 * Gets the number of tags expected in this container
+	 * @return the tag count
+	 */
+	public int getTagCount() {
+		return m_tags.length;
+	}
+
+	/**
+	 * Gets an expected tag by its position in the order SP 800-73-4 lists them
+	 * @param index the position
+	 * @return the tag packed into an int
+	 */
+	public int getTag(int index) {
+		return m_tags[index];
+	}
 }
@@ -0,0 +1,191 @@
+package gov.gsa.pivconformance.cardlib.tlv;
+
+import java.util.Arrays;
+
+/**
+ * A ContainerRuleset compiled into a state machine that checks the raw bytes of a container in one
+ * pass: whether the tags are in the order SP 800-73-4 lists them, whether each value length is within
+ * the bounds for its tag and whether there are tags the container should not have. The answer is a
+ * set of flags, with no parse tree, tag lists or BerTags built along the way.
+ *
+ * Each expected tag is a symbol numbered by its position in the container's table, with one more
+ * symbol for any other tag. The state is the position of the last expected tag seen, and each
+ * transition gives the next state along with the flags the tag raises. A validator is immutable and
+ * can be shared between threads.
+ */
+public final class ContainerValidator {
+
+	/** a tag came after one that SP 800-73-4 lists after it */
+	public static final int OUT_OF_ORDER = 0x01;
+	/** a value length is outside the bounds for its tag */
+	public static final int LENGTH_OUT_OF_BOUNDS = 0x02;
+	/** a value length is over a soft upper bound, as for a value that may embed a signing cert */
+	public static final int SOFT_BOUND_EXCEEDED = 0x04;
+	/** a tag is not one SP 800-73-4 lists for the container */
+	public static final int UNEXPECTED_TAG = 0x08;
+	/** the bytes are not well-formed BER-TLV; nothing after the malformed TLV was checked */
+	public static final int MALFORMED = 0x10;
+
+	private static final int STATE_MASK = 0xFFFF;
+	private static final int FLAG_SHIFT = 16;
+
+	private final String m_containerName;
+	// the expected tags sorted, with the symbol for each
+	private final int[] m_sortedTags;
+	private final int[] m_symbols;
+	private final int m_symbolCount;
+	// next state and flags, indexed by state * (m_symbolCount + 1) + symbol
+	private final int[] m_transitions;
+	private final TagLengthRule[] m_rules;
+
+	/**
+	 * Compiles a ruleset. Later changes to the ruleset are not seen by the validator.
+	 *
+	 * @param ruleset the tags and length rules of a container
+	 */
+	public ContainerValidator(ContainerRuleset ruleset) {
+		m_containerName = ruleset.getContainerName();
+		int n = ruleset.getTagCount();
+		m_symbolCount = n;
+		m_rules = new TagLengthRule[n];
+		m_sortedTags = new int[n];
+		for (int i = 0; i < n; i++) {
+			m_sortedTags[i] = ruleset.getTag(i);
+			m_rules[i] = ruleset.getRule(m_sortedTags[i]);
+		}
+		Arrays.sort(m_sortedTags);
+		m_symbols = new int[n];
+		for (int i = 0; i < n; i++) {
+			m_symbols[i] = ruleset.indexOf(m_sortedTags[i]);
+		}
+
+		// state 0 is the start, state k follows the tag at position k - 1
+		m_transitions = new int[(n + 1) * (n + 1)];
+		for (int state = 0; state <= n; state++) {
+			for (int symbol = 0; symbol < n; symbol++) {
+				int next = symbol + 1;
+				int flags = next < state ? OUT_OF_ORDER : 0;
+				m_transitions[state * (n + 1) + symbol] = next | (flags << FLAG_SHIFT);
+			}
+			m_transitions[state * (n + 1) + n] = state | (UNEXPECTED_TAG << FLAG_SHIFT);
+		}
+	}
+
+	/**
+	 * Gets the name of the container the validator was compiled for
+	 *
+	 * @return the container name from the ruleset, which is its OID
+	 */
+	public String getContainerName() {
+		return m_containerName;
+	}
+
+	/**
+	 * Checks a container as read from the card
+	 *
+	 * @param container the container bytes
+	 * @return 0 if the container is correct, otherwise the flags for what is wrong with it
+	 */
+	public int validate(byte[] container) {
+		return validate(container, 0, container.length);
+	}
+
+	/**
+	 * Checks a container held in part of a buffer. A container wrapped in a single TLV that is not one
+	 * of its own tags, such as the 53 tag of most containers or 7E for the Discovery Object, is checked
+	 * inside that TLV.
+	 *
+	 * @param buf    buffer holding the container
+	 * @param offset offset of the container in the buffer
+	 * @param length length of the container
+	 * @return 0 if the container is correct, otherwise the flags for what is wrong with it
+	 */
+	public int validate(byte[] buf, int offset, int length) {
+		int end = offset + length;
+		int pos = offset;
+		if (pos >= end)
+			return 0;
+
+		long tag = readTag(buf, pos, end);
+		if (tag < 0)
+			return MALFORMED;
+		long len = readLength(buf, (int) tag, end);
+		if (len < 0)
+			return MALFORMED;
+		int valueOffset = (int) len;
+		if (valueOffset + (int) (len >>> 32) == end && symbol((int) (tag >>> 32)) == m_symbolCount) {
+			pos = valueOffset;
+		}
+
+		int rv = 0;
+		int state = 0;
+		while (pos < end) {
+			tag = readTag(buf, pos, end);
+			if (tag < 0)
+				return rv | MALFORMED;
+			len = readLength(buf, (int) tag, end);
+			if (len < 0)
+				return rv | MALFORMED;
+			int valueLength = (int) (len >>> 32);
+			pos = (int) len;
+			if (valueLength > end - pos)
+				return rv | MALFORMED;
+
+			int symbol = symbol((int) (tag >>> 32));
+			int transition = m_transitions[state * (m_symbolCount + 1) + symbol];
+			state = transition & STATE_MASK;
+			rv |= transition >>> FLAG_SHIFT;
+			if (symbol < m_symbolCount) {
+				TagLengthRule rule = m_rules[symbol];
+				if (rule.delta(valueLength) != 0)
+					rv |= rule.hasSoftUpperBound() ? SOFT_BOUND_EXCEEDED : LENGTH_OUT_OF_BOUNDS;
+			}
+			pos += valueLength;
+		}
+		return rv;
+	}
+
+	private int symbol(int tag) {
+		int i = Arrays.binarySearch(m_sortedTags, tag);
+		return i >= 0 ? m_symbols[i] : m_symbolCount;
+	}
+
+	// the tag packed in the high half and the offset past it in the low half, or -1 if malformed.
+	// No PIV tag is longer than 3 bytes, so a longer one is taken as malformed.
+	private static long readTag(byte[] buf, int pos, int end) {
+		if (pos >= end)
+			return -1;
+		int b = buf[pos++] & 0xFF;
+		int tag = b;
+		if ((b & 0x1F) == 0x1F) {
+			int count = 1;
+			do {
+				if (pos >= end || count == 3)
+					return -1;
+				b = buf[pos++] & 0xFF;
+				tag = (tag << 8) | b;
+				count++;
+			} while ((b & 0x80) != 0);
+		}
+		return ((tag & 0xFFFFFFFFL) << 32) | pos;
+	}
+
+	// the value length in the high half and the offset of the value in the low half, or -1 if malformed
+	private static long readLength(byte[] buf, int pos, int end) {
+		if (pos >= end)
+			return -1;
+		int b = buf[pos++] & 0xFF;
+		int length = b;
+		if ((b & 0x80) != 0) {
+			int n = b & 0x7F;
+			// no indefinite lengths, and no more than 3 bytes as no container comes near 16 MB
+			if (n == 0 || n > 3 || n > end - pos)
+				return -1;
+			length = 0;
+			for (int i = 0; i < n; i++) {
+				length = (length << 8) | (buf[pos++] & 0xFF);
+			}
+		}
+		return ((long) length << 32) | pos;
+	}
+}
@@ -1,74 +1,325 @@
 package gov.gsa.pivconformance.cardlib.tlv;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The hex codec cardlib and conformancelib print and read bytes with.
+ *
+ * Each byte is encoded with a single lookup of its two digits, held as a 16-bit pair of ASCII
+ * characters with the high digit in the high 8 bits, and the digits are written straight into the
+ * caller's StringBuilder, char[] or ByteBuffer with an optional separator between bytes. Decoding
+ * reads the digits in place, skipping whitespace, so neither direction builds intermediate strings.
+ */
 public class HexUtil {
 
-    private static final char[] CHARS_TABLES = "0123456789ABCDEF".toCharArray();
+    /** separator value for output with no separator between bytes */
+    public static final char NO_SEPARATOR = 0;
+
+    private static final short[] UPPER_PAIRS = pairs("0123456789ABCDEF");
+    private static final short[] LOWER_PAIRS = pairs("0123456789abcdef");
+    // value of each hex digit indexed by its ASCII code, -1 for everything else
     static final byte[] BYTES = new byte[128];
 
     static {
+        Arrays.fill(BYTES, (byte) -1);
         for (int i = 0; i < 10; i++) {
             BYTES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
             BYTES['A' + i] = (byte) (10 + i);
             BYTES['a' + i] = (byte) (10 + i);
         }
     }
 
-    public static String toHexString(byte[] aBytes) {
-        return toHexString(aBytes, 0, aBytes.length);
+    private static short[] pairs(String aDigits) {
+        short[] pairs = new short[256];
+        for (int b = 0; b < 256; b++) {
+            pairs[b] = (short) ((aDigits.charAt(b >>> 4) << 8) | aDigits.charAt(b & 0x0f));
+        }
+        return pairs;
     }
 
-    public static String toFormattedHexString(byte[] aBytes) {
-        return toFormattedHexString(aBytes, 0, aBytes.length);
+    private static short[] pairs(boolean aUpperCase) {
+        return aUpperCase ? UPPER_PAIRS : LOWER_PAIRS;
+    }
+
+    private static void checkSeparator(char aSeparator) {
+        if (aSeparator > 0x7f) {
+            throw new IllegalArgumentException("Separator must be an ASCII character");
+        }
+    }
+
+    /**
+     * Gets the number of characters bytes encode to
+     *
+     * @param aLength the number of bytes
+     * @param aSeparator the separator between bytes, or NO_SEPARATOR
+     * @return the number of characters
+     */
+    public static int encodedLength(int aLength, char aSeparator) {
+        if (aLength == 0) {
+            return 0;
+        }
+        return aSeparator == NO_SEPARATOR ? aLength * 2 : aLength * 3 - 1;
+    }
+
+    public static String toHexString(byte[] aBytes) {
+        return toHexString(aBytes, 0, aBytes.length);
     }
 
     public static String toHexString(byte[] aBytes, int aLength) {
         return toHexString(aBytes, 0, aLength);
     }
 
-    public static byte[] parseHex(String aHexString) {
-        char[] src = aHexString.replace("\n", "").replace(" ", "").toUpperCase().toCharArray();
-        byte[] dst = new byte[src.length / 2];
+    public static String toHexString(byte[] aBytes, int aOffset, int aLength) {
+        return toHexString(aBytes, aOffset, aLength, true, NO_SEPARATOR);
+    }
+
+    /**
+     * Encodes bytes as lower case hex, as commons-codec's Hex.encodeHexString does
+     *
+     * @param aBytes the bytes
+     * @return the hex string
+     */
+    public static String toLowerHexString(byte[] aBytes) {
+        return toHexString(aBytes, 0, aBytes.length, false, NO_SEPARATOR);
+    }
 
-        for (int si = 0, di = 0; di < dst.length; di++) {
-            byte high = BYTES[src[si++] & 0x7f];
-            byte low  = BYTES[src[si++] & 0x7f];
-            dst[di] = (byte) ((high << 4) + low);
+    /**
+     * Encodes the remaining bytes of a buffer as lower case hex, leaving its position where it was
+     *
+     * @param aBuffer the buffer
+     * @return the hex string
+     */
+    public static String toLowerHexString(ByteBuffer aBuffer) {
+        return toHexString(aBuffer, false, NO_SEPARATOR);
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer as hex, leaving its position where it was
+     *
+     * @param aBuffer the buffer
+     * @param aUpperCase true for upper case digits, false for lower case
+     * @param aSeparator ASCII character to put between bytes, or NO_SEPARATOR
+     * @return the hex string
+     */
+    public static String toHexString(ByteBuffer aBuffer, boolean aUpperCase, char aSeparator) {
+        checkSeparator(aSeparator);
+        int length = aBuffer.remaining();
+        byte[] dst = new byte[encodedLength(length, aSeparator)];
+        short[] pairs = pairs(aUpperCase);
+        if (aBuffer.hasArray()) {
+            encode(aBuffer.array(), aBuffer.arrayOffset() + aBuffer.position(), length, dst, 0, pairs, aSeparator);
+        } else {
+            for (int si = aBuffer.position(), end = aBuffer.limit(), di = 0; si < end; si++) {
+                if (aSeparator != NO_SEPARATOR && si > aBuffer.position()) {
+                    dst[di++] = (byte) aSeparator;
+                }
+                short pair = pairs[aBuffer.get(si) & 0xff];
+                dst[di++] = (byte) (pair >>> 8);
+                dst[di++] = (byte) pair;
+            }
         }
+        return new String(dst, StandardCharsets.ISO_8859_1);
+    }
 
-        return dst;
+    /**
+     * Encodes bytes as hex
+     *
+     * @param aBytes buffer holding the bytes
+     * @param aOffset offset of the first byte
+     * @param aLength number of bytes
+     * @param aUpperCase true for upper case digits, false for lower case
+     * @param aSeparator ASCII character to put between bytes, or NO_SEPARATOR
+     * @return the hex string
+     */
+    public static String toHexString(byte[] aBytes, int aOffset, int aLength, boolean aUpperCase, char aSeparator) {
+        checkSeparator(aSeparator);
+        byte[] dst = new byte[encodedLength(aLength, aSeparator)];
+        encode(aBytes, aOffset, aLength, dst, 0, pairs(aUpperCase), aSeparator);
+        // the digits are ASCII, so the string takes the array as it is
+        return new String(dst, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Appends bytes to a builder as hex
+     *
+     * @param aBuilder the builder
+     * @param aBytes buffer holding the bytes
+     * @param aOffset offset of the first byte
+     * @param aLength number of bytes
+     * @param aUpperCase true for upper case digits, false for lower case
+     * @param aSeparator character to put between bytes, or NO_SEPARATOR
+     * @return the builder
+     */
+    public static StringBuilder appendHex(StringBuilder aBuilder, byte[] aBytes, int aOffset, int aLength, boolean aUpperCase, char aSeparator) {
+        short[] pairs = pairs(aUpperCase);
+        aBuilder.ensureCapacity(aBuilder.length() + encodedLength(aLength, aSeparator));
+        for (int si = aOffset, end = aOffset + aLength; si < end; si++) {
+            if (aSeparator != NO_SEPARATOR && si > aOffset) {
+                aBuilder.append(aSeparator);
+            }
+            short pair = pairs[aBytes[si] & 0xff];
+            aBuilder.append((char) (pair >>> 8)).append((char) (pair & 0xff));
+        }
+        return aBuilder;
+    }
+
+    /**
+     * Writes bytes as hex into a character array
+     *
+     * @param aBytes buffer holding the bytes
+     * @param aOffset offset of the first byte
+     * @param aLength number of bytes
+     * @param aDst the array, with room for encodedLength(aLength, aSeparator) characters
+     * @param aDstOffset where in the array to write the first character
+     * @param aUpperCase true for upper case digits, false for lower case
+     * @param aSeparator character to put between bytes, or NO_SEPARATOR
+     * @return the offset after the last character written
+     */
+    public static int encode(byte[] aBytes, int aOffset, int aLength, char[] aDst, int aDstOffset, boolean aUpperCase, char aSeparator) {
+        short[] pairs = pairs(aUpperCase);
+        int di = aDstOffset;
+        for (int si = aOffset, end = aOffset + aLength; si < end; si++) {
+            if (aSeparator != NO_SEPARATOR && si > aOffset) {
+                aDst[di++] = aSeparator;
+            }
+            short pair = pairs[aBytes[si] & 0xff];
+            aDst[di++] = (char) (pair >>> 8);
+            aDst[di++] = (char) (pair & 0xff);
+        }
+        return di;
+    }
+
+    /**
+     * Writes bytes as ASCII hex into a buffer, advancing its position
+     *
+     * @param aBytes buffer holding the bytes
+     * @param aOffset offset of the first byte
+     * @param aLength number of bytes
+     * @param aDst the buffer, with encodedLength(aLength, aSeparator) bytes remaining
+     * @param aUpperCase true for upper case digits, false for lower case
+     * @param aSeparator ASCII character to put between bytes, or NO_SEPARATOR
+     * @return the buffer
+     */
+    public static ByteBuffer encode(byte[] aBytes, int aOffset, int aLength, ByteBuffer aDst, boolean aUpperCase, char aSeparator) {
+        checkSeparator(aSeparator);
+        int length = encodedLength(aLength, aSeparator);
+        if (aDst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        short[] pairs = pairs(aUpperCase);
+        if (aDst.hasArray()) {
+            int start = aDst.arrayOffset() + aDst.position();
+            encode(aBytes, aOffset, aLength, aDst.array(), start, pairs, aSeparator);
+            aDst.position(aDst.position() + length);
+        } else {
+            for (int si = aOffset, end = aOffset + aLength; si < end; si++) {
+                if (aSeparator != NO_SEPARATOR && si > aOffset) {
+                    aDst.put((byte) aSeparator);
+                }
+                short pair = pairs[aBytes[si] & 0xff];
+                aDst.put((byte) (pair >>> 8)).put((byte) pair);
+            }
+        }
+        return aDst;
+    }
+
+    private static int encode(byte[] aBytes, int aOffset, int aLength, byte[] aDst, int aDstOffset, short[] aPairs, char aSeparator) {
+        int di = aDstOffset;
+        for (int si = aOffset, end = aOffset + aLength; si < end; si++) {
+            if (aSeparator != NO_SEPARATOR && si > aOffset) {
+                aDst[di++] = (byte) aSeparator;
+            }
+            short pair = aPairs[aBytes[si] & 0xff];
+            aDst[di++] = (byte) (pair >>> 8);
+            aDst[di++] = (byte) pair;
+        }
+        return di;
+    }
+
+    public static String toFormattedHexString(byte[] aBytes) {
+        return toFormattedHexString(aBytes, 0, aBytes.length);
     }
 
     public static String toFormattedHexString(byte[] aBytes, int aOffset, int aLength) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(16 + aLength * 3 + aLength / 4);
         sb.append("[");
         sb.append(aLength);
         sb.append("] :");
         for (int si = aOffset, di = 0; si < aOffset+aLength; si++, di++) {
-            byte b = aBytes[si];
             if (di % 4 == 0) {
                 sb.append("  ");
             } else {
                 sb.append(' ');
             }
-            sb.append( CHARS_TABLES[(b & 0xf0) >>> 4] );
-            sb.append( CHARS_TABLES[(b & 0x0f)] );
-
+            short pair = UPPER_PAIRS[aBytes[si] & 0xff];
+            sb.append((char) (pair >>> 8)).append((char) (pair & 0xff));
         }
 
         return sb.toString();
 
     }
 
-    public static String toHexString(byte[] aBytes, int aOffset, int aLength) {
-        char[] dst   = new char[aLength * 2];
-
-        for (int si = aOffset, di = 0; si < aOffset+aLength; si++) {
-            byte b = aBytes[si];
-            dst[di++] = CHARS_TABLES[(b & 0xf0) >>> 4];
-            dst[di++] = CHARS_TABLES[(b & 0x0f)];
+    /**
+     * Decodes hex in either case, ignoring whitespace
+     *
+     * @param aHexString the hex
+     * @return the bytes
+     * @throws IllegalArgumentException if the string holds anything but hex digits and whitespace, or an odd number of digits
+     */
+    public static byte[] parseHex(CharSequence aHexString) {
+        int digits = 0;
+        for (int i = 0, end = aHexString.length(); i < end; i++) {
+            if (!Character.isWhitespace(aHexString.charAt(i))) {
+                digits++;
+            }
+        }
+        if ((digits & 1) != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits");
         }
+        byte[] dst = new byte[digits / 2];
+        parseHex(aHexString, 0, aHexString.length(), dst, 0);
+        return dst;
+    }
 
-        return new String(dst);
+    /**
+     * Decodes hex in either case into a buffer, ignoring whitespace
+     *
+     * @param aHex the hex
+     * @param aStart index of the first character to decode
+     * @param aEnd index after the last character to decode
+     * @param aDst the buffer
+     * @param aDstOffset where in the buffer to write the first byte
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if the range holds anything but hex digits and whitespace, or an odd number of digits
+     */
+    public static int parseHex(CharSequence aHex, int aStart, int aEnd, byte[] aDst, int aDstOffset) {
+        int di = aDstOffset;
+        int high = -1;
+        for (int i = aStart; i < aEnd; i++) {
+            char c = aHex.charAt(i);
+            int value = c < 128 ? BYTES[c] : -1;
+            if (value < 0) {
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                throw new IllegalArgumentException("Invalid hex character '" + c + "' at index " + i);
+            }
+            if (high < 0) {
+                high = value;
+            } else {
+                aDst[di++] = (byte) ((high << 4) | value);
+                high = -1;
+            }
+        }
+        if (high >= 0) {
+            throw new IllegalArgumentException("Odd number of hex digits");
+        }
+        return di - aDstOffset;
     }
 
 }
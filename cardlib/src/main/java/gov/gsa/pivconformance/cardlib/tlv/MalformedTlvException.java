@@ -0,0 +1,35 @@
+package gov.gsa.pivconformance.cardlib.tlv;
+
+import java.io.IOException;
+
+/**
+ * Thrown by BerTlvReader when the input is not well-formed BER-TLV, such as a length that runs past
+ * the end of the input or of the enclosing TLV
+ */
+public class MalformedTlvException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	private final int m_offset;
+
+	/**
+	 *
+	 * Constructor for MalformedTlvException class
+	 *
+	 * @param message String with the exception message
+	 * @param offset  the offset in the input of the TLV that is malformed
+	 */
+	public MalformedTlvException(String message, int offset) {
+		super(message + " at offset " + offset);
+		m_offset = offset;
+	}
+
+	/**
+	 *
+	 * Gets the offset in the input of the TLV that is malformed
+	 *
+	 * @return the offset from the start of the input
+	 */
+	public int getOffset() {
+		return m_offset;
+	}
+}
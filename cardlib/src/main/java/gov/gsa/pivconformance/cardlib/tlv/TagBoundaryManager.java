@@ -1,9 +1,10 @@
 package gov.gsa.pivconformance.cardlib.tlv;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
-import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,8 +25,19 @@ import gov.gsa.pivconformance.cardlib.card.client.SoftTagBoundaryException;
 public class TagBoundaryManager {
 	private static final Logger s_logger = LoggerFactory.getLogger(TagBoundaryManager.class);
 	private static final HashMap<String, ContainerRuleset> m_maxLenMap = new HashMap<String, ContainerRuleset>();
+	// the same rulesets keyed by the container's tag packed into an int, such as 0x5FC102, sorted for lookup
+	private static int[] s_containerIds = new int[0];
+	private static ContainerRuleset[] s_rulesets = new ContainerRuleset[0];
+	private static ContainerValidator[] s_validators = new ContainerValidator[0];
 
-	private void initCache() {
+	static {
+		initCache();
+	}
+
+	private static synchronized void initCache() {
+		// the rules are the same for every instance, so only build them once
+		if (!m_maxLenMap.isEmpty())
+			return;
 		/*
 		 * This cache gets hung from the gov.gsa.pivconformance.card.client.DataModelSingleton object
 		 * with a public accessor getLengthRules() method.
@@ -193,6 +205,28 @@ public class TagBoundaryManager {
 		crs.add(new BerTag(TagConstants.PAIRING_CODE_TAG), new TagLengthRule(CONSTRAINT.FIXED, 1, 1));
 		crs.add(new BerTag(TagConstants.ERROR_DETECTION_CODE_TAG), new TagLengthRule(CONSTRAINT.FIXED, 0, 0));
 		m_maxLenMap.put(APDUConstants.PAIRING_CODE_REFERENCE_DATA_CONTAINER_OID, crs);
+
+		int[] containerIds = new int[m_maxLenMap.size()];
+		int n = 0;
+		for (String oid : m_maxLenMap.keySet()) {
+			containerIds[n++] = containerId(oid);
+		}
+		Arrays.sort(containerIds);
+		for (int i = 1; i < n; i++) {
+			if (containerIds[i] == containerIds[i - 1])
+				throw new IllegalStateException(String.format("Two containers have the tag %s", tagString(containerIds[i])));
+		}
+		ContainerRuleset[] rulesets = new ContainerRuleset[n];
+		for (Map.Entry<String, ContainerRuleset> e : m_maxLenMap.entrySet()) {
+			rulesets[Arrays.binarySearch(containerIds, containerId(e.getKey()))] = e.getValue();
+		}
+		ContainerValidator[] validators = new ContainerValidator[n];
+		for (int i = 0; i < n; i++) {
+			validators[i] = new ContainerValidator(rulesets[i]);
+		}
+		s_containerIds = containerIds;
+		s_rulesets = rulesets;
+		s_validators = validators;
 	}
 
 	/*
@@ -200,20 +234,51 @@ public class TagBoundaryManager {
 	 */
 
 	public TagBoundaryManager() {
-		initCache();
 	}
 
 	/**
-	 * Gets the tag length rules
+	 * Gets the container ID used to key rulesets, which is the container's tag packed into an int
 	 * 
 	 * @param oid container OID
-	 * @return HashMap of TagLengthRule objects, one for each tag
+	 * @return the container ID, such as 0x5FC102, or -1 if the OID is not a PIV container
+	 */
+	public static int containerId(String oid) {
+		byte[] tag = APDUConstants.oidMAP.get(oid);
+		if (tag == null)
+			return -1;
+		int rv = 0;
+		for (byte b : tag) {
+			rv = (rv << 8) | (b & 0xFF);
+		}
+		return rv;
+	}
+
+	/**
+	 * Gets the ruleset for a container
+	 * 
+	 * @param containerId the container ID from containerId()
+	 * @return the ruleset, or null if there is none for the container
+	 */
+	public ContainerRuleset getRuleset(int containerId) {
+		int i = Arrays.binarySearch(s_containerIds, containerId);
+		return i >= 0 ? s_rulesets[i] : null;
+	}
+
+	/**
+	 * Gets the compiled form of a container's ruleset, which checks tag order, lengths and
+	 * unexpected tags in one pass over the container bytes
+	 * 
+	 * @param containerId the container ID from containerId()
+	 * @return the validator, or null if there is no ruleset for the container
 	 */
-	private HashMap<BerTag, TagLengthRule> getTagLengthRules(String oid) {
-		ContainerRuleset cr = m_maxLenMap.get(oid);
-		HashMap<BerTag, TagLengthRule> tlr;
-		tlr = cr.getTagRuleset();
-		return tlr;
+	public ContainerValidator getValidator(int containerId) {
+		int i = Arrays.binarySearch(s_containerIds, containerId);
+		return i >= 0 ? s_validators[i] : null;
+	}
+
+	private static String tagString(int tag) {
+		String hex = Integer.toHexString(tag);
+		return (hex.length() & 1) != 0 ? "0" + hex : hex;
 	}
 
 	/**
@@ -241,56 +306,37 @@ public class TagBoundaryManager {
 	 * @throws CardClientException 
 	 */
 	public int lengthDelta(String containerOid, BerTag tag, int bytesLength) throws NullPointerException, CardClientException, SoftTagBoundaryException {
-		int rv = -1;
-		HashMap<BerTag, TagLengthRule> tlRules = getTagLengthRules(containerOid);
-		if (tlRules == null) {
-			String errStr = (String.format("Rules for %s, tag 0x%02x is null", APDUConstants.containerOidToNameMap.get(containerOid), Hex.toHexString(tag.bytes)));
+		return lengthDelta(containerId(containerOid), tag.intValue(), bytesLength);
+	}
+
+	/**
+	 * Determines whether the length of the value of a tag falls within the length boundaries
+	 * for that container. Nothing is allocated unless the length is out of bounds.
+	 *
+	 * @param containerId the container ID from containerId()
+	 * @param tag        the element's tag packed into an int, as by BerTag.intValue()
+	 * @param bytesLength the value length under test
+	 * @return the difference between the prescribed lengths and the value length,
+	 *         hopefully all bits clear
+	 * @throws NullPointerException if there is no rule for the container and tag
+	 * @throws CardClientException if the length is out of bounds
+	 */
+	public int lengthDelta(int containerId, int tag, int bytesLength) throws NullPointerException, CardClientException, SoftTagBoundaryException {
+		ContainerRuleset crs = getRuleset(containerId);
+		TagLengthRule tlr = crs == null ? null : crs.getRule(tag);
+		if (tlr == null) {
+			String errStr = String.format("Rules for container %s, tag %s are null", tagString(containerId), tagString(tag));
 			s_logger.error(errStr);
 			NullPointerException e = new NullPointerException(errStr);
 			throw (e);
 		}
-		TagLengthRule tlr = tlRules.get(tag);
-		int hi = tlr.getHighVal();
-		int lo = tlr.getLowVal();
-		CONSTRAINT rule;
-		if((rule = tlr.getRule()) != null) {
-		switch (rule) {
-			case VARIABLE:
-				// When there's a range, negative indicates below floor,
-				// positive indicates above ceiling, zero indicates in range.
-				if (bytesLength >= lo && bytesLength <= hi) {
-					rv = 0; // Pass
-				} else if (bytesLength < lo) {
-					rv = lo - bytesLength;			
-				} else {
-					rv = bytesLength - hi;
-                }
-				break;
-				
-			case OR:
-				// Here, we want the return value to indicate what didn't match
-				if (bytesLength == lo || bytesLength == hi) {
-					rv = 0; // Pass
-				} else {
-					rv = ((bytesLength != lo) ? 1 : 0) << 1;
-					rv |= (bytesLength != hi) ? 1 : 0;
-				}
-				break;
-			case FIXED:
-				if (bytesLength == lo && bytesLength == hi) { // Check for typos in maxLenMap i suppose
-					rv = 0; // Pass
-				}
-				break;
-			default: // Let's fail the programmer
-				String errStr = String.format("Rule for %s, container %s has unknown rule", Hex.toHexString(tag.bytes));
-				s_logger.error(errStr);
-				break;
-			}
-		}
+		// rulesets are named by the OID of their container
+		String containerName = crs.getContainerName();
+		int rv = tlr.delta(bytesLength);
 		if (rv != 0) {
 			if (tlr.hasSoftUpperBound()) {
 				String errStr = String.format("Container %s, Tag %s varies from SP 800-73-4 table by %d",
-				containerOid, Hex.toHexString(tag.bytes), rv);
+				containerName, tagString(tag), rv);
 				try {
 					rv = 0; // TODO: Here, we should *really* be checking a boolean m_signerCertEmbedded flag.
 					errStr += " (ignored due to tag container rule)";
@@ -300,7 +346,7 @@ public class TagBoundaryManager {
 				}
 			} else {
 			  String errStr = String.format("Container %s, Tag %s varies from SP 800-73-4 table by %d",
-			  containerOid, Hex.toHexString(tag.bytes), rv); s_logger.error(errStr);
+			  containerName, tagString(tag), rv); s_logger.error(errStr);
 			  throw new CardClientException(errStr);
 			}
 		}
@@ -75,5 +75,46 @@ public class TagLengthRule {
 	public boolean hasSoftUpperBound() {
 		return m_softUpperBound;
 	}
+
+	/**
+	 * Compares a value length with the rule
+	 * 
+	 * @param bytesLength the value length
+	 * @return 0 if the length is allowed, otherwise how far it is outside the range (VARIABLE),
+	 *         which of the two lengths it did not match (OR) or -1 (FIXED)
+	 */
+	public int delta(int bytesLength) {
+		int rv = -1;
+		if (m_rule == null)
+			return rv;
+		switch (m_rule) {
+		case VARIABLE:
+			// When there's a range, negative indicates below floor,
+			// positive indicates above ceiling, zero indicates in range.
+			if (bytesLength >= m_lowVal && bytesLength <= m_highVal) {
+				rv = 0; // Pass
+			} else if (bytesLength < m_lowVal) {
+				rv = m_lowVal - bytesLength;
+			} else {
+				rv = bytesLength - m_highVal;
+			}
+			break;
+		case OR:
+			// Here, we want the return value to indicate what didn't match
+			if (bytesLength == m_lowVal || bytesLength == m_highVal) {
+				rv = 0; // Pass
+			} else {
+				rv = ((bytesLength != m_lowVal) ? 1 : 0) << 1;
+				rv |= (bytesLength != m_highVal) ? 1 : 0;
+			}
+			break;
+		case FIXED:
+			if (bytesLength == m_lowVal && bytesLength == m_highVal) { // Check for typos in maxLenMap i suppose
+				rv = 0; // Pass
+			}
+			break;
+		}
+		return rv;
+	}
 }
 	
\ No newline at end of file
@@ -0,0 +1,67 @@
+package gov.gsa.pivconformance.cardlib.tools;
+
+import gov.gsa.pivconformance.cardlib.utils.APDUTraceFile;
+import gov.gsa.pivconformance.cardlib.utils.IAPDUTraceSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Prints an APDU trace file written by APDUTraceRecorder, one APDU per line with its wall clock time,
+ * the time since the previous APDU and, for responses, the status words.
+ */
+public class APDUTraceDump {
+
+    private static final Logger s_logger = LoggerFactory.getLogger(APDUTraceDump.class);
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: APDUTraceDump <trace file>...");
+            System.exit(1);
+        }
+        for (String fileName : args) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+                System.out.println(fileName);
+                dump(in);
+            } catch (IOException e) {
+                s_logger.error("Unable to read APDU trace {}", fileName, e);
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void dump(InputStream in) throws IOException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        StringBuilder sb = new StringBuilder();
+        APDUTraceFile.read(in, new APDUTraceFile.RecordHandler() {
+            private long m_epochMillis;
+            private long m_epochNanos;
+            private long m_previous = Long.MIN_VALUE;
+
+            @Override
+            public void header(long epochMillis, long nanos) {
+                m_epochMillis = epochMillis;
+                m_epochNanos = nanos;
+            }
+
+            @Override
+            public void record(long nanos, int direction, int sw, byte[] data, int offset, int length) {
+                long delta = m_previous == Long.MIN_VALUE ? 0 : nanos - m_previous;
+                m_previous = nanos;
+                sb.setLength(0);
+                sb.append(timeFormat.format(new Date(m_epochMillis + (nanos - m_epochNanos) / 1000000)));
+                sb.append(String.format(" %+10.3f ms  ", delta / 1e6));
+                if (direction == IAPDUTraceSink.RESPONSE) {
+                    sb.append(String.format("[%04X] ", sw));
+                }
+                System.out.println(APDUTraceFile.appendRecord(sb, direction, data, offset, length));
+            }
+        });
+    }
+}
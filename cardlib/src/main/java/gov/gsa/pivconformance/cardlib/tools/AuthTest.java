@@ -7,10 +7,10 @@ import javax.smartcardio.CardTerminal;
 import javax.smartcardio.CommandAPDU;
 import javax.smartcardio.ResponseAPDU;
 
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
 import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
 
@@ -56,9 +56,9 @@ public class AuthTest {
 		CommandAPDU sel = new CommandAPDU(select);
 		try {
 			ResponseAPDU rspAPDU = c.transmit(sel);
-			s_logger.info("Sent: {} Received: {}", Hex.encodeHexString(sel.getBytes()), Hex.encodeHexString(rspAPDU.getBytes()));
+			s_logger.info("Sent: {} Received: {}", HexUtil.toLowerHexString(sel.getBytes()), HexUtil.toLowerHexString(rspAPDU.getBytes()));
 			ResponseAPDU rspAPDU2 = c.transmit(sel);
-			s_logger.info("Sent: {} Received: {}", Hex.encodeHexString(sel.getBytes()), Hex.encodeHexString(rspAPDU2.getBytes()));
+			s_logger.info("Sent: {} Received: {}", HexUtil.toLowerHexString(sel.getBytes()), HexUtil.toLowerHexString(rspAPDU2.getBytes()));
 		} catch (CardException e1) {
 			// TODO Auto-generated catch block
 			e1.printStackTrace();
@@ -67,7 +67,7 @@ public class AuthTest {
 		try {
 			c = piv.getBasicChannel();
 			ResponseAPDU rsp = c.transmit(cmd);
-			s_logger.info("Sent: {} Received: {}", Hex.encodeHexString(cmd.getBytes()), Hex.encodeHexString(rsp.getBytes()));
+			s_logger.info("Sent: {} Received: {}", HexUtil.toLowerHexString(cmd.getBytes()), HexUtil.toLowerHexString(rsp.getBytes()));
 		} catch (CardException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -5,7 +5,6 @@ import gov.gsa.pivconformance.cardlib.tlv.*;
 import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
 import gov.gsa.pivconformance.cardlib.utils.VersionUtils;
 import org.apache.commons.cli.*;
-import org.apache.commons.codec.binary.Hex;
 import org.bouncycastle.cms.CMSSignedData;
 import org.bouncycastle.cms.SignerId;
 import org.bouncycastle.cms.SignerInformation;
@@ -50,7 +49,7 @@ public class PIVRunner {
             Card conn = c.getCard();
             s_logger.info("Card connected.");
             s_logger.info("Card protocol: {}", conn.getProtocol());
-            s_logger.info("Card ATR: {}", Hex.encodeHexString(conn.getATR().getBytes()));
+            s_logger.info("Card ATR: {}", HexUtil.toLowerHexString(conn.getATR().getBytes()));
             ApplicationProperties cardAppProperties = new ApplicationProperties();
             DefaultPIVApplication piv = new DefaultPIVApplication();
             ApplicationAID aid = new ApplicationAID();
@@ -67,10 +66,10 @@ public class PIVRunner {
                 byte [] coexistentTagAllocationAuthority = cardAppProperties.getCoexistentTagAllocationAuthority();
 
                 if(appID != null)
-                    s_logger.info("Application identifier of application: {}", Hex.encodeHexString(appID));
+                    s_logger.info("Application identifier of application: {}", HexUtil.toLowerHexString(appID));
 
                 if(coexistentTagAllocationAuthority != null)
-                    s_logger.info("Coexistent tag allocation authority: {}", Hex.encodeHexString(coexistentTagAllocationAuthority));
+                    s_logger.info("Coexistent tag allocation authority: {}", HexUtil.toLowerHexString(coexistentTagAllocationAuthority));
 
                 if(appLabel != "")
                     s_logger.info("Application label: {}", appLabel);
@@ -82,20 +81,20 @@ public class PIVRunner {
                     for(byte[] b : cryptoAlgs) {
 
                         s_logger.info("Cryptographic algorithms supported:");
-                        s_logger.info("Algorithm ID: {} Algorithm Description: {}", Hex.encodeHexString(b), TagConstants.algMAP.get(b));
+                        s_logger.info("Algorithm ID: {} Algorithm Description: {}", HexUtil.toLowerHexString(b), TagConstants.algMAP.get(b));
                     }
                 }
 
 
-                s_logger.info("PCAP: {}", Hex.encodeHexString(pcap));
+                s_logger.info("PCAP: {}", HexUtil.toLowerHexString(pcap));
                 BerTlvParser tp = new BerTlvParser(new CCTTlvLogger(PIVRunner.class));
                 BerTlv outer = tp.parseConstructed(pcap);
                 List<BerTlv> values = outer.getValues();
                 for(BerTlv tlv : values) {
                     if(tlv.isPrimitive()) {
-                        s_logger.info("PCAP Tag {}: {}", Hex.encodeHexString(tlv.getTag().bytes), Hex.encodeHexString(tlv.getBytesValue()));
+                        s_logger.info("PCAP Tag {}: {}", HexUtil.toLowerHexString(tlv.getTag().bytes), HexUtil.toLowerHexString(tlv.getBytesValue()));
                     } else {
-                        s_logger.info("PCAP object: {}", Hex.encodeHexString(tlv.getTag().bytes));
+                        s_logger.info("PCAP object: {}", HexUtil.toLowerHexString(tlv.getTag().bytes));
                     }
                 }
 
@@ -121,21 +120,21 @@ public class PIVRunner {
 
                     if(containerOID.equals(APDUConstants.CARD_CAPABILITY_CONTAINER_OID)) {
 
-                        s_logger.info("Card Identifier: {}", Hex.encodeHexString(((CardCapabilityContainer) dataObject).getCardIdentifier()));
-                        s_logger.info("Capability Container Version Number: {}", Hex.encodeHexString(((CardCapabilityContainer) dataObject).getCapabilityContainerVersionNumber()));
-                        s_logger.info("Capability Grammar Version Number: {}", Hex.encodeHexString(((CardCapabilityContainer) dataObject).getCapabilityGrammarVersionNumber()));
+                        s_logger.info("Card Identifier: {}", HexUtil.toLowerHexString(((CardCapabilityContainer) dataObject).getCardIdentifier()));
+                        s_logger.info("Capability Container Version Number: {}", HexUtil.toLowerHexString(((CardCapabilityContainer) dataObject).getCapabilityContainerVersionNumber()));
+                        s_logger.info("Capability Grammar Version Number: {}", HexUtil.toLowerHexString(((CardCapabilityContainer) dataObject).getCapabilityGrammarVersionNumber()));
 
                         List<byte[]> appCardURLList = ((CardCapabilityContainer) dataObject).getAppCardURL();
 
                         if (appCardURLList.size() > 0) {
                             s_logger.info("Applications CardURL List");
                             for (byte[] u : appCardURLList) {
-                                s_logger.info("{}", Hex.encodeHexString(u));
+                                s_logger.info("{}", HexUtil.toLowerHexString(u));
                             }
                         }
 
-                        s_logger.info("Registered Data Model number: {}", Hex.encodeHexString(((CardCapabilityContainer) dataObject).getRegisteredDataModelNumber()));
-                        s_logger.info("Access Control Rule Table: {}", Hex.encodeHexString(((CardCapabilityContainer) dataObject).getAccessControlRuleTable()));
+                        s_logger.info("Registered Data Model number: {}", HexUtil.toLowerHexString(((CardCapabilityContainer) dataObject).getRegisteredDataModelNumber()));
+                        s_logger.info("Access Control Rule Table: {}", HexUtil.toLowerHexString(((CardCapabilityContainer) dataObject).getAccessControlRuleTable()));
 
 
                         s_logger.info("Card APDUs Tag Present: {}", ((CardCapabilityContainer) dataObject).getCardAPDUs());
@@ -151,13 +150,13 @@ public class PIVRunner {
                             if (extendedAppCardURLList.size() > 0) {
                                 s_logger.info("Extended Application CardURL List:");
                                 for (byte[] u2 : extendedAppCardURLList) {
-                                    s_logger.info("     {}", Hex.encodeHexString(u2));
+                                    s_logger.info("     {}", HexUtil.toLowerHexString(u2));
                                 }
                             }
                         }
 
                         if (((CardCapabilityContainer) dataObject).getSecurityObjectBuffer() != null)
-                            s_logger.info("Security Object Buffer: {}", Hex.encodeHexString(((CardCapabilityContainer) dataObject).getSecurityObjectBuffer()));
+                            s_logger.info("Security Object Buffer: {}", HexUtil.toLowerHexString(((CardCapabilityContainer) dataObject).getSecurityObjectBuffer()));
 
 
                         s_logger.info("Error Detection Code Tag Present: {}", dataObject.getErrorDetectionCode());
@@ -167,21 +166,21 @@ public class PIVRunner {
 
                     if (containerOID.equals(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID)) {
                         if (((CardHolderUniqueIdentifier) dataObject).getBufferLength() != null) {
-                            s_logger.info("Buffer Length: {}", Hex.encodeHexString(((CardHolderUniqueIdentifier) dataObject).getBufferLength()));
+                            s_logger.info("Buffer Length: {}", HexUtil.toLowerHexString(((CardHolderUniqueIdentifier) dataObject).getBufferLength()));
                         }
-                        s_logger.info("FASC-N: {}", Hex.encodeHexString(((CardHolderUniqueIdentifier) dataObject).getfASCN()));
+                        s_logger.info("FASC-N: {}", HexUtil.toLowerHexString(((CardHolderUniqueIdentifier) dataObject).getfASCN()));
                         if (((CardHolderUniqueIdentifier) dataObject).getOrganizationalIdentifier() != null) {
-                            s_logger.info("Organizational Identifier: {}", Hex.encodeHexString(((CardHolderUniqueIdentifier) dataObject).getOrganizationalIdentifier()));
+                            s_logger.info("Organizational Identifier: {}", HexUtil.toLowerHexString(((CardHolderUniqueIdentifier) dataObject).getOrganizationalIdentifier()));
                         }
                         if (((CardHolderUniqueIdentifier) dataObject).getdUNS() != null) {
-                            s_logger.info("DUNS: {}", Hex.encodeHexString(((CardHolderUniqueIdentifier) dataObject).getdUNS()));
+                            s_logger.info("DUNS: {}", HexUtil.toLowerHexString(((CardHolderUniqueIdentifier) dataObject).getdUNS()));
                         }
-                        s_logger.info("GUID: {}", Hex.encodeHexString(((CardHolderUniqueIdentifier) dataObject).getgUID()));
+                        s_logger.info("GUID: {}", HexUtil.toLowerHexString(((CardHolderUniqueIdentifier) dataObject).getgUID()));
 
                         SimpleDateFormat sdfmt = new SimpleDateFormat("MM/dd/yyyy");
                         s_logger.info("Expiration Date: {}", sdfmt.format(((CardHolderUniqueIdentifier) dataObject).getExpirationDate()));
 
-                        s_logger.info("Cardholder UUID: {}", Hex.encodeHexString(((CardHolderUniqueIdentifier) dataObject).getCardholderUUID()));
+                        s_logger.info("Cardholder UUID: {}", HexUtil.toLowerHexString(((CardHolderUniqueIdentifier) dataObject).getCardholderUUID()));
                         s_logger.info("Issuer Asymmetric Signature Info:");
 
                         CMSSignedData sd = ((CardHolderUniqueIdentifier) dataObject).getAsymmetricSignature();
@@ -194,10 +193,10 @@ public class PIVRunner {
                             SignerInformation signer = it.next();
                             SignerId sid = signer.getSID();
                             String issuer = sid.getIssuer().toString();
-                            String serial = Hex.encodeHexString(sid.getSerialNumber().toByteArray());
+                            String serial = HexUtil.toLowerHexString(sid.getSerialNumber().toByteArray());
                             String skid = "";
                             if( sid.getSubjectKeyIdentifier() != null)
-                                skid = Hex.encodeHexString(sid.getSubjectKeyIdentifier());
+                                skid = HexUtil.toLowerHexString(sid.getSubjectKeyIdentifier());
 
                             if(sid.getSubjectKeyIdentifier() != null)
                                 s_logger.info("Signer skid: {} ", skid);
@@ -217,13 +216,13 @@ public class PIVRunner {
                         X509Certificate pibAuthCert = ((X509CertificateDataObject) dataObject).getCertificate();
 
                         s_logger.info("PIV Auth Cert SubjectName: {}", pibAuthCert.getSubjectDN().getName());
-                        s_logger.info("PIV Auth Cert SerialNumber: {}", Hex.encodeHexString(pibAuthCert.getSerialNumber().toByteArray()));
+                        s_logger.info("PIV Auth Cert SerialNumber: {}", HexUtil.toLowerHexString(pibAuthCert.getSerialNumber().toByteArray()));
                         s_logger.info("PIV Auth Cert IssuerName: {}", pibAuthCert.getSubjectDN().getName());
                     }
 
                     if (containerOID.equals(APDUConstants.CARDHOLDER_FINGERPRINTS_OID)) {
 
-                        s_logger.info("Fingerprint I & II: {}", Hex.encodeHexString(((CardHolderBiometricData) dataObject).getBiometricData()));
+                        s_logger.info("Fingerprint I & II: {}", HexUtil.toLowerHexString(((CardHolderBiometricData) dataObject).getBiometricData()));
 
 
                         s_logger.info("Biometric Creation Date: {}", ((CardHolderBiometricData) dataObject).getBiometricCreationDate());
@@ -240,10 +239,10 @@ public class PIVRunner {
                             SignerInformation signer = it.next();
                             SignerId sid = signer.getSID();
                             String issuer = sid.getIssuer().toString();
-                            String serial = Hex.encodeHexString(sid.getSerialNumber().toByteArray());
+                            String serial = HexUtil.toLowerHexString(sid.getSerialNumber().toByteArray());
                             String skid = "";
                             if( sid.getSubjectKeyIdentifier() != null)
-                                skid = Hex.encodeHexString(sid.getSubjectKeyIdentifier());
+                                skid = HexUtil.toLowerHexString(sid.getSubjectKeyIdentifier());
 
                             if(sid.getSubjectKeyIdentifier() != null)
                                 s_logger.info("Signer skid: {} ", skid);
@@ -264,7 +263,7 @@ public class PIVRunner {
 
                     if (containerOID.equals(APDUConstants.SECURITY_OBJECT_OID)) {
 
-                        s_logger.info("RAW Mapping of DG to ContainerID value: {}", Hex.encodeHexString(((SecurityObject) dataObject).getMapping()));
+                        s_logger.info("RAW Mapping of DG to ContainerID value: {}", HexUtil.toLowerHexString(((SecurityObject) dataObject).getMapping()));
 
                         HashMap<Integer, String> idMap = ((SecurityObject) dataObject).getContainerIDList();
 
@@ -283,10 +282,10 @@ public class PIVRunner {
                             SignerInformation signer = it.next();
                             SignerId sid = signer.getSID();
                             String issuer = sid.getIssuer().toString();
-                            String serial = Hex.encodeHexString(sid.getSerialNumber().toByteArray());
+                            String serial = HexUtil.toLowerHexString(sid.getSerialNumber().toByteArray());
                             String skid = "";
                             if( sid.getSubjectKeyIdentifier() != null)
-                                skid = Hex.encodeHexString(sid.getSubjectKeyIdentifier());
+                                skid = HexUtil.toLowerHexString(sid.getSubjectKeyIdentifier());
 
                             if(sid.getSubjectKeyIdentifier() != null)
                                 s_logger.info("Signer skid: {} ", skid);
@@ -302,7 +301,7 @@ public class PIVRunner {
                     }
 
                     if (containerOID.equals(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID)) {
-                        s_logger.info("Image for Visual Verification: {}", Hex.encodeHexString(((CardHolderBiometricData) dataObject).getBiometricData()));
+                        s_logger.info("Image for Visual Verification: {}", HexUtil.toLowerHexString(((CardHolderBiometricData) dataObject).getBiometricData()));
 
                         s_logger.info("Biometric Creation Date: {}", ((CardHolderBiometricData) dataObject).getBiometricCreationDate());
                         s_logger.info("Validity Period From: {}", ((CardHolderBiometricData) dataObject).getValidityPeriodFrom());
@@ -319,10 +318,10 @@ public class PIVRunner {
                             SignerInformation signer = it.next();
                             SignerId sid = signer.getSID();
                             String issuer = sid.getIssuer().toString();
-                            String serial = Hex.encodeHexString(sid.getSerialNumber().toByteArray());
+                            String serial = HexUtil.toLowerHexString(sid.getSerialNumber().toByteArray());
                             String skid = "";
                             if( sid.getSubjectKeyIdentifier() != null)
-                                skid = Hex.encodeHexString(sid.getSubjectKeyIdentifier());
+                                skid = HexUtil.toLowerHexString(sid.getSubjectKeyIdentifier());
 
                             if(sid.getSubjectKeyIdentifier() != null)
                                 s_logger.info("Signer skid: {} ", skid);
@@ -344,7 +343,7 @@ public class PIVRunner {
                         X509Certificate pibAuthCert = ((X509CertificateDataObject) dataObject).getCertificate();
 
                         s_logger.info("Key Managment Cert SubjectName: {}", pibAuthCert.getSubjectDN().getName());
-                        s_logger.info("Key Managment Cert SerialNumber: {}", Hex.encodeHexString(pibAuthCert.getSerialNumber().toByteArray()));
+                        s_logger.info("Key Managment Cert SerialNumber: {}", HexUtil.toLowerHexString(pibAuthCert.getSerialNumber().toByteArray()));
                         s_logger.info("Key Managment Cert IssuerName: {}", pibAuthCert.getSubjectDN().getName());
                     }
 
@@ -352,7 +351,7 @@ public class PIVRunner {
                         X509Certificate pibAuthCert = ((X509CertificateDataObject) dataObject).getCertificate();
 
                         s_logger.info("Digital Signature Cert SubjectName: {}", pibAuthCert.getSubjectDN().getName());
-                        s_logger.info("Digital Signature SerialNumber: {}", Hex.encodeHexString(pibAuthCert.getSerialNumber().toByteArray()));
+                        s_logger.info("Digital Signature SerialNumber: {}", HexUtil.toLowerHexString(pibAuthCert.getSerialNumber().toByteArray()));
                         s_logger.info("Digital Signature IssuerName: {}", pibAuthCert.getSubjectDN().getName());
                     }
 
@@ -360,7 +359,7 @@ public class PIVRunner {
                         X509Certificate pibAuthCert = ((X509CertificateDataObject) dataObject).getCertificate();
 
                         s_logger.info("Card Auth Cert SubjectName: {}", pibAuthCert.getSubjectDN().getName());
-                        s_logger.info("Card Auth Cert SerialNumber: {}", Hex.encodeHexString(pibAuthCert.getSerialNumber().toByteArray()));
+                        s_logger.info("Card Auth Cert SerialNumber: {}", HexUtil.toLowerHexString(pibAuthCert.getSerialNumber().toByteArray()));
                         s_logger.info("Card Auth Cert IssuerName: {}", pibAuthCert.getSubjectDN().getName());
                     }
 
@@ -414,7 +413,7 @@ public class PIVRunner {
 
                     if (decoded) {
                         if (((CardHolderBiometricData) cardholderIrisImages).getBiometricData() != null) {
-                            s_logger.info("Images for Iris: {}", Hex.encodeHexString(((CardHolderBiometricData) cardholderIrisImages).getBiometricData()));
+                            s_logger.info("Images for Iris: {}", HexUtil.toLowerHexString(((CardHolderBiometricData) cardholderIrisImages).getBiometricData()));
 
                             s_logger.info("Biometric Creation Date: {}", ((CardHolderBiometricData) cardholderIrisImages).getBiometricCreationDate());
                             s_logger.info("Validity Period From: {}", ((CardHolderBiometricData) cardholderIrisImages).getValidityPeriodFrom());
@@ -431,10 +430,10 @@ public class PIVRunner {
                                 SignerInformation signer = it.next();
                                 SignerId sid = signer.getSID();
                                 String issuer = sid.getIssuer().toString();
-                                String serial = Hex.encodeHexString(sid.getSerialNumber().toByteArray());
+                                String serial = HexUtil.toLowerHexString(sid.getSerialNumber().toByteArray());
                                 String skid = "";
                                 if( sid.getSubjectKeyIdentifier() != null)
-                                    skid = Hex.encodeHexString(sid.getSubjectKeyIdentifier());
+                                    skid = HexUtil.toLowerHexString(sid.getSubjectKeyIdentifier());
 
                                 if(sid.getSubjectKeyIdentifier() != null)
                                     s_logger.info("Signer skid: {} ", skid);
@@ -476,9 +475,9 @@ public class PIVRunner {
 
                         s_logger.info("Number of fingers: {}", ((BiometricInformationTemplatesGroupTemplate) biometricInformationTemplatesGroupTemplate).getNumberOfFingers());
                         if (((BiometricInformationTemplatesGroupTemplate) biometricInformationTemplatesGroupTemplate).getbITForFirstFinger() != null)
-                            s_logger.info("BIT for first Finger: {}", Hex.encodeHexString(((BiometricInformationTemplatesGroupTemplate) biometricInformationTemplatesGroupTemplate).getbITForFirstFinger()));
+                            s_logger.info("BIT for first Finger: {}", HexUtil.toLowerHexString(((BiometricInformationTemplatesGroupTemplate) biometricInformationTemplatesGroupTemplate).getbITForFirstFinger()));
                         if (((BiometricInformationTemplatesGroupTemplate) biometricInformationTemplatesGroupTemplate).getbITForSecondFinger() != null)
-                            s_logger.info("BIT for second Finger: {}", Hex.encodeHexString(((BiometricInformationTemplatesGroupTemplate) biometricInformationTemplatesGroupTemplate).getbITForSecondFinger()));
+                            s_logger.info("BIT for second Finger: {}", HexUtil.toLowerHexString(((BiometricInformationTemplatesGroupTemplate) biometricInformationTemplatesGroupTemplate).getbITForSecondFinger()));
 
                     }
                 }
@@ -496,11 +495,11 @@ public class PIVRunner {
                         X509Certificate contentSigningCert = ((SecureMessagingCertificateSigner) secureMessagingCertificateSigner).getCertificate();
 
                         s_logger.info("Content Signing Cert SubjectName: {}", contentSigningCert.getSubjectDN().getName());
-                        s_logger.info("Content Signing Cert SerialNumber: {}", Hex.encodeHexString(contentSigningCert.getSerialNumber().toByteArray()));
+                        s_logger.info("Content Signing Cert SerialNumber: {}", HexUtil.toLowerHexString(contentSigningCert.getSerialNumber().toByteArray()));
                         s_logger.info("Content Signing Cert IssuerName: {}", contentSigningCert.getSubjectDN().getName());
 
                         if (((SecureMessagingCertificateSigner) secureMessagingCertificateSigner).getIntermediateCVC() != null)
-                            s_logger.info("Intermediate CVC: {}", Hex.encodeHexString(((SecureMessagingCertificateSigner) secureMessagingCertificateSigner).getIntermediateCVC()));
+                            s_logger.info("Intermediate CVC: {}", HexUtil.toLowerHexString(((SecureMessagingCertificateSigner) secureMessagingCertificateSigner).getIntermediateCVC()));
 
                     }
                 }
@@ -577,7 +576,7 @@ public class PIVRunner {
             ConnectionDescription cd = ConnectionDescription.createFromTerminal(t);
             byte[] descriptor = cd.getBytes();
             if(descriptor != null) {
-                s_logger.info("Descriptor for terminal {}: {}", terminalCount, Hex.encodeHexString(descriptor, false));
+                s_logger.info("Descriptor for terminal {}: {}", terminalCount, HexUtil.toHexString(descriptor));
             }
             // if there is only one reader or if we've been asked to only test one reader,
             // wait for a card
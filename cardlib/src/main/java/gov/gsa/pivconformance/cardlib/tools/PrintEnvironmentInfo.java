@@ -30,7 +30,7 @@ public class PrintEnvironmentInfo {
         for (Provider prov : Security.getProviders()) {
             s_logger.info("Security Provider: {} version {}", prov.getName(), prov.getVersion());
         }
-        TerminalFactory tf = TerminalFactory.getDefault();
+        TerminalFactory tf = PCSCUtils.GetTerminalFactory();
         s_logger.info("Attempting to list card terminals");
         try {
             for (CardTerminal t : tf.terminals().list()) {
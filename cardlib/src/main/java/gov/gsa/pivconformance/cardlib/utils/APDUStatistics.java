@@ -0,0 +1,329 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+
+/**
+ * Latency histograms and byte counts of APDU exchanges, broken down by instruction, by the container a
+ * GET DATA asked for, by final status word and by the number of GET RESPONSE commands it took to get
+ * the whole response, so that readers and card stock can be compared on where the card time goes.
+ *
+ * An exchange is a command together with any resend after 6C XX and any GET RESPONSE commands after
+ * 61 XX, timed from sending the command to receiving the last of the response. Recording one is
+ * thread-safe and does not allocate once every key it counts under has been seen.
+ */
+public class APDUStatistics implements APDUStatisticsMXBean {
+	private static final Logger s_logger = LoggerFactory.getLogger(APDUStatistics.class);
+
+	public static final String MBEAN_NAME = "gov.gsa.pivconformance:type=APDUStatistics";
+
+	private static final Map<Integer, String> s_instructionNames = new HashMap<Integer, String>() {
+		private static final long serialVersionUID = 1L;
+		{
+			put(0x20, "VERIFY");
+			put(0x24, "CHANGE REFERENCE DATA");
+			put(0x2C, "RESET RETRY COUNTER");
+			put(0x47, "GENERATE ASYMMETRIC KEY PAIR");
+			put(0x87, "GENERAL AUTHENTICATE");
+			put(0xA4, "SELECT");
+			put(0xC0, "GET RESPONSE");
+			put(0xCB, "GET DATA");
+			put(0xDB, "PUT DATA");
+		}
+	};
+	private static final Map<Integer, String> s_containerNames = new HashMap<Integer, String>();
+	static {
+		for (Map.Entry<String, byte[]> e : APDUConstants.oidMAP.entrySet()) {
+			String name = APDUConstants.oidNameMap.get(e.getKey());
+			s_containerNames.put(tag(e.getValue(), 0, e.getValue().length), name == null ? e.getKey() : name);
+		}
+	}
+
+	/**
+	 * The counts for one key
+	 */
+	static final class Entry {
+		final LatencyHistogram m_latency = new LatencyHistogram();
+		final LongAdder m_bytesSent = new LongAdder();
+		final LongAdder m_bytesReceived = new LongAdder();
+
+		void record(int bytesSent, int bytesReceived, long nanos) {
+			m_latency.record(nanos);
+			m_bytesSent.add(bytesSent);
+			m_bytesReceived.add(bytesReceived);
+		}
+
+		LatencySummary summarize() {
+			return LatencySummary.of(m_latency, m_bytesSent.sum(), m_bytesReceived.sum());
+		}
+
+		void reset() {
+			m_latency.reset();
+			m_bytesSent.reset();
+			m_bytesReceived.reset();
+		}
+	}
+
+	/**
+	 * Entries by int key. Lookups search a sorted snapshot of the keys, so they neither lock nor box the
+	 * key; a key seen for the first time replaces the snapshot with a copy that includes it.
+	 */
+	static final class EntryTable {
+		private static final class Snapshot {
+			final int[] m_keys;
+			final Entry[] m_entries;
+
+			Snapshot(int[] keys, Entry[] entries) {
+				m_keys = keys;
+				m_entries = entries;
+			}
+		}
+
+		private volatile Snapshot m_snapshot = new Snapshot(new int[0], new Entry[0]);
+
+		Entry get(int key) {
+			Snapshot s = m_snapshot;
+			int i = Arrays.binarySearch(s.m_keys, key);
+			return i >= 0 ? s.m_entries[i] : add(key);
+		}
+
+		private synchronized Entry add(int key) {
+			Snapshot s = m_snapshot;
+			int i = Arrays.binarySearch(s.m_keys, key);
+			if (i >= 0) {
+				return s.m_entries[i];
+			}
+			int at = -i - 1;
+			int[] keys = new int[s.m_keys.length + 1];
+			Entry[] entries = new Entry[keys.length];
+			System.arraycopy(s.m_keys, 0, keys, 0, at);
+			System.arraycopy(s.m_entries, 0, entries, 0, at);
+			keys[at] = key;
+			entries[at] = new Entry();
+			System.arraycopy(s.m_keys, at, keys, at + 1, s.m_keys.length - at);
+			System.arraycopy(s.m_entries, at, entries, at + 1, s.m_keys.length - at);
+			m_snapshot = new Snapshot(keys, entries);
+			return entries[at];
+		}
+
+		int[] keys() {
+			return m_snapshot.m_keys.clone();
+		}
+
+		Entry find(int key) {
+			Snapshot s = m_snapshot;
+			int i = Arrays.binarySearch(s.m_keys, key);
+			return i >= 0 ? s.m_entries[i] : null;
+		}
+
+		void reset() {
+			for (Entry e : m_snapshot.m_entries) {
+				e.reset();
+			}
+		}
+	}
+
+	private final Entry m_total = new Entry();
+	private final EntryTable m_byInstruction = new EntryTable();
+	private final EntryTable m_byContainer = new EntryTable();
+	private final EntryTable m_byStatusWord = new EntryTable();
+	private final EntryTable m_byGetResponseCount = new EntryTable();
+
+	/**
+	 * Records an exchange
+	 * @param ins the instruction byte of the command
+	 * @param tag the container tag of a GET DATA command, such as 0x5FC102, or 0 for any other command
+	 * @param sw the final status word
+	 * @param getResponseCount the number of GET RESPONSE commands sent for the response
+	 * @param bytesSent the number of bytes sent to the card, GET RESPONSE commands and resends included
+	 * @param bytesReceived the number of bytes received from the card, status words included
+	 * @param nanos the time the exchange took
+	 */
+	public void record(int ins, int tag, int sw, int getResponseCount, int bytesSent, int bytesReceived, long nanos) {
+		m_total.record(bytesSent, bytesReceived, nanos);
+		m_byInstruction.get(ins & 0xFF).record(bytesSent, bytesReceived, nanos);
+		if (tag != 0) {
+			m_byContainer.get(tag).record(bytesSent, bytesReceived, nanos);
+		}
+		m_byStatusWord.get(sw & 0xFFFF).record(bytesSent, bytesReceived, nanos);
+		m_byGetResponseCount.get(getResponseCount).record(bytesSent, bytesReceived, nanos);
+	}
+
+	/**
+	 * Gets the container tag a GET DATA command asks for
+	 * @param command buffer containing the encoded command APDU
+	 * @param length the length of the encoded command APDU
+	 * @return the tag from the 5C tag list, such as 0x5FC102, or 0 if the command is not a GET DATA
+	 */
+	public static int getDataTag(byte[] command, int length) {
+		if (length < 7 || command[1] != APDUConstants.GET) {
+			return 0;
+		}
+		// the data field starts after a short Lc, or after the 3 bytes of an extended one
+		int offset = command[4] == 0 ? 7 : 5;
+		if (offset + 2 > length || command[offset] != 0x5C) {
+			return 0;
+		}
+		int tagLength = command[offset + 1] & 0xFF;
+		if (tagLength < 1 || tagLength > 3 || offset + 2 + tagLength > length) {
+			return 0;
+		}
+		return tag(command, offset + 2, tagLength);
+	}
+
+	private static int tag(byte[] data, int offset, int length) {
+		int rv = 0;
+		for (int i = offset; i < offset + length; i++) {
+			rv = (rv << 8) | (data[i] & 0xFF);
+		}
+		return rv;
+	}
+
+	public long getExchangeCount() {
+		return m_total.m_latency.getCount();
+	}
+
+	public long getBytesSent() {
+		return m_total.m_bytesSent.sum();
+	}
+
+	public long getBytesReceived() {
+		return m_total.m_bytesReceived.sum();
+	}
+
+	/**
+	 * Gets the latency histogram of every exchange
+	 * @return the histogram
+	 */
+	public LatencyHistogram getLatency() {
+		return m_total.m_latency;
+	}
+
+	/**
+	 * Gets the latency histogram of the exchanges for one instruction
+	 * @param ins the instruction byte
+	 * @return the histogram, or null if the instruction has not been sent
+	 */
+	public LatencyHistogram getInstructionLatency(int ins) {
+		Entry e = m_byInstruction.find(ins & 0xFF);
+		return e == null ? null : e.m_latency;
+	}
+
+	/**
+	 * Gets the latency histogram of the GET DATA exchanges for one container
+	 * @param tag the container tag, such as 0x5FC102
+	 * @return the histogram, or null if the container has not been asked for
+	 */
+	public LatencyHistogram getContainerLatency(int tag) {
+		Entry e = m_byContainer.find(tag);
+		return e == null ? null : e.m_latency;
+	}
+
+	@Override
+	public LatencySummary getTotal() {
+		return m_total.summarize();
+	}
+
+	@Override
+	public Map<String, LatencySummary> getByInstruction() {
+		Map<String, LatencySummary> rv = new LinkedHashMap<>();
+		for (int ins : m_byInstruction.keys()) {
+			String name = s_instructionNames.get(ins);
+			rv.put(String.format("%02X", ins) + (name == null ? "" : " " + name), m_byInstruction.find(ins).summarize());
+		}
+		return rv;
+	}
+
+	@Override
+	public Map<String, LatencySummary> getByContainer() {
+		Map<String, LatencySummary> rv = new LinkedHashMap<>();
+		for (int tag : m_byContainer.keys()) {
+			String name = s_containerNames.get(tag);
+			rv.put(name == null ? String.format("%X", tag) : name, m_byContainer.find(tag).summarize());
+		}
+		return rv;
+	}
+
+	@Override
+	public Map<String, LatencySummary> getByStatusWord() {
+		Map<String, LatencySummary> rv = new LinkedHashMap<>();
+		for (int sw : m_byStatusWord.keys()) {
+			rv.put(String.format("%04X", sw), m_byStatusWord.find(sw).summarize());
+		}
+		return rv;
+	}
+
+	@Override
+	public Map<String, LatencySummary> getByGetResponseCount() {
+		Map<String, LatencySummary> rv = new LinkedHashMap<>();
+		for (int n : m_byGetResponseCount.keys()) {
+			rv.put(Integer.toString(n), m_byGetResponseCount.find(n).summarize());
+		}
+		return rv;
+	}
+
+	@Override
+	public void reset() {
+		m_total.reset();
+		m_byInstruction.reset();
+		m_byContainer.reset();
+		m_byStatusWord.reset();
+		m_byGetResponseCount.reset();
+	}
+
+	/**
+	 * Writes every breakdown as CSV, one row per key, times in microseconds
+	 * @param out the stream to write to
+	 */
+	public void writeCsv(PrintStream out) {
+		out.println("Breakdown,Key,Count,Mean,P50,P90,P99,Max,Bytes Sent,Bytes Received");
+		writeRow(out, "Total", "", getTotal());
+		writeRows(out, "Instruction", getByInstruction());
+		writeRows(out, "Container", getByContainer());
+		writeRows(out, "Status Word", getByStatusWord());
+		writeRows(out, "GET RESPONSE Count", getByGetResponseCount());
+	}
+
+	private static void writeRows(PrintStream out, String breakdown, Map<String, LatencySummary> rows) {
+		for (Map.Entry<String, LatencySummary> e : rows.entrySet()) {
+			writeRow(out, breakdown, e.getKey(), e.getValue());
+		}
+	}
+
+	private static void writeRow(PrintStream out, String breakdown, String key, LatencySummary s) {
+		out.printf("%s,\"%s\",%d,%d,%d,%d,%d,%d,%d,%d%n", breakdown, key, s.getCount(), s.getMeanMicros(), s.getP50Micros(),
+				s.getP90Micros(), s.getP99Micros(), s.getMaxMicros(), s.getBytesSent(), s.getBytesReceived());
+	}
+
+	/**
+	 * Registers statistics with the platform MBean server as gov.gsa.pivconformance:type=APDUStatistics,
+	 * replacing anything registered there before
+	 * @param statistics the statistics to register
+	 */
+	public static void registerMBean(APDUStatistics statistics) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(statistics, name);
+		} catch (JMException | SecurityException e) {
+			s_logger.warn("Unable to register APDU statistics MBean {}", MBEAN_NAME, e);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+import java.util.Map;
+
+/**
+ * JMX view of the APDU statistics PCSCWrapper keeps for the process, registered as
+ * gov.gsa.pivconformance:type=APDUStatistics
+ */
+public interface APDUStatisticsMXBean {
+	/**
+	 * @return every exchange, whatever the command
+	 */
+	LatencySummary getTotal();
+
+	/**
+	 * @return the exchanges by instruction, such as "CB GET DATA"
+	 */
+	Map<String, LatencySummary> getByInstruction();
+
+	/**
+	 * @return the GET DATA exchanges by the name of the container asked for
+	 */
+	Map<String, LatencySummary> getByContainer();
+
+	/**
+	 * @return the exchanges by final status word, such as "9000"
+	 */
+	Map<String, LatencySummary> getByStatusWord();
+
+	/**
+	 * @return the exchanges by the number of GET RESPONSE commands it took to get the whole response
+	 */
+	Map<String, LatencySummary> getByGetResponseCount();
+
+	void reset();
+}
@@ -0,0 +1,129 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+
+/**
+ * The binary APDU trace file format, and the text format traces are printed in.
+ *
+ * A trace file starts with the 8 byte magic "APDUTRC1", the wall clock time in milliseconds and the
+ * System.nanoTime() taken at the same moment, so that record timestamps can be turned back into
+ * wall clock time. Each record that follows is a big-endian nanoTime (8 bytes), the direction (1 byte),
+ * the status words of a response (2 bytes), the length (4 bytes) and the APDU bytes. PINs are masked
+ * before records are written.
+ */
+public final class APDUTraceFile {
+	public static final byte[] MAGIC = { 'A', 'P', 'D', 'U', 'T', 'R', 'C', '1' };
+	static final int RECORD_HEADER_LENGTH = 8 + 1 + 2 + 4;
+
+	/**
+	 * Called for each record of a trace
+	 */
+	public interface RecordHandler {
+		/**
+		 * Called before the first record of a trace file with the times from its header
+		 * @param epochMillis the wall clock time in milliseconds
+		 * @param nanos the System.nanoTime() taken at the same moment
+		 */
+		default void header(long epochMillis, long nanos) throws IOException {
+		}
+
+		/**
+		 * @param nanos System.nanoTime() when the APDU was sent or received
+		 * @param direction IAPDUTraceSink.COMMAND or IAPDUTraceSink.RESPONSE
+		 * @param sw the status words of a response, or 0 for a command
+		 * @param data buffer holding the APDU, only valid until this returns
+		 * @param offset offset of the APDU in the buffer
+		 * @param length length of the APDU
+		 */
+		void record(long nanos, int direction, int sw, byte[] data, int offset, int length) throws IOException;
+	}
+
+	private APDUTraceFile() {
+	}
+
+	public static void writeHeader(DataOutputStream out, long epochMillis, long nanos) throws IOException {
+		out.write(MAGIC);
+		out.writeLong(epochMillis);
+		out.writeLong(nanos);
+	}
+
+	public static void writeRecord(DataOutputStream out, long nanos, int direction, int sw, byte[] data, int offset, int length) throws IOException {
+		out.writeLong(nanos);
+		out.writeByte(direction);
+		out.writeShort(sw);
+		out.writeInt(length);
+		out.write(data, offset, length);
+	}
+
+	/**
+	 * Reads a trace file, passing its header and then each record to the handler
+	 * @param in the trace
+	 * @param handler the handler
+	 * @throws IOException if the stream is not a trace or cannot be read
+	 */
+	public static void read(InputStream in, RecordHandler handler) throws IOException {
+		DataInputStream din = new DataInputStream(in);
+		byte[] magic = new byte[MAGIC.length];
+		din.readFully(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not an APDU trace file");
+		}
+		handler.header(din.readLong(), din.readLong());
+		byte[] data = new byte[1024];
+		while (true) {
+			long nanos;
+			try {
+				nanos = din.readLong();
+			} catch (EOFException e) {
+				break;
+			}
+			int direction = din.readUnsignedByte();
+			int sw = din.readUnsignedShort();
+			int length = din.readInt();
+			if (length < 0) {
+				throw new IOException("Corrupt APDU trace record length " + length);
+			}
+			if (data.length < length) {
+				data = new byte[length];
+			}
+			din.readFully(data, 0, length);
+			handler.record(nanos, direction, sw, data, 0, length);
+		}
+	}
+
+	/**
+	 * Appends a record in the form the apdu logger has always used, with space separated hex bytes
+	 * @param sb the builder to append to
+	 * @param direction IAPDUTraceSink.COMMAND or IAPDUTraceSink.RESPONSE
+	 * @param data buffer holding the APDU
+	 * @param offset offset of the APDU in the buffer
+	 * @param length length of the APDU
+	 * @return the builder
+	 */
+	public static StringBuilder appendRecord(StringBuilder sb, int direction, byte[] data, int offset, int length) {
+		sb.append(direction == IAPDUTraceSink.COMMAND ? "Sending Command APDU " : "Received response ");
+		return HexUtil.appendHex(sb, data, offset, length, false, ' ');
+	}
+
+	/**
+	 * Gets the range of a command APDU that holds a PIN, so that it can be masked
+	 * @param data buffer holding the command APDU
+	 * @param offset offset of the APDU in the buffer
+	 * @param length length of the APDU
+	 * @return the number of bytes after the 5 byte header to mask, or 0 if the command carries no PIN
+	 */
+	public static int pinLength(byte[] data, int offset, int length) {
+		if (length <= 5 || data[offset + 1] != APDUConstants.VERIFY) {
+			return 0;
+		}
+		return Math.min(length - 5, data[offset + 4] & 0xFF);
+	}
+}
@@ -0,0 +1,209 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Keeps the most recent APDUs exchanged with cards in a fixed size ring buffer, dropping the oldest
+ * records to make room for new ones. Records are kept as raw bytes in the layout of APDUTraceFile, so
+ * recording an APDU is a copy into memory allocated up front; nothing is formatted until the trace is
+ * dumped or written out.
+ */
+public class APDUTraceRecorder implements IAPDUTraceSink {
+	public static final int DEFAULT_CAPACITY = 1024 * 1024;
+	private static final byte PIN_MASK = (byte) 0xAA;
+
+	private final byte[] m_ring;
+	// offset of the oldest record, and of the next record to be written
+	private int m_head = 0;
+	private int m_tail = 0;
+	private int m_used = 0;
+	private int m_records = 0;
+	private long m_dropped = 0;
+
+	public APDUTraceRecorder() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity size in bytes of the ring buffer, including a 15 byte header for each record
+	 */
+	public APDUTraceRecorder(int capacity) {
+		if (capacity <= APDUTraceFile.RECORD_HEADER_LENGTH) {
+			throw new IllegalArgumentException("APDU trace capacity of " + capacity + " bytes is too small");
+		}
+		m_ring = new byte[capacity];
+	}
+
+	/**
+	 * Records an APDU, masking the PIN of a VERIFY command. An APDU too large for the buffer is truncated.
+	 */
+	@Override
+	public synchronized void record(int direction, byte[] buffer, int offset, int length) {
+		long nanos = System.nanoTime();
+		int stored = Math.min(length, m_ring.length - APDUTraceFile.RECORD_HEADER_LENGTH);
+		int needed = APDUTraceFile.RECORD_HEADER_LENGTH + stored;
+		while (m_ring.length - m_used < needed) {
+			dropOldest();
+		}
+		int sw = 0;
+		if (direction == RESPONSE && length >= 2) {
+			sw = ((buffer[offset + length - 2] & 0xFF) << 8) | (buffer[offset + length - 1] & 0xFF);
+		}
+		putLong(nanos);
+		putByte(direction);
+		putByte(sw >> 8);
+		putByte(sw);
+		putInt(stored);
+		int pinLength = direction == COMMAND ? Math.min(APDUTraceFile.pinLength(buffer, offset, length), stored - 5) : 0;
+		if (pinLength > 0) {
+			put(buffer, offset, 5);
+			for (int i = 0; i < pinLength; i++) {
+				putByte(PIN_MASK);
+			}
+			put(buffer, offset + 5 + pinLength, stored - 5 - pinLength);
+		} else {
+			put(buffer, offset, stored);
+		}
+		m_used += needed;
+		m_records++;
+	}
+
+	/**
+	 * Passes each record, oldest first, to the handler
+	 * @param handler the handler
+	 * @throws IOException if the handler throws
+	 */
+	public synchronized void forEach(APDUTraceFile.RecordHandler handler) throws IOException {
+		byte[] data = new byte[1024];
+		int pos = m_head;
+		for (int r = 0; r < m_records; r++) {
+			long nanos = getLong(pos);
+			int direction = m_ring[wrap(pos + 8)] & 0xFF;
+			int sw = ((m_ring[wrap(pos + 9)] & 0xFF) << 8) | (m_ring[wrap(pos + 10)] & 0xFF);
+			int length = getInt(wrap(pos + 11));
+			int start = wrap(pos + APDUTraceFile.RECORD_HEADER_LENGTH);
+			if (data.length < length) {
+				data = new byte[length];
+			}
+			get(start, data, length);
+			handler.record(nanos, direction, sw, data, 0, length);
+			pos = wrap(start + length);
+		}
+	}
+
+	/**
+	 * Writes the records to a trace file that APDUTraceDump can print
+	 * @param out the stream to write to, which is not closed
+	 * @throws IOException if the trace cannot be written
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
+		APDUTraceFile.writeHeader(dout, System.currentTimeMillis(), System.nanoTime());
+		forEach((nanos, direction, sw, data, offset, length) -> APDUTraceFile.writeRecord(dout, nanos, direction, sw, data, offset, length));
+		dout.flush();
+	}
+
+	/**
+	 * Prints the records in the form used by the apdu logger, each preceded by its time relative to the first
+	 * @param out the stream to print to
+	 */
+	public void dump(PrintStream out) {
+		long[] first = { Long.MIN_VALUE };
+		StringBuilder sb = new StringBuilder();
+		try {
+			forEach((nanos, direction, sw, data, offset, length) -> {
+				if (first[0] == Long.MIN_VALUE) {
+					first[0] = nanos;
+				}
+				sb.setLength(0);
+				sb.append(String.format("%10.3f ms ", (nanos - first[0]) / 1e6));
+				out.println(APDUTraceFile.appendRecord(sb, direction, data, offset, length));
+			});
+		} catch (IOException e) {
+			// printing to a PrintStream does not throw
+		}
+	}
+
+	public synchronized void clear() {
+		m_head = 0;
+		m_tail = 0;
+		m_used = 0;
+		m_records = 0;
+		m_dropped = 0;
+	}
+
+	public synchronized int getRecordCount() {
+		return m_records;
+	}
+
+	/**
+	 * Gets the number of records dropped to make room for newer ones since the recorder was last cleared
+	 * @return the number of dropped records
+	 */
+	public synchronized long getDroppedCount() {
+		return m_dropped;
+	}
+
+	public int getCapacity() {
+		return m_ring.length;
+	}
+
+	private void dropOldest() {
+		int length = getInt(wrap(m_head + 11));
+		int size = APDUTraceFile.RECORD_HEADER_LENGTH + length;
+		m_head = wrap(m_head + size);
+		m_used -= size;
+		m_records--;
+		m_dropped++;
+	}
+
+	private int wrap(int pos) {
+		return pos >= m_ring.length ? pos - m_ring.length : pos;
+	}
+
+	private void putByte(int b) {
+		m_ring[m_tail] = (byte) b;
+		m_tail = wrap(m_tail + 1);
+	}
+
+	private void putInt(int v) {
+		putByte(v >>> 24);
+		putByte(v >>> 16);
+		putByte(v >>> 8);
+		putByte(v);
+	}
+
+	private void putLong(long v) {
+		putInt((int) (v >>> 32));
+		putInt((int) v);
+	}
+
+	private void put(byte[] src, int offset, int length) {
+		int first = Math.min(length, m_ring.length - m_tail);
+		System.arraycopy(src, offset, m_ring, m_tail, first);
+		System.arraycopy(src, offset + first, m_ring, 0, length - first);
+		m_tail = wrap(m_tail + length);
+	}
+
+	private int getInt(int pos) {
+		int rv = 0;
+		for (int i = 0; i < 4; i++) {
+			rv = (rv << 8) | (m_ring[wrap(pos + i)] & 0xFF);
+		}
+		return rv;
+	}
+
+	private long getLong(int pos) {
+		return ((long) getInt(pos) << 32) | (getInt(wrap(pos + 4)) & 0xFFFFFFFFL);
+	}
+
+	private void get(int pos, byte[] dst, int length) {
+		int first = Math.min(length, m_ring.length - pos);
+		System.arraycopy(m_ring, pos, dst, 0, first);
+		System.arraycopy(m_ring, 0, dst, first, length - first);
+	}
+}
@@ -0,0 +1,19 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+/**
+ * Receives every command and response APDU exchanged with a card. Implementations are called on the
+ * thread talking to the card, inside the exchange, so they should copy what they need and return.
+ */
+public interface IAPDUTraceSink {
+	int COMMAND = 0;
+	int RESPONSE = 1;
+
+	/**
+	 * Records one APDU. The buffer belongs to the caller and is reused once this returns.
+	 * @param direction COMMAND or RESPONSE
+	 * @param buffer buffer containing the APDU
+	 * @param offset offset of the APDU in the buffer
+	 * @param length length of the APDU, including the status words of a response
+	 */
+	void record(int direction, byte[] buffer, int offset, int length);
+}
@@ -2,4 +2,25 @@ package gov.gsa.pivconformance.cardlib.utils;
 
 public interface ITransmitCounter {
 	void incrementTransmitCount();
+
+	/**
+	 * Records a round trip to the card, distinguishing short from extended length APDUs
+	 * @param extended true if the command was sent with extended length Lc/Le fields
+	 */
+	default void incrementTransmitCount(boolean extended) {
+		incrementTransmitCount();
+	}
+
+	/**
+	 * Records a command and everything it took to get its complete response
+	 * @param ins the instruction byte of the command
+	 * @param tag the container tag of a GET DATA command, such as 0x5FC102, or 0 for any other command
+	 * @param sw the final status word
+	 * @param getResponseCount the number of GET RESPONSE commands sent for the response
+	 * @param bytesSent the number of bytes sent to the card
+	 * @param bytesReceived the number of bytes received from the card
+	 * @param nanos the time from sending the command to receiving the last of the response
+	 */
+	default void recordExchange(int ins, int tag, int sw, int getResponseCount, int bytesSent, int bytesReceived, long nanos) {
+	}
 }
@@ -0,0 +1,118 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies with microsecond resolution, cheap enough to record every APDU
+ * exchange into without locking or allocating.
+ *
+ * Values are counted in log-linear buckets: below 4 microseconds each value has its own bucket, and
+ * above that every power of two is split into 4 buckets, so percentiles are accurate to within 25%
+ * from microseconds up to hours.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// enough for 2^40 microseconds, about 12 days
+	private static final int BUCKET_COUNT = 40 * SUB_BUCKETS;
+
+	private final AtomicLongArray m_buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder m_count = new LongAdder();
+	private final LongAdder m_totalNanos = new LongAdder();
+	private final AtomicLong m_maxNanos = new AtomicLong();
+
+	/**
+	 * Records a latency
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		m_buckets.incrementAndGet(bucket(nanos / 1000));
+		m_count.increment();
+		m_totalNanos.add(nanos);
+		long max = m_maxNanos.get();
+		while (nanos > max && !m_maxNanos.compareAndSet(max, nanos)) {
+			max = m_maxNanos.get();
+		}
+	}
+
+	static int bucket(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int rv = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return Math.min(rv, BUCKET_COUNT - 1);
+	}
+
+	// the smallest number of microseconds counted in a bucket
+	static long lowerBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	public long getCount() {
+		return m_count.sum();
+	}
+
+	public long getTotalNanos() {
+		return m_totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return m_maxNanos.get();
+	}
+
+	/**
+	 * Gets the mean latency
+	 * @return the mean in nanoseconds, or 0 if nothing was recorded
+	 */
+	public long getMeanNanos() {
+		long count = getCount();
+		return count == 0 ? 0 : getTotalNanos() / count;
+	}
+
+	/**
+	 * Gets a percentile of the recorded latencies
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the upper bound, in nanoseconds, of the bucket the percentile falls in, no more than the
+	 * largest latency recorded, or 0 if nothing was recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		long[] counts = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = m_buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				long upper = i + 1 < BUCKET_COUNT ? lowerBound(i + 1) * 1000 : Long.MAX_VALUE;
+				return Math.min(upper, getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			m_buckets.set(i, 0);
+		}
+		m_count.reset();
+		m_totalNanos.reset();
+		m_maxNanos.set(0);
+	}
+}
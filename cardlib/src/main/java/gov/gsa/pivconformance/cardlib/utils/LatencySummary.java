@@ -0,0 +1,85 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+import javax.management.openmbean.CompositeData;
+
+/**
+ * A snapshot of the APDU exchanges counted under one key of APDUStatistics: how many there were, how
+ * long they took and how many bytes went each way. Times are in microseconds.
+ */
+public final class LatencySummary {
+	private final long m_count;
+	private final long m_meanMicros;
+	private final long m_p50Micros;
+	private final long m_p90Micros;
+	private final long m_p99Micros;
+	private final long m_maxMicros;
+	private final long m_bytesSent;
+	private final long m_bytesReceived;
+
+	public LatencySummary(long count, long meanMicros, long p50Micros, long p90Micros, long p99Micros, long maxMicros,
+			long bytesSent, long bytesReceived) {
+		m_count = count;
+		m_meanMicros = meanMicros;
+		m_p50Micros = p50Micros;
+		m_p90Micros = p90Micros;
+		m_p99Micros = p99Micros;
+		m_maxMicros = maxMicros;
+		m_bytesSent = bytesSent;
+		m_bytesReceived = bytesReceived;
+	}
+
+	static LatencySummary of(LatencyHistogram latency, long bytesSent, long bytesReceived) {
+		return new LatencySummary(latency.getCount(), latency.getMeanNanos() / 1000, latency.getPercentileNanos(50) / 1000,
+				latency.getPercentileNanos(90) / 1000, latency.getPercentileNanos(99) / 1000, latency.getMaxNanos() / 1000,
+				bytesSent, bytesReceived);
+	}
+
+	/**
+	 * Rebuilds a summary from its JMX form, for MXBean proxies
+	 * @param cd the composite data
+	 * @return the summary
+	 */
+	public static LatencySummary from(CompositeData cd) {
+		return new LatencySummary((Long) cd.get("count"), (Long) cd.get("meanMicros"), (Long) cd.get("p50Micros"),
+				(Long) cd.get("p90Micros"), (Long) cd.get("p99Micros"), (Long) cd.get("maxMicros"),
+				(Long) cd.get("bytesSent"), (Long) cd.get("bytesReceived"));
+	}
+
+	public long getCount() {
+		return m_count;
+	}
+
+	public long getMeanMicros() {
+		return m_meanMicros;
+	}
+
+	public long getP50Micros() {
+		return m_p50Micros;
+	}
+
+	public long getP90Micros() {
+		return m_p90Micros;
+	}
+
+	public long getP99Micros() {
+		return m_p99Micros;
+	}
+
+	public long getMaxMicros() {
+		return m_maxMicros;
+	}
+
+	public long getBytesSent() {
+		return m_bytesSent;
+	}
+
+	public long getBytesReceived() {
+		return m_bytesReceived;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d exchanges, mean %d us, p50 %d us, p90 %d us, p99 %d us, max %d us, %d bytes sent, %d bytes received",
+				m_count, m_meanMicros, m_p50Micros, m_p90Micros, m_p99Micros, m_maxMicros, m_bytesSent, m_bytesReceived);
+	}
+}
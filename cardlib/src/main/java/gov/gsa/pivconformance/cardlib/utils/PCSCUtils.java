@@ -1,5 +1,7 @@
 package gov.gsa.pivconformance.cardlib.utils;
 
+import gov.gsa.pivconformance.cardlib.replay.ReplayTerminalProvider;
+import gov.gsa.pivconformance.cardlib.simulator.SimulatorTerminalProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,6 +11,8 @@ import javax.smartcardio.TerminalFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -16,6 +20,20 @@ import java.util.Properties;
 public class PCSCUtils {
     // slf4j will thunk this through to an appropriately configured logging library
     private static final Logger s_logger = LoggerFactory.getLogger(PCSCUtils.class);
+
+    // directory to record the session with the card in each reader to
+    public static final String RECORD_PROPERTY = "gov.gsa.pivconformance.record";
+    // recording, or directory of recordings, to list as virtual readers instead of the real ones
+    public static final String REPLAY_PROPERTY = "gov.gsa.pivconformance.replay";
+    // factor to scale the recorded time of each replayed exchange by, 0 (the default) to answer at once
+    public static final String REPLAY_LATENCY_PROPERTY = "gov.gsa.pivconformance.replayLatency";
+    // container dump directory, with any test keys, to simulate PIV cards from instead of using the real readers
+    public static final String SIMULATE_PROPERTY = "gov.gsa.pivconformance.simulate";
+    // number of readers with a simulated card to list, 1 by default
+    public static final String SIMULATE_READERS_PROPERTY = "gov.gsa.pivconformance.simulateReaders";
+
+    private static TerminalFactory s_terminalFactory = null;
+
     public static void ConfigureUserProperties() {
         String homeDirectoryEnv = System.getenv("HOME");
         if(homeDirectoryEnv == null) {
@@ -41,9 +59,46 @@ public class PCSCUtils {
             return;
         }
     }
+    /**
+     * Gets the factory every reader is listed from: the default one, unless the simulate, record or replay property
+     * is set (for example in ~/.pivconformance-pcsc.properties) or a factory has been set explicitly
+     * @return the terminal factory
+     */
+    public static synchronized TerminalFactory GetTerminalFactory() {
+        if(s_terminalFactory == null) {
+            TerminalFactory tf = TerminalFactory.getDefault();
+            String simulate = System.getProperty(SIMULATE_PROPERTY);
+            String replay = System.getProperty(REPLAY_PROPERTY);
+            String record = System.getProperty(RECORD_PROPERTY);
+            try {
+                if(simulate != null && !simulate.isEmpty()) {
+                    int readers = Integer.parseInt(System.getProperty(SIMULATE_READERS_PROPERTY, "1"));
+                    tf = SimulatorTerminalProvider.simulatorFactory(Paths.get(simulate), readers);
+                } else if(replay != null && !replay.isEmpty()) {
+                    double latencyScale = Double.parseDouble(System.getProperty(REPLAY_LATENCY_PROPERTY, "0"));
+                    tf = ReplayTerminalProvider.replayFactory(Paths.get(replay), latencyScale);
+                } else if(record != null && !record.isEmpty()) {
+                    tf = ReplayTerminalProvider.recordingFactory(tf, Paths.get(record));
+                }
+            } catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+                s_logger.error("Unable to set up simulated cards, or recording or replay of card sessions, using the readers attached to the system", e);
+            }
+            s_terminalFactory = tf;
+        }
+        return s_terminalFactory;
+    }
+
+    /**
+     * Sets the factory every reader is listed from
+     * @param tf the terminal factory, or null to go back to choosing one from the system properties
+     */
+    public static synchronized void SetTerminalFactory(TerminalFactory tf) {
+        s_terminalFactory = tf;
+    }
+
     public static List<String> GetConnectedReaders() {
         ArrayList<String> readerList = new ArrayList<>();
-        TerminalFactory tf = TerminalFactory.getDefault();
+        TerminalFactory tf = GetTerminalFactory();
         List<CardTerminal> terminals = null;
         try {
             s_logger.debug("About to list connected readers");
@@ -68,7 +123,7 @@ public class PCSCUtils {
 
     public static String GetFirstReaderWithCardPresent() {
         new ArrayList<>();
-        TerminalFactory tf = TerminalFactory.getDefault();
+        TerminalFactory tf = GetTerminalFactory();
         List<CardTerminal> terminals = null;
         try {
             s_logger.debug("About to list connected readers");
@@ -96,7 +151,7 @@ public class PCSCUtils {
     }
     
     public static CardTerminal TerminalForReaderName(String name) {
-    	TerminalFactory tf = TerminalFactory.getDefault();
+    	TerminalFactory tf = GetTerminalFactory();
     	List<CardTerminal> terminals = null;
     	try {
 			terminals = tf.terminals().list();
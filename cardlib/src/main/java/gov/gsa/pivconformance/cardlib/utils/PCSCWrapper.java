@@ -1,5 +1,8 @@
 package gov.gsa.pivconformance.cardlib.utils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.smartcardio.Card;
 import javax.smartcardio.CardChannel;
 import javax.smartcardio.CardException;
@@ -19,8 +22,10 @@ public class PCSCWrapper implements ITransmitCounter{
     private static final Logger s_logger = LoggerFactory.getLogger(PCSCWrapper.class);
     private static final PCSCWrapper INSTANCE = new PCSCWrapper();
     
-    private int m_connectCount = 0;
-    private int m_transmitCount = 0;
+    // totals for every card the process talks to
+    private final TransmitCounters m_counters = new TransmitCounters();
+    private final Map<Card, ITransmitCounter> m_cardCounters = new ConcurrentHashMap<Card, ITransmitCounter>();
+    private final Map<CardChannel, ChainingAPDUTransmitter> m_transmitters = new ConcurrentHashMap<CardChannel, ChainingAPDUTransmitter>();
     
     public Card connect(CardTerminal t) throws CardException {
     	s_logger.debug("Connecting to card in {} using the default protocol", t.getName());
@@ -29,7 +34,7 @@ public class PCSCWrapper implements ITransmitCounter{
     
     public Card connect(CardTerminal t, String protocol) throws CardException {
     	s_logger.debug("Connecting to card in {} using protocol: \"{}\"", t.getName(), protocol);
-    	m_connectCount++;
+    	m_counters.incrementConnectCount();
     	Card rv = null;
     	try {
 			rv = t.connect(protocol);
@@ -45,33 +50,115 @@ public class PCSCWrapper implements ITransmitCounter{
     
     public ResponseAPDU transmit(CardChannel channel, CommandAPDU cmd) throws CardException {
     	s_logger.debug("transmit() wrapper called");
-    	m_transmitCount++;
-    	/*
-    	ResponseAPDU rsp = null;
-    	s_apduLogger.info("Sending Command APDU: {}", Hex.encodeHexString(cmd.getBytes()).replaceAll("..(?=.)", "$0 "));
-    	try {
-			rsp = channel.transmit(cmd);
-			s_apduLogger.debug("Received Response APDU: {}", Hex.encodeHexString(rsp.getBytes()).replaceAll("..(?=.)", "$0 "));
-		} catch (CardException e) {
-			s_logger.error("Caught CardException {} transmitting APDU.", e.getMessage(), e);
-			throw e;
-		}
-    	return rsp;
-    	*/
-    	ChainingAPDUTransmitter ct = new ChainingAPDUTransmitter(channel);
-    	RequestAPDUWrapper req = new RequestAPDUWrapper(cmd.getBytes());
+    	ChainingAPDUTransmitter ct = getTransmitter(channel);
+    	ct.getCounter().incrementTransmitCount();
     	ResponseAPDUWrapper rsp = null;
 		try {
-			rsp = ct.transmit(req);
+			rsp = ct.transmit(new RequestAPDUWrapper(cmd.getBytes()));
 		} catch (CardClientException e) {
 			s_logger.error("Failed to receive response APDU", e);
 			return null;
 		}
     	return new ResponseAPDU(rsp.getBytes());
     }
+
+    /**
+     * Sends an encoded command APDU on the given channel and copies the response into a
+     * caller-provided buffer without allocating
+     * @param channel the card channel
+     * @param command buffer containing the encoded command APDU
+     * @param commandLength the length of the encoded command APDU
+     * @param response buffer that will receive the response data followed by SW1 SW2
+     * @return the number of bytes written to the response buffer, or -1 if no valid response was received
+     * @throws CardException if an error occurs
+     */
+    public int transmit(CardChannel channel, byte[] command, int commandLength, byte[] response) throws CardException {
+    	ChainingAPDUTransmitter ct = getTransmitter(channel);
+    	ct.getCounter().incrementTransmitCount();
+    	try {
+    		return ct.transmit(command, commandLength, response);
+    	} catch (CardClientException e) {
+    		s_logger.error("Failed to receive response APDU", e);
+    		return -1;
+    	}
+    }
+
+    /**
+     * Gets the transmitter bound to a card channel, creating it the first time the channel is used
+     * @param channel the card channel
+     * @return the transmitter for the channel
+     */
+    public ChainingAPDUTransmitter getTransmitter(CardChannel channel) {
+    	// look up first: the lambda captures this, so computeIfAbsent would allocate on every exchange
+    	ChainingAPDUTransmitter rv = m_transmitters.get(channel);
+    	if (rv == null) {
+    		rv = m_transmitters.computeIfAbsent(channel, c -> new ChainingAPDUTransmitter(c, counterFor(c)));
+    	}
+    	return rv;
+    }
+
+    // counts against the process totals and, if the card has counters of its own, against those too
+    private ITransmitCounter counterFor(CardChannel channel) {
+    	ITransmitCounter cardCounter = channel.getCard() == null ? null : m_cardCounters.get(channel.getCard());
+    	if (cardCounter == null) {
+    		return m_counters;
+    	}
+    	return new ITransmitCounter() {
+    		@Override
+    		public void incrementTransmitCount() {
+    			m_counters.incrementTransmitCount();
+    			cardCounter.incrementTransmitCount();
+    		}
+
+    		@Override
+    		public void incrementTransmitCount(boolean extended) {
+    			m_counters.incrementTransmitCount(extended);
+    			cardCounter.incrementTransmitCount(extended);
+    		}
+
+    		@Override
+    		public void recordExchange(int ins, int tag, int sw, int getResponseCount, int bytesSent, int bytesReceived, long nanos) {
+    			m_counters.recordExchange(ins, tag, sw, getResponseCount, bytesSent, bytesReceived, nanos);
+    			cardCounter.recordExchange(ins, tag, sw, getResponseCount, bytesSent, bytesReceived, nanos);
+    		}
+    	};
+    }
+
+    /**
+     * Counts the APDUs sent to a card against the given counters as well as the process totals. Should
+     * be called when the card is connected, before anything is sent to it.
+     * @param card the connected card
+     * @param counters the counters for the card
+     */
+    public void setCardCounters(Card card, ITransmitCounter counters) {
+    	if (card != null && counters != null) {
+    		m_cardCounters.put(card, counters);
+    	}
+    }
+
+    /**
+     * Stops counting the APDUs sent to a card separately. Should be called when the card is disconnected.
+     * @param card the card
+     */
+    public void releaseCardCounters(Card card) {
+    	if (card != null) {
+    		m_cardCounters.remove(card);
+    	}
+    }
+
+    /**
+     * Releases the transmitter and buffers bound to a card channel. Should be called when the
+     * card is disconnected.
+     * @param channel the card channel
+     */
+    public void releaseTransmitter(CardChannel channel) {
+    	if (channel != null) {
+    		m_transmitters.remove(channel);
+    	}
+    }
     
     private PCSCWrapper() {
-    	
+    	APDUStatistics.registerMBean(m_counters.getStatistics());
     }
     
     public static PCSCWrapper getInstance() {
@@ -79,21 +166,80 @@ public class PCSCWrapper implements ITransmitCounter{
     }
 
 	public int getTransmitCount() {
-		return m_transmitCount;
+		return m_counters.getTransmitCount();
 	}
 
 	public int getConnectCount() {
-		return m_connectCount;
+		return m_counters.getConnectCount();
+	}
+	
+	/**
+	 * Gets the number of round trips made to the card using short APDUs
+	 * @return the number of short APDU exchanges
+	 */
+	public int getShortRoundTripCount() {
+		return m_counters.getShortRoundTripCount();
+	}
+
+	/**
+	 * Gets the number of round trips made to the card using extended length APDUs
+	 * @return the number of extended length APDU exchanges
+	 */
+	public int getExtendedRoundTripCount() {
+		return m_counters.getExtendedRoundTripCount();
 	}
 	
+	/**
+	 * Gets the latency histograms and byte counts of every exchange with every card, also available
+	 * over JMX as gov.gsa.pivconformance:type=APDUStatistics
+	 * @return the APDU statistics for the process
+	 */
+	public APDUStatistics getStatistics() {
+		return m_counters.getStatistics();
+	}
+
+	/**
+	 * Gets the number of SELECT commands not sent to any card because the PIV Card Application was
+	 * already selected
+	 * @return the number of SELECT round trips avoided
+	 */
+	public int getAvoidedSelectCount() {
+		return m_counters.getAvoidedSelectCount();
+	}
+
+	/**
+	 * Gets the number of VERIFY commands not sent to any card because the PIN was already verified
+	 * @return the number of VERIFY round trips avoided
+	 */
+	public int getAvoidedVerifyCount() {
+		return m_counters.getAvoidedVerifyCount();
+	}
+
+	public void incrementAvoidedSelectCount() {
+		m_counters.incrementAvoidedSelectCount();
+	}
+
+	public void incrementAvoidedVerifyCount() {
+		m_counters.incrementAvoidedVerifyCount();
+	}
+
 	public void resetCounters() {
-		m_connectCount = 0;
-		m_transmitCount = 0;
+		m_counters.reset();
 	}
 	
 	@Override
 	public void incrementTransmitCount() {
-		m_transmitCount++;
+		m_counters.incrementTransmitCount();
+	}
+
+	@Override
+	public void incrementTransmitCount(boolean extended) {
+		m_counters.incrementTransmitCount(extended);
+	}
+
+	@Override
+	public void recordExchange(int ins, int tag, int sw, int getResponseCount, int bytesSent, int bytesReceived, long nanos) {
+		m_counters.recordExchange(ins, tag, sw, getResponseCount, bytesSent, bytesReceived, nanos);
 	}
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package gov.gsa.pivconformance.cardlib.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe connection and round trip counts and APDU statistics, kept for the process as a whole by
+ * PCSCWrapper and for each card by its CardHandle
+ */
+public class TransmitCounters implements ITransmitCounter {
+	private final AtomicInteger m_connectCount = new AtomicInteger();
+	private final AtomicInteger m_transmitCount = new AtomicInteger();
+	private final AtomicInteger m_shortRoundTripCount = new AtomicInteger();
+	private final AtomicInteger m_extendedRoundTripCount = new AtomicInteger();
+	// System.nanoTime() of the first round trip, or 0 if there has been none
+	private final AtomicLong m_firstTransmitNanos = new AtomicLong();
+	private final APDUStatistics m_statistics = new APDUStatistics();
+	// SELECT and VERIFY commands not sent because the card was known to be in the state they set
+	private final AtomicInteger m_avoidedSelectCount = new AtomicInteger();
+	private final AtomicInteger m_avoidedVerifyCount = new AtomicInteger();
+
+	public void incrementConnectCount() {
+		m_connectCount.incrementAndGet();
+	}
+
+	@Override
+	public void incrementTransmitCount() {
+		if (m_transmitCount.getAndIncrement() == 0) {
+			m_firstTransmitNanos.compareAndSet(0, System.nanoTime());
+		}
+	}
+
+	@Override
+	public void incrementTransmitCount(boolean extended) {
+		incrementTransmitCount();
+		if (extended) {
+			m_extendedRoundTripCount.incrementAndGet();
+		} else {
+			m_shortRoundTripCount.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void recordExchange(int ins, int tag, int sw, int getResponseCount, int bytesSent, int bytesReceived, long nanos) {
+		m_statistics.record(ins, tag, sw, getResponseCount, bytesSent, bytesReceived, nanos);
+	}
+
+	/**
+	 * Gets the latency histograms and byte counts of the exchanges counted here
+	 * @return the APDU statistics
+	 */
+	public APDUStatistics getStatistics() {
+		return m_statistics;
+	}
+
+	public int getConnectCount() {
+		return m_connectCount.get();
+	}
+
+	public int getTransmitCount() {
+		return m_transmitCount.get();
+	}
+
+	/**
+	 * Gets the number of round trips made to the card using short APDUs
+	 * @return the number of short APDU exchanges
+	 */
+	public int getShortRoundTripCount() {
+		return m_shortRoundTripCount.get();
+	}
+
+	/**
+	 * Gets the number of round trips made to the card using extended length APDUs
+	 * @return the number of extended length APDU exchanges
+	 */
+	public int getExtendedRoundTripCount() {
+		return m_extendedRoundTripCount.get();
+	}
+
+	public void incrementAvoidedSelectCount() {
+		m_avoidedSelectCount.incrementAndGet();
+	}
+
+	public void incrementAvoidedVerifyCount() {
+		m_avoidedVerifyCount.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of SELECT commands that weren't sent because the PIV Card Application was
+	 * already selected
+	 * @return the number of SELECT round trips avoided
+	 */
+	public int getAvoidedSelectCount() {
+		return m_avoidedSelectCount.get();
+	}
+
+	/**
+	 * Gets the number of VERIFY commands that weren't sent because the PIN was already verified
+	 * @return the number of VERIFY round trips avoided
+	 */
+	public int getAvoidedVerifyCount() {
+		return m_avoidedVerifyCount.get();
+	}
+
+	/**
+	 * Gets the time of the first round trip, for measuring how long a card took to get going
+	 * @return the System.nanoTime() of the first round trip, or 0 if nothing has been sent
+	 */
+	public long getFirstTransmitNanos() {
+		return m_firstTransmitNanos.get();
+	}
+
+	public void reset() {
+		m_connectCount.set(0);
+		m_transmitCount.set(0);
+		m_shortRoundTripCount.set(0);
+		m_extendedRoundTripCount.set(0);
+		m_firstTransmitNanos.set(0);
+		m_avoidedSelectCount.set(0);
+		m_avoidedVerifyCount.set(0);
+		m_statistics.reset();
+	}
+}
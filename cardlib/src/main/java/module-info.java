@@ -1,9 +1,14 @@
 module gov.gsa.pivconformance.cardlib {
 	exports gov.gsa.pivconformance.cardlib.card.client;
+	exports gov.gsa.pivconformance.cardlib.events;
 	exports gov.gsa.pivconformance.cardlib.tools;
 	exports gov.gsa.pivconformance.cardlib.utils;
+	exports gov.gsa.pivconformance.cardlib.replay;
+	exports gov.gsa.pivconformance.cardlib.simulator;
 	exports gov.gsa.pivconformance.cardlib.tlv;
 
+	requires java.management;
+	requires jdk.jfr;
 	requires java.smartcardio;
 	requires java.sql;
 	requires org.apache.commons.cli;
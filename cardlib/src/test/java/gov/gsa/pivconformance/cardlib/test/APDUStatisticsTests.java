@@ -0,0 +1,113 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.ChainingAPDUTransmitter;
+import gov.gsa.pivconformance.cardlib.card.client.RequestAPDUWrapper;
+import gov.gsa.pivconformance.cardlib.utils.APDUStatistics;
+import gov.gsa.pivconformance.cardlib.utils.APDUStatisticsMXBean;
+import gov.gsa.pivconformance.cardlib.utils.LatencyHistogram;
+import gov.gsa.pivconformance.cardlib.utils.LatencySummary;
+import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
+import gov.gsa.pivconformance.cardlib.utils.TransmitCounters;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class APDUStatisticsTests {
+    private static final byte[] GET_CHUID = { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x05, 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x02, 0x00 };
+
+    @Test
+    @DisplayName("Percentiles fall within a bucket of the recorded latencies")
+    void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1000000, h.getMaxNanos());
+        assertEquals(500500, h.getMeanNanos());
+        long p50 = h.getPercentileNanos(50);
+        assertTrue(p50 >= 500000 && p50 <= 500000 * 5 / 4, "p50 " + p50);
+        long p99 = h.getPercentileNanos(99);
+        assertTrue(p99 >= 990000 && p99 <= 1000000, "p99 " + p99);
+        assertEquals(1000000, h.getPercentileNanos(100));
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getPercentileNanos(50));
+    }
+
+    private static Stream<Arguments> dataTagProvider() {
+        return Stream.of(
+                Arguments.of(GET_CHUID, 0x5FC102),
+                Arguments.of(new byte[] { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x00, 0x00, 0x05, 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x05, 0x00, 0x00 }, 0x5FC105),
+                Arguments.of(new byte[] { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x03, 0x5C, 0x01, 0x7E, 0x00 }, 0x7E),
+                Arguments.of(new byte[] { 0x00, (byte) 0xA4, 0x04, 0x00, 0x05, (byte) 0xA0, 0x00, 0x00, 0x03, 0x08 }, 0));
+    }
+
+    @ParameterizedTest(name = "{index} => tag = {1}")
+    @MethodSource("dataTagProvider")
+    @DisplayName("Container tag is found in short and extended GET DATA commands")
+    void testGetDataTag(byte[] command, int tag) {
+        assertEquals(tag, APDUStatistics.getDataTag(command, command.length));
+    }
+
+    @Test
+    @DisplayName("Exchanges are broken down by instruction, container, status word and GET RESPONSE count")
+    void testTransmitterRecordsExchanges() throws Exception {
+        TransmitCounters counters = new TransmitCounters();
+        byte[] container = new byte[1000];
+        ChainingAPDUTransmitter ct = new ChainingAPDUTransmitter(new APDUTransmitterAllocationTests.SegmentingCardChannel(container), counters);
+        ct.transmit(new RequestAPDUWrapper(GET_CHUID));
+        ct.transmit(new RequestAPDUWrapper(GET_CHUID));
+
+        APDUStatistics statistics = counters.getStatistics();
+        assertEquals(2, statistics.getExchangeCount());
+        // 1000 bytes in 256 byte segments takes 3 GET RESPONSE commands of 5 bytes each
+        assertEquals(2 * (GET_CHUID.length + 3 * 5), statistics.getBytesSent());
+        assertEquals(2 * (1000 + 4 * 2), statistics.getBytesReceived());
+        assertEquals(2, statistics.getInstructionLatency(0xCB).getCount());
+        assertEquals(2, statistics.getContainerLatency(0x5FC102).getCount());
+        assertNull(statistics.getInstructionLatency(0xC0));
+
+        assertEquals(2, statistics.getByGetResponseCount().get("3").getCount());
+        assertEquals(2, statistics.getByStatusWord().get("9000").getCount());
+        assertEquals(2, statistics.getByInstruction().get("CB GET DATA").getCount());
+        assertEquals(1, statistics.getByContainer().size());
+
+        counters.reset();
+        assertEquals(0, statistics.getExchangeCount());
+    }
+
+    @Test
+    @DisplayName("Statistics are readable through an MXBean proxy")
+    void testMBean() throws Exception {
+        APDUStatistics statistics = new APDUStatistics();
+        statistics.record(0xCB, 0x5FC102, 0x9000, 0, 11, 100, 2000000);
+        APDUStatistics.registerMBean(statistics);
+        try {
+            APDUStatisticsMXBean proxy = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                    new ObjectName(APDUStatistics.MBEAN_NAME), APDUStatisticsMXBean.class);
+            LatencySummary total = proxy.getTotal();
+            assertEquals(1, total.getCount());
+            assertEquals(2000, total.getMaxMicros());
+            assertEquals(100, total.getBytesReceived());
+            Map<String, LatencySummary> byContainer = proxy.getByContainer();
+            assertEquals(1, byContainer.size());
+            assertNotNull(byContainer.get("Card Holder Unique Identifier"));
+        } finally {
+            APDUStatistics.registerMBean(PCSCWrapper.getInstance().getStatistics());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.utils.APDUTraceFile;
+import gov.gsa.pivconformance.cardlib.utils.APDUTraceRecorder;
+import gov.gsa.pivconformance.cardlib.utils.IAPDUTraceSink;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class APDUTraceRecorderTests {
+    private static final byte[] VERIFY = { 0x00, 0x20, 0x00, (byte) 0x80, 0x08, 0x31, 0x32, 0x33, 0x34, 0x35, 0x36, (byte) 0xFF, (byte) 0xFF };
+    private static final byte[] GET_CHUID = { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x05, 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x02, 0x00 };
+
+    private static List<byte[]> records(APDUTraceRecorder recorder, List<Integer> sws) throws IOException {
+        List<byte[]> rv = new ArrayList<>();
+        recorder.forEach((nanos, direction, sw, data, offset, length) -> {
+            rv.add(Arrays.copyOfRange(data, offset, offset + length));
+            if (sws != null) sws.add(sw);
+        });
+        return rv;
+    }
+
+    @Test
+    @DisplayName("PIN in a VERIFY command is masked")
+    void testPinMasked() throws IOException {
+        APDUTraceRecorder recorder = new APDUTraceRecorder(256);
+        recorder.record(IAPDUTraceSink.COMMAND, VERIFY, 0, VERIFY.length);
+        byte[] recorded = records(recorder, null).get(0);
+        assertArrayEquals(Arrays.copyOf(VERIFY, 5), Arrays.copyOf(recorded, 5));
+        for (int i = 5; i < recorded.length; i++) {
+            assertEquals((byte) 0xAA, recorded[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Oldest records are dropped when the ring buffer wraps")
+    void testWrap() throws IOException {
+        // room for three GET DATA records of 15 + 11 bytes, and part of a fourth
+        APDUTraceRecorder recorder = new APDUTraceRecorder(100);
+        byte[] response = { 0x53, 0x01, 0x00, (byte) 0x90, 0x00 };
+        for (int i = 0; i < 10; i++) {
+            byte[] command = GET_CHUID.clone();
+            command[command.length - 1] = (byte) i;
+            recorder.record(IAPDUTraceSink.COMMAND, command, 0, command.length);
+            response[2] = (byte) i;
+            recorder.record(IAPDUTraceSink.RESPONSE, response, 0, response.length);
+        }
+        List<Integer> sws = new ArrayList<>();
+        List<byte[]> recorded = records(recorder, sws);
+        assertTrue(recorder.getDroppedCount() > 0);
+        assertEquals(20, recorder.getDroppedCount() + recorded.size());
+        // the newest response is the last record
+        byte[] last = recorded.get(recorded.size() - 1);
+        assertEquals(9, last[2]);
+        assertEquals(0x9000, (int) sws.get(sws.size() - 1));
+    }
+
+    @Test
+    @DisplayName("Trace written to a file reads back the same")
+    void testFileRoundTrip() throws IOException {
+        APDUTraceRecorder recorder = new APDUTraceRecorder();
+        byte[] response = new byte[3002];
+        Arrays.fill(response, (byte) 0x5A);
+        response[3000] = (byte) 0x90;
+        recorder.record(IAPDUTraceSink.COMMAND, GET_CHUID, 0, GET_CHUID.length);
+        recorder.record(IAPDUTraceSink.RESPONSE, response, 0, response.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+
+        List<byte[]> expected = records(recorder, null);
+        List<byte[]> read = new ArrayList<>();
+        APDUTraceFile.read(new ByteArrayInputStream(out.toByteArray()),
+                (nanos, direction, sw, data, offset, length) -> read.add(Arrays.copyOfRange(data, offset, offset + length)));
+        assertEquals(expected.size(), read.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), read.get(i));
+        }
+        assertArrayEquals(GET_CHUID, read.get(0));
+    }
+
+    @Test
+    @DisplayName("Hex formatting matches the apdu logger")
+    void testFormat() {
+        StringBuilder sb = APDUTraceFile.appendRecord(new StringBuilder(), IAPDUTraceSink.COMMAND, GET_CHUID, 0, GET_CHUID.length);
+        assertEquals("Sending Command APDU 00 cb 3f ff 05 5c 03 5f c1 02 00", sb.toString());
+    }
+
+    @Test
+    @DisplayName("Files that are not traces are rejected")
+    void testNotATrace() {
+        assertThrows(IOException.class, () -> APDUTraceFile.read(new ByteArrayInputStream(new byte[16]),
+                (nanos, direction, sw, data, offset, length) -> { }));
+    }
+}
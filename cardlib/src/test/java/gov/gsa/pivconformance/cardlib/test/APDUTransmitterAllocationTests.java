@@ -0,0 +1,213 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.ChainingAPDUTransmitter;
+import gov.gsa.pivconformance.cardlib.card.client.RequestAPDUWrapper;
+import gov.gsa.pivconformance.cardlib.card.client.ResponseAPDUWrapper;
+import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class APDUTransmitterAllocationTests {
+    private static final byte[] GET_CHUID = { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x05, 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x02, 0x00 };
+    private static final int CONTAINER_LENGTH = 4000;
+
+    /**
+     * Card channel that returns a fixed container in 256 byte GET RESPONSE segments, or in one
+     * response to an extended length command, without allocating
+     */
+    static class SegmentingCardChannel extends CardChannel {
+        private final byte[] m_container;
+        private int m_offset = 0;
+
+        SegmentingCardChannel(byte[] container) {
+            m_container = container;
+        }
+
+        @Override
+        public int transmit(ByteBuffer command, ByteBuffer response) {
+            int ins = command.get(command.position() + 1) & 0xFF;
+            boolean extended = RequestAPDUWrapper.isExtendedApdu(command.array(), command.remaining());
+            command.position(command.limit());
+            if (ins != 0xC0) {
+                m_offset = 0;
+            }
+            int start = response.position();
+            int n = Math.min(extended ? RequestAPDUWrapper.LE_MAX_EXTENDED : 256, m_container.length - m_offset);
+            response.put(m_container, m_offset, n);
+            m_offset += n;
+            int remaining = m_container.length - m_offset;
+            if (remaining > 0) {
+                response.put((byte) 0x61).put((byte) Math.min(remaining, 0xFF));
+            } else {
+                response.put((byte) 0x90).put((byte) 0x00);
+            }
+            return response.position() - start;
+        }
+
+        @Override
+        public ResponseAPDU transmit(CommandAPDU command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Card getCard() {
+            return null;
+        }
+
+        @Override
+        public int getChannelNumber() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Card channel that answers the first command with 6C XX and records the command sent again
+     */
+    static class WrongLengthCardChannel extends CardChannel {
+        private boolean m_answered = false;
+        private byte[] m_resent = null;
+
+        @Override
+        public int transmit(ByteBuffer command, ByteBuffer response) {
+            byte[] sent = new byte[command.remaining()];
+            command.get(sent);
+            int start = response.position();
+            if (!m_answered) {
+                m_answered = true;
+                response.put((byte) 0x6C).put((byte) 0x10);
+            } else {
+                m_resent = sent;
+                response.put(new byte[0x10]).put((byte) 0x90).put((byte) 0x00);
+            }
+            return response.position() - start;
+        }
+
+        byte[] resent(byte[] command) throws Exception {
+            m_answered = false;
+            m_resent = null;
+            new ChainingAPDUTransmitter(this).transmit(new RequestAPDUWrapper(command));
+            return m_resent;
+        }
+
+        @Override
+        public ResponseAPDU transmit(CommandAPDU command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Card getCard() {
+            return null;
+        }
+
+        @Override
+        public int getChannelNumber() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static byte[] container() {
+        byte[] container = new byte[CONTAINER_LENGTH];
+        for (int i = 0; i < container.length; i++) {
+            container[i] = (byte) i;
+        }
+        return container;
+    }
+
+    @Test
+    @DisplayName("GET RESPONSE segments are reassembled in place")
+    void testReassembly() throws Exception {
+        byte[] container = container();
+        ChainingAPDUTransmitter ct = new ChainingAPDUTransmitter(new SegmentingCardChannel(container));
+        ResponseAPDUWrapper rsp = ct.transmit(new RequestAPDUWrapper(GET_CHUID));
+        assertTrue(rsp.isOk());
+        assertArrayEquals(container, rsp.getData());
+        assertEquals(CONTAINER_LENGTH + 2, ct.getLargestResponse());
+        assertEquals(65536 + 2, ct.getResponseCapacity());
+    }
+
+    @Test
+    @DisplayName("6C XX replaces the LE field of a command that has one and adds it to one that does not")
+    void testWrongLength() throws Exception {
+        WrongLengthCardChannel channel = new WrongLengthCardChannel();
+        // case 1
+        assertArrayEquals(new byte[] { 0x00, 0x20, 0x00, (byte) 0x80, 0x10 },
+                channel.resent(new byte[] { 0x00, 0x20, 0x00, (byte) 0x80 }));
+        // case 2 short
+        assertArrayEquals(new byte[] { 0x00, (byte) 0xCA, 0x01, 0x00, 0x10 },
+                channel.resent(new byte[] { 0x00, (byte) 0xCA, 0x01, 0x00, 0x00 }));
+        // case 3 short
+        assertArrayEquals(new byte[] { 0x00, (byte) 0xDA, 0x01, 0x02, 0x02, 0x33, 0x44, 0x10 },
+                channel.resent(new byte[] { 0x00, (byte) 0xDA, 0x01, 0x02, 0x02, 0x33, 0x44 }));
+        // case 4 short
+        byte[] fixed = Arrays.copyOf(GET_CHUID, GET_CHUID.length);
+        fixed[fixed.length - 1] = 0x10;
+        assertArrayEquals(fixed, channel.resent(GET_CHUID));
+        // case 3 extended
+        assertArrayEquals(new byte[] { 0x00, (byte) 0xDA, 0x01, 0x02, 0x00, 0x00, 0x01, 0x33, 0x00, 0x10 },
+                channel.resent(new byte[] { 0x00, (byte) 0xDA, 0x01, 0x02, 0x00, 0x00, 0x01, 0x33 }));
+        // case 4 extended
+        assertArrayEquals(new byte[] { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x00, 0x00, 0x01, 0x5C, 0x00, 0x10 },
+                channel.resent(new byte[] { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x00, 0x00, 0x01, 0x5C, 0x00, 0x00 }));
+    }
+
+    @Test
+    @DisplayName("Transmitter is reused for a channel")
+    void testTransmitterBinding() {
+        PCSCWrapper pcsc = PCSCWrapper.getInstance();
+        CardChannel channel = new SegmentingCardChannel(container());
+        ChainingAPDUTransmitter ct = pcsc.getTransmitter(channel);
+        assertSame(ct, pcsc.getTransmitter(channel));
+        pcsc.releaseTransmitter(channel);
+    }
+
+    @Test
+    @DisplayName("Steady-state transmit into a caller-provided buffer does not allocate")
+    void testSteadyStateAllocation(TestReporter reporter) throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        byte[] container = container();
+        CardChannel channel = new SegmentingCardChannel(container);
+        PCSCWrapper pcsc = PCSCWrapper.getInstance();
+        byte[] response = new byte[8192];
+
+        for (int i = 0; i < 20000; i++) {
+            pcsc.transmit(channel, GET_CHUID, GET_CHUID.length, response);
+        }
+        int iterations = 20000;
+        long before = threadBean.getThreadAllocatedBytes(tid);
+        int received = 0;
+        for (int i = 0; i < iterations; i++) {
+            received = pcsc.transmit(channel, GET_CHUID, GET_CHUID.length, response);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(tid) - before;
+        pcsc.releaseTransmitter(channel);
+
+        assertEquals(CONTAINER_LENGTH + 2, received);
+        assertArrayEquals(container, Arrays.copyOf(response, CONTAINER_LENGTH));
+        double perExchange = (double) allocated / iterations;
+        reporter.publishEntry("bytes allocated per exchange", String.format("%.2f", perExchange));
+        assertTrue(perExchange < 16.0, "steady-state allocation of " + perExchange + " bytes per exchange");
+    }
+}
@@ -0,0 +1,232 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.tlv.BerTag;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlv;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvParser;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvReader;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvReader.Event;
+import gov.gsa.pivconformance.cardlib.tlv.BerTlvs;
+import gov.gsa.pivconformance.cardlib.tlv.IBerTlvLogger;
+import gov.gsa.pivconformance.cardlib.tlv.MalformedTlvException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BerTlvParserTests {
+    private static final int IMAGE_LENGTH = 40000;
+    private static final IBerTlvLogger QUIET = new IBerTlvLogger() {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(String aFormat, Object... args) {
+        }
+    };
+
+    // a facial image container: 53 { BC { image } FE { } }
+    private static byte[] facialImage() {
+        byte[] rv = new byte[4 + 4 + IMAGE_LENGTH + 2];
+        int i = 0;
+        rv[i++] = 0x53;
+        rv[i++] = (byte) 0x82;
+        rv[i++] = (byte) ((rv.length - 4) >> 8);
+        rv[i++] = (byte) (rv.length - 4);
+        rv[i++] = (byte) 0xBC;
+        rv[i++] = (byte) 0x82;
+        rv[i++] = (byte) (IMAGE_LENGTH >> 8);
+        rv[i++] = (byte) IMAGE_LENGTH;
+        for (int j = 0; j < IMAGE_LENGTH; j++) {
+            rv[i++] = (byte) j;
+        }
+        rv[i++] = (byte) 0xFE;
+        rv[i] = 0x00;
+        return rv;
+    }
+
+    private static BerTlvs parseContents(BerTlvParser parser, byte[] container) {
+        BerTlv outer = parser.parse(container).getList().get(0);
+        return parser.parseValue(outer);
+    }
+
+    @Test
+    @DisplayName("Views parse to the same TLVs as copies")
+    void testViewsMatchCopies() {
+        byte[] container = facialImage();
+        BerTlvs copies = parseContents(new BerTlvParser(), container);
+        BerTlvs views = parseContents(new BerTlvParser(QUIET, true), container);
+        assertEquals(copies, views);
+        assertEquals(copies.hashCode(), views.hashCode());
+
+        BerTlv image = views.find(new BerTag(0xBC));
+        assertEquals(IMAGE_LENGTH, image.getValueLength());
+        byte[] value = image.getBytesValue();
+        assertArrayEquals(Arrays.copyOfRange(container, 8, 8 + IMAGE_LENGTH), value);
+        assertNotSame(container, value);
+        // materialized once
+        assertTrue(value == image.getBytesValue());
+        assertEquals(0, views.find(new BerTag(0xFE)).getValueLength());
+    }
+
+    @Test
+    @DisplayName("Value buffers are read-only views of the container")
+    void testValueBuffer() {
+        byte[] container = facialImage();
+        BerTlv image = parseContents(new BerTlvParser(QUIET, true), container).find(new BerTag(0xBC));
+        ByteBuffer value = image.getValueBuffer();
+        assertEquals(0, value.position());
+        assertEquals(IMAGE_LENGTH, value.remaining());
+        assertEquals(container[8], value.get(0));
+        assertThrows(ReadOnlyBufferException.class, () -> value.put(0, (byte) 0));
+    }
+
+    @Test
+    @DisplayName("A value running past the end of the buffer is rejected")
+    void testTruncated() {
+        byte[] container = Arrays.copyOf(facialImage(), 100);
+        assertThrows(IllegalStateException.class, () -> new BerTlvParser(QUIET, true).parse(container));
+    }
+
+    private static long allocatedPerParse(BerTlvParser parser, byte[] container, int iterations) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(tid);
+        int found = 0;
+        for (int i = 0; i < iterations; i++) {
+            found += parseContents(parser, container).getList().size();
+        }
+        assertEquals(2 * iterations, found);
+        return (threadBean.getThreadAllocatedBytes(tid) - before) / iterations;
+    }
+
+    @Test
+    @DisplayName("Parsing views does not copy the container")
+    void testAllocation(TestReporter reporter) {
+        byte[] container = facialImage();
+        BerTlvParser copying = new BerTlvParser();
+        BerTlvParser viewing = new BerTlvParser(QUIET, true);
+        allocatedPerParse(copying, container, 2000);
+        allocatedPerParse(viewing, container, 2000);
+        long copies = allocatedPerParse(copying, container, 2000);
+        long views = allocatedPerParse(viewing, container, 2000);
+        reporter.publishEntry("bytes allocated per parse, copying", Long.toString(copies));
+        reporter.publishEntry("bytes allocated per parse, views", Long.toString(views));
+        // copying takes the container once for 53 and once more for BC
+        assertTrue(copies > 2 * IMAGE_LENGTH, "copying parse allocated " + copies);
+        assertTrue(views < 1024, "view parse allocated " + views);
+    }
+
+    // a stream that hands out at most 7 bytes a read, as a stream fed from GET RESPONSE segments might
+    private static InputStream segmented(byte[] data) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+
+            @Override
+            public synchronized long skip(long n) {
+                return super.skip(Math.min(n, 7));
+            }
+        };
+    }
+
+    private static List<String> events(BerTlvReader reader) throws IOException {
+        List<String> rv = new ArrayList<>();
+        while (reader.hasNext()) {
+            Event e = reader.next();
+            if (e == Event.END) {
+                rv.add("END");
+            } else {
+                rv.add(String.format("%s %X @%d+%d", e, reader.getTag(), reader.getOffset(), reader.getLength()));
+            }
+        }
+        return rv;
+    }
+
+    @Test
+    @DisplayName("The pull parser reports the same events from a buffer and from a stream")
+    void testReaderEvents() throws Exception {
+        // 5F C1 05 { 7F 61 { 02 01 01 } 03 00 } 99 82 00 02 AA BB
+        byte[] tlvs = { 0x5F, (byte) 0xC1, 0x05, 0x08, 0x7F, 0x61, 0x03, 0x02, 0x01, 0x01, 0x03, 0x00,
+                (byte) 0x99, (byte) 0x82, 0x00, 0x02, (byte) 0xAA, (byte) 0xBB };
+        List<String> expected = Arrays.asList("PRIMITIVE 5FC105 @0+8", "PRIMITIVE 99 @12+2");
+        assertEquals(expected, events(new BerTlvReader(tlvs)));
+        assertEquals(expected, events(new BerTlvReader(segmented(tlvs))));
+
+        BerTlvReader reader = new BerTlvReader(ByteBuffer.wrap(tlvs, 4, 8).slice());
+        assertEquals(Arrays.asList("START_CONSTRUCTED 7F61 @0+3", "PRIMITIVE 2 @3+1", "END", "PRIMITIVE 3 @6+0"), events(reader));
+
+        reader = new BerTlvReader(segmented(tlvs));
+        reader.next();
+        assertArrayEquals(Arrays.copyOfRange(tlvs, 4, 12), reader.readValue());
+        assertEquals(Event.PRIMITIVE, reader.next());
+        assertEquals(new BerTag(0x99), reader.getBerTag());
+        assertEquals(16, reader.getValueOffset());
+        assertArrayEquals(new byte[] { (byte) 0xAA, (byte) 0xBB }, reader.readValue());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    @DisplayName("A constructed value can be taken whole")
+    void testReaderTakesConstructed() throws Exception {
+        // 70 { 30 01 } 71 { 00 }: the certificate tag is constructed, the certinfo byte is not a TLV
+        byte[] tlvs = { 0x70, 0x02, 0x30, 0x00, 0x71, 0x01, 0x00 };
+        BerTlvReader reader = new BerTlvReader(segmented(tlvs));
+        assertEquals(Event.START_CONSTRUCTED, reader.next());
+        assertArrayEquals(new byte[] { 0x30, 0x00 }, reader.readValue());
+        assertEquals(Event.END, reader.next());
+        assertEquals(Event.START_CONSTRUCTED, reader.next());
+        reader.skipValue();
+        assertEquals(Event.END, reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    @DisplayName("The pull parser has no limit on the number of TLVs")
+    void testReaderManyTlvs() throws Exception {
+        byte[] tlvs = new byte[1000 * 3];
+        for (int i = 0; i < tlvs.length; i += 3) {
+            tlvs[i] = 0x01;
+            tlvs[i + 1] = 0x01;
+            tlvs[i + 2] = (byte) i;
+        }
+        assertEquals(1000, events(new BerTlvReader(tlvs)).size());
+        assertEquals(1000, new BerTlvParser().parse(tlvs).getList().size());
+    }
+
+    @Test
+    @DisplayName("Malformed input is reported with the offset of the TLV")
+    void testReaderMalformed() {
+        // the inner TLV claims 5 bytes of a 3 byte value
+        byte[] overrun = { 0x01, 0x00, 0x7F, 0x61, 0x03, 0x02, 0x05, 0x01 };
+        MalformedTlvException e = assertThrows(MalformedTlvException.class, () -> events(new BerTlvReader(overrun)));
+        assertEquals(5, e.getOffset());
+        e = assertThrows(MalformedTlvException.class, () -> events(new BerTlvReader(segmented(overrun))));
+        assertEquals(5, e.getOffset());
+
+        byte[] truncated = { 0x01, 0x00, 0x02, 0x04, 0x00 };
+        e = assertThrows(MalformedTlvException.class, () -> events(new BerTlvReader(truncated)));
+        assertEquals(2, e.getOffset());
+        e = assertThrows(MalformedTlvException.class, () -> events(new BerTlvReader(segmented(truncated))));
+        assertEquals(2, e.getOffset());
+    }
+}
@@ -0,0 +1,96 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.ContainerCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ContainerCacheTests {
+    private static final String CARD_A = "3bf81300008131fe45/d4e739da/3031";
+    private static final String CARD_B = "3bf81300008131fe45/d4e739db/3032";
+
+    @Test
+    @DisplayName("Containers are kept apart by card identity")
+    void testCardIsolation() {
+        ContainerCache cache = new ContainerCache(1024);
+        cache.put(CARD_A, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, new byte[] { 1 });
+        assertNull(cache.get(CARD_B, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        assertArrayEquals(new byte[] { 1 }, cache.get(CARD_A, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.put(CARD_B, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, new byte[] { 2, 2 });
+        cache.invalidate(CARD_A);
+        assertNull(cache.get(CARD_A, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        assertEquals(2, cache.getByteCount());
+    }
+
+    @Test
+    @DisplayName("Least recently used containers are evicted to stay within the byte limit")
+    void testEviction() {
+        ContainerCache cache = new ContainerCache(300);
+        cache.put(CARD_A, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, new byte[100]);
+        cache.put(CARD_A, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, new byte[100]);
+        cache.put(CARD_A, APDUConstants.DISCOVERY_OBJECT_OID, new byte[100]);
+        // touch the CCC so that the CHUID is the eldest
+        assertNotNull(cache.get(CARD_A, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+        cache.put(CARD_A, APDUConstants.SECURITY_OBJECT_OID, new byte[50]);
+
+        assertNull(cache.get(CARD_A, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        assertNotNull(cache.get(CARD_A, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+        assertEquals(250, cache.getByteCount());
+        assertEquals(1, cache.getEvictionCount());
+
+        // larger than the whole cache, so not kept
+        cache.put(CARD_A, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, new byte[301]);
+        assertNull(cache.get(CARD_A, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID));
+
+        cache.setMaxBytes(100);
+        assertEquals(100, cache.getByteCount());
+        assertNotNull(cache.get(CARD_A, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    @DisplayName("Concurrent readers and writers keep the byte count consistent")
+    void testConcurrentAccess() throws Exception {
+        ContainerCache cache = new ContainerCache(64 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String card = "card" + t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String oid = APDUConstants.AllContainers().get(i % 10);
+                    if (cache.get(card, oid) == null) {
+                        cache.put(card, oid, new byte[1000 + i % 7]);
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        executor.shutdown();
+        assertEquals(8000, cache.getHitCount() + cache.getMissCount());
+        long expected = 0;
+        for (int t = 0; t < 4; t++) {
+            for (String oid : APDUConstants.AllContainers()) {
+                byte[] b = cache.get("card" + t, oid);
+                expected += b == null ? 0 : b.length;
+            }
+        }
+        assertEquals(expected, cache.getByteCount());
+    }
+}
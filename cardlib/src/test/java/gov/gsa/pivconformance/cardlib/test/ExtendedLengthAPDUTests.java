@@ -0,0 +1,87 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUUtils;
+import gov.gsa.pivconformance.cardlib.card.client.ChainingAPDUTransmitter;
+import gov.gsa.pivconformance.cardlib.card.client.RequestAPDUWrapper;
+import gov.gsa.pivconformance.cardlib.card.client.ResponseAPDUWrapper;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+import gov.gsa.pivconformance.cardlib.utils.ITransmitCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExtendedLengthAPDUTests {
+    private static final byte[] CHUID_TAG_LIST = { 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x02 };
+
+    static class CountingTransmitCounter implements ITransmitCounter {
+        int shortCount = 0;
+        int extendedCount = 0;
+
+        @Override
+        public void incrementTransmitCount() {
+        }
+
+        @Override
+        public void incrementTransmitCount(boolean extended) {
+            if (extended) extendedCount++; else shortCount++;
+        }
+    }
+
+    @Test
+    @DisplayName("GET DATA is encoded with short and extended length fields")
+    void testGetDataEncoding() throws Exception {
+        assertEquals("00cb3fff055c035fc10200", HexUtil.toLowerHexString(APDUUtils.PIVGetDataAPDU(CHUID_TAG_LIST, false)));
+        byte[] extended = APDUUtils.PIVGetDataAPDU(CHUID_TAG_LIST, true);
+        assertEquals("00cb3fff0000055c035fc1020000", HexUtil.toLowerHexString(extended));
+        assertTrue(RequestAPDUWrapper.isExtendedApdu(extended, extended.length));
+        byte[] shortApdu = APDUUtils.PIVGetDataAPDU(CHUID_TAG_LIST);
+        assertFalse(RequestAPDUWrapper.isExtendedApdu(shortApdu, shortApdu.length));
+    }
+
+    @Test
+    @DisplayName("Extended length case 2 and LE above 255")
+    void testExtendedLe() {
+        RequestAPDUWrapper r = new RequestAPDUWrapper(0x00, 0xC0, 0x00, 0x00, 0x1000);
+        assertEquals("00c00000001000", HexUtil.toLowerHexString(r.getBytes()));
+        assertEquals(0x1000 + 2, r.getReceiveLength());
+        r = new RequestAPDUWrapper(0x00, 0xC0, 0x00, 0x00, RequestAPDUWrapper.LE_MAX);
+        r.setExtendedApdu(true);
+        assertEquals("00c00000000000", HexUtil.toLowerHexString(r.getBytes()));
+        assertEquals(RequestAPDUWrapper.LE_MAX_EXTENDED + 2, r.getReceiveLength());
+    }
+
+    @Test
+    @DisplayName("Extended length capability is read from the ATR historical bytes")
+    void testHistoricalBytes() throws Exception {
+        // category 80, card capabilities 73 with extended Lc/Le set in the third byte
+        assertTrue(APDUUtils.HistoricalBytesIndicateExtendedLength(HexUtil.parseHex("8073c82140")));
+        assertFalse(APDUUtils.HistoricalBytesIndicateExtendedLength(HexUtil.parseHex("8073c82100")));
+        // category 00 with a status indicator at the end
+        assertTrue(APDUUtils.HistoricalBytesIndicateExtendedLength(HexUtil.parseHex("0031fe73c821c0059000")));
+        assertFalse(APDUUtils.HistoricalBytesIndicateExtendedLength(HexUtil.parseHex("0031fe059000")));
+        assertFalse(APDUUtils.HistoricalBytesIndicateExtendedLength(new byte[0]));
+        assertFalse(APDUUtils.HistoricalBytesIndicateExtendedLength(null));
+    }
+
+    @Test
+    @DisplayName("Round trips are counted by APDU length mode")
+    void testRoundTripCounts() throws Exception {
+        byte[] container = new byte[4000];
+        CountingTransmitCounter counter = new CountingTransmitCounter();
+        ChainingAPDUTransmitter ct = new ChainingAPDUTransmitter(new APDUTransmitterAllocationTests.SegmentingCardChannel(container), counter);
+
+        ResponseAPDUWrapper rsp = ct.transmit(new RequestAPDUWrapper(APDUUtils.PIVGetDataAPDU(CHUID_TAG_LIST, false)));
+        assertTrue(rsp.isOk());
+        assertEquals(16, counter.shortCount);
+        assertEquals(0, counter.extendedCount);
+
+        rsp = ct.transmit(new RequestAPDUWrapper(APDUUtils.PIVGetDataAPDU(CHUID_TAG_LIST, true)));
+        assertArrayEquals(container, rsp.getData());
+        assertEquals(16, counter.shortCount);
+        assertEquals(1, counter.extendedCount);
+    }
+}
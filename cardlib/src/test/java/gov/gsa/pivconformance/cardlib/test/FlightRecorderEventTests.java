@@ -0,0 +1,73 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.CardHolderUniqueIdentifier;
+import gov.gsa.pivconformance.cardlib.card.client.ChainingAPDUTransmitter;
+import gov.gsa.pivconformance.cardlib.card.client.RequestAPDUWrapper;
+import gov.gsa.pivconformance.cardlib.events.ConformanceEvent;
+import gov.gsa.pivconformance.cardlib.utils.TransmitCounters;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlightRecorderEventTests {
+    private static final byte[] GET_CHUID = { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x05, 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x02, 0x00 };
+
+    @Test
+    @DisplayName("Card I/O and decode events carry the OID and the current test")
+    void testEventsRecorded() throws Exception {
+        Path file = Files.createTempFile("piv-conformance", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("gov.gsa.pivconformance.APDU");
+            recording.enable("gov.gsa.pivconformance.Decode");
+            recording.start();
+            assertTrue(ConformanceEvent.isRecording());
+
+            ConformanceEvent.setCurrentTest("FlightRecorderEventTests:1");
+            try {
+                ChainingAPDUTransmitter ct = new ChainingAPDUTransmitter(
+                        new APDUTransmitterAllocationTests.SegmentingCardChannel(new byte[1000]), new TransmitCounters());
+                ct.transmit(new RequestAPDUWrapper(GET_CHUID));
+
+                CardHolderUniqueIdentifier chuid = new CardHolderUniqueIdentifier();
+                chuid.setOID(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+                assertFalse(chuid.decode());
+            } finally {
+                ConformanceEvent.setCurrentTest(null);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+        assertFalse(ConformanceEvent.isRecording());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        List<RecordedEvent> apdus = events.stream()
+                .filter(e -> e.getEventType().getName().equals("gov.gsa.pivconformance.APDU")).collect(Collectors.toList());
+        // the GET DATA and the 3 GET RESPONSE commands it takes to read 1000 bytes
+        assertEquals(4, apdus.size());
+        for (RecordedEvent e : apdus) {
+            assertEquals(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, e.getString("oid"));
+            assertEquals("FlightRecorderEventTests:1", e.getString("testId"));
+        }
+        assertEquals(0xCB, apdus.get(0).getInt("ins"));
+        assertEquals(0x9000, apdus.get(3).getInt("sw"));
+
+        List<RecordedEvent> decodes = events.stream()
+                .filter(e -> e.getEventType().getName().equals("gov.gsa.pivconformance.Decode")).collect(Collectors.toList());
+        assertEquals(1, decodes.size());
+        assertEquals(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, decodes.get(0).getString("oid"));
+        assertFalse(decodes.get(0).getBoolean("decoded"));
+    }
+}
@@ -0,0 +1,134 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.CardHolderUniqueIdentifier;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HexUtilTests {
+    private static final int INPUT_LENGTH = 40000;
+
+    private static byte[] everyByte() {
+        byte[] rv = new byte[256];
+        for (int i = 0; i < rv.length; i++) {
+            rv[i] = (byte) i;
+        }
+        return rv;
+    }
+
+    @Test
+    @DisplayName("Encoding matches commons-codec in both cases, with and without separators")
+    void testEncode() {
+        byte[] bytes = everyByte();
+        String lower = Hex.encodeHexString(bytes);
+        assertEquals(lower, HexUtil.toLowerHexString(bytes));
+        assertEquals(lower.toUpperCase(), HexUtil.toHexString(bytes));
+        assertEquals(lower.replaceAll("..(?=.)", "$0 "), HexUtil.toHexString(bytes, 0, bytes.length, false, ' '));
+        assertEquals("0A:0B", HexUtil.toHexString(bytes, 10, 2, true, ':'));
+        assertEquals("", HexUtil.toHexString(new byte[0], 0, 0, true, ' '));
+
+        char[] chars = new char[HexUtil.encodedLength(3, ' ') + 2];
+        int end = HexUtil.encode(bytes, 0xfd, 3, chars, 1, true, ' ');
+        assertEquals(chars.length - 1, end);
+        assertEquals("FD FE FF", new String(chars, 1, end - 1));
+
+        StringBuilder sb = new StringBuilder("apdu ");
+        HexUtil.appendHex(sb, bytes, 0x7e, 3, false, HexUtil.NO_SEPARATOR);
+        assertEquals("apdu 7e7f80", sb.toString());
+    }
+
+    @Test
+    @DisplayName("Buffers are encoded into and from without moving the source")
+    void testBuffers() {
+        byte[] bytes = everyByte();
+        for (ByteBuffer dst : new ByteBuffer[] { ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16) }) {
+            dst.put((byte) '>');
+            HexUtil.encode(bytes, 0xa0, 4, dst, true, ' ');
+            assertEquals(12, dst.position());
+            dst.flip();
+            byte[] ascii = new byte[dst.remaining()];
+            dst.get(ascii);
+            assertEquals(">A0 A1 A2 A3", new String(ascii, StandardCharsets.US_ASCII));
+        }
+        assertThrows(java.nio.BufferOverflowException.class, () -> HexUtil.encode(bytes, 0, 8, ByteBuffer.allocate(15), true, HexUtil.NO_SEPARATOR));
+
+        ByteBuffer view = ByteBuffer.wrap(bytes, 0x10, 3).slice();
+        assertEquals("101112", HexUtil.toLowerHexString(view));
+        assertEquals(0, view.position());
+        ByteBuffer direct = ByteBuffer.allocateDirect(3).put(new byte[] { 1, 2, (byte) 0xff });
+        direct.flip();
+        assertEquals("01-02-FF", HexUtil.toHexString(direct, true, '-'));
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    @DisplayName("Parsing takes either case and whitespace, and rejects anything else")
+    void testParse() {
+        byte[] bytes = everyByte();
+        assertArrayEquals(bytes, HexUtil.parseHex(Hex.encodeHexString(bytes)));
+        assertArrayEquals(bytes, HexUtil.parseHex(HexUtil.toHexString(bytes)));
+        assertArrayEquals(new byte[] { 0x53, (byte) 0x82, 0x01 }, HexUtil.parseHex(" 53 8\n2\t01\r\n"));
+        assertArrayEquals(new byte[0], HexUtil.parseHex(""));
+
+        byte[] dst = new byte[4];
+        StringBuilder hex = new StringBuilder("xxCAFEyy");
+        assertEquals(2, HexUtil.parseHex(hex, 2, 6, dst, 1));
+        assertArrayEquals(new byte[] { 0, (byte) 0xca, (byte) 0xfe, 0 }, dst);
+
+        assertThrows(IllegalArgumentException.class, () -> HexUtil.parseHex("ABC"));
+        assertThrows(IllegalArgumentException.class, () -> HexUtil.parseHex("0x12"));
+        assertThrows(IllegalArgumentException.class, () -> HexUtil.parseHex("12éf"));
+    }
+
+    @Test
+    @DisplayName("GUIDs and FASC-Ns are rendered as before")
+    void testIdentifiers() {
+        byte[] guid = HexUtil.parseHex("3a4f2b1c5d6e7f8091a2b3c4d5e6f708");
+        assertEquals("3a4f2b1c-5d6e-7f80-91a2-b3c4d5e6f708", CardHolderUniqueIdentifier.guid2str(guid));
+        assertEquals("3a4f2b1c5d6e7f8091a2", CardHolderUniqueIdentifier.guid2str(HexUtil.parseHex("3a4f2b1c5d6e7f8091a2")));
+
+        // agency 9999, system 9999, credential 999999, CS 0, ICI 1, PI 0000000000, OC 3, OI 0000, POA 1
+        byte[] fascn = HexUtil.parseHex("D4E739DA739CED39CE739D836858210842108421C84210C3EB");
+        assertEquals("99999999999999010000000000300001", CardHolderUniqueIdentifier.cook(fascn));
+        fascn[0] ^= 0x08;
+        assertNull(CardHolderUniqueIdentifier.cook(fascn));
+    }
+
+    private static long allocatedPerAppend(StringBuilder sb, byte[] input, int iterations) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < iterations; i++) {
+            sb.setLength(0);
+            HexUtil.appendHex(sb, input, 0, input.length, false, ' ');
+        }
+        return (threadBean.getThreadAllocatedBytes(tid) - before) / iterations;
+    }
+
+    @Test
+    @DisplayName("Encoding into a reused builder allocates nothing")
+    void testAllocation(TestReporter reporter) {
+        byte[] input = new byte[INPUT_LENGTH];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 31);
+        }
+        StringBuilder sb = new StringBuilder(HexUtil.encodedLength(INPUT_LENGTH, ' '));
+        allocatedPerAppend(sb, input, 200);
+        long allocated = allocatedPerAppend(sb, input, 200);
+        reporter.publishEntry("bytes allocated per 40 KB append", Long.toString(allocated));
+        assertTrue(allocated < 64, "append allocated " + allocated);
+        assertEquals(HexUtil.encodedLength(INPUT_LENGTH, ' '), sb.length());
+    }
+}
@@ -0,0 +1,139 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.MappedContainerStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedContainerStoreTests {
+    private static final String CARD = "3bf81300008131fe45/d4e739da/3031";
+
+    private static byte[] container(int length, int seed) {
+        byte[] rv = new byte[length];
+        for (int i = 0; i < length; i++) {
+            rv[i] = (byte) (i + seed);
+        }
+        return rv;
+    }
+
+    @Test
+    @DisplayName("Containers survive reopening the store")
+    void testPersistence(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("containers.store");
+        byte[] chuid = container(3000, 1);
+        try (MappedContainerStore store = new MappedContainerStore(file, 1024 * 1024)) {
+            assertTrue(store.put(CARD, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid));
+            assertArrayEquals(chuid, store.getBytes(CARD, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        }
+        try (MappedContainerStore store = new MappedContainerStore(file, 1024 * 1024)) {
+            assertEquals(1, store.getEntryCount());
+            ByteBuffer view = store.get(CARD, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+            assertTrue(view.isReadOnly());
+            assertEquals(ByteBuffer.wrap(chuid), view);
+            assertNull(store.get("another card", APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+            // the same bytes are not appended again
+            long size = store.getFileSize();
+            store.put(CARD, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid);
+            assertEquals(size, store.getFileSize());
+        }
+    }
+
+    @Test
+    @DisplayName("A damaged record ends the store and is discarded")
+    void testChecksum(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("containers.store");
+        try (MappedContainerStore store = new MappedContainerStore(file, 1024 * 1024)) {
+            store.put(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, container(100, 2));
+            store.put(CARD, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, container(100, 3));
+        }
+        long size = Files.size(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(size - 1);
+            raf.write(0x55);
+        }
+        try (MappedContainerStore store = new MappedContainerStore(file, 1024 * 1024)) {
+            assertEquals(1, store.getEntryCount());
+            assertArrayEquals(container(100, 2), store.getBytes(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+            assertNull(store.getBytes(CARD, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+            assertTrue(store.getFileSize() < size);
+        }
+    }
+
+    @Test
+    @DisplayName("Superseded records are compacted away when the size cap is reached")
+    void testCompaction(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("containers.store");
+        try (MappedContainerStore store = new MappedContainerStore(file, 4096)) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(store.put(CARD, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, container(1000, i)));
+            }
+            assertTrue(store.getFileSize() <= 4096);
+            assertEquals(1, store.getEntryCount());
+            assertArrayEquals(container(1000, 4), store.getBytes(CARD, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID));
+            assertFalse(store.put(CARD, APDUConstants.CARDHOLDER_FINGERPRINTS_OID, container(5000, 0)));
+        }
+    }
+
+    @Test
+    @DisplayName("Compaction switches to a new generation and leaves views of the old one readable")
+    void testCompactionGenerations(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("containers.store");
+        ByteBuffer before;
+        try (MappedContainerStore store = new MappedContainerStore(file, 4096)) {
+            store.put(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, container(100, 1));
+            store.put(CARD, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, container(1000, 0));
+            before = store.get(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+            store.put(CARD, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, container(1000, 1));
+            store.put(CARD, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, container(1000, 2));
+            store.put(CARD, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, container(1000, 3));
+            assertTrue(Files.exists(dir.resolve("containers.store.1")));
+            assertEquals(ByteBuffer.wrap(container(100, 1)), before);
+        }
+        try (MappedContainerStore store = new MappedContainerStore(file, 4096)) {
+            assertFalse(Files.exists(file));
+            assertEquals(2, store.getEntryCount());
+            assertArrayEquals(container(1000, 3), store.getBytes(CARD, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID));
+            assertArrayEquals(container(100, 1), store.getBytes(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+        }
+    }
+
+    @Test
+    @DisplayName("A record damaged while the store is open is not served")
+    void testChecksumOnRead(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("containers.store");
+        try (MappedContainerStore store = new MappedContainerStore(file, 1024 * 1024)) {
+            store.put(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, container(100, 2));
+            assertArrayEquals(container(100, 2), store.getBytes(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(Files.size(file) - 1);
+                raf.write(0x55);
+            }
+            assertNull(store.get(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+            assertEquals(0, store.getEntryCount());
+            assertTrue(store.put(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, container(100, 2)));
+            assertArrayEquals(container(100, 2), store.getBytes(CARD, APDUConstants.CARD_CAPABILITY_CONTAINER_OID));
+        }
+    }
+
+    @Test
+    @DisplayName("Files that are not container stores are rejected")
+    void testMagic(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("not.a.store");
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        assertThrows(IOException.class, () -> new MappedContainerStore(file, 4096));
+    }
+}
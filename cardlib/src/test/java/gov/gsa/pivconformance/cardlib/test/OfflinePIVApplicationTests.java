@@ -0,0 +1,50 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.ApplicationAID;
+import gov.gsa.pivconformance.cardlib.card.client.ApplicationProperties;
+import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
+import gov.gsa.pivconformance.cardlib.card.client.MiddlewareStatus;
+import gov.gsa.pivconformance.cardlib.card.client.OfflinePIVApplication;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObjectFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OfflinePIVApplicationTests {
+
+    @Test
+    @DisplayName("Containers are served from a container dump directory")
+    void testGetData(@TempDir Path dir) throws IOException {
+        byte[] ccc = { 0x53, 0x03, (byte) 0xF0, 0x01, 0x00 };
+        Files.write(dir.resolve(APDUConstants.CARD_CAPABILITY_CONTAINER_OID + ".bin"), ccc);
+        OfflinePIVApplication piv = new OfflinePIVApplication(dir);
+        CardHandle ch = new CardHandle();
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties()));
+
+        PIVDataObject o = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivGetData(ch, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, o));
+        assertArrayEquals(ccc, o.getBytes());
+        assertEquals(APDUConstants.CARD_CAPABILITY_CONTAINER_OID, o.getOID());
+
+        o = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID);
+        assertEquals(MiddlewareStatus.PIV_DATA_OBJECT_NOT_FOUND, piv.pivGetData(ch, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, o));
+    }
+
+    @Test
+    @DisplayName("Operations that need a live card are not supported")
+    void testCardOperations(@TempDir Path dir) {
+        OfflinePIVApplication piv = new OfflinePIVApplication(dir);
+        CardHandle ch = new CardHandle();
+        assertEquals(MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED, piv.pivLogIntoCardApplication(ch, new byte[0]));
+        assertEquals(MiddlewareStatus.PIV_FUNCTION_NOT_SUPPORTED, piv.pivEstablishSecureMessaging(ch));
+    }
+}
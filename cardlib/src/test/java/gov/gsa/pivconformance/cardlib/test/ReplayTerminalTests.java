@@ -0,0 +1,214 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.replay.APDURecording;
+import gov.gsa.pivconformance.cardlib.replay.RecordingCardTerminal;
+import gov.gsa.pivconformance.cardlib.replay.ReplayTerminalProvider;
+import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import javax.smartcardio.TerminalFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplayTerminalTests {
+    private static final String READER = "Test Reader 0";
+    private static final byte[] ATR_BYTES = { 0x3B, (byte) 0x88, (byte) 0x80, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x09 };
+    private static final byte[] SELECT_PIV = { 0x00, (byte) 0xA4, 0x04, 0x00, 0x09, (byte) 0xA0, 0x00, 0x00, 0x03, 0x08, 0x00, 0x00, 0x10, 0x00, 0x00 };
+    private static final byte[] GET_CHUID = { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x05, 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x02, 0x00 };
+    private static final byte[] GET_CCC = { 0x00, (byte) 0xCB, 0x3F, (byte) 0xFF, 0x05, 0x5C, 0x03, 0x5F, (byte) 0xC1, 0x07, 0x00 };
+    private static final byte[] PIN = "12345678".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Card that answers each command with its INS byte followed by 90 00
+     */
+    static class EchoCardTerminal extends CardTerminal {
+        @Override
+        public String getName() {
+            return READER;
+        }
+
+        @Override
+        public Card connect(String protocol) {
+            return new Card() {
+                private final Card m_card = this;
+                private final CardChannel m_channel = new CardChannel() {
+                    @Override
+                    public Card getCard() {
+                        return m_card;
+                    }
+
+                    @Override
+                    public int getChannelNumber() {
+                        return 0;
+                    }
+
+                    @Override
+                    public ResponseAPDU transmit(CommandAPDU command) {
+                        return new ResponseAPDU(answer(command.getBytes()));
+                    }
+
+                    @Override
+                    public int transmit(ByteBuffer command, ByteBuffer response) {
+                        byte[] c = new byte[command.remaining()];
+                        command.get(c);
+                        byte[] r = answer(c);
+                        response.put(r);
+                        return r.length;
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+
+                @Override
+                public ATR getATR() {
+                    return new ATR(ATR_BYTES);
+                }
+
+                @Override
+                public String getProtocol() {
+                    return "T=1";
+                }
+
+                @Override
+                public CardChannel getBasicChannel() {
+                    return m_channel;
+                }
+
+                @Override
+                public CardChannel openLogicalChannel() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void beginExclusive() {
+                }
+
+                @Override
+                public void endExclusive() {
+                }
+
+                @Override
+                public byte[] transmitControlCommand(int controlCode, byte[] command) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void disconnect(boolean reset) {
+                }
+            };
+        }
+
+        private static byte[] answer(byte[] command) {
+            return new byte[] { command[1], command.length > 4 ? command[4] : 0, (byte) 0x90, 0x00 };
+        }
+
+        @Override
+        public boolean isCardPresent() {
+            return true;
+        }
+
+        @Override
+        public boolean waitForCardPresent(long timeout) {
+            return true;
+        }
+
+        @Override
+        public boolean waitForCardAbsent(long timeout) {
+            return false;
+        }
+    }
+
+    private static byte[] verify(byte[] pin) {
+        byte[] rv = new byte[5 + pin.length];
+        rv[1] = 0x20;
+        rv[3] = (byte) 0x80;
+        rv[4] = (byte) pin.length;
+        System.arraycopy(pin, 0, rv, 5, pin.length);
+        return rv;
+    }
+
+    private static Path record(Path dir) throws CardException {
+        Path file = dir.resolve("session" + APDURecording.FILE_EXTENSION);
+        RecordingCardTerminal terminal = new RecordingCardTerminal(new EchoCardTerminal(), file);
+        Card card = terminal.connect("*");
+        CardChannel channel = card.getBasicChannel();
+        channel.transmit(new CommandAPDU(SELECT_PIV));
+        byte[] response = new byte[64];
+        PCSCWrapper.getInstance().transmit(channel, GET_CHUID, GET_CHUID.length, response);
+        PCSCWrapper.getInstance().releaseTransmitter(channel);
+        channel.transmit(new CommandAPDU(verify(PIN)));
+        card.disconnect(false);
+        terminal.close();
+        return file;
+    }
+
+    @Test
+    @DisplayName("Recorded session replays the same responses")
+    void testReplay(@TempDir Path dir) throws Exception {
+        APDURecording recording = APDURecording.read(record(dir));
+        assertEquals(READER, recording.getReaderName());
+        assertArrayEquals(ATR_BYTES, recording.getATR());
+        assertEquals(3, recording.getExchanges().size());
+
+        TerminalFactory tf = ReplayTerminalProvider.replayFactory(dir, 0);
+        List<CardTerminal> terminals = tf.terminals().list();
+        assertEquals(1, terminals.size());
+        CardTerminal terminal = terminals.get(0);
+        assertEquals(READER, terminal.getName());
+        assertTrue(terminal.isCardPresent());
+
+        Card card = terminal.connect("*");
+        assertArrayEquals(ATR_BYTES, card.getATR().getBytes());
+        CardChannel channel = card.getBasicChannel();
+        assertArrayEquals(EchoCardTerminal.answer(SELECT_PIV), channel.transmit(new CommandAPDU(SELECT_PIV)).getBytes());
+        byte[] response = new byte[64];
+        int n = PCSCWrapper.getInstance().transmit(channel, GET_CHUID, GET_CHUID.length, response);
+        PCSCWrapper.getInstance().releaseTransmitter(channel);
+        assertArrayEquals(EchoCardTerminal.answer(GET_CHUID), Arrays.copyOf(response, n));
+        // the PIN is not in the recording, but the VERIFY still finds its answer
+        assertArrayEquals(EchoCardTerminal.answer(verify(PIN)), channel.transmit(new CommandAPDU(verify(PIN))).getBytes());
+        card.disconnect(false);
+    }
+
+    @Test
+    @DisplayName("PINs are not written to recordings")
+    void testPinMasked(@TempDir Path dir) throws Exception {
+        byte[] file = Files.readAllBytes(record(dir));
+        for (int i = 0; i + PIN.length <= file.length; i++) {
+            assertFalse(Arrays.equals(PIN, Arrays.copyOfRange(file, i, i + PIN.length)), "PIN found in recording at offset " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Commands that were not recorded are answered with 6F 00")
+    void testUnrecordedCommand(@TempDir Path dir) throws Exception {
+        record(dir);
+        CardTerminal terminal = ReplayTerminalProvider.replayFactory(dir, 0).terminals().list().get(0);
+        Card card = terminal.connect("*");
+        ResponseAPDU rsp = card.getBasicChannel().transmit(new CommandAPDU(new byte[] { (byte) 0x80, 0x50, 0x00, 0x00 }));
+        assertEquals(0x6F00, rsp.getSW());
+        // a GET DATA for another container is matched on CLA INS P1 P2
+        rsp = card.getBasicChannel().transmit(new CommandAPDU(GET_CCC));
+        assertEquals(0x9000, rsp.getSW());
+    }
+}
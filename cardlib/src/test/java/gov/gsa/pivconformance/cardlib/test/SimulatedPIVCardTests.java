@@ -0,0 +1,289 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.ApplicationAID;
+import gov.gsa.pivconformance.cardlib.card.client.ApplicationProperties;
+import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
+import gov.gsa.pivconformance.cardlib.card.client.ConnectionDescription;
+import gov.gsa.pivconformance.cardlib.card.client.DefaultPIVApplication;
+import gov.gsa.pivconformance.cardlib.card.client.GeneralAuthenticateHelper;
+import gov.gsa.pivconformance.cardlib.card.client.MiddlewareStatus;
+import gov.gsa.pivconformance.cardlib.card.client.PIVAuthenticators;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObjectFactory;
+import gov.gsa.pivconformance.cardlib.card.client.PIVMiddleware;
+import gov.gsa.pivconformance.cardlib.simulator.SimulatedCardProfile;
+import gov.gsa.pivconformance.cardlib.simulator.SimulatedCardTerminal;
+import gov.gsa.pivconformance.cardlib.simulator.SimulatorTerminalProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.Cipher;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimulatedPIVCardTests {
+    private static final String PIN = "123456";
+    private static final byte[] CCC = { 0x53, 0x03, (byte) 0xF0, 0x01, 0x00 };
+
+    // a container long enough to need several GET RESPONSE commands with short APDUs
+    private static byte[] facialImage() {
+        byte[] rv = new byte[4 + 3000];
+        rv[0] = 0x53;
+        rv[1] = (byte) 0x82;
+        rv[2] = (byte) (3000 >> 8);
+        rv[3] = (byte) 3000;
+        for (int i = 4; i < rv.length; i++) {
+            rv[i] = (byte) i;
+        }
+        return rv;
+    }
+
+    private static SimulatedCardProfile profile(boolean extendedLength, Map<Integer, PrivateKey> keys) {
+        Map<String, byte[]> containers = new HashMap<>();
+        containers.put(APDUConstants.CARD_CAPABILITY_CONTAINER_OID, CCC);
+        containers.put(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, facialImage());
+        return SimulatedCardProfile.create(containers, keys, PIN, 3, extendedLength);
+    }
+
+    private static CardHandle connect(CardTerminal terminal) {
+        CardHandle ch = new CardHandle();
+        assertEquals(MiddlewareStatus.PIV_OK, PIVMiddleware.pivConnect(true, ConnectionDescription.createFromTerminal(terminal), ch));
+        return ch;
+    }
+
+    private static byte[] login(String pin) {
+        PIVAuthenticators pa = new PIVAuthenticators();
+        pa.addApplicationPin(pin);
+        return pa.getBytes();
+    }
+
+    private static byte[] status(CardChannel channel, byte[] command) throws Exception {
+        return channel.transmit(new CommandAPDU(command)).getBytes();
+    }
+
+    @ParameterizedTest(name = "extended length {0}")
+    @ValueSource(booleans = { true, false })
+    @DisplayName("Containers are read through the PIV middleware, protected ones once the PIN is verified")
+    void testGetData(boolean extendedLength) throws Exception {
+        CardTerminal terminal = SimulatorTerminalProvider.simulatorFactory(profile(extendedLength, new HashMap<>()), 1).terminals().list().get(0);
+        CardHandle ch = connect(terminal);
+        DefaultPIVApplication piv = new DefaultPIVApplication();
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties()));
+
+        PIVDataObject ccc = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivGetData(ch, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, ccc));
+        assertArrayEquals(CCC, ccc.getBytes());
+
+        PIVDataObject chuid = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+        assertEquals(MiddlewareStatus.PIV_DATA_OBJECT_NOT_FOUND, piv.pivGetData(ch, APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid));
+
+        PIVDataObject face = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID);
+        assertEquals(MiddlewareStatus.PIV_SECURITY_CONDITIONS_NOT_SATISFIED, piv.pivGetData(ch, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, face));
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivLogIntoCardApplication(ch, login(PIN)));
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivGetData(ch, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, face));
+        assertArrayEquals(facialImage(), face.getBytes());
+        assertEquals(extendedLength ? CardHandle.ExtendedLengthSupport.SUPPORTED : CardHandle.ExtendedLengthSupport.NOT_SUPPORTED,
+                ch.getExtendedLengthSupport());
+        PIVMiddleware.pivDisconnect(ch);
+    }
+
+    @Test
+    @DisplayName("A rejected extended length GET DATA is retried with a short APDU and the card is downgraded")
+    void testExtendedLengthFallback() throws Exception {
+        CardTerminal terminal = SimulatorTerminalProvider.simulatorFactory(profile(false, new HashMap<>()), 1).terminals().list().get(0);
+        CardHandle ch = connect(terminal);
+        DefaultPIVApplication piv = new DefaultPIVApplication();
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties()));
+
+        // the ATR said extended length would work, but the card rejects it
+        ch.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.SUPPORTED);
+        PIVDataObject ccc = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivGetData(ch, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, ccc));
+        assertArrayEquals(CCC, ccc.getBytes());
+        assertEquals(CardHandle.ExtendedLengthSupport.NOT_SUPPORTED, ch.getExtendedLengthSupport());
+
+        ch.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.UNKNOWN);
+        ccc = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivGetData(ch, APDUConstants.CARD_CAPABILITY_CONTAINER_OID, ccc));
+        assertArrayEquals(CCC, ccc.getBytes());
+        assertEquals(CardHandle.ExtendedLengthSupport.NOT_SUPPORTED, ch.getExtendedLengthSupport());
+        PIVMiddleware.pivDisconnect(ch);
+    }
+
+    @Test
+    @DisplayName("A status that a short GET DATA gets as well settles extended length support")
+    void testExtendedLengthSettledByStatus() throws Exception {
+        CardTerminal terminal = SimulatorTerminalProvider.simulatorFactory(profile(true, new HashMap<>()), 1).terminals().list().get(0);
+        CardHandle ch = connect(terminal);
+        DefaultPIVApplication piv = new DefaultPIVApplication();
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties()));
+
+        // the facial image needs the PIN, so both length forms get 6982 back
+        ch.setExtendedLengthSupport(CardHandle.ExtendedLengthSupport.UNKNOWN);
+        PIVDataObject face = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID);
+        assertEquals(MiddlewareStatus.PIV_SECURITY_CONDITIONS_NOT_SATISFIED, piv.pivGetData(ch, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, face));
+        assertEquals(CardHandle.ExtendedLengthSupport.SUPPORTED, ch.getExtendedLengthSupport());
+        PIVMiddleware.pivDisconnect(ch);
+    }
+
+    @Test
+    @DisplayName("Wrong PINs count down the retries and block the card")
+    void testPinRetries() throws Exception {
+        SimulatedCardTerminal terminal = new SimulatedCardTerminal("Reader", profile(true, new HashMap<>()));
+        CardChannel channel = terminal.connect("*").getBasicChannel();
+        byte[] retries = { 0x00, 0x20, 0x00, (byte) 0x80 };
+        byte[] wrongPin = { 0x00, 0x20, 0x00, (byte) 0x80, 0x08, '6', '5', '4', '3', '2', '1', (byte) 0xFF, (byte) 0xFF };
+        assertArrayEquals(new byte[] { 0x63, (byte) 0xC3 }, status(channel, retries));
+        assertArrayEquals(new byte[] { 0x63, (byte) 0xC2 }, status(channel, wrongPin));
+        assertArrayEquals(new byte[] { 0x63, (byte) 0xC1 }, status(channel, wrongPin));
+        assertArrayEquals(new byte[] { 0x69, (byte) 0x83 }, status(channel, wrongPin));
+        assertArrayEquals(new byte[] { 0x69, (byte) 0x83 }, status(channel, retries));
+        assertEquals(0, terminal.getCard().getRetriesLeft());
+
+        // a new card has its own retry counter
+        terminal.insertCard();
+        channel = terminal.connect("*").getBasicChannel();
+        assertArrayEquals(new byte[] { 0x63, (byte) 0xC3 }, status(channel, retries));
+    }
+
+    @Test
+    @DisplayName("GENERAL AUTHENTICATE signs challenges with the supplied keys")
+    void testGeneralAuthenticate() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+        kpg.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair ecc = kpg.generateKeyPair();
+        kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        KeyPair rsa = kpg.generateKeyPair();
+        Map<Integer, PrivateKey> keys = new HashMap<>();
+        keys.put(APDUConstants.CARD_AUTHENTICATION_KEY_ID, ecc.getPrivate());
+        keys.put(APDUConstants.PIV_AUTHENTICATION_KEY_ID, rsa.getPrivate());
+        CardTerminal terminal = SimulatorTerminalProvider.simulatorFactory(profile(true, keys), 1).terminals().list().get(0);
+        CardHandle ch = connect(terminal);
+        DefaultPIVApplication piv = new DefaultPIVApplication();
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties()));
+
+        // the card authentication key needs no PIN
+        byte[] digest = new byte[32];
+        new SecureRandom().nextBytes(digest);
+        byte[] request = GeneralAuthenticateHelper.generateRequest(APDUConstants.X509_CERTIFICATE_FOR_CARD_AUTHENTICATION_OID, digest);
+        ResponseAPDU rsp = GeneralAuthenticateHelper.sendRequest(ch, 0x11, APDUConstants.CARD_AUTHENTICATION_KEY_ID, request);
+        assertEquals(0x9000, rsp.getSW());
+        Signature verifier = Signature.getInstance("NONEwithECDSA");
+        verifier.initVerify(ecc.getPublic());
+        verifier.update(digest);
+        assertTrue(verifier.verify(GeneralAuthenticateHelper.getChallengeResponseFromData(rsp.getData())));
+
+        // the PIV authentication key does, and its padded challenge needs command chaining
+        byte[] padded = new byte[256];
+        new SecureRandom().nextBytes(padded);
+        padded[0] = 0x00;
+        padded[1] = 0x01;
+        request = GeneralAuthenticateHelper.generateRequest(APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID, padded);
+        rsp = GeneralAuthenticateHelper.sendRequest(ch, 0x07, APDUConstants.PIV_AUTHENTICATION_KEY_ID, request);
+        assertEquals(0x6982, rsp.getSW());
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivLogIntoCardApplication(ch, login(PIN)));
+        rsp = GeneralAuthenticateHelper.sendRequest(ch, 0x07, APDUConstants.PIV_AUTHENTICATION_KEY_ID, request);
+        assertEquals(0x9000, rsp.getSW());
+        Cipher cipher = Cipher.getInstance("RSA/ECB/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, rsa.getPublic());
+        assertArrayEquals(padded, cipher.doFinal(GeneralAuthenticateHelper.getChallengeResponseFromData(rsp.getData())));
+        PIVMiddleware.pivDisconnect(ch);
+    }
+
+    @Test
+    @DisplayName("The handle tracks the selected application and PIN until a reset, a 6982 or a new connection")
+    void testSessionState() throws Exception {
+        Map<Integer, PrivateKey> keys = new HashMap<>();
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keys.put(APDUConstants.PIV_AUTHENTICATION_KEY_ID, kpg.generateKeyPair().getPrivate());
+        SimulatedCardTerminal terminal = new SimulatedCardTerminal("Reader", profile(true, keys));
+        CardHandle ch = connect(terminal);
+        assertFalse(ch.isPivSelected());
+        assertFalse(ch.isPinVerified());
+
+        DefaultPIVApplication piv = new DefaultPIVApplication();
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties()));
+        assertTrue(ch.isPivSelected());
+        assertEquals(MiddlewareStatus.PIV_AUTHENTICATION_FAILURE, piv.pivLogIntoCardApplication(ch, login("654321")));
+        assertFalse(ch.isPinVerified());
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivLogIntoCardApplication(ch, login(PIN)));
+        assertTrue(ch.isPinVerified());
+
+        // a reset behind the handle's back shows up as 6982 on the next protected command
+        terminal.getCard().reset();
+        byte[] padded = new byte[256];
+        padded[1] = 0x01;
+        byte[] request = GeneralAuthenticateHelper.generateRequest(APDUConstants.X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID, padded);
+        assertEquals(0x6982, GeneralAuthenticateHelper.sendRequest(ch, 0x07, APDUConstants.PIV_AUTHENTICATION_KEY_ID, request).getSW());
+        assertFalse(ch.isPinVerified());
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivLogIntoCardApplication(ch, login(PIN)));
+        assertTrue(ch.isPinVerified());
+
+        // selecting again leaves the PIN to be verified again
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties()));
+        assertTrue(ch.isPivSelected());
+        assertFalse(ch.isPinVerified());
+
+        assertEquals(MiddlewareStatus.PIV_OK, piv.pivLogIntoCardApplication(ch, login(PIN)));
+        PIVMiddleware.pivDisconnect(ch);
+        assertEquals(MiddlewareStatus.PIV_OK, PIVMiddleware.pivConnect(true, ConnectionDescription.createFromTerminal(terminal), ch));
+        assertFalse(ch.isPivSelected());
+        assertFalse(ch.isPinVerified());
+        PIVMiddleware.pivDisconnect(ch);
+    }
+
+    @Test
+    @DisplayName("Hundreds of cards from one profile can be used at once")
+    void testConcurrentCards() throws Exception {
+        List<CardTerminal> terminals = SimulatorTerminalProvider.simulatorFactory(profile(false, new HashMap<>()), 200).terminals().list();
+        assertEquals(200, terminals.size());
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (CardTerminal terminal : terminals) {
+                results.add(pool.submit(() -> {
+                    CardHandle ch = connect(terminal);
+                    DefaultPIVApplication piv = new DefaultPIVApplication();
+                    piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties());
+                    piv.pivLogIntoCardApplication(ch, login(PIN));
+                    PIVDataObject face = PIVDataObjectFactory.createDataObjectForOid(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID);
+                    piv.pivGetData(ch, APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID, face);
+                    PIVMiddleware.pivDisconnect(ch);
+                    return face.getBytes();
+                }));
+            }
+            byte[] expected = facialImage();
+            for (Future<byte[]> f : results) {
+                assertTrue(Arrays.equals(expected, f.get()));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package gov.gsa.pivconformance.cardlib.test;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.CardClientException;
+import gov.gsa.pivconformance.cardlib.tlv.BerTag;
+import gov.gsa.pivconformance.cardlib.tlv.ContainerRuleset;
+import gov.gsa.pivconformance.cardlib.tlv.ContainerValidator;
+import gov.gsa.pivconformance.cardlib.tlv.TagBoundaryManager;
+import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
+import gov.gsa.pivconformance.cardlib.tlv.TagLengthRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TagBoundaryManagerTests {
+    // EE 02 buffer length, 30 25 FASC-N, 34 10 GUID, 35 08 expiration date, 3E 00 signature, FE 00 error detection code
+    private static byte[] chuidContents() {
+        byte[] rv = new byte[4 + 27 + 18 + 10 + 2 + 2];
+        int i = 0;
+        rv[i++] = (byte) 0xEE;
+        rv[i++] = 0x02;
+        i += 2;
+        rv[i++] = 0x30;
+        rv[i++] = 25;
+        i += 25;
+        rv[i++] = 0x34;
+        rv[i++] = 16;
+        i += 16;
+        rv[i++] = 0x35;
+        rv[i++] = 8;
+        Arrays.fill(rv, i, i + 8, (byte) '2');
+        i += 8;
+        rv[i++] = 0x3E;
+        rv[i++] = 0x00;
+        rv[i++] = (byte) 0xFE;
+        rv[i] = 0x00;
+        return rv;
+    }
+
+    private static byte[] wrap(byte[] contents) {
+        byte[] rv = new byte[contents.length + 2];
+        rv[0] = 0x53;
+        rv[1] = (byte) contents.length;
+        System.arraycopy(contents, 0, rv, 2, contents.length);
+        return rv;
+    }
+
+    private static ContainerValidator validator(String oid) {
+        return new TagBoundaryManager().getValidator(TagBoundaryManager.containerId(oid));
+    }
+
+    @Test
+    @DisplayName("Int-keyed lookups find the same rules as the BerTag maps")
+    @SuppressWarnings("unchecked")
+    void testIntKeysMatchMaps() {
+        TagBoundaryManager tbm = new TagBoundaryManager();
+        Map<String, ContainerRuleset> rulesets = tbm.getMaxLenMap();
+        assertEquals(APDUConstants.oidMAP.size(), rulesets.size());
+        for (Map.Entry<String, ContainerRuleset> e : rulesets.entrySet()) {
+            int containerId = TagBoundaryManager.containerId(e.getKey());
+            ContainerRuleset crs = tbm.getRuleset(containerId);
+            assertSame(e.getValue(), crs, e.getKey());
+            assertEquals(crs.getTagRuleset().size(), crs.getTagCount());
+            int index = 0;
+            for (Map.Entry<BerTag, TagLengthRule> rule : crs.getTagRuleset().entrySet()) {
+                int tag = rule.getKey().intValue();
+                assertEquals(tag, crs.getTag(index));
+                assertEquals(index, crs.indexOf(tag));
+                assertSame(rule.getValue(), crs.getRule(tag));
+                index++;
+            }
+        }
+        assertEquals(0x5FC102, TagBoundaryManager.containerId(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID));
+        assertEquals(0x7E, TagBoundaryManager.containerId(APDUConstants.DISCOVERY_OBJECT_OID));
+        assertEquals(-1, TagBoundaryManager.containerId("2.16.840.1.101.3.7.2.0.0"));
+        assertNull(tbm.getRuleset(-1));
+    }
+
+    @Test
+    @DisplayName("Length checks give the same answers by int and by BerTag")
+    void testLengthDelta() throws Exception {
+        TagBoundaryManager tbm = new TagBoundaryManager();
+        String chuid = APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID;
+        int containerId = TagBoundaryManager.containerId(chuid);
+        BerTag fascn = new BerTag(TagConstants.FASC_N_TAG);
+        assertEquals(0, tbm.lengthDelta(containerId, fascn.intValue(), 25));
+        assertEquals(0, tbm.lengthDelta(chuid, fascn, 25));
+        assertThrows(CardClientException.class, () -> tbm.lengthDelta(containerId, fascn.intValue(), 24));
+        assertThrows(CardClientException.class, () -> tbm.lengthDelta(chuid, fascn, 24));
+        // the signature has a soft upper bound
+        assertEquals(0, tbm.lengthDelta(containerId, 0x3E, 5000));
+        // the CCC card identifier is 0 or 21 bytes
+        int ccc = TagBoundaryManager.containerId(APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+        assertEquals(0, tbm.lengthDelta(ccc, 0xF0, 21));
+        assertThrows(NullPointerException.class, () -> tbm.lengthDelta(containerId, 0x99, 1));
+    }
+
+    @Test
+    @DisplayName("Int-keyed lookups allocate nothing")
+    void testAllocation(TestReporter reporter) throws Exception {
+        TagBoundaryManager tbm = new TagBoundaryManager();
+        int containerId = TagBoundaryManager.containerId(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+        ContainerRuleset crs = tbm.getRuleset(containerId);
+        assertNotNull(crs);
+        int[] tags = new int[crs.getTagCount()];
+        int[] lengths = new int[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = crs.getTag(i);
+            lengths[i] = crs.getRule(tags[i]).getHighVal();
+        }
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        int iterations = 100000;
+        long allocated = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long before = threadBean.getThreadAllocatedBytes(tid);
+            int sum = 0;
+            for (int n = 0; n < iterations; n++) {
+                for (int i = 0; i < tags.length; i++) {
+                    sum += tbm.lengthDelta(containerId, tags[i], lengths[i]);
+                    sum += tbm.getRuleset(containerId).indexOf(tags[i]);
+                }
+            }
+            allocated = threadBean.getThreadAllocatedBytes(tid) - before;
+            assertEquals(iterations * (tags.length * (tags.length - 1) / 2), sum);
+        }
+        reporter.publishEntry("bytes allocated for " + iterations * tags.length + " lookups", Long.toString(allocated));
+        assertTrue(allocated < 1024, "lookups allocated " + allocated);
+    }
+
+    @Test
+    @DisplayName("A compiled ruleset checks order, lengths and unexpected tags in one pass")
+    void testValidator() {
+        ContainerValidator chuid = validator(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+        assertEquals(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID, chuid.getContainerName());
+        byte[] contents = chuidContents();
+        assertEquals(0, chuid.validate(contents));
+        assertEquals(0, chuid.validate(wrap(contents)));
+        assertEquals(0, chuid.validate(new byte[0]));
+
+        // GUID before FASC-N
+        byte[] swapped = contents.clone();
+        System.arraycopy(contents, 31, swapped, 4, 18);
+        System.arraycopy(contents, 4, swapped, 22, 27);
+        assertEquals(ContainerValidator.OUT_OF_ORDER, chuid.validate(wrap(swapped)));
+
+        // a 24 byte FASC-N leaves a byte over that does not parse
+        byte[] shortFascn = contents.clone();
+        shortFascn[5] = 24;
+        assertEquals(ContainerValidator.LENGTH_OUT_OF_BOUNDS | ContainerValidator.MALFORMED, chuid.validate(wrap(shortFascn)));
+
+        // the deprecated authentication key map
+        byte[] keyMap = Arrays.copyOf(contents, contents.length + 2);
+        keyMap[contents.length] = 0x3D;
+        assertEquals(ContainerValidator.UNEXPECTED_TAG, chuid.validate(wrap(keyMap)));
+
+        byte[] truncated = Arrays.copyOf(wrap(contents), 20);
+        assertEquals(ContainerValidator.MALFORMED, chuid.validate(truncated));
+        assertEquals(ContainerValidator.MALFORMED, chuid.validate(Arrays.copyOfRange(contents, 4, 20)));
+
+        // the CCC card identifier is 0 or 21 bytes
+        ContainerValidator ccc = validator(APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+        assertEquals(0, ccc.validate(new byte[] { 0x53, 0x02, (byte) 0xF0, 0x00 }));
+        assertEquals(ContainerValidator.LENGTH_OUT_OF_BOUNDS, ccc.validate(new byte[] { 0x53, 0x03, (byte) 0xF0, 0x01, 0x00 }));
+
+        // the facial image has a soft upper bound
+        byte[] image = new byte[4 + 13000 + 2];
+        image[0] = (byte) 0xBC;
+        image[1] = (byte) 0x82;
+        image[2] = (byte) (13000 >> 8);
+        image[3] = (byte) 13000;
+        image[image.length - 2] = (byte) 0xFE;
+        assertEquals(ContainerValidator.SOFT_BOUND_EXCEEDED, validator(APDUConstants.CARDHOLDER_FACIAL_IMAGE_OID).validate(image));
+    }
+
+    @Test
+    @DisplayName("Validating a container allocates nothing")
+    void testValidatorAllocation(TestReporter reporter) {
+        ContainerValidator chuid = validator(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+        byte[] container = wrap(chuidContents());
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        int iterations = 100000;
+        long allocated = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long before = threadBean.getThreadAllocatedBytes(tid);
+            int flags = 0;
+            for (int n = 0; n < iterations; n++) {
+                flags |= chuid.validate(container);
+            }
+            allocated = threadBean.getThreadAllocatedBytes(tid) - before;
+            assertEquals(0, flags);
+        }
+        reporter.publishEntry("bytes allocated for " + iterations + " validations", Long.toString(allocated));
+        assertTrue(allocated < 1024, "validation allocated " + allocated);
+    }
+}
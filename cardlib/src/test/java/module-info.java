@@ -2,6 +2,7 @@ open module gov.gsa.pivconformance.cardlib.test {
     exports gov.gsa.pivconformance.cardlib.test;
     requires transitive gov.gsa.pivconformance.cardlib;
     requires transitive java.smartcardio;
+    requires jdk.management;
     requires transitive org.slf4j;
     requires transitive org.apache.commons.codec;
     requires transitive org.apache.commons.cli;
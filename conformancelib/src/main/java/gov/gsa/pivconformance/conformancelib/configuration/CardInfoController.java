@@ -1,5 +1,7 @@
 package gov.gsa.pivconformance.conformancelib.configuration;
 
+import java.util.concurrent.locks.Lock;
+
 import javax.smartcardio.CardException;
 import javax.smartcardio.CardTerminal;
 
@@ -15,6 +17,8 @@ import gov.gsa.pivconformance.cardlib.card.client.MiddlewareStatus;
 import gov.gsa.pivconformance.cardlib.card.client.PIVAuthenticators;
 import gov.gsa.pivconformance.cardlib.card.client.PIVMiddleware;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton.LOGIN_STATUS;
+import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
 import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
 
 public class CardInfoController {
@@ -69,10 +73,12 @@ public class CardInfoController {
 		
 		ConnectionDescription cd = ConnectionDescription.createFromTerminal(reader);
 		CardHandle ch = css.getCardHandle();
-		MiddlewareStatus result = PIVMiddleware.pivConnect(false, cd, ch);
-		s_logger.info("{}", ch.getCard());
-
+		// the card is reset and the PIN tried, so nothing else may talk to it until the retries are read
+		Lock lock = ch.getLock();
+		lock.lock();
 		try {
+			MiddlewareStatus result = PIVMiddleware.pivConnect(false, cd, ch);
+			s_logger.info("{}", ch.getCard());
 			if(result != MiddlewareStatus.PIV_OK)
 				return -1;
 			
@@ -103,6 +109,8 @@ public class CardInfoController {
 			return rv;
 		} catch (Exception ex) {
 			s_logger.error("Error: {}", ex.getLocalizedMessage(), ex);
+		} finally {
+			lock.unlock();
 		}
 		return rv;
 	}
@@ -130,9 +138,11 @@ public class CardInfoController {
 		
 		ConnectionDescription cd = ConnectionDescription.createFromTerminal(reader);
 		CardHandle ch = css.getCardHandle();
-		MiddlewareStatus result = PIVMiddleware.pivConnect(false, cd, ch);
-
+		// the card is reset and both PINs tried, so nothing else may talk to it until the retries are read
+		Lock lock = ch.getLock();
+		lock.lock();
 		try {
+			MiddlewareStatus result = PIVMiddleware.pivConnect(false, cd, ch);
 			if(result != MiddlewareStatus.PIV_OK)
 				return -1;
 			
@@ -171,6 +181,8 @@ public class CardInfoController {
 			return rv;
 		} catch (Exception ex) {
 			s_logger.error("Error: {}", ex.getLocalizedMessage());
+		} finally {
+			lock.unlock();
 		}
 		return rv;
 	}
@@ -208,21 +220,33 @@ public class CardInfoController {
 
 		ConnectionDescription cd = ConnectionDescription.createFromTerminal(reader);
 		CardHandle ch = css.getCardHandle();
-		MiddlewareStatus result = PIVMiddleware.pivConnect(false, cd, ch);
-		if(result != MiddlewareStatus.PIV_OK) return false;
-		DefaultPIVApplication piv = new DefaultPIVApplication();
-        ApplicationProperties cardAppProperties = new ApplicationProperties();
-		ApplicationAID aid = new ApplicationAID();
-		result = piv.pivSelectCardApplication(ch, aid, cardAppProperties);
-		if(result != MiddlewareStatus.PIV_OK) return false;
-		result = piv.pivLogIntoCardApplication(ch, pivAuthenticators.getBytes());
-		if(result == MiddlewareStatus.PIV_AUTHENTICATION_FAILURE) {
-			int tries = PCSCUtils.StatusWordsToRetries(piv.getLastResponseAPDUBytes());
-			s_logger.info("Login failed. Application PIN: {} retries remain", tries);
-			css.setLastLoginStatus(LOGIN_STATUS.LOGIN_FAIL);
-			return false;
+		Lock lock = ch.getLock();
+		lock.lock();
+		try {
+			MiddlewareStatus result = PIVMiddleware.pivConnect(false, cd, ch);
+			if(result != MiddlewareStatus.PIV_OK) return false;
+			DefaultPIVApplication piv = new DefaultPIVApplication();
+			try {
+				CardUtils.selectPivIfNeeded(ch, piv);
+			} catch (ConformanceTestException e) {
+				s_logger.error("Unable to select the PIV application: {}", e.getMessage());
+				return false;
+			}
+			result = piv.pivLogIntoCardApplication(ch, pivAuthenticators.getBytes());
+			if(result == MiddlewareStatus.PIV_AUTHENTICATION_FAILURE) {
+				int tries = PCSCUtils.StatusWordsToRetries(piv.getLastResponseAPDUBytes());
+				s_logger.info("Login failed. Application PIN: {} retries remain", tries);
+				css.setLastLoginStatus(LOGIN_STATUS.LOGIN_FAIL);
+				return false;
+			}
+			if(result == MiddlewareStatus.PIV_OK) {
+				// the tests that follow can rely on this VERIFY rather than send their own
+				css.setLastLoginStatus(LOGIN_STATUS.LOGIN_SUCCESS);
+			}
+		} finally {
+			lock.unlock();
 		}
-		
+
 		s_logger.info("Application PIN verified.");
 		return true;
 	}
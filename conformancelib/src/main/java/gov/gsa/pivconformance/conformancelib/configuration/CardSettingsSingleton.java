@@ -4,6 +4,7 @@ import javax.smartcardio.CardTerminal;
 
 import gov.gsa.pivconformance.cardlib.card.client.AbstractPIVApplication;
 import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
+import gov.gsa.pivconformance.cardlib.card.client.OfflinePIVApplication;
 
 public final class CardSettingsSingleton {
 
@@ -65,6 +66,11 @@ public final class CardSettingsSingleton {
 		m_pivHandle = pivHandle;
 	}
 
+	// true when containers come from a container dump rather than a card
+	public boolean isOffline() {
+		return m_pivHandle instanceof OfflinePIVApplication;
+	}
+
 	public enum LOGIN_STATUS {
 		LOGIN_SUCCESS,
 		LOGIN_FAIL,
@@ -84,10 +90,34 @@ public final class CardSettingsSingleton {
     	reset();
     }
     private static final CardSettingsSingleton INSTANCE = new CardSettingsSingleton();
+    // bound to a worker thread when several cards are tested at once
+    private static final ThreadLocal<CardSettingsSingleton> s_threadInstance = new ThreadLocal<CardSettingsSingleton>();
     public static CardSettingsSingleton getInstance()
     {
+        CardSettingsSingleton rv = s_threadInstance.get();
+        return rv != null ? rv : INSTANCE;
+    }
+
+    // a fresh instance for a thread that tests its own card
+    public static CardSettingsSingleton createIsolatedInstance() {
+        return new CardSettingsSingleton();
+    }
+
+    // the instance used by threads that have none of their own
+    public static CardSettingsSingleton getSharedInstance() {
         return INSTANCE;
     }
+
+    // makes getInstance() return the given instance on this thread. null goes back to the shared instance.
+    // returns whatever was bound before, so it can be put back
+    public static CardSettingsSingleton bindToCurrentThread(CardSettingsSingleton instance) {
+        CardSettingsSingleton previous = s_threadInstance.get();
+        if(instance == null)
+            s_threadInstance.remove();
+        else
+            s_threadInstance.set(instance);
+        return previous;
+    }
     
     // clear all saved status. should only be called when a card is changed
     public void reset() {
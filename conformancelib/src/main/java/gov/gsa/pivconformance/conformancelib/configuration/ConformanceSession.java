@@ -0,0 +1,265 @@
+package gov.gsa.pivconformance.conformancelib.configuration;
+
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.smartcardio.CardTerminal;
+
+import gov.gsa.pivconformance.cardlib.card.client.AbstractPIVApplication;
+import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
+import gov.gsa.pivconformance.cardlib.card.client.DataModelSingleton;
+import gov.gsa.pivconformance.cardlib.tlv.TagBoundaryManager;
+import gov.gsa.pivconformance.cardlib.utils.TransmitCounters;
+import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton.LOGIN_STATUS;
+import gov.gsa.pivconformance.conformancelib.utilities.ContainerPrefetcher;
+
+/**
+ * Everything that belongs to testing one card: the card settings (card handle, PIV handle, PINs and
+ * login state), the data model (CHUID signer cert and length rules), the test parameters, the
+ * containers decoded so far, the containers being read ahead and, through the card handle, the APDU
+ * counters.
+ *
+ * A session is bound to the thread running its tests, so that the existing getInstance() accessors of
+ * CardSettingsSingleton, DataModelSingleton and ParameterProviderSingleton resolve to the session's
+ * state on that thread. Test classes pick up the session through ConformanceSessionExtension, which
+ * binds it around each test. Threads with no session bound use the default session, which is made up
+ * of the shared instances, so a single card run behaves as it always has.
+ */
+public final class ConformanceSession implements AutoCloseable {
+	private static final Map<String, ConformanceSession> s_sessions = new ConcurrentHashMap<String, ConformanceSession>();
+	private static final ThreadLocal<ConformanceSession> s_current = new ThreadLocal<ConformanceSession>();
+	private static final AtomicInteger s_nextId = new AtomicInteger();
+	private static final ConformanceSession DEFAULT = new ConformanceSession("default", CardSettingsSingleton.getSharedInstance(),
+			DataModelSingleton.getSharedInstance(), ParameterProviderSingleton.getSharedInstance());
+
+	private final String m_id;
+	private final CardSettingsSingleton m_cardSettings;
+	private final DataModelSingleton m_dataModel;
+	private final ParameterProviderSingleton m_parameters;
+	private final DecodedObjectCache m_decodedObjects = new DecodedObjectCache();
+	private volatile ContainerPrefetcher m_containerPrefetcher = null;
+	private volatile List<String> m_testPlanContainers = Collections.emptyList();
+
+	private ConformanceSession(String id, CardSettingsSingleton cardSettings, DataModelSingleton dataModel, ParameterProviderSingleton parameters) {
+		m_id = id;
+		m_cardSettings = cardSettings;
+		m_dataModel = dataModel;
+		m_parameters = parameters;
+		s_sessions.put(id, this);
+	}
+
+	/**
+	 * Creates a session with its own card settings, data model and parameters
+	 * @param name a name for the session, such as the reader it tests cards in
+	 * @return the new session
+	 */
+	public static ConformanceSession create(String name) {
+		return create(name, ParameterProviderSingleton.createIsolatedInstance());
+	}
+
+	/**
+	 * Creates a session with its own card settings and data model, using parameters that may be shared
+	 * with other sessions running the same test plan
+	 * @param name a name for the session, such as the reader it tests cards in
+	 * @param parameters the test parameters
+	 * @return the new session
+	 */
+	public static ConformanceSession create(String name, ParameterProviderSingleton parameters) {
+		return new ConformanceSession(name + "#" + s_nextId.incrementAndGet(), CardSettingsSingleton.createIsolatedInstance(),
+				DataModelSingleton.createIsolatedInstance(), parameters);
+	}
+
+	/**
+	 * Gets the session made up of the shared instances, used by threads that have no session bound
+	 * @return the default session
+	 */
+	public static ConformanceSession getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets the session bound to the current thread
+	 * @return the bound session, or the default session if there is none
+	 */
+	public static ConformanceSession current() {
+		ConformanceSession rv = s_current.get();
+		return rv != null ? rv : DEFAULT;
+	}
+
+	/**
+	 * Looks a session up by its identifier, as passed to JUnit in the ConformanceSession configuration parameter
+	 * @param id the session identifier
+	 * @return the session, or null if there is no open session with that identifier
+	 */
+	public static ConformanceSession forId(String id) {
+		return id == null ? null : s_sessions.get(id);
+	}
+
+	public String getId() {
+		return m_id;
+	}
+
+	public CardSettingsSingleton getCardSettings() {
+		return m_cardSettings;
+	}
+
+	public DataModelSingleton getDataModel() {
+		return m_dataModel;
+	}
+
+	public ParameterProviderSingleton getParameters() {
+		return m_parameters;
+	}
+
+	public CardHandle getCardHandle() {
+		return m_cardSettings.getCardHandle();
+	}
+
+	public AbstractPIVApplication getPivHandle() {
+		return m_cardSettings.getPivHandle();
+	}
+
+	public LOGIN_STATUS getLastLoginStatus() {
+		return m_cardSettings.getLastLoginStatus();
+	}
+
+	public X509Certificate getChuidSignerCert() {
+		return m_dataModel.getChuidSignerCert();
+	}
+
+	public TagBoundaryManager getLengthRules() {
+		return m_dataModel.getLengthRules();
+	}
+
+	/**
+	 * Gets the containers decoded so far for the card being tested
+	 * @return the decoded object cache
+	 */
+	public DecodedObjectCache getDecodedObjects() {
+		return m_decodedObjects;
+	}
+
+	/**
+	 * Gets the prefetcher reading the card's containers ahead of the tests
+	 * @return the running prefetcher, or null if none is running
+	 */
+	public ContainerPrefetcher getContainerPrefetcher() {
+		return m_containerPrefetcher;
+	}
+
+	public void setContainerPrefetcher(ContainerPrefetcher containerPrefetcher) {
+		m_containerPrefetcher = containerPrefetcher;
+	}
+
+	/**
+	 * Gets the OIDs of the containers the test plan uses, in the order it uses them
+	 * @return the container OIDs
+	 */
+	public List<String> getTestPlanContainers() {
+		return m_testPlanContainers;
+	}
+
+	public void setTestPlanContainers(List<String> oids) {
+		m_testPlanContainers = Collections.unmodifiableList(oids);
+	}
+
+	/**
+	 * Gets the APDU counters for the card being tested
+	 * @return the counters, or null if no card has been set up
+	 */
+	public TransmitCounters getTransmitCounters() {
+		CardHandle ch = getCardHandle();
+		return ch == null ? null : ch.getTransmitCounters();
+	}
+
+	/**
+	 * Clears the per-card state so that the next card can be tested in this session. The parameters are kept.
+	 */
+	public void reset() {
+		m_cardSettings.reset();
+		m_dataModel.reset();
+		m_decodedObjects.clear();
+		m_decodedObjects.resetCounters();
+	}
+
+	/**
+	 * Clears the state belonging to the card that was last tested, keeping the reader and PINs, so that the
+	 * next card inserted in the same reader can be tested
+	 */
+	public void resetCard() {
+		int readerIndex = m_cardSettings.getReaderIndex();
+		CardTerminal terminal = m_cardSettings.getTerminal();
+		String applicationPin = m_cardSettings.getApplicationPin();
+		String globalPin = m_cardSettings.getGlobalPin();
+		m_cardSettings.reset();
+		m_cardSettings.setReaderIndex(readerIndex);
+		m_cardSettings.setTerminal(terminal);
+		m_cardSettings.setApplicationPin(applicationPin);
+		m_cardSettings.setGlobalPin(globalPin);
+		m_dataModel.reset();
+		m_decodedObjects.clear();
+		m_decodedObjects.resetCounters();
+	}
+
+	/**
+	 * Binds this session to the current thread until the returned binding is closed
+	 * @return the binding, which puts back whatever was bound before when closed
+	 */
+	public Binding bind() {
+		return new Binding(this);
+	}
+
+	/**
+	 * Removes the session from the set that can be looked up by identifier. The default session stays open.
+	 */
+	@Override
+	public void close() {
+		if (this != DEFAULT) {
+			s_sessions.remove(m_id);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return m_id;
+	}
+
+	/**
+	 * A session bound to a thread
+	 */
+	public static final class Binding implements AutoCloseable {
+		private final ConformanceSession m_previous;
+		private final CardSettingsSingleton m_previousCardSettings;
+		private final DataModelSingleton m_previousDataModel;
+		private final ParameterProviderSingleton m_previousParameters;
+		private boolean m_closed = false;
+
+		private Binding(ConformanceSession session) {
+			m_previous = s_current.get();
+			s_current.set(session);
+			m_previousCardSettings = CardSettingsSingleton.bindToCurrentThread(session.m_cardSettings);
+			m_previousDataModel = DataModelSingleton.bindToCurrentThread(session.m_dataModel);
+			m_previousParameters = ParameterProviderSingleton.bindToCurrentThread(session.m_parameters);
+		}
+
+		@Override
+		public void close() {
+			if (m_closed) {
+				return;
+			}
+			m_closed = true;
+			if (m_previous == null) {
+				s_current.remove();
+			} else {
+				s_current.set(m_previous);
+			}
+			CardSettingsSingleton.bindToCurrentThread(m_previousCardSettings);
+			DataModelSingleton.bindToCurrentThread(m_previousDataModel);
+			ParameterProviderSingleton.bindToCurrentThread(m_previousParameters);
+		}
+	}
+}
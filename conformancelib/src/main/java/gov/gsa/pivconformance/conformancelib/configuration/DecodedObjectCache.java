@@ -0,0 +1,140 @@
+package gov.gsa.pivconformance.conformancelib.configuration;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+
+/**
+ * Containers that have been decoded for the card a session is testing, keyed by OID and checked
+ * against the container contents, so that the dozens of tests that look at the same container
+ * share one decode of it rather than each parsing the TLV, inflating and parsing the certificates
+ * and CMS again.
+ *
+ * The decoded objects are shared by every test that asks for the container, so they are frozen
+ * before they are cached: decoding one again does nothing, and its content setters throw. A test
+ * that needs to change a container decodes a copy of its own. A container whose contents no longer match what was decoded, as when a
+ * different card turns up in the reader, is decoded again.
+ */
+public final class DecodedObjectCache {
+
+	private static final class Entry {
+		final int m_hash;
+		final byte[] m_bytes;
+		final PIVDataObject m_object;
+
+		Entry(byte[] bytes, PIVDataObject object) {
+			m_hash = Arrays.hashCode(bytes);
+			m_bytes = bytes;
+			m_object = object;
+		}
+
+		boolean matches(byte[] bytes) {
+			return m_hash == Arrays.hashCode(bytes) && Arrays.equals(m_bytes, bytes);
+		}
+	}
+
+	private final Map<String, Entry> m_entries = new ConcurrentHashMap<String, Entry>();
+	private final Map<String, Object> m_locks = new ConcurrentHashMap<String, Object>();
+	private final AtomicLong m_hits = new AtomicLong();
+	private final AtomicLong m_misses = new AtomicLong();
+	private final AtomicLong m_stale = new AtomicLong();
+
+	/**
+	 * Gets the decoded object for a container
+	 * @param oid the container OID
+	 * @param bytes the container contents just read
+	 * @return the object decoded from the same contents, or null if they have not been decoded
+	 */
+	public PIVDataObject get(String oid, byte[] bytes) {
+		Entry e = bytes == null ? null : m_entries.get(oid);
+		if (e != null && e.matches(bytes)) {
+			m_hits.incrementAndGet();
+			return e.m_object;
+		}
+		if (e != null) {
+			m_stale.incrementAndGet();
+		}
+		m_misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Caches an object that decoded successfully
+	 * @param oid the container OID
+	 * @param bytes the container contents the object was decoded from
+	 * @param object the decoded object
+	 */
+	public void put(String oid, byte[] bytes, PIVDataObject object) {
+		if (bytes != null) {
+			m_entries.put(oid, new Entry(bytes, object));
+		}
+	}
+
+	/**
+	 * Gets the lock to hold while looking up and decoding a container, so that tests running side by side
+	 * that miss on the same container wait for one decode of it rather than each decoding it
+	 * @param oid the container OID
+	 * @return the lock for the container
+	 */
+	public Object lockFor(String oid) {
+		return m_locks.computeIfAbsent(oid, k -> new Object());
+	}
+
+	/**
+	 * Drops every decoded object, for when the next card is to be tested
+	 */
+	public void clear() {
+		m_entries.clear();
+	}
+
+	/**
+	 * Gets the number of lookups that found the container already decoded
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return m_hits.get();
+	}
+
+	/**
+	 * Gets the number of lookups that found nothing decoded from the same contents, each of which
+	 * leads to a decode
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return m_misses.get();
+	}
+
+	/**
+	 * Gets the number of misses where the container had been decoded from different contents
+	 * @return the stale count
+	 */
+	public long getStaleCount() {
+		return m_stale.get();
+	}
+
+	/**
+	 * Gets the number of containers currently decoded
+	 * @return the entry count
+	 */
+	public int getEntryCount() {
+		return m_entries.size();
+	}
+
+	/**
+	 * Resets the hit, miss and stale counters
+	 */
+	public void resetCounters() {
+		m_hits.set(0);
+		m_misses.set(0);
+		m_stale.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d containers decoded, %d lookups served without decoding, %d decodes (%d of changed contents)",
+				getEntryCount(), getHitCount(), getMissCount(), getStaleCount());
+	}
+}
@@ -2,6 +2,7 @@ package gov.gsa.pivconformance.conformancelib.configuration;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -9,17 +10,40 @@ public class ParameterProviderSingleton {
 	List< List<String> > m_parameterStack;
 	Map<String, List<String>> m_parametersDict;
 	Map<String, String> m_containerMap;
+	// the test cases each method is a step of, in the order they were added
+	Map<String, List<String>> m_testCasesByMethod;
 
     private ParameterProviderSingleton() {
     	reset();
     }
     
     private static final ParameterProviderSingleton INSTANCE = new ParameterProviderSingleton();
+    // bound to a thread whose session has parameters of its own
+    private static final ThreadLocal<ParameterProviderSingleton> s_threadInstance = new ThreadLocal<ParameterProviderSingleton>();
     
     public static ParameterProviderSingleton getInstance()
     {
+        ParameterProviderSingleton rv = s_threadInstance.get();
+        return rv != null ? rv : INSTANCE;
+    }
+
+    public static ParameterProviderSingleton getSharedInstance() {
         return INSTANCE;
     }
+
+    public static ParameterProviderSingleton createIsolatedInstance() {
+        return new ParameterProviderSingleton();
+    }
+
+    // makes getInstance() return the given instance on this thread and returns whatever was bound before
+    public static ParameterProviderSingleton bindToCurrentThread(ParameterProviderSingleton instance) {
+        ParameterProviderSingleton previous = s_threadInstance.get();
+        if(instance == null)
+            s_threadInstance.remove();
+        else
+            s_threadInstance.set(instance);
+        return previous;
+    }
     
     public void reset() {
     	m_parameterStack = null;
@@ -28,6 +52,7 @@ public class ParameterProviderSingleton {
     	m_parametersDict = new HashMap<String, List<String>>();
     	m_containerMap = null;
     	m_containerMap = new HashMap<String,String>();
+    	m_testCasesByMethod = new LinkedHashMap<String, List<String>>();
     }
     
     public List<String> getNextParameter() {
@@ -54,4 +79,54 @@ public class ParameterProviderSingleton {
     public String getContainer(String test) {
     	return m_containerMap.getOrDefault(test, null);
     }
+
+    // the same test method is a step of many test cases, each with its own parameters and container. these
+    // keep them apart so that a whole test plan can be set up before any of it runs
+    public void addNamedParameter(String testCase, String name, List<String> parameter) {
+    	m_parametersDict.put(key(testCase, name), parameter);
+    }
+
+    // falls back to the parameters registered for the method alone
+    public List<String> getNamedParameter(String testCase, String name) {
+    	String key = key(testCase, name);
+    	return m_parametersDict.containsKey(key) ? m_parametersDict.get(key) : m_parametersDict.get(name);
+    }
+
+    public void addContainer(String testCase, String test, String oid) {
+    	m_containerMap.put(key(testCase, test), oid);
+    }
+
+    public String getContainer(String testCase, String test) {
+    	String key = key(testCase, test);
+    	return m_containerMap.containsKey(key) ? m_containerMap.get(key) : m_containerMap.get(test);
+    }
+
+    /**
+     * Adds a step of a test case, so that a discovery request selecting the step's method once, without a
+     * TestCaseIdentifier, runs it for every test case it was added for, in the order they were added
+     *
+     * @param testCase the test case identifier
+     * @param name the fully qualified name of the test method
+     * @param parameter the step's parameters
+     * @param container the test case's container
+     */
+    public void addTestCaseStep(String testCase, String name, List<String> parameter, String container) {
+    	addNamedParameter(testCase, name, parameter);
+    	addContainer(testCase, name, container);
+    	m_testCasesByMethod.computeIfAbsent(name, k -> new ArrayList<String>()).add(testCase);
+    }
+
+    // the test cases the method was added for as a step, in the order they were added
+    public List<String> getTestCases(String name) {
+    	return m_testCasesByMethod.get(name);
+    }
+
+    // the methods that were added as steps, in the order they were first added
+    public List<String> getTestCaseMethods() {
+    	return new ArrayList<String>(m_testCasesByMethod.keySet());
+    }
+
+    private static String key(String testCase, String name) {
+    	return testCase + "/" + name;
+    }
 }
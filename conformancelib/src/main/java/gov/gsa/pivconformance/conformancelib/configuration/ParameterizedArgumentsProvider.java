@@ -13,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 
 public class ParameterizedArgumentsProvider implements ArgumentsProvider {
 	private static final Logger s_logger = LoggerFactory.getLogger(ParameterUtils.class);
@@ -22,7 +23,7 @@ public class ParameterizedArgumentsProvider implements ArgumentsProvider {
 
 	@Override
 	public Stream<? extends Arguments> provideArguments(ExtensionContext context) throws Exception {
-		ParameterProviderSingleton parameterSource = ParameterProviderSingleton.getInstance();
+		ParameterProviderSingleton parameterSource = ConformanceSessionExtension.getSession(context).getParameters();
 		List<Arguments> argList = new ArrayList<Arguments>();
 		Optional<Method> testMethod = context.getTestMethod();
 		List<String> parameters;
@@ -56,14 +57,28 @@ public class ParameterizedArgumentsProvider implements ArgumentsProvider {
 				s_logger.error("{} was discovered by junit but could not be loaded.", fqmn);
 			}
 
-			parameters = parameterSource.getNamedParameter(fqmn);			
-			container = parameterSource.getContainer(fqmn);
+			String testCase = context.getConfigurationParameter("TestCaseIdentifier").orElse(null);
+			List<String> testCases = testCase == null ? parameterSource.getTestCases(fqmn) : null;
+			if(testCases != null) {
+				// the request is for a whole test plan, so the method is run once for each test case it is a step of
+				for(String t : testCases) {
+					argList.add(arguments(parameterSource.getContainer(t, fqmn), parameterSource.getNamedParameter(t, fqmn)));
+				}
+				return argList.stream();
+			}
+			parameters = parameterSource.getNamedParameter(testCase, fqmn);
+			container = parameterSource.getContainer(testCase, fqmn);
 		} else {
 			s_logger.warn("ParameterizedArgumentsProvider called without named parameters in dictionary. Resorting to stack.");
 			// otherwise pop one off the stack
 			parameters = parameterSource.getNextParameter();
 		}
 		
+		argList.add(arguments(container, parameters));
+		return argList.stream();
+	}
+
+	private static Arguments arguments(String container, List<String> parameters) {
 		String containerOid = null;
 		
 		if(container != null && !container.isEmpty())
@@ -77,12 +92,9 @@ public class ParameterizedArgumentsProvider implements ArgumentsProvider {
 				if (sb.length() > 0) sb.append(",");
 				sb.append(p.replaceAll("[\n\r\b\t]", ""));
 			}
-			argList.add(Arguments.of(containerObj, sb.toString()));
-		} else {
-			argList.add(Arguments.of(containerObj));
+			return Arguments.of(containerObj, sb.toString());
 		}
-		
-		return argList.stream();
+		return Arguments.of(containerObj);
 	}
 
 	/*
@@ -0,0 +1,96 @@
+package gov.gsa.pivconformance.conformancelib.junitoptions;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
+
+/**
+ * Binds the ConformanceSession a test plan is running for to the thread running each test class and
+ * each test, and resolves ConformanceSession test method parameters.
+ *
+ * The session is named by the ConformanceSession configuration parameter on the discovery request. If
+ * there is none, the session bound to the thread that launched the test plan is used. Either way it is
+ * kept in the root ExtensionContext.Store, so every test in the plan sees the same session whichever
+ * thread runs it.
+ */
+public class ConformanceSessionExtension implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback,
+		AfterEachCallback, ParameterResolver {
+	private static final Logger s_logger = LoggerFactory.getLogger(ConformanceSessionExtension.class);
+
+	public static final String SESSION_PARAMETER = "ConformanceSession";
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(ConformanceSessionExtension.class);
+	private static final String SESSION_KEY = "session";
+	private static final String BINDING_KEY = "binding";
+
+	/**
+	 * Gets the session a test plan is running for
+	 * @param context any extension context in the test plan
+	 * @return the session
+	 */
+	public static ConformanceSession getSession(ExtensionContext context) {
+		return context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(SESSION_KEY, k -> {
+			ConformanceSession session = ConformanceSession.current();
+			String id = context.getConfigurationParameter(SESSION_PARAMETER).orElse(null);
+			if (id != null) {
+				ConformanceSession named = ConformanceSession.forId(id);
+				if (named != null) {
+					session = named;
+				} else {
+					s_logger.error("No open conformance session {}, using {}", id, session);
+				}
+			}
+			return session;
+		}, ConformanceSession.class);
+	}
+
+	private static void bind(ExtensionContext context) {
+		context.getStore(NAMESPACE).put(BINDING_KEY, getSession(context).bind());
+	}
+
+	private static void unbind(ExtensionContext context) {
+		ConformanceSession.Binding binding = context.getStore(NAMESPACE).remove(BINDING_KEY, ConformanceSession.Binding.class);
+		if (binding != null) {
+			binding.close();
+		}
+	}
+
+	@Override
+	public void beforeAll(ExtensionContext context) {
+		// covers argument providers, which run before the BeforeEach callbacks of each invocation
+		bind(context);
+	}
+
+	@Override
+	public void afterAll(ExtensionContext context) {
+		unbind(context);
+	}
+
+	@Override
+	public void beforeEach(ExtensionContext context) {
+		bind(context);
+	}
+
+	@Override
+	public void afterEach(ExtensionContext context) {
+		unbind(context);
+	}
+
+	@Override
+	public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) throws ParameterResolutionException {
+		return parameterContext.getParameter().getType() == ConformanceSession.class;
+	}
+
+	@Override
+	public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) throws ParameterResolutionException {
+		return getSession(extensionContext);
+	}
+}
@@ -1,5 +1,8 @@
 package gov.gsa.pivconformance.conformancelib.junitoptions;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.junit.platform.engine.TestExecutionResult;
 import org.junit.platform.engine.reporting.ReportEntry;
 import org.junit.platform.launcher.TestExecutionListener;
@@ -8,6 +11,8 @@ import org.junit.platform.launcher.TestPlan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.gsa.pivconformance.cardlib.events.ConformanceEvent;
+import gov.gsa.pivconformance.cardlib.events.TestExecutionEvent;
 
 public class ConformanceTestExecutionListener implements TestExecutionListener {
 	
@@ -17,6 +22,8 @@ public class ConformanceTestExecutionListener implements TestExecutionListener {
 	private static Logger s_testResultLogger = null;
 	
 	private String m_testCaseIdentifier;
+	// flight recorder events for the tests that have started and not yet finished
+	private final Map<String, TestExecutionEvent> m_events = new ConcurrentHashMap<>();
 
 	@Override
 	public void testPlanExecutionStarted(TestPlan testPlan) {
@@ -39,6 +46,12 @@ public class ConformanceTestExecutionListener implements TestExecutionListener {
 		if (s_testProgressLogger == null)
 			s_testProgressLogger = LoggerFactory.getLogger("gov.gsa.conformancelib.testProgress");
 		TestExecutionListener.super.executionStarted(testIdentifier);
+		if (testIdentifier.isTest()) {
+			ConformanceEvent.setCurrentTest(m_testCaseIdentifier + ":" + testIdentifier.getDisplayName());
+		}
+		TestExecutionEvent event = new TestExecutionEvent();
+		event.begin();
+		m_events.put(testIdentifier.getUniqueId(), event);
 		String displayName = testIdentifier.getDisplayName();
 		if(displayName != "JUnit Jupiter") {
 			s_testProgressLogger.info("Started {}: {}", m_testCaseIdentifier, displayName);
@@ -52,6 +65,17 @@ public class ConformanceTestExecutionListener implements TestExecutionListener {
 		if (s_testProgressLogger == null)
 			s_testProgressLogger = LoggerFactory.getLogger("gov.gsa.conformancelib.testProgress");
 		TestExecutionListener.super.executionFinished(testIdentifier, testExecutionResult);
+		TestExecutionEvent event = m_events.remove(testIdentifier.getUniqueId());
+		if (event != null) {
+			event.testCase = m_testCaseIdentifier;
+			event.uniqueId = testIdentifier.getUniqueId();
+			event.displayName = testIdentifier.getDisplayName();
+			event.result = testExecutionResult.getStatus().name();
+			event.finish();
+		}
+		if (testIdentifier.isTest()) {
+			ConformanceEvent.setCurrentTest(null);
+		}
 		String displayName = testIdentifier.getDisplayName();
 		if(displayName != "JUnit Jupiter") {
 			s_testProgressLogger.info("Finished {}:{}", m_testCaseIdentifier, testIdentifier.getDisplayName());
@@ -0,0 +1,576 @@
+package gov.gsa.pivconformance.conformancelib.junitoptions;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.platform.commons.PreconditionViolationException;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.UniqueId;
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
+
+/**
+ * Splits the execution of a whole test plan, run from a single discovery request that selects each test
+ * method once, back into its test cases, so that listeners written for a test plan per test case can be
+ * used with it.
+ *
+ * Each test case is added with the test methods it has as steps, in the order the test cases were added
+ * to the ParameterProviderSingleton. A method that takes its arguments from ParameterizedArgumentsProvider
+ * is invoked once for each of those test cases in that order, so invocation n of it is the step of the nth
+ * test case added with it. Any other method, one with arguments of its own or none, runs the same way
+ * whatever the test case, so it is run once and every test case it is a step of sees all of it.
+ *
+ * Every test case has listeners of its own, which see a TestCasePlan, a view of the launcher's test plan
+ * that holds just the test case's steps and the containers above them, started and finished as if it had
+ * been run on its own. They see the events as they happen, on the thread running the step, or, if the
+ * router replays them, once the test case and every test case before it have finished. Either way what
+ * the listeners print goes to a buffer of the test case's own, which is copied to the output in the order
+ * the test cases were added. The test cases come out in the same order however the launcher scheduled the
+ * test methods, but as the events of a method run once are seen by every test case it is a step of, a
+ * listener that tallies results should only count those its test case owns, see TestCasePlan.isOwnResult.
+ */
+public class TestCaseRouter implements TestExecutionListener {
+	private static final Logger s_logger = LoggerFactory.getLogger(TestCaseRouter.class);
+
+	/**
+	 * Makes the listeners for one test case
+	 */
+	public interface ListenerFactory {
+		/**
+		 * @param identifier the test case identifier
+		 * @param out where the listeners should print to
+		 * @return the listeners
+		 */
+		List<TestExecutionListener> create(String identifier, PrintWriter out);
+	}
+
+	private final ListenerFactory m_listenerFactory;
+	private final PrintWriter m_out;
+	private final boolean m_replay;
+	private final List<Route> m_routes = new ArrayList<Route>();
+	private final Map<String, List<Route>> m_routesByMethod = new HashMap<String, List<Route>>();
+	// the test cases each test identifier that has been seen belongs to, by unique id
+	private final Map<String, List<Route>> m_routesById = new ConcurrentHashMap<String, List<Route>>();
+	private volatile TestPlan m_testPlan;
+	// the discovered test methods by fully qualified name, and those invoked once for each test case
+	private final Map<String, TestIdentifier> m_methods = new HashMap<String, TestIdentifier>();
+	private final Set<String> m_perTestCase = new HashSet<String>();
+	private int m_reported = 0;
+
+	/**
+	 * @param listenerFactory makes the listeners for each test case
+	 * @param out where the listeners' output ends up, or null if they print nothing
+	 */
+	public TestCaseRouter(ListenerFactory listenerFactory, PrintWriter out) {
+		this(listenerFactory, out, false);
+	}
+
+	/**
+	 * @param listenerFactory makes the listeners for each test case
+	 * @param out where the listeners' output ends up, or null if they print nothing
+	 * @param replay true to pass the listeners each test case's events in the order the test cases were
+	 *               added, rather than as they happen
+	 */
+	public TestCaseRouter(ListenerFactory listenerFactory, PrintWriter out, boolean replay) {
+		m_listenerFactory = listenerFactory;
+		m_out = out;
+		m_replay = replay;
+	}
+
+	/**
+	 * Adds the next test case of the plan and makes its listeners
+	 *
+	 * @param identifier the test case identifier
+	 * @param methods the fully qualified names of the test methods that are its steps
+	 */
+	public void addTestCase(String identifier, List<String> methods) {
+		Route route = new Route(identifier, methods);
+		m_routes.add(route);
+		for(String method : new LinkedHashSet<String>(methods)) {
+			m_routesByMethod.computeIfAbsent(method, k -> new ArrayList<Route>()).add(route);
+		}
+	}
+
+	@Override
+	public void testPlanExecutionStarted(TestPlan testPlan) {
+		m_testPlan = testPlan;
+		for(TestIdentifier root : testPlan.getRoots()) {
+			for(TestIdentifier descendant : testPlan.getDescendants(root)) {
+				String method = methodName(descendant);
+				if(method != null) {
+					m_methods.put(method, descendant);
+					if(descendant.isContainer() && takesTestCaseArguments(descendant)) {
+						m_perTestCase.add(method);
+					}
+				}
+			}
+		}
+		for(Route route : m_routes) {
+			for(String method : route.methods) {
+				if(!m_methods.containsKey(method)) {
+					s_logger.error("{} is a step of {} but was not discovered", method, route.identifier);
+					route.pending.remove(method);
+				}
+			}
+			route.plan.includeSteps();
+			if(route.pending.isEmpty()) {
+				// a test case with no steps to run sees the engines started and finished, as it would have
+				// with a request of its own
+				for(TestIdentifier root : testPlan.getRoots()) {
+					route.open(root);
+				}
+				route.finish();
+			}
+		}
+		report();
+	}
+
+	@Override
+	public void testPlanExecutionFinished(TestPlan testPlan) {
+		for(Route route : m_routes) {
+			if(!route.complete) {
+				s_logger.error("{} did not finish with the test plan", route.identifier);
+				route.finish();
+			}
+		}
+		report();
+	}
+
+	@Override
+	public void dynamicTestRegistered(TestIdentifier testIdentifier) {
+		for(Route route : routesFor(testIdentifier)) {
+			route.open(testIdentifier);
+			route.deliver(l -> l.dynamicTestRegistered(testIdentifier));
+		}
+	}
+
+	@Override
+	public void executionStarted(TestIdentifier testIdentifier) {
+		for(Route route : routesFor(testIdentifier)) {
+			route.open(testIdentifier);
+			route.deliver(l -> l.executionStarted(testIdentifier));
+		}
+	}
+
+	@Override
+	public void executionSkipped(TestIdentifier testIdentifier, String reason) {
+		List<Route> routes = routesFor(testIdentifier);
+		if(!routes.isEmpty()) {
+			for(Route route : routes) {
+				route.open(testIdentifier);
+				route.deliver(l -> l.executionSkipped(testIdentifier, reason));
+				completed(route, testIdentifier);
+			}
+			report();
+			return;
+		}
+		// a container that was skipped is all that the test cases below it will see
+		for(Route r : waitingBelow(testIdentifier)) {
+			r.openAncestors(testIdentifier);
+			r.deliver(l -> l.executionSkipped(testIdentifier, reason));
+			r.closeBelow(testIdentifier);
+		}
+		report();
+	}
+
+	@Override
+	public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+		List<Route> routes = routesFor(testIdentifier);
+		if(!routes.isEmpty()) {
+			for(Route route : routes) {
+				route.deliver(l -> l.executionFinished(testIdentifier, testExecutionResult));
+				route.close(testIdentifier);
+				completed(route, testIdentifier);
+			}
+			report();
+			return;
+		}
+		// a container finishing while test cases below it are still waiting, which is how a method run
+		// once for all of its test cases ends, or how a test class that failed to start is seen
+		for(Route r : waitingBelow(testIdentifier)) {
+			r.open(testIdentifier);
+			r.deliver(l -> l.executionFinished(testIdentifier, testExecutionResult));
+			r.close(testIdentifier);
+			r.closeBelow(testIdentifier);
+		}
+		report();
+	}
+
+	@Override
+	public void reportingEntryPublished(TestIdentifier testIdentifier, ReportEntry entry) {
+		for(Route route : routesFor(testIdentifier)) {
+			route.deliver(l -> l.reportingEntryPublished(testIdentifier, entry));
+		}
+	}
+
+	// the test cases a test method, or anything below one, belongs to. containers of test methods, and what
+	// is above them, belong to none, as each test case sees them started and finished on its own
+	private List<Route> routesFor(TestIdentifier testIdentifier) {
+		List<Route> rv = m_routesById.get(testIdentifier.getUniqueId());
+		if(rv != null) {
+			return rv;
+		}
+		rv = Collections.emptyList();
+		TestPlan testPlan = m_testPlan;
+		TestIdentifier below = null;
+		Optional<TestIdentifier> current = Optional.of(testIdentifier);
+		while(testPlan != null && current.isPresent()) {
+			TestIdentifier method = current.get();
+			String name = methodName(method);
+			if(name != null && method.equals(m_methods.get(name))) {
+				List<Route> routes = m_routesByMethod.getOrDefault(name, Collections.emptyList());
+				if(!m_perTestCase.contains(name)) {
+					rv = method.equals(testIdentifier) && method.isContainer() ? Collections.emptyList() : routes;
+				} else if(below != null) {
+					// the invocation of the method that the test identifier is, or is below
+					String segment = UniqueId.parse(below.getUniqueId()).getLastSegment().getValue();
+					int invocation = Integer.parseInt(segment.substring(1));
+					if(invocation > routes.size()) {
+						s_logger.error("{} is not the step of any test case", testIdentifier.getUniqueId());
+					} else {
+						rv = Collections.singletonList(routes.get(invocation - 1));
+					}
+				}
+				break;
+			}
+			below = method;
+			current = testPlan.getParent(method);
+		}
+		m_routesById.put(testIdentifier.getUniqueId(), rv);
+		return rv;
+	}
+
+	// the test cases still waiting for a method at or below a container
+	private List<Route> waitingBelow(TestIdentifier container) {
+		TestPlan testPlan = m_testPlan;
+		List<Route> rv = new ArrayList<Route>();
+		if(testPlan == null) {
+			return rv;
+		}
+		for(Route route : m_routes) {
+			if(route.complete) {
+				continue;
+			}
+			for(String method : route.waiting()) {
+				if(isAtOrBelow(testPlan, m_methods.get(method), container)) {
+					rv.add(route);
+					break;
+				}
+			}
+		}
+		return rv;
+	}
+
+	private static boolean isAtOrBelow(TestPlan testPlan, TestIdentifier testIdentifier, TestIdentifier container) {
+		Optional<TestIdentifier> current = Optional.ofNullable(testIdentifier);
+		while(current.isPresent()) {
+			if(current.get().equals(container)) {
+				return true;
+			}
+			current = testPlan.getParent(current.get());
+		}
+		return false;
+	}
+
+	// marks a method as done for a test case once its invocation for the test case, or the method itself
+	// if it is a single test, has finished
+	private void completed(Route route, TestIdentifier testIdentifier) {
+		String name = methodName(testIdentifier);
+		if(name != null && testIdentifier.equals(m_methods.get(name))) {
+			route.done(name);
+			return;
+		}
+		Optional<TestIdentifier> parent = m_testPlan.getParent(testIdentifier);
+		if(parent.isPresent()) {
+			name = methodName(parent.get());
+			if(name != null && m_perTestCase.contains(name) && parent.get().equals(m_methods.get(name))) {
+				route.done(name);
+			}
+		}
+	}
+
+	// copies the output of, and replays the events of, the test cases that are finished and follow on
+	// from those already reported
+	private void report() {
+		List<Route> ready = new ArrayList<Route>();
+		synchronized(m_routes) {
+			while(m_reported < m_routes.size() && m_routes.get(m_reported).complete) {
+				ready.add(m_routes.get(m_reported++));
+			}
+			for(Route route : ready) {
+				if(m_replay) {
+					for(Runnable event : route.events) {
+						event.run();
+					}
+				}
+				route.out.flush();
+				if(m_out != null) {
+					m_out.print(route.buffer);
+				}
+			}
+			if(m_out != null && !ready.isEmpty()) {
+				m_out.flush();
+			}
+		}
+	}
+
+	private static String methodName(TestIdentifier testIdentifier) {
+		Optional<TestSource> source = testIdentifier.getSource();
+		if(!source.isPresent() || !(source.get() instanceof MethodSource)) {
+			return null;
+		}
+		MethodSource ms = (MethodSource) source.get();
+		return ms.getClassName() + "#" + ms.getMethodName() + "(" + ms.getMethodParameterTypes() + ")";
+	}
+
+	// true for a test method that ParameterizedArgumentsProvider passes arguments to for each test case
+	private static boolean takesTestCaseArguments(TestIdentifier method) {
+		try {
+			Method m = ((MethodSource) method.getSource().get()).getJavaMethod();
+			for(ArgumentsSource source : m.getAnnotationsByType(ArgumentsSource.class)) {
+				if(source.value() == ParameterizedArgumentsProvider.class) {
+					return true;
+				}
+			}
+		} catch (RuntimeException e) {
+			s_logger.error("Unable to load {}", method.getUniqueId(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * The view of the launcher's test plan that the listeners of one test case see. It holds the test case's
+	 * steps and the containers above them as they were discovered, and the invocations and dynamic tests
+	 * below them once the test case has seen them.
+	 */
+	public final class TestCasePlan extends TestPlan {
+		private final Route m_route;
+		private final Map<String, TestIdentifier> m_identifiers = new ConcurrentHashMap<String, TestIdentifier>();
+
+		private TestCasePlan(Route route) {
+			super(!route.methods.isEmpty());
+			m_route = route;
+		}
+
+		/**
+		 * Tells whether a result seen by the test case is its own. Each invocation of a method that takes the
+		 * arguments of a test case is the test case's own, while a method that is run once for all of the
+		 * test cases it is a step of belongs to the first of them, so that its results are counted once.
+		 *
+		 * @param testIdentifier a test identifier the test case has seen
+		 * @return true if the result should be counted for this test case
+		 */
+		public boolean isOwnResult(TestIdentifier testIdentifier) {
+			List<Route> routes = routesFor(testIdentifier);
+			return routes.isEmpty() || routes.get(0) == m_route;
+		}
+
+		void include(TestIdentifier testIdentifier) {
+			m_identifiers.put(testIdentifier.getUniqueId(), testIdentifier);
+		}
+
+		// the discovered steps of the test case and what is above them
+		void includeSteps() {
+			for(String method : m_route.methods) {
+				Optional<TestIdentifier> current = Optional.ofNullable(m_methods.get(method));
+				while(current.isPresent()) {
+					include(current.get());
+					current = m_testPlan.getParent(current.get());
+				}
+			}
+		}
+
+		@Override
+		public Set<TestIdentifier> getRoots() {
+			return included(m_testPlan.getRoots());
+		}
+
+		@Override
+		public Optional<TestIdentifier> getParent(TestIdentifier child) {
+			return m_testPlan.getParent(child).filter(parent -> m_identifiers.containsKey(parent.getUniqueId()));
+		}
+
+		@Override
+		public Set<TestIdentifier> getChildren(String parentId) {
+			return included(m_testPlan.getChildren(parentId));
+		}
+
+		@Override
+		public TestIdentifier getTestIdentifier(String uniqueId) {
+			TestIdentifier rv = m_identifiers.get(uniqueId);
+			if(rv == null) {
+				throw new PreconditionViolationException("No TestIdentifier with unique ID [" + uniqueId + "] is part of " + m_route.identifier);
+			}
+			return rv;
+		}
+
+		@Override
+		public long countTestIdentifiers(Predicate<? super TestIdentifier> predicate) {
+			return m_identifiers.values().stream().filter(predicate).count();
+		}
+
+		private Set<TestIdentifier> included(Set<TestIdentifier> testIdentifiers) {
+			Set<TestIdentifier> rv = new LinkedHashSet<TestIdentifier>();
+			for(TestIdentifier testIdentifier : testIdentifiers) {
+				if(m_identifiers.containsKey(testIdentifier.getUniqueId())) {
+					rv.add(testIdentifier);
+				}
+			}
+			return Collections.unmodifiableSet(rv);
+		}
+	}
+
+	// one test case: its listeners, the test plan they see and where it has got to
+	private final class Route {
+		final String identifier;
+		final List<String> methods;
+		// methods that no invocation has finished for yet
+		final Set<String> pending;
+		final StringWriter buffer = new StringWriter();
+		final PrintWriter out = new PrintWriter(buffer);
+		final List<TestExecutionListener> listeners;
+		// what is to be replayed: the events, and the test identifiers added to the plan as they were seen
+		final List<Runnable> events = new ArrayList<Runnable>();
+		// the test case's own view of the plan
+		final TestCasePlan plan;
+		final Set<String> opened = new LinkedHashSet<String>();
+		final Deque<TestIdentifier> containers = new ArrayDeque<TestIdentifier>();
+		boolean started = false;
+		volatile boolean complete = false;
+
+		Route(String identifier, List<String> methods) {
+			this.identifier = identifier;
+			this.methods = Collections.unmodifiableList(new ArrayList<String>(methods));
+			this.pending = new LinkedHashSet<String>(methods);
+			this.plan = new TestCasePlan(this);
+			this.listeners = m_listenerFactory.create(identifier, out);
+		}
+
+		synchronized List<String> waiting() {
+			return new ArrayList<String>(pending);
+		}
+
+		synchronized void deliver(Consumer<TestExecutionListener> event) {
+			Runnable delivery = () -> {
+				for(TestExecutionListener listener : listeners) {
+					event.accept(listener);
+				}
+			};
+			if(m_replay) {
+				events.add(delivery);
+			} else {
+				delivery.run();
+			}
+		}
+
+		private void start() {
+			if(!started) {
+				started = true;
+				deliver(l -> l.testPlanExecutionStarted(plan));
+			}
+		}
+
+		// adds what is above a test identifier to the test case's plan, starting the containers
+		synchronized void openAncestors(TestIdentifier testIdentifier) {
+			start();
+			Deque<TestIdentifier> ancestors = new ArrayDeque<TestIdentifier>();
+			Optional<TestIdentifier> parent = m_testPlan.getParent(testIdentifier);
+			while(parent.isPresent() && !opened.contains(parent.get().getUniqueId())) {
+				ancestors.push(parent.get());
+				parent = m_testPlan.getParent(parent.get());
+			}
+			for(TestIdentifier ancestor : ancestors) {
+				add(ancestor);
+				containers.push(ancestor);
+				deliver(l -> l.executionStarted(ancestor));
+			}
+		}
+
+		// adds a test identifier and what is above it to the test case's plan
+		synchronized void open(TestIdentifier testIdentifier) {
+			openAncestors(testIdentifier);
+			if(testIdentifier.isContainer() && !opened.contains(testIdentifier.getUniqueId())) {
+				add(testIdentifier);
+				containers.push(testIdentifier);
+				deliver(l -> l.executionStarted(testIdentifier));
+			} else {
+				add(testIdentifier);
+			}
+		}
+
+		private void add(TestIdentifier testIdentifier) {
+			if(opened.add(testIdentifier.getUniqueId())) {
+				// a replayed plan grows as it did when the events happened
+				if(m_replay) {
+					events.add(() -> plan.include(testIdentifier));
+				} else {
+					plan.include(testIdentifier);
+				}
+			}
+		}
+
+		// takes a container that has been finished off the stack
+		synchronized void close(TestIdentifier testIdentifier) {
+			containers.remove(testIdentifier);
+		}
+
+		// gives up on the methods at or below a container
+		synchronized void closeBelow(TestIdentifier container) {
+			for(String method : waiting()) {
+				if(isAtOrBelow(m_testPlan, m_methods.get(method), container)) {
+					pending.remove(method);
+				}
+			}
+			if(pending.isEmpty()) {
+				finish();
+			}
+		}
+
+		// marks a method as done, finishing the test case once all of them are
+		synchronized void done(String method) {
+			if(pending.remove(method) && pending.isEmpty()) {
+				finish();
+			}
+		}
+
+		// finishes the containers that are still open, and then the test case's plan. the containers are
+		// shared with other test cases, so they are taken to have succeeded for this one
+		synchronized void finish() {
+			if(complete) {
+				return;
+			}
+			start();
+			while(!containers.isEmpty()) {
+				TestIdentifier container = containers.pop();
+				deliver(l -> l.executionFinished(container, TestExecutionResult.successful()));
+			}
+			deliver(l -> l.testPlanExecutionFinished(plan));
+			out.flush();
+			complete = true;
+		}
+	}
+}
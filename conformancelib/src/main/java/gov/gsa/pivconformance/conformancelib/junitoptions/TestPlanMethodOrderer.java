@@ -0,0 +1,50 @@
+package gov.gsa.pivconformance.conformancelib.junitoptions;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.MethodDescriptor;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.MethodOrdererContext;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
+
+/**
+ * Orders the test methods of a class by the first test case each is a step of, so that a whole test
+ * plan run from a single discovery request keeps close to the order of the test database. Methods that
+ * are not a step of any test case come last.
+ *
+ * Set it as the default with the junit.jupiter.testmethod.order.default configuration parameter.
+ */
+public class TestPlanMethodOrderer implements MethodOrderer {
+	public static final String DEFAULT_ORDER_PARAMETER = "junit.jupiter.testmethod.order.default";
+
+	@Override
+	public void orderMethods(MethodOrdererContext context) {
+		List<String> methods = ParameterProviderSingleton.getInstance().getTestCaseMethods();
+		Map<String, Integer> positions = new HashMap<String, Integer>();
+		for(int i = 0; i < methods.size(); i++) {
+			positions.putIfAbsent(methods.get(i), i);
+		}
+		context.getMethodDescriptors().sort(Comparator.comparingInt(
+				(MethodDescriptor d) -> positions.getOrDefault(fqmn(d.getMethod()), Integer.MAX_VALUE)));
+	}
+
+	// leaves the execution mode to the configuration, which may run methods side by side
+	@Override
+	public Optional<ExecutionMode> getDefaultExecutionMode() {
+		return Optional.empty();
+	}
+
+	private static String fqmn(Method m) {
+		return m.getDeclaringClass().getName() + "#" + m.getName() + "(" +
+				Arrays.stream(m.getParameterTypes()).map(Class::getName).collect(Collectors.joining(", ")) + ")";
+	}
+}
@@ -47,17 +47,24 @@ import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterUtils;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
 import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
 import gov.gsa.pivconformance.cardlib.card.client.Algorithm;
 import gov.gsa.pivconformance.cardlib.card.client.CardHolderUniqueIdentifier;
 import gov.gsa.pivconformance.cardlib.card.client.SignedPIVDataObject;
 
+@ExtendWith(ConformanceSessionExtension.class)
+@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 public class CMSTests {
 	static Logger s_logger = LoggerFactory.getLogger(CMSTests.class);
 
@@ -1,12 +1,13 @@
 package gov.gsa.pivconformance.conformancelib.tests;
 
 import gov.gsa.pivconformance.cardlib.card.client.*;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton.LOGIN_STATUS;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterUtils;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
 import gov.gsa.pivconformance.conformancelib.utilities.*;
-import org.apache.commons.codec.binary.Hex;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.cms.ContentInfo;
 import org.bouncycastle.asn1.x509.*;
@@ -22,6 +23,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +43,7 @@ import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+@ExtendWith(ConformanceSessionExtension.class)
 public class PKIX_X509DataObjectTests {
 	private static final Logger s_logger = LoggerFactory.getLogger(PKIX_X509DataObjectTests.class);
 	public static final HashMap<String, String> PKIX_X509DataObjectIdentifiers = new HashMap<String, String>() {
@@ -93,6 +98,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_2(String oid, TestReporter reporter) { 
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -107,6 +113,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_PIVAuthx509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_3(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -128,6 +135,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_PIVAuthx509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_4(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;		
@@ -213,6 +221,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_5(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -232,6 +241,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_PIVAuthx509TestProvider2")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_6(String oid, String containersAndPolicyOids, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -255,6 +265,7 @@ public class PKIX_X509DataObjectTests {
 				s_logger.debug("For {}, one of policy OIDs ({}) should be asserted", containerOid, allowedPolicies[1]);
 				try {
 					Validator validator = new Validator("SunRsaSign", "cacerts.jks", "changeit");
+					validator.setContainerOid(oid);
 					s_logger.debug(validator.toString());
 					// Validate cert to trust anchor in default keystore
 					valid = validator.isValid(eeCert, allowedPolicies[1], null);
@@ -421,6 +432,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_7(String oid, TestReporter reporter) {
 		X509Certificate cert = AtomHelper.getCertificateForContainer(AtomHelper.getDataObject(oid));
 		assertNotNull(cert, "Certificate could not be read for " + oid);
@@ -437,6 +449,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_8(String oid, TestReporter reporter) {
 		X509Certificate cert = AtomHelper.getCertificateForContainer(AtomHelper.getDataObject(oid));
 		assertNotNull(cert, "Certificate could not be read for " + oid);
@@ -466,6 +479,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_x509TestProvider")
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_9(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -495,6 +509,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_23(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -529,6 +544,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_PIVAuthx509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_10(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;		
@@ -550,6 +566,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ_WRITE)
     void PKIX_Test_11(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -573,6 +590,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(/*name = "{index} => oid = {0}"*/)
     //@MethodSource("pKIX_x509TestProvider2")
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_12(String oid, String requiredOid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -604,7 +622,7 @@ public class PKIX_X509DataObjectTests {
 			fail(e);
 		}
 
-		assertTrue(matchFascn(cert, fascn, requiredOid), "Certificate doesn't contain " + Hex.encodeHexString(fascn));
+		assertTrue(matchFascn(cert, fascn, requiredOid), "Certificate doesn't contain " + HexUtil.toLowerHexString(fascn));
 	}
 	
 	//Confirm that expiration of certificate is not later than expiration of card
@@ -612,6 +630,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_13(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;		
@@ -641,6 +660,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_14(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -661,6 +681,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_DigSigx509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_15(String oid, TestReporter reporter) {
 		PKIX_Test_4(oid, reporter);
 	}
@@ -672,6 +693,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_KeyMgmtx509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_16(String oid, TestReporter reporter) {
 		PKIX_Test_4(oid, reporter);
     }
@@ -685,6 +707,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_KeyMgmtx509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_17(String oid, TestReporter reporter) {
 		PKIX_Test_4(oid, reporter);
     }
@@ -694,6 +717,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_CardAuthx509TestProvider2")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_18(String oid, String policyOid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;		
@@ -733,6 +757,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_CardAuthx509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_19(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;		
@@ -751,6 +776,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_CardAuthx509TestProvider2")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_20(String oid, String parameters, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -784,6 +810,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_CardAuthx509TestProvider2")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_21(String oid, String ekuOid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -821,6 +848,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_x509TestProvider")
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_22(String oid, TestReporter reporter) {
 		X509Certificate cert = AtomHelper.getCertificateForContainer(AtomHelper.getDataObject(oid));
 		assertNotNull(cert, "Certificate could not be read for " + oid);
@@ -850,6 +878,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_x509TestProvider")
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_24(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -878,6 +907,7 @@ public class PKIX_X509DataObjectTests {
     @ParameterizedTest(name = "{index} => oid = {0}")
     //@MethodSource("pKIX_x509TestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_25(String oid, TestReporter reporter) {
 		CMSSignedData sd = null;
 		CMSTypedData td = null;
@@ -957,6 +987,7 @@ public class PKIX_X509DataObjectTests {
 	@DisplayName("PKIX.26 test")
     @ParameterizedTest(name = "{index} => oid = {0}")
     @MethodSource("pkix_CHUIDTestProvider")
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_26(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;		
@@ -977,6 +1008,7 @@ public class PKIX_X509DataObjectTests {
     //@MethodSource("pKIX_x509TestProvider2")
     //@ArgumentsSource(ParameterizedArgumentsProvider.class)
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_27(String oid, String requiredOid, TestReporter reporter) {
 		//Check that the oid passed in is not null
 		if (oid == null) {
@@ -1006,7 +1038,7 @@ public class PKIX_X509DataObjectTests {
 			fail(e);
 		}
 
-		assertTrue(matchUuid(cert, guid), "Certificate doesn't contain " + Hex.encodeHexString(guid));
+		assertTrue(matchUuid(cert, guid), "Certificate doesn't contain " + HexUtil.toLowerHexString(guid));
 	}
 	
 	//No other name forms appear in the subjectAltName extension.
@@ -1015,6 +1047,7 @@ public class PKIX_X509DataObjectTests {
     //@MethodSource("pKIX_x509TestProvider2")
     //@ArgumentsSource(ParameterizedArgumentsProvider.class)
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
     void PKIX_Test_28(String oid, TestReporter reporter) {
 		//Check that the oid passed in is not null
 		if (oid == null) {
@@ -1040,7 +1073,7 @@ public class PKIX_X509DataObjectTests {
 		}
 
 		ArrayList<Integer> types = new ArrayList<Integer>(Arrays.asList(0, 6));
-		assertTrue(onlyMatchesTypes(cert, types) , "Certificate doesn't contain " + Hex.encodeHexString(guid));
+		assertTrue(onlyMatchesTypes(cert, types) , "Certificate doesn't contain " + HexUtil.toLowerHexString(guid));
     }
 	
 	private static Map<String, X509Certificate> getCertificatesForOids(List<String> oids) {
@@ -1071,7 +1104,7 @@ public class PKIX_X509DataObjectTests {
 			//s_logger.debug("Retrieving certificate for oid {}", oid);
 			PIVDataObject obj = PIVDataObjectFactory.createDataObjectForOid(oid);
 			assertNotNull(obj, "Failed to allocate PIV data object");
-			result = piv.pivGetData(c, oid, obj);
+			result = CardUtils.getData(c, piv, oid, obj);
 			if(result != MiddlewareStatus.PIV_OK) {
 				// this is only a warning here because it is up to the consumer of this function to decide
 				// whether a missing cert constitutes an assertion failure
@@ -1098,6 +1131,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_x509TestProvider")
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_29(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -1127,6 +1161,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_x509TestProvider")
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_30(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -1160,6 +1195,7 @@ public class PKIX_X509DataObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("pKIX_x509TestProvider")
 	@ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void PKIX_Test_31(String oid, TestReporter reporter) {
 		if (AtomHelper.isOptionalAndAbsent(oid))
 			return;
@@ -1421,7 +1457,7 @@ public class PKIX_X509DataObjectTests {
 							byte[] encodedFascn = ASN1OctetString.getInstance(onValue.getObject()).getOctets();
 							if (encodedFascn != null &&  (Arrays.equals(encodedFascn, identifier))) {
 								result = Arrays.equals(encodedFascn, identifier);
-								s_logger.debug("FASCN: {}", Hex.encodeHexString(encodedFascn));
+								s_logger.debug("FASCN: {}", HexUtil.toLowerHexString(encodedFascn));
 							}
 						} else {
 							s_logger.error("Found superfluous OID: ", oID.toString());
@@ -13,6 +13,9 @@ import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,9 +24,13 @@ import gov.gsa.pivconformance.cardlib.card.client.CardCapabilityContainer;
 import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
 import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 import gov.gsa.pivconformance.cardlib.tlv.BerTag;
 import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
 
+@ExtendWith(ConformanceSessionExtension.class)
+@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 public class SP800_73_4CCCTests {
     private static final Logger s_logger = LoggerFactory.getLogger(SP800_73_4CCCTests.class);
 
@@ -13,6 +13,9 @@ import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +23,8 @@ import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
 import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
 import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 
 /**
  * This class is a collector that allows maintainers to collapse like atoms
@@ -50,6 +55,8 @@ import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
  *
  */
 
+@ExtendWith(ConformanceSessionExtension.class)
+@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 public class SP800_73_4CommmonObjectTests {
     private static final Logger s_logger = LoggerFactory.getLogger(SP800_73_4CommmonObjectTests.class);
     // <cut>
@@ -12,6 +12,9 @@ import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,10 +24,12 @@ import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
 import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
 import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 import gov.gsa.pivconformance.cardlib.tlv.BerTag;
 import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
 
 
+@ExtendWith(ConformanceSessionExtension.class)
 public class SP800_73_4DiscoveryObjectTests {
 	
     private static final Logger s_logger = LoggerFactory.getLogger(SP800_73_4DiscoveryObjectTests.class);
@@ -34,6 +39,7 @@ public class SP800_73_4DiscoveryObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("sp800_73_4_DiscoveryObjectTestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void sp800_73_4_Test_38(String oid, TestReporter reporter) {		
 		try {
 			PIVDataObject o = AtomHelper.getDataObject(oid);	
@@ -53,6 +59,7 @@ public class SP800_73_4DiscoveryObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("sp800_73_4_DiscoveryObjectTestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void sp800_73_4_Test_40(String oid, TestReporter reporter) {
 		
 		PIVDataObject o = AtomHelper.getDataObject(oid);
@@ -69,6 +76,7 @@ public class SP800_73_4DiscoveryObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("sp800_73_4_DiscoveryObjectTestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+    @ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void sp800_73_4_Test_41(String oid, TestReporter reporter) {
 		
 		PIVDataObject o = AtomHelper.getDataObject(oid);
@@ -86,6 +94,7 @@ public class SP800_73_4DiscoveryObjectTests {
 	@ParameterizedTest(name = "{index} => oid = {0}")
 	//@MethodSource("sp800_73_4_DiscoveryObjectTestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ_WRITE)
 	void sp800_73_4_Test_42(String oid, TestReporter reporter) {
 		
 		PIVDataObject o = AtomHelper.getDataObject(oid);
@@ -117,6 +126,7 @@ public class SP800_73_4DiscoveryObjectTests {
 	//@MethodSource("sp800_73_4_DiscoveryObjectTestProvider")
     @ArgumentsSource(ParameterizedArgumentsProvider.class)
 	@DisplayName("SP800-73-4.55 test")
+	@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 	void sp800_73_4_Test_55 (String oid, TestReporter reporter) {
 				
 		PIVDataObject o = AtomHelper.getDataObject(oid);
@@ -14,6 +14,9 @@ import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,13 +27,18 @@ import gov.gsa.pivconformance.cardlib.card.client.CardHolderBiometricData;
 import gov.gsa.pivconformance.cardlib.card.client.DiscoveryObject;
 import gov.gsa.pivconformance.cardlib.card.client.KeyHistoryObject;
 import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObjectFactory;
 import gov.gsa.pivconformance.cardlib.card.client.PrintedInformation;
 import gov.gsa.pivconformance.cardlib.card.client.SecurityObject;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
 import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 import gov.gsa.pivconformance.cardlib.tlv.BerTag;
 import gov.gsa.pivconformance.cardlib.tlv.TagConstants;
 
+@ExtendWith(ConformanceSessionExtension.class)
+@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 public class SP800_73_4SecurityObjectTests {
 	static Logger s_logger = LoggerFactory.getLogger(SP800_73_4SecurityObjectTests.class);
 
@@ -63,9 +71,6 @@ public class SP800_73_4SecurityObjectTests {
     void sp800_73_4_Test_34(String oid, TestReporter reporter) {
 
 		PIVDataObject o = AtomHelper.getDataObject(oid);
-        
-        boolean decoded = o.decode();
-		assertTrue(decoded);
 		
 		// Get tag list
 		List<BerTag> tagList = o.getTagList();
@@ -128,8 +133,6 @@ public class SP800_73_4SecurityObjectTests {
 
 		PIVDataObject o = AtomHelper.getDataObject(oid);
 
-        boolean decoded = o.decode();
-		assertTrue(decoded);
 		HashMap<Integer, String> idList = ((SecurityObject) o).getContainerIDList();
 		
 		assertTrue(idList.size() > 0);
@@ -156,9 +159,6 @@ public class SP800_73_4SecurityObjectTests {
 			fail(errMsg);
 		}
 
-        boolean decoded = o.decode();
-		assertTrue(decoded);
-
 		// Convenience hashes
 		HashMap<String, byte[]> soDataElements = new  HashMap<String, byte[]>();
 		HashMap<Integer, String> idList = ((SecurityObject) o).getContainerIDList();
@@ -238,14 +238,16 @@ public class SP800_73_4SecurityObjectTests {
             	s_logger.error(errMsg);
             	fail(errMsg);
 			}
-            decoded = dataObject.decode();
-    		assertTrue(decoded);
 		}
 
-		((SecurityObject) o).setMapOfDataElements(soDataElements);
+		// The security object is shared with the other tests, so the data elements go on a copy of it
+		SecurityObject so = (SecurityObject) PIVDataObjectFactory.createDataObjectForOid(oid);
+		so.setBytes(o.getBytes());
+		assertTrue(so.decode());
+		so.setMapOfDataElements(soDataElements);
 		
 		//Confirm that message digest from signed attributes bag matches the digest over Fingerprint biometric data (excluding contents of digital signature field) 
-		boolean verified = ((SecurityObject) o).verifyHashes();
+		boolean verified = so.verifyHashes();
 		assertTrue(verified, "Hashes is security object were not equivalent");
     }
 
@@ -257,9 +259,6 @@ public class SP800_73_4SecurityObjectTests {
     void sp800_73_4_Test_54(String oid, TestReporter reporter) {
 		try {
 			PIVDataObject o = AtomHelper.getDataObject(oid);
-	        
-	        boolean decoded = o.decode();
-			assertTrue(decoded);
 			
 			// Get tag list
 			List<BerTag> tagList = o.getTagList();
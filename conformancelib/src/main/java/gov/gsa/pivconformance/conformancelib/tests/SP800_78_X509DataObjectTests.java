@@ -14,9 +14,9 @@ import java.security.spec.RSAPublicKeySpec;
 import java.util.*;
 import java.util.stream.Stream;
 
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
 import gov.gsa.pivconformance.conformancelib.utilities.ValidatorHelper;
-import org.apache.commons.codec.binary.Hex;
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.pkcs.RSASSAPSSparams;
@@ -34,16 +34,23 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
 import gov.gsa.pivconformance.cardlib.card.client.X509CertificateDataObject;
 import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+@ExtendWith(ConformanceSessionExtension.class)
+@ResourceLock(value = CardUtils.CARD_RESOURCE, mode = ResourceAccessMode.READ)
 public class SP800_78_X509DataObjectTests {
 	
 	static Logger s_logger = LoggerFactory.getLogger(SP800_78_X509DataObjectTests.class);
@@ -274,7 +281,7 @@ add("X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID", new List<String>("1.2.840.113
 					// RFC 4055: All implementations MUST accept both NULL and absent parameters as
 					// legal and equivalent encodings. Certs generated by BC end encode a NULL
 					// element which we manually decode and ignore if the bytes are { 5, 0 }
-					String errMsg = "Parameter must NOT be supplied for " + name + ".  Value of params " + Hex.encodeHexString(params);
+					String errMsg = "Parameter must NOT be supplied for " + name + ".  Value of params " + HexUtil.toLowerHexString(params);
 					assertTrue ((params[0] != 5 || params[1] != 0), errMsg);
 				} else {
 					s_logger.debug("Setting BC cert's params to null");
@@ -294,12 +301,12 @@ add("X509_CERTIFICATE_FOR_PIV_AUTHENTICATION_OID", new List<String>("1.2.840.113
 			} else if (signatureAlgOID.compareTo(ecdsaWithSHA256) == 0) {
 				byte[] params = cert.getSigAlgParams();
 				if (params != null)
-					s_logger.error("Parameter must NOT be supplied for " + signatureAlgOID + ".  Value of params " + Hex.encodeHexString(params));
+					s_logger.error("Parameter must NOT be supplied for " + signatureAlgOID + ".  Value of params " + HexUtil.toLowerHexString(params));
 				assertTrue(params == null, "Non-conformant signature algorithm OID");
 			} else if (signatureAlgOID.compareTo(ecdsaWithSHA384) == 0) {
 				byte[] params = cert.getSigAlgParams();
 				if (params != null)
-					s_logger.error("Parameter must NOT be supplied for " + signatureAlgOID + ".  Value of params " + Hex.encodeHexString(params));
+					s_logger.error("Parameter must NOT be supplied for " + signatureAlgOID + ".  Value of params " + HexUtil.toLowerHexString(params));
 				assertTrue(params == null, "Non-conformant signature algorithm OID");
 			} else {
 				assertTrue(false, "Signature algorithm (" + signatureAlgOID + ") is not an allowable algorithm");
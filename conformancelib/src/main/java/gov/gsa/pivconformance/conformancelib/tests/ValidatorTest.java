@@ -2,6 +2,7 @@ package gov.gsa.pivconformance.conformancelib.tests;
 
 import gov.gsa.pivconformance.conformancelib.utilities.Validator;
 import gov.gsa.pivconformance.conformancelib.utilities.ValidatorHelper;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,6 +27,7 @@ import java.util.stream.Stream;
 import static gov.gsa.pivconformance.conformancelib.utilities.TestRunLogController.pathFixup;
 import static gov.gsa.pivconformance.conformancelib.utilities.ValidatorHelper.getTrustAnchorForGivenCertificate;
 
+@ExtendWith(ConformanceSessionExtension.class)
 public class ValidatorTest {
     static Logger s_logger = LoggerFactory.getLogger(ValidatorTest.class);
     private static Validator m_validator;
@@ -1,13 +1,13 @@
 package gov.gsa.pivconformance.conformancelib.tools;
 
 import gov.gsa.pivconformance.cardlib.card.client.*;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
 import gov.gsa.pivconformance.conformancelib.configuration.CardInfoController;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
 import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
 import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
 import org.apache.commons.cli.*;
-import org.apache.commons.codec.binary.Hex;
 import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1Sequence;
 import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
@@ -310,7 +310,7 @@ public class CardAuthTest {
 				// XXX *** for now, the digest we'll use in the challenge block is always sha256 for RSA. We likely need to change that.
 				String digestOid = NISTObjectIdentifiers.id_sha256.toString();
 				byte[] paddedChallenge = GeneralAuthenticateHelper.preparePKCS1Challenge(challenge, digestOid, modulusLen);
-				s_logger.debug("padded challenge: {}", Hex.encodeHexString(paddedChallenge));
+				s_logger.debug("padded challenge: {}", HexUtil.toLowerHexString(paddedChallenge));
 				byte[] template = GeneralAuthenticateHelper.generateRequest(containerOid, paddedChallenge);
 				ResponseAPDU resp = null;
 				try {
@@ -318,13 +318,13 @@ public class CardAuthTest {
 				} catch (CardClientException e) {
 					s_logger.error("Error during GeneralAuthenticateHelper.sendRequest()", e);
 				}
-				s_logger.debug("response was {}", Hex.encodeHexString(resp.getData()));
+				s_logger.debug("response was {}", HexUtil.toLowerHexString(resp.getData()));
 				byte[] cr = GeneralAuthenticateHelper.getChallengeResponseFromData(resp.getData());
 				if(cr == null) {
 					s_logger.error("Invalid challenge response buffer.");
 					continue;
 				}
-				s_logger.info("parsed challenge response: {}", Hex.encodeHexString(cr));
+				s_logger.info("parsed challenge response: {}", HexUtil.toLowerHexString(cr));
 				// XXX *** for now, the digest we'll use in the challenge block is always sha256 for RSA. We likely need to change that.
 				boolean verified = GeneralAuthenticateHelper.verifyResponseSignature(containerCert.getSigAlgName(), pubKey, cr, challenge);
 				s_logger.info("verify returns: {}", verified);
@@ -0,0 +1,287 @@
+package gov.gsa.pivconformance.conformancelib.tools;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceTestDatabase;
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
+import gov.gsa.pivconformance.conformancelib.configuration.TestCaseModel;
+import gov.gsa.pivconformance.conformancelib.configuration.TestStepModel;
+import gov.gsa.pivconformance.conformancelib.junitoptions.TestCaseRouter;
+import gov.gsa.pivconformance.conformancelib.junitoptions.TestPlanMethodOrderer;
+import gov.gsa.pivconformance.conformancelib.utilities.ContainerPrefetcher;
+
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectMethod;
+
+/**
+ * The enabled test cases from a conformance test database, with a single discovery request that runs
+ * them all, for tools that run the same test plan against many cards. The request and the named
+ * parameters behind it are set up once and can be executed any number of times, on one thread or,
+ * from withThreads, on several.
+ */
+class ConformanceTestPlan {
+    private static final Logger s_logger = LoggerFactory.getLogger(ConformanceTestPlan.class);
+    private static final String TEST_SET = "SELECT * from TestCases where Enabled=1";
+
+    static final class TestCase {
+        final String identifier;
+        // the container the test case is about, as configured
+        final String container;
+        // the fully qualified names of the test methods that are its steps
+        final List<String> methods;
+
+        TestCase(String identifier, String container, List<String> methods) {
+            this.identifier = identifier;
+            this.container = container;
+            this.methods = Collections.unmodifiableList(new ArrayList<>(methods));
+        }
+    }
+
+    // tallies the outcome of the test methods in one test case. a method run once for several test cases
+    // is counted for the first of them, and for the others only decides whether they passed or failed
+    static final class Result implements TestExecutionListener {
+        int passed = 0;
+        int failed = 0;
+        int skipped = 0;
+        // the outcome of the steps counted for another test case
+        boolean sharedPassed = false;
+        boolean sharedFailed = false;
+        private TestCaseRouter.TestCasePlan m_plan;
+
+        @Override
+        public void testPlanExecutionStarted(TestPlan testPlan) {
+            m_plan = testPlan instanceof TestCaseRouter.TestCasePlan ? (TestCaseRouter.TestCasePlan) testPlan : null;
+        }
+
+        @Override
+        public void executionSkipped(TestIdentifier testIdentifier, String reason) {
+            if(testIdentifier.isTest() && isOwn(testIdentifier)) skipped++;
+        }
+
+        @Override
+        public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+            if(!testIdentifier.isTest()) return;
+            boolean own = isOwn(testIdentifier);
+            switch(testExecutionResult.getStatus()) {
+            case SUCCESSFUL:
+                if(own) passed++; else sharedPassed = true;
+                break;
+            case ABORTED:
+                if(own) skipped++;
+                break;
+            default:
+                if(own) failed++; else sharedFailed = true;
+            }
+        }
+
+        private boolean isOwn(TestIdentifier testIdentifier) {
+            return m_plan == null || m_plan.isOwnResult(testIdentifier);
+        }
+
+        boolean hasFailed() {
+            return failed > 0 || sharedFailed;
+        }
+
+        String getResult() {
+            if(hasFailed()) return "FAIL";
+            if(passed > 0 || sharedPassed) return "PASS";
+            return "SKIPPED";
+        }
+    }
+
+    private final List<TestCase> m_testCases;
+    private final Set<String> m_methods;
+    private final int m_threads;
+    private final LauncherDiscoveryRequest m_request;
+
+    ConformanceTestPlan(List<TestCase> testCases, Set<String> methods, int threads) {
+        m_testCases = Collections.unmodifiableList(testCases);
+        m_methods = Collections.unmodifiableSet(methods);
+        m_threads = threads;
+        m_request = createRequest(methods, threads);
+    }
+
+    List<TestCase> getTestCases() {
+        return m_testCases;
+    }
+
+    /**
+     * Gets the same test plan run on a number of threads. Each test case's listeners are then passed its
+     * events once it and the test cases before it have finished, so they still see the test cases in plan
+     * order
+     *
+     * @param threads number of threads to run the test methods on
+     * @return the test plan
+     */
+    ConformanceTestPlan withThreads(int threads) {
+        return threads == m_threads ? this : new ConformanceTestPlan(m_testCases, new LinkedHashSet<>(m_methods), threads);
+    }
+
+    // runs the whole plan and returns the results of its test cases in plan order
+    List<Result> execute(Launcher launcher) {
+        return execute(launcher, (identifier, out) -> Collections.emptyList(), null);
+    }
+
+    /**
+     * Runs the whole plan, on the calling thread unless it was made withThreads. Listeners for the whole
+     * run, such as a summary, are registered with the launcher
+     *
+     * @param launcher the launcher
+     * @param listenerFactory makes further listeners for each test case
+     * @param out where those listeners' output ends up, in plan order, or null if they print nothing
+     * @return the results of the test cases in plan order
+     */
+    List<Result> execute(Launcher launcher, TestCaseRouter.ListenerFactory listenerFactory, PrintWriter out) {
+        List<Result> rv = new ArrayList<>();
+        TestCaseRouter router = new TestCaseRouter((identifier, testOut) -> {
+            Result result = new Result();
+            rv.add(result);
+            List<TestExecutionListener> listeners = new ArrayList<>(listenerFactory.create(identifier, testOut));
+            listeners.add(result);
+            return listeners;
+        }, out, m_threads > 1);
+        for(TestCase testCase : m_testCases) {
+            router.addTestCase(testCase.identifier, testCase.methods);
+        }
+        try {
+            launcher.execute(m_request, router);
+        } catch (Exception e) {
+            s_logger.error("The test plan could not be run", e);
+            for(Result result : rv) {
+                if(result.passed + result.failed + result.skipped == 0 && !result.sharedPassed && !result.sharedFailed) result.failed++;
+            }
+        }
+        return rv;
+    }
+
+    // reads the enabled test cases the same way ConformanceTestRunner does. the parameters go to the
+    // ParameterProviderSingleton of the calling thread
+    static ConformanceTestPlan load(Connection conn) {
+        List<TestCase> rv = new ArrayList<>();
+        Set<String> selected = new LinkedHashSet<>();
+        ConformanceTestDatabase ctd = new ConformanceTestDatabase(conn);
+        try (Statement testStatement = conn.createStatement()) {
+            ResultSet rs = testStatement.executeQuery(TEST_SET);
+            while(rs.next()) {
+                TestCaseModel testCase = new TestCaseModel(ctd);
+                testCase.retrieveForId(rs.getInt("Id"));
+                String testNameFromConfig = rs.getString("TestCaseIdentifier");
+                if(!testCase.isEnabled()) {
+                    continue;
+                }
+                List<String> methods = new ArrayList<>();
+                for(TestStepModel currentStep : testCase.getSteps()) {
+                    String className = currentStep.getTestClassName();
+                    String methodName = currentStep.getTestMethodName();
+                    if(className == null || className.isEmpty()) {
+                        continue;
+                    }
+                    String fqmn = className;
+                    try {
+                        Class<?> testClass = Class.forName(className);
+                        for(Method m : testClass.getDeclaredMethods()) {
+                            if(m.getName().contentEquals(methodName)) {
+                                fqmn += "#" + m.getName() + "(";
+                                Class<?>[] methodParameters = m.getParameterTypes();
+                                for(int i = 0; i < methodParameters.length; i++) {
+                                    if(i >= 1) {
+                                        fqmn += ", ";
+                                    }
+                                    fqmn += methodParameters[i].getName();
+                                }
+                                fqmn += ")";
+                            }
+                        }
+                    } catch (ClassNotFoundException e) {
+                        s_logger.error("{} was configured in the database but could not be found.", className);
+                        continue;
+                    }
+                    if(fqmn.equals(className)) {
+                        s_logger.error("{}#{} was configured in the database but could not be found.", className, methodName);
+                        continue;
+                    }
+                    selected.add(fqmn);
+                    methods.add(fqmn);
+                    ParameterProviderSingleton.getInstance().addTestCaseStep(testNameFromConfig, fqmn, currentStep.getParameters(), testCase.getContainer());
+                }
+                rv.add(new TestCase(testNameFromConfig, testCase.getContainer(), methods));
+            }
+        } catch (SQLException e) {
+            s_logger.error("Could not read test selection from configuration", e);
+        }
+        return new ConformanceTestPlan(rv, selected, 1);
+    }
+
+    /**
+     * Builds the one discovery request for a whole test plan, which selects each test method once. The
+     * arguments for every test case a method is a step of come from the ParameterProviderSingleton, and
+     * the methods of each class run in the order of the first test case they are a step of.
+     *
+     * With more than one thread the launcher runs the test methods, and the test cases of each, side by
+     * side. Test methods that hold the card resource lock for READ_WRITE are still run on their own.
+     *
+     * @param methods the fully qualified names of the test methods
+     * @param threads number of threads to run them on
+     * @return the request
+     */
+    static LauncherDiscoveryRequest createRequest(Collection<String> methods, int threads) {
+        List<DiscoverySelector> discoverySelectors = new ArrayList<>();
+        for(String fqmn : methods) {
+            discoverySelectors.add(selectMethod(fqmn));
+        }
+        LauncherDiscoveryRequestBuilder builder = LauncherDiscoveryRequestBuilder.request()
+                .selectors(discoverySelectors)
+                .configurationParameter(TestPlanMethodOrderer.DEFAULT_ORDER_PARAMETER, TestPlanMethodOrderer.class.getName());
+        if(threads > 1) {
+            builder.configurationParameter("junit.jupiter.execution.parallel.enabled", "true")
+                    .configurationParameter("junit.jupiter.execution.parallel.mode.default", "concurrent")
+                    .configurationParameter("junit.jupiter.execution.parallel.mode.classes.default", "concurrent")
+                    .configurationParameter("junit.jupiter.execution.parallel.config.strategy", "fixed")
+                    .configurationParameter("junit.jupiter.execution.parallel.config.fixed.parallelism", Integer.toString(threads));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decides whether a test case can run alongside others, away from the thread that talks to the card.
+     * That is so when it is about a single container, which is either readable without the PIN or is
+     * read with a PIN that is already verified. Test methods that log in or sign with a card key hold
+     * the card resource lock for READ_WRITE, which keeps them apart from the rest whatever their test case.
+     *
+     * @param testCase the test case
+     * @param pinVerified true if the card's PIN has been verified, or the containers come from a dump
+     * @return true if the test case only reads containers
+     */
+    static boolean isDataOnly(TestCase testCase, boolean pinVerified) {
+        String oid = ContainerPrefetcher.resolveOid(testCase.container);
+        return oid != null && (!APDUConstants.isProtectedContainer(oid) || pinVerified);
+    }
+
+    static String csvField(String value) {
+        if(value == null) return "";
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -2,23 +2,33 @@ package gov.gsa.pivconformance.conformancelib.tools;
 
 import gov.gsa.pivconformance.conformancelib.configuration.CardInfoController;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
-import gov.gsa.pivconformance.conformancelib.configuration.ConformanceTestDatabase;
-import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
-import gov.gsa.pivconformance.conformancelib.configuration.ParameterUtils;
-import gov.gsa.pivconformance.conformancelib.configuration.TestCaseModel;
-import gov.gsa.pivconformance.conformancelib.configuration.TestStepModel;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
 import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceTestExecutionListener;
+import gov.gsa.pivconformance.conformancelib.junitoptions.TestCaseRouter;
 import gov.gsa.pivconformance.conformancelib.junitoptions.Theme;
 import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
+import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import gov.gsa.pivconformance.conformancelib.utilities.CardInsertionLoop;
 import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.utilities.ContainerPrefetcher;
+import gov.gsa.pivconformance.conformancelib.utilities.TestRunLogController;
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.CachingDefaultPIVApplication;
+import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
+import gov.gsa.pivconformance.cardlib.card.client.ChainingAPDUTransmitter;
+import gov.gsa.pivconformance.cardlib.card.client.MappedContainerStore;
+import gov.gsa.pivconformance.cardlib.card.client.PIVMiddleware;
+import gov.gsa.pivconformance.cardlib.utils.APDUStatistics;
+import gov.gsa.pivconformance.cardlib.utils.APDUTraceRecorder;
+import gov.gsa.pivconformance.cardlib.utils.IAPDUTraceSink;
+import gov.gsa.pivconformance.cardlib.utils.LatencySummary;
 import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
+import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
 import gov.gsa.pivconformance.cardlib.utils.VersionUtils;
 
 import org.apache.commons.cli.*;
-import org.junit.platform.engine.DiscoverySelector;
 import org.junit.platform.launcher.*;
 //import org.junit.platform;
-import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
 import org.junit.platform.launcher.core.LauncherFactory;
 import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
 import org.junit.platform.launcher.listeners.TestExecutionSummary;
@@ -29,16 +39,22 @@ import org.slf4j.LoggerFactory;
 import java.io.Console;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.lang.invoke.MethodHandles;
-import java.lang.reflect.Method;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.junit.platform.engine.discovery.DiscoverySelectors.selectMethod;
+import javax.smartcardio.CardException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 
 public class ConformanceTestRunner {
 
@@ -55,6 +71,18 @@ public class ConformanceTestRunner {
         s_options.addOption("a", "appPin", true, "applicationPin to use for testing");
         s_options.addOption("d", "parameterDebug", false, "enable junit parameter debugging");
         s_options.addOption("", "noTree", false, "hide the junit test tree output");
+        s_options.addOption("", "dumpDir", true, "run against a directory of containers written by ContainerDump instead of a card");
+        s_options.addOption("", "containerStore", true, "file in which to keep containers read from the card so that runs can be repeated without re-reading them");
+        s_options.addOption("", "containerStoreSize", true, "size cap in megabytes for the container store (default 256)");
+        s_options.addOption("", "continuous", false, "keep running, testing each card as it is inserted in the reader");
+        s_options.addOption("", "record", true, "record the session with the card to a file in this directory, named after the reader");
+        s_options.addOption("", "replay", true, "test a virtual card that replays a recording, or one for each recording in a directory, instead of a real card");
+        s_options.addOption("", "replayLatency", true, "hold back each replayed response for the recorded time scaled by this factor (default 0, no delay)");
+        s_options.addOption("", "simulate", true, "test simulated PIV cards holding the containers and test keys in this container dump directory instead of a real card");
+        s_options.addOption("", "simulateReaders", true, "number of readers with a simulated card to list (default 1)");
+        s_options.addOption("", "apduTrace", true, "write the APDUs exchanged with the card to this file when done (print it with APDUTraceDump)");
+        s_options.addOption("", "threads", true, "number of threads to run the test plan on, with test methods that log in or sign still run one at a time (default is the number of processors for a dump and 1 for a card, 1 runs every test case in turn)");
+        s_options.addOption("", "jfr", true, "record the run with Java Flight Recorder, including card I/O, decode, signature and path validation events, to this .jfr file");
     }
     private static void PrintHelpAndExit(int exitCode) {
         new HelpFormatter().printHelp("ConfigGenerator <options>", s_options);
@@ -82,6 +110,40 @@ public class ConformanceTestRunner {
         if(cmd.hasOption("parameterDebug")) {
         	enableVerboseParameterDebugging = true;
         }
+        // these have to be set before the first reader is listed
+        if(cmd.hasOption("record")) {
+            System.setProperty(PCSCUtils.RECORD_PROPERTY, cmd.getOptionValue("record"));
+        }
+        if(cmd.hasOption("replay")) {
+            System.setProperty(PCSCUtils.REPLAY_PROPERTY, cmd.getOptionValue("replay"));
+            System.setProperty(PCSCUtils.REPLAY_LATENCY_PROPERTY, cmd.getOptionValue("replayLatency", "0"));
+        }
+        if(cmd.hasOption("simulate")) {
+            System.setProperty(PCSCUtils.SIMULATE_PROPERTY, cmd.getOptionValue("simulate"));
+            System.setProperty(PCSCUtils.SIMULATE_READERS_PROPERTY, cmd.getOptionValue("simulateReaders", "1"));
+        }
+        Recording recording = startRecording(cmd.getOptionValue("jfr"));
+        boolean continuous = cmd.hasOption("continuous");
+        if(continuous && cmd.hasOption("dumpDir")) {
+            s_logger.error("--continuous tests cards as they are inserted and cannot be used with --dumpDir");
+            System.exit(1);
+        }
+
+        MappedContainerStore containerStore = null;
+        if(cmd.hasOption("containerStore")) {
+            long maxBytes = 256L * 1024 * 1024;
+            if(cmd.hasOption("containerStoreSize")) {
+                maxBytes = Long.parseLong(cmd.getOptionValue("containerStoreSize")) * 1024 * 1024;
+            }
+            try {
+                containerStore = new MappedContainerStore(Paths.get(cmd.getOptionValue("containerStore")), maxBytes);
+                CachingDefaultPIVApplication.setPersistentStore(containerStore);
+                s_logger.info("Using {} containers from {}", containerStore.getEntryCount(), cmd.getOptionValue("containerStore"));
+            } catch (IOException e) {
+                s_logger.error("Unable to open container store {}", cmd.getOptionValue("containerStore"), e);
+                System.exit(1);
+            }
+        }
 
         Connection conn = null;
         if(cmd.hasOption("config")) {
@@ -119,158 +181,140 @@ public class ConformanceTestRunner {
         }
         
         CardSettingsSingleton css = CardSettingsSingleton.getInstance();
-        if(cmd.hasOption("appPin")) {
-        	String appPin = cmd.getOptionValue("appPin");
-        	css.setApplicationPin(appPin);
-        } else {
-          Console cons = System.console();
-          char[] passwd;
-          if (cons != null && (passwd = cons.readPassword("[Enter %s]", "Application Pin")) != null) {
-        	  css.setApplicationPin(new String(passwd));
-          }
-        }
-
-        try (Statement configStatement = conn.createStatement()) {
-            ResultSet rs = configStatement.executeQuery(FIRST_CONFIG);
-            rs.next();
-            String readerName = null;
-            try {
-            	readerName = rs.getString("ReaderName");
-            } catch(SQLException e) {
-            	//no need to carp now... this'll just come from css
+        if(cmd.hasOption("dumpDir")) {
+            Path dumpDir = Paths.get(cmd.getOptionValue("dumpDir"));
+            if(!Files.isDirectory(dumpDir)) {
+                s_logger.error("{} is not a directory", dumpDir);
+                System.exit(1);
             }
-            if(readerName == null || readerName.isEmpty()) {
-                s_logger.info("No reader was specified. Using the first available reader.");
-                css.setReaderIndex(0);
+            // no reader or PIN: tests that need a live card will be skipped
+            CardUtils.setUpOfflineInSingleton(dumpDir);
+            s_logger.info("Running against container dump in {}", dumpDir);
+        } else {
+            if(cmd.hasOption("appPin")) {
+            	String appPin = cmd.getOptionValue("appPin");
+            	css.setApplicationPin(appPin);
             } else {
-                int curr = -1;
-                int found = curr;
-                List<String> readers = PCSCUtils.GetConnectedReaders();
-                for(String reader : readers) {
-                    curr++;
-                    if(reader.toUpperCase().startsWith(readerName.toUpperCase())) {
-                        s_logger.info("Found reader matching {} from configuration", curr);
-                        found = curr;
-                        break;
-                    }
+              Console cons = System.console();
+              char[] passwd;
+              if (cons != null && (passwd = cons.readPassword("[Enter %s]", "Application Pin")) != null) {
+            	  css.setApplicationPin(new String(passwd));
+              }
+            }
+
+            try (Statement configStatement = conn.createStatement()) {
+                ResultSet rs = configStatement.executeQuery(FIRST_CONFIG);
+                rs.next();
+                String readerName = null;
+                try {
+                	readerName = rs.getString("ReaderName");
+                } catch(SQLException e) {
+                	//no need to carp now... this'll just come from css
                 }
-                if(found == -1) {
-                    s_logger.warn("No reader matching {} is connected to the system. Using the first reader available.", readerName);
+                if(readerName == null || readerName.isEmpty()) {
+                    s_logger.info("No reader was specified. Using the first available reader.");
                     css.setReaderIndex(0);
                 } else {
-                    css.setReaderIndex(found);
-                    CardUtils.setUpPivAppHandleInSingleton();
-                }
+                    int curr = -1;
+                    int found = curr;
+                    List<String> readers = PCSCUtils.GetConnectedReaders();
+                    for(String reader : readers) {
+                        curr++;
+                        if(reader.toUpperCase().startsWith(readerName.toUpperCase())) {
+                            s_logger.info("Found reader matching {} from configuration", curr);
+                            found = curr;
+                            break;
+                        }
+                    }
+                    if(found == -1) {
+                        s_logger.warn("No reader matching {} is connected to the system. Using the first reader available.", readerName);
+                        css.setReaderIndex(0);
+                    } else {
+                        css.setReaderIndex(found);
+                        // in continuous mode there may be no card in the reader yet
+                        if(!continuous) CardUtils.setUpPivAppHandleInSingleton();
+                    }
                 
-                String pinFromConfig = rs.getString("ApplicationPIN");
-                if(pinFromConfig != null && !pinFromConfig.isEmpty()) {
-                    css.setApplicationPin(pinFromConfig);
-                }
+                    String pinFromConfig = rs.getString("ApplicationPIN");
+                    if(pinFromConfig != null && !pinFromConfig.isEmpty()) {
+                        css.setApplicationPin(pinFromConfig);
+                    }
                 
-                if(CardInfoController.getEncodedRetries() > 1) {
-                	if(!CardInfoController.checkPin(true)) {
-                		s_logger.error("Application PIN is invalid");
-                		System.exit(1);
-                	} else {
-                		s_logger.info("Verified Application PIN");
-                	}
-                } else {
-                	s_logger.error("PIN retry count is too low. Proceeding with tests risks locking the card");
-                	System.exit(1);
+                    if(continuous) {
+                        // each card's PIN is checked when it is inserted
+                    } else if(CardInfoController.getEncodedRetries() > 1) {
+                    	if(!CardInfoController.checkPin(true)) {
+                    		s_logger.error("Application PIN is invalid");
+                    		System.exit(1);
+                    	} else {
+                    		s_logger.info("Verified Application PIN");
+                    	}
+                    } else {
+                    	s_logger.error("PIN retry count is too low. Proceeding with tests risks locking the card");
+                    	System.exit(1);
+                    }
                 }
-            }
-        } catch (SQLException e) {
-            s_logger.error("Failed to read configuration", e);
-        } catch (ConformanceTestException e) {
-        	s_logger.error("Test apparatus configuration error", e);
-		}
+            } catch (SQLException e) {
+                s_logger.error("Failed to read configuration", e);
+            } catch (ConformanceTestException e) {
+            	s_logger.error("Test apparatus configuration error", e);
+    		}
+        }
         
-        ConformanceTestDatabase ctd = new ConformanceTestDatabase(conn);
         PrintWriter out = new PrintWriter(System.out);
         SummaryGeneratingListener summaryListener = new SummaryGeneratingListener();
-        ConformanceTestExecutionListener ctListener = new ConformanceTestExecutionListener();
-        
-        
-        try (Statement testStatement = conn.createStatement()) {
-            ResultSet rs = testStatement.executeQuery(TEST_SET);
-            while(rs.next()) {
-                TestCaseModel testCase = new TestCaseModel(ctd);
-                testCase.retrieveForId(rs.getInt("Id"));
-                
-                String groupName = rs.getString("TestGroup");
-                String testNameFromConfig = rs.getString("TestCaseIdentifier");
-                /*if(groupName == null || groupName.isEmpty()) {
-                    s_logger.error("Record {} from configuration file {} contains no valid group name. This is a bug.",
-                            rs.getInt("Id"), cmd.getOptionValue("config"));
-                    System.exit(1);
-                }*/
-                if(!testCase.isEnabled())
-                {
-                    s_logger.info("Test {} was disabled in configuration", groupName);
-                    continue;
-                }
-                LauncherDiscoveryRequestBuilder suiteBuilder = LauncherDiscoveryRequestBuilder.request();
-                List<DiscoverySelector> discoverySelectors = new ArrayList<>();
-                List<TestStepModel> steps = testCase.getSteps();
-                for(TestStepModel currentStep : steps) {
-                	Class<?> testClass = null;
-                	String className = currentStep.getTestClassName();
-                	String methodName = currentStep.getTestMethodName();
-                	List<String> parameters = currentStep.getParameters();
-                	String parameterString = null;
-                	if(parameters != null) {
-                		parameterString = ParameterUtils.CreateFromList(parameters);
-                		if(enableVerboseParameterDebugging) s_logger.debug("processing {} as parameters for {}.{}", parameterString, className, methodName);
-                	}
-                	String fqmn = className;
-                    try {
-                        testClass = Class.forName(className);
-                        for(Method m : testClass.getDeclaredMethods()) {
-                        	if(enableVerboseParameterDebugging)  s_logger.debug("searching {}: {}", methodName, m.getName());
-                        	if(m.getName().contentEquals(methodName)) {
-                        		fqmn += "#" + m.getName() + "(";
-                        		Class<?>[] methodParameters = m.getParameterTypes();
-                        		int nMethodParameters = 0;
-                        		for(Class<?> c : methodParameters) {
-                        			if(nMethodParameters >= 1) {
-                        				fqmn += ", ";
-                        			}
-                        			fqmn += c.getName();
-                        			nMethodParameters++;
-                        		}
-                        		fqmn += ")";
-                        		if(enableVerboseParameterDebugging) s_logger.debug("method: {}", fqmn);
-                        	}
-                            
-                        }
-                    } catch (ClassNotFoundException e) {
-                        s_logger.error("{} was configured in the database but could not be found.", groupName);
-                        break;
-                    }
-                    if(className != null && !className.isEmpty() && testClass != null) {
-                        //String testName = testNameFromConfig;
-                        s_logger.debug("Adding {} from config", fqmn);
-                        discoverySelectors.add(selectMethod(fqmn));
-                        ParameterProviderSingleton.getInstance().addNamedParameter(fqmn, parameters);
-                    }
-                	
-                }
-                suiteBuilder.selectors(discoverySelectors);
-                suiteBuilder.configurationParameter("TestCaseIdentifier", testNameFromConfig);
-                LauncherDiscoveryRequest ldr = suiteBuilder.build();
-                
-                Launcher l = LauncherFactory.create();
-                List<TestExecutionListener> listeners = new ArrayList<TestExecutionListener>();
-                if(!cmd.hasOption("noTree")) listeners.add(summaryListener);
-                ctListener.setTestCaseIdentifier(testNameFromConfig);
-                listeners.add(ctListener);
-                registerListeners(out, l, listeners, !cmd.hasOption("noTree"));
-                //l.registerTestExecutionListeners(summaryListener);
-                l.execute(ldr);
+
+        // read the containers in the background, in the order the test plan needs them
+        ContainerPrefetcher.setTestPlanOrder(containersInTestPlan(conn));
+        if(continuous) {
+            runContinuously(conn, out, summaryListener, !cmd.hasOption("noTree"));
+            closeContainerStore(containerStore);
+            writeAPDUTrace(cmd.getOptionValue("apduTrace"));
+            writeAPDUStatistics();
+            stopRecording(recording);
+            return;
+        }
+        try {
+            CardUtils.startContainerPrefetchInSingleton();
+        } catch (ConformanceTestException e) {
+            s_logger.warn("Unable to read containers ahead of the tests, they will be read as needed", e);
+        }
+
+        // against a live card every test method waits its turn for the card, so only run them side by
+        // side when asked to
+        int threads = css.isOffline() ? Runtime.getRuntime().availableProcessors() : 1;
+        if(cmd.hasOption("threads")) {
+            threads = Integer.parseInt(cmd.getOptionValue("threads"));
+        }
+        // test cases are only run alongside each other once there is a card, or a dump, to share
+        boolean parallel = threads > 1 && css.getCardHandle() != null;
+        boolean pinVerified = css.isOffline() || (css.getCardHandle() != null && css.getCardHandle().isPinVerified());
+        boolean showTree = !cmd.hasOption("noTree");
+        // each test method is selected once and run for every test case it is a step of
+        ConformanceTestPlan plan = ConformanceTestPlan.load(conn);
+        int notDataOnly = 0;
+        for(ConformanceTestPlan.TestCase testCase : plan.getTestCases()) {
+            if(enableVerboseParameterDebugging) s_logger.debug("{} has steps {}", testCase.identifier, testCase.methods);
+            if(!testCase.methods.isEmpty() && !ConformanceTestPlan.isDataOnly(testCase, pinVerified)) {
+                notDataOnly++;
             }
-        } catch (SQLException e) {
-            s_logger.error("Could not read test selection from configuration");
         }
+        if(parallel && notDataOnly > 0) {
+            s_logger.info("{} test cases read containers that need the PIN, so the test cases are run in turn", notDataOnly);
+            parallel = false;
+        }
+        if(parallel) {
+            cacheChuidSigner();
+            s_logger.info("Running test cases on {} threads alongside the card", threads);
+        }
+        Launcher l = LauncherFactory.create();
+        if(showTree) l.registerTestExecutionListeners(summaryListener);
+        plan.withThreads(parallel ? threads : 1).execute(l, createListenerFactory(showTree), out);
+        ContainerPrefetcher.stop();
+        closeContainerStore(containerStore);
+        writeAPDUTrace(cmd.getOptionValue("apduTrace"));
+        writeAPDUStatistics();
+        stopRecording(recording);
         //suiteBuilder.selectors(discoverySelectors);
         // XXX *** TODO: Need to add key/value to each suite so that logging can be fixed up
         
@@ -291,13 +335,198 @@ public class ConformanceTestRunner {
         }
 
     }
-    private static void registerListeners(PrintWriter out, Launcher launcher, List<TestExecutionListener> listeners, boolean showTree) {    
-        for(TestExecutionListener listener : listeners) {
-        	launcher.registerTestExecutionListeners(listener);
+    // signed containers are checked against the CHUID signer certificate, which is cached for the card
+    // when the CHUID is decoded, so it is decoded before test cases of other containers run side by side
+    private static void cacheChuidSigner() {
+        try {
+            AtomHelper.getDataObject(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+        } catch (AssertionError | RuntimeException e) {
+            s_logger.warn("Unable to decode the CHUID ahead of the tests: {}", e.getMessage());
+        }
+    }
+
+    private static void closeContainerStore(MappedContainerStore containerStore) {
+        if(containerStore != null) {
+            CachingDefaultPIVApplication.setPersistentStore(null);
+            try {
+                containerStore.close();
+            } catch (IOException e) {
+                s_logger.error("Unable to close container store", e);
+            }
+        }
+    }
+
+    // writes what is left in the APDU trace ring buffer to a file
+    private static void writeAPDUTrace(String fileName) {
+        if(fileName == null) {
+            return;
+        }
+        IAPDUTraceSink sink = ChainingAPDUTransmitter.getTraceSink();
+        if(!(sink instanceof APDUTraceRecorder)) {
+            s_logger.warn("APDUs are not being recorded, no trace written to {}", fileName);
+            return;
+        }
+        APDUTraceRecorder recorder = (APDUTraceRecorder) sink;
+        try (OutputStream os = Files.newOutputStream(Paths.get(fileName))) {
+            recorder.writeTo(os);
+            s_logger.info("Wrote {} APDUs to {} ({} older ones were dropped)", recorder.getRecordCount(), fileName, recorder.getDroppedCount());
+        } catch (IOException e) {
+            s_logger.error("Unable to write APDU trace to {}", fileName, e);
+        }
+    }
+
+    // writes the APDU latency and byte count summary for the run to the CONFORMANCE log directory
+    private static void writeAPDUStatistics() {
+        APDUStatistics statistics = PCSCWrapper.getInstance().getStatistics();
+        s_logger.info("APDU exchanges: {}", statistics.getTotal());
+        s_logger.info("SELECT commands avoided: {}, VERIFY commands avoided: {}", PCSCWrapper.getInstance().getAvoidedSelectCount(),
+                PCSCWrapper.getInstance().getAvoidedVerifyCount());
+        s_logger.info("Decoded objects: {}", ConformanceSession.current().getDecodedObjects());
+        String fileName = TestRunLogController.getInstance().writeAPDUStatistics(statistics);
+        if(fileName != null) {
+            s_logger.info("Wrote APDU statistics to {}", fileName);
+        }
+    }
+
+    // starts a flight recording of the whole run. it is written out when stopped, or when the
+    // process exits if the run ends early
+    private static Recording startRecording(String fileName) {
+        if(fileName == null) {
+            return null;
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.setName("PIV Conformance");
+            recording.setDestination(Paths.get(fileName));
+            recording.setDumpOnExit(true);
+            recording.start();
+            s_logger.info("Recording the run to {}", fileName);
+            return recording;
+        } catch (IOException | java.text.ParseException | IllegalStateException | SecurityException e) {
+            s_logger.error("Unable to start flight recording to {}", fileName, e);
+            return null;
+        }
+    }
+
+    private static void stopRecording(Recording recording) {
+        if(recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+            s_logger.info("Wrote flight recording to {}", recording.getDestination());
+        } catch (IllegalStateException e) {
+            s_logger.error("Unable to stop flight recording", e);
+        } finally {
+            recording.close();
+        }
+    }
+
+    // tests one card after another in the configured reader until the reader fails or the process is
+    // stopped. the test plan is read from the database and the launcher set up once, so a card is
+    // connected to and tested as soon as it is inserted
+    private static void runContinuously(Connection conn, PrintWriter out, SummaryGeneratingListener summaryListener, boolean showTree) {
+        ConformanceTestPlan plan = ConformanceTestPlan.load(conn);
+        Launcher l = LauncherFactory.create();
+        if(showTree) l.registerTestExecutionListeners(summaryListener);
+        TestCaseRouter.ListenerFactory listenerFactory = createListenerFactory(showTree);
+
+        CardSettingsSingleton css = CardSettingsSingleton.getInstance();
+        try {
+            if(css.getTerminal() == null) {
+                CardUtils.setUpReaderInSingleton();
+            }
+        } catch (ConformanceTestException e) {
+            s_logger.error("Test apparatus configuration error", e);
+            return;
+        }
+        int[] cards = { 0 };
+        CardInsertionLoop loop = new CardInsertionLoop(css.getTerminal(), (terminal, insertedNanos) -> {
+            testCard(plan, l, listenerFactory, out, ++cards[0], insertedNanos);
+            return true;
+        });
+        s_logger.info("Waiting for cards in {}", css.getTerminal().getName());
+        try {
+            loop.run();
+        } catch (CardException e) {
+            s_logger.error("Reader failed", e);
         }
-        if(showTree) launcher.registerTestExecutionListeners(createDetailsPrintingListener(out));
     }
 
+    private static void testCard(ConformanceTestPlan plan, Launcher l, TestCaseRouter.ListenerFactory listenerFactory, PrintWriter out,
+            int card, long insertedNanos) {
+        ConformanceSession session = ConformanceSession.current();
+        session.resetCard();
+        int passed = 0;
+        int failed = 0;
+        long firstApdu = 0;
+        LatencySummary exchanges = null;
+        int avoidedSelects = 0;
+        int avoidedVerifies = 0;
+        try {
+            CardUtils.setUpCardAndVerifyPinInSingleton();
+            try {
+                CardUtils.startContainerPrefetchInSingleton();
+            } catch (ConformanceTestException e) {
+                s_logger.warn("Unable to read containers ahead of the tests, they will be read as needed", e);
+            }
+            for(ConformanceTestPlan.Result result : plan.execute(l, listenerFactory, out)) {
+                passed += result.passed;
+                failed += result.failed;
+            }
+        } catch (ConformanceTestException e) {
+            s_logger.error("Unable to test card {}: {}", card, e.getMessage());
+            failed++;
+        } finally {
+            ContainerPrefetcher.stop();
+            CardHandle ch = session.getCardHandle();
+            if(ch != null) {
+                firstApdu = ch.getTransmitCounters().getFirstTransmitNanos();
+                exchanges = ch.getTransmitCounters().getStatistics().getTotal();
+                avoidedSelects = ch.getTransmitCounters().getAvoidedSelectCount();
+                avoidedVerifies = ch.getTransmitCounters().getAvoidedVerifyCount();
+                if(ch.isValid()) PIVMiddleware.pivDisconnect(ch);
+            }
+        }
+        System.out.println("--------------------------------------------------------------");
+        System.out.println(String.format("Card %d: %d passed, %d failed, first APDU %s after insertion, %.1f s in all", card, passed, failed,
+                firstApdu == 0 ? "never sent" : String.format("%.1f ms", (firstApdu - insertedNanos) / 1e6),
+                (System.nanoTime() - insertedNanos) / 1e9));
+        if(exchanges != null) {
+            System.out.println(String.format("Card %d APDU exchanges: %s, %d SELECT and %d VERIFY avoided", card, exchanges,
+                    avoidedSelects, avoidedVerifies));
+        }
+        System.out.println(String.format("Card %d decoded objects: %s", card, session.getDecodedObjects()));
+        System.out.println("Remove the card to test the next one");
+    }
+
+    // makes the listeners each test case reports to: the conformance log, and the test tree if it is shown
+    private static TestCaseRouter.ListenerFactory createListenerFactory(boolean showTree) {
+        return (identifier, testOut) -> {
+            ConformanceTestExecutionListener listener = new ConformanceTestExecutionListener();
+            listener.setTestCaseIdentifier(identifier);
+            List<TestExecutionListener> listeners = new ArrayList<TestExecutionListener>();
+            listeners.add(listener);
+            if(showTree) listeners.add(createDetailsPrintingListener(testOut));
+            return listeners;
+        };
+    }
+
+    private static List<String> containersInTestPlan(Connection conn) {
+        List<String> containers = new ArrayList<>();
+        try (Statement containerStatement = conn.createStatement()) {
+            ResultSet rs = containerStatement.executeQuery(TEST_SET);
+            while(rs.next()) {
+                String container = rs.getString("TestCaseContainer");
+                if(container != null && !container.isEmpty()) {
+                    containers.add(container);
+                }
+            }
+        } catch (SQLException e) {
+            s_logger.error("Could not read test plan containers from configuration", e);
+        }
+        return containers;
+    }
     private static TestExecutionListener createDetailsPrintingListener(PrintWriter out) {
         boolean disableAnsiColors = false;//options.isAnsiColorOutputDisabled();
         Theme theme = Theme.valueOf(Charset.defaultCharset());//options.getTheme();
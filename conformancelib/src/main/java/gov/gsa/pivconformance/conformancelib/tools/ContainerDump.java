@@ -23,7 +23,6 @@ import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +34,7 @@ import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
 import gov.gsa.pivconformance.cardlib.card.client.PIVDataObjectFactory;
 import gov.gsa.pivconformance.cardlib.card.client.PrintedInformation;
 import gov.gsa.pivconformance.cardlib.card.client.SecurityObject;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.conformancelib.configuration.CardInfoController;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
 import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
@@ -119,7 +119,7 @@ public class ContainerDump {
 				s_logger.info("Tag list contains {} tags", tagList.size());
 				int i = 1;
 				for(BerTag t : tagList) {
-					s_logger.info("Tag {}: {}", i, Hex.encodeHexString(t.bytes));
+					s_logger.info("Tag {}: {}", i, HexUtil.toLowerHexString(t.bytes));
 					i++;
 				}
 				BerTag berNameTag = new BerTag(TagConstants.NAME_TAG);
@@ -140,7 +140,7 @@ public class ContainerDump {
 				s_logger.info("Tag list contains {} tags", tagList.size());
 				int i = 1;
 				for(BerTag t : tagList) {
-					s_logger.info("Tag {}: 0x{}", i, Hex.encodeHexString(t.bytes));
+					s_logger.info("Tag {}: 0x{}", i, HexUtil.toLowerHexString(t.bytes));
 					i++;
 				}
 			}
@@ -0,0 +1,234 @@
+package gov.gsa.pivconformance.conformancelib.tools;
+
+import gov.gsa.pivconformance.cardlib.utils.VersionUtils;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+
+import org.apache.commons.cli.*;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static gov.gsa.pivconformance.conformancelib.tools.ConformanceTestPlan.csvField;
+
+/**
+ * Runs the enabled test cases from a conformance test database against every container dump under a
+ * directory, as written by ContainerDump, so that a large collection of cards can be checked without
+ * the cards themselves.
+ *
+ * Dumps are spread over a work-stealing pool. Each dump is tested in a ConformanceSession of its own,
+ * bound to the worker thread, so dumps tested at the same time do not see each other's state. Results
+ * for every dump are streamed to a single CSV file, and the failure counts for each test case are
+ * reported at the end along with the throughput.
+ */
+public class CorpusRunner {
+
+    private static final String CSV_HEADER = "Dump,TestCaseIdentifier,Result,Passed,Failed,Skipped";
+
+    private static final Logger s_logger = LoggerFactory.getLogger(CorpusRunner.class);
+    private static final Options s_options = new Options();
+    static {
+        s_options.addOption("h", "help", false, "Print this help and exit");
+        s_options.addOption("c", "config", true, "path to config file");
+        s_options.addOption("r", "corpus", true, "directory to search for container dumps");
+        s_options.addOption("o", "output", true, "CSV file to write the results for every dump to (default corpus-results.csv)");
+        s_options.addOption("t", "threads", true, "number of dumps to test at once (default is the number of processors)");
+    }
+
+    private final ConformanceTestPlan m_plan;
+    // the parameters the plan was loaded with, which the sessions for the dumps share
+    private final ParameterProviderSingleton m_parameters;
+    private final PrintWriter m_out;
+    private final Map<String, LongAdder> m_failures = new ConcurrentHashMap<String, LongAdder>();
+    private final LongAdder m_dumpsTested = new LongAdder();
+    private final LongAdder m_dumpErrors = new LongAdder();
+    // launchers are not shared between threads
+    private final ThreadLocal<Launcher> m_launcher = ThreadLocal.withInitial(LauncherFactory::create);
+
+    // the plan is to have been loaded on the calling thread
+    CorpusRunner(ConformanceTestPlan plan, PrintWriter out) {
+        m_plan = plan;
+        m_parameters = ParameterProviderSingleton.getInstance();
+        m_out = out;
+    }
+
+    private static void PrintHelpAndExit(int exitCode) {
+        new HelpFormatter().printHelp("CorpusRunner <options>", s_options);
+        System.exit(exitCode);
+    }
+
+    public static void main(String[] args) {
+        s_logger.info("main class: {}", CorpusRunner.class.getSimpleName());
+        s_logger.info("package version: {}", VersionUtils.GetPackageVersionString());
+        CommandLineParser p = new DefaultParser();
+        CommandLine cmd = null;
+        try {
+            cmd = p.parse(s_options, args);
+        } catch (ParseException e) {
+            s_logger.error("Failed to parse command line arguments", e);
+            PrintHelpAndExit(1);
+        }
+        if(cmd.hasOption("help") || !cmd.hasOption("config") || !cmd.hasOption("corpus")) {
+            PrintHelpAndExit(cmd.hasOption("help") ? 0 : 1);
+        }
+
+        Path corpus = Paths.get(cmd.getOptionValue("corpus"));
+        if(!Files.isDirectory(corpus)) {
+            s_logger.error("{} is not a directory", corpus);
+            System.exit(1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if(cmd.hasOption("threads")) {
+            threads = Integer.parseInt(cmd.getOptionValue("threads"));
+        }
+
+        Connection conn = null;
+        File f = new File(cmd.getOptionValue("config"));
+        if(!f.exists()) {
+            s_logger.error("No such file: {}", f);
+            System.exit(1);
+        }
+        try {
+            conn = DriverManager.getConnection("jdbc:sqlite:" + f.getCanonicalPath());
+        } catch (SQLException | IOException e) {
+            s_logger.error("Unable to establish JDBC connection for SQLite database", e);
+            System.exit(1);
+        }
+        s_logger.info("Opened configuration in {}", f);
+
+        ConformanceTestPlan plan = ConformanceTestPlan.load(conn);
+        List<Path> dumps = null;
+        try {
+            dumps = findDumps(corpus);
+        } catch (IOException e) {
+            s_logger.error("Unable to search {} for container dumps", corpus, e);
+            System.exit(1);
+        }
+        s_logger.info("Found {} container dumps under {}, running {} test cases against each on {} threads",
+                dumps.size(), corpus, plan.getTestCases().size(), threads);
+
+        Path output = Paths.get(cmd.getOptionValue("output", "corpus-results.csv"));
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))) {
+            out.println(CSV_HEADER);
+            CorpusRunner runner = new CorpusRunner(plan, out);
+            long start = System.nanoTime();
+            runner.run(dumps, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            runner.printSummary(seconds);
+        } catch (IOException e) {
+            s_logger.error("Unable to write results to {}", output, e);
+            System.exit(1);
+        }
+        s_logger.info("Wrote results to {}", output);
+    }
+
+    // directories holding at least one <oid>.bin file
+    static List<Path> findDumps(Path corpus) throws IOException {
+        try (Stream<Path> files = Files.walk(corpus)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".bin") && Files.isRegularFile(file))
+                    .map(Path::getParent)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    void run(List<Path> dumps, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(dumps.size());
+            for(Path dump : dumps) {
+                tasks.add(pool.submit(() -> runDump(dump)));
+            }
+            for(ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // runs every test case against one dump in a session of its own. a dump that can't be tested gets an
+    // ERROR row rather than stopping the rest of the corpus
+    private void runDump(Path dump) {
+        List<ConformanceTestPlan.Result> results;
+        // the parameters were set up once for the whole corpus, so sessions share them
+        try (ConformanceSession session = ConformanceSession.create(dump.getFileName().toString(), m_parameters)) {
+            ConformanceSession.Binding binding = session.bind();
+            try {
+                CardUtils.setUpOfflineInSingleton(dump);
+                results = m_plan.execute(m_launcher.get());
+            } finally {
+                binding.close();
+            }
+        } catch (RuntimeException e) {
+            s_logger.error("Unable to test {}", dump, e);
+            m_dumpErrors.increment();
+            println(String.join(",", csvField(dump.toString()), "", "ERROR", "0", "0", "0"));
+            return;
+        }
+        for(int i = 0; i < results.size(); i++) {
+            ConformanceTestPlan.TestCase testCase = m_plan.getTestCases().get(i);
+            ConformanceTestPlan.Result result = results.get(i);
+            if(result.hasFailed()) {
+                m_failures.computeIfAbsent(testCase.identifier, k -> new LongAdder()).increment();
+            }
+            println(String.join(",", csvField(dump.toString()), csvField(testCase.identifier), result.getResult(),
+                    Integer.toString(result.passed), Integer.toString(result.failed), Integer.toString(result.skipped)));
+        }
+        m_dumpsTested.increment();
+    }
+
+    private void println(String line) {
+        synchronized(m_out) {
+            m_out.println(line);
+        }
+    }
+
+    void printSummary(double seconds) {
+        long dumps = m_dumpsTested.sum();
+        System.out.println("--------------------------------------------------------------");
+        System.out.println(String.format("Tested %d dumps in %.1f seconds (%.2f cards/sec)", dumps, seconds,
+                seconds > 0 ? dumps / seconds : 0.0));
+        if(m_dumpErrors.sum() > 0) {
+            System.out.println(String.format("%d dumps could not be tested, see the ERROR rows", m_dumpErrors.sum()));
+        }
+        Map<String, LongAdder> sorted = new TreeMap<String, LongAdder>(m_failures);
+        if(sorted.isEmpty()) {
+            System.out.println("No test case failed against any dump");
+        }
+        for(Map.Entry<String, LongAdder> e : sorted.entrySet()) {
+            System.out.println(String.format("%s failed for %d of %d dumps", e.getKey(), e.getValue().sum(), dumps));
+        }
+    }
+}
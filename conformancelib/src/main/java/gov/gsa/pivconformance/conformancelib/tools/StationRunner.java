@@ -0,0 +1,399 @@
+package gov.gsa.pivconformance.conformancelib.tools;
+
+import gov.gsa.pivconformance.cardlib.card.client.ArtifactWriter;
+import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
+import gov.gsa.pivconformance.cardlib.card.client.PIVMiddleware;
+import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
+import gov.gsa.pivconformance.cardlib.utils.VersionUtils;
+import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
+import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
+import gov.gsa.pivconformance.conformancelib.utilities.CardInsertionLoop;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.utilities.ReaderLogAppender;
+
+import org.apache.commons.cli.*;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.BufferedWriter;
+import java.io.Console;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+
+import static gov.gsa.pivconformance.conformancelib.tools.ConformanceTestPlan.csvField;
+
+/**
+ * Tests cards in every connected reader at once, for stations with several readers on one host.
+ *
+ * Each reader gets a thread of its own with its own ConformanceSession, and tests one card after another:
+ * it starts on the next card as soon as one is inserted, and waits for it to be removed before looking
+ * for the next. The time from insertion to the first APDU is reported for each card. Every reader has
+ * its own directory under the output directory holding its log, its artifacts and a CSV of its results.
+ * A combined summary of all readers is printed as cards are tested.
+ *
+ * Containers are not read ahead in the background in station mode, since the prefetcher serves one card.
+ */
+public class StationRunner {
+
+    private static final String FIRST_CONFIG = "SELECT * from SystemSettings LIMIT 1";
+    private static final String CSV_HEADER = "Card,CardIdentity,TestCaseIdentifier,Result,Passed,Failed,Skipped,FirstApduMillis";
+
+    private static final Logger s_logger = LoggerFactory.getLogger(StationRunner.class);
+    private static final Options s_options = new Options();
+    static {
+        s_options.addOption("h", "help", false, "Print this help and exit");
+        s_options.addOption("c", "config", true, "path to config file");
+        s_options.addOption("a", "appPin", true, "applicationPin to use for testing");
+        s_options.addOption("o", "output", true, "directory to write each reader's logs, artifacts and results to (default station)");
+        s_options.addOption("r", "readers", true, "comma separated list of reader name prefixes to use (default is every connected reader)");
+        s_options.addOption("", "cards", true, "stop after this many cards have been tested across all readers");
+        s_options.addOption("", "summaryInterval", true, "seconds between station summaries (default 30)");
+    }
+
+    // one reader and the cards tested in it
+    private class ReaderStation implements Runnable {
+        final String m_readerName;
+        final String m_dirName;
+        final CardTerminal m_terminal;
+        final Path m_directory;
+        final CardInsertionLoop m_loop;
+        final AtomicInteger m_cards = new AtomicInteger();
+        final AtomicInteger m_failedCards = new AtomicInteger();
+        volatile long m_lastFirstApduNanos = -1;
+        // the session, launcher and results file live as long as the reader's thread
+        private ConformanceSession m_session;
+        private Launcher m_launcher;
+        private PrintWriter m_csv;
+
+        ReaderStation(String readerName, CardTerminal terminal) {
+            m_readerName = readerName;
+            m_dirName = readerName.replaceAll("[^A-Za-z0-9._-]+", "_");
+            m_terminal = terminal;
+            m_directory = m_outputDir.resolve(m_dirName);
+            m_loop = new CardInsertionLoop(terminal, this::cardInserted);
+        }
+
+        @Override
+        public void run() {
+            MDC.put(ReaderLogAppender.READER_KEY, m_dirName);
+            ArtifactWriter.setArtifactDirectoryForCurrentThread(m_directory.toString());
+            m_launcher = LauncherFactory.create();
+            try (ConformanceSession session = ConformanceSession.create(m_readerName, ParameterProviderSingleton.getSharedInstance());
+                    PrintWriter csv = openResults()) {
+                ConformanceSession.Binding binding = session.bind();
+                try {
+                    m_session = session;
+                    m_csv = csv;
+                    CardSettingsSingleton css = session.getCardSettings();
+                    css.setTerminal(m_terminal);
+                    css.setApplicationPin(m_applicationPin);
+                    m_loop.run();
+                } finally {
+                    binding.close();
+                }
+            } catch (CardException e) {
+                s_logger.error("Reader {} failed", m_readerName, e);
+            } catch (IOException e) {
+                s_logger.error("Unable to write results for reader {}", m_readerName, e);
+            } finally {
+                ArtifactWriter.setArtifactDirectoryForCurrentThread(null);
+                MDC.remove(ReaderLogAppender.READER_KEY);
+            }
+        }
+
+        private boolean cardInserted(CardTerminal terminal, long insertedNanos) {
+            if(m_stopping || !claimCard()) {
+                return false;
+            }
+            testCard(insertedNanos);
+            return true;
+        }
+
+        String getState() {
+            switch(m_loop.getState()) {
+            case WAITING_FOR_CARD:
+                return "waiting for card";
+            case TESTING:
+                return "testing card " + m_cards.get();
+            case WAITING_FOR_REMOVAL:
+                return "waiting for removal";
+            default:
+                return "stopped";
+            }
+        }
+
+        private PrintWriter openResults() throws IOException {
+            Files.createDirectories(m_directory);
+            Path results = m_directory.resolve("results.csv");
+            boolean exists = Files.exists(results);
+            PrintWriter rv = new PrintWriter(new BufferedWriter(Files.newBufferedWriter(results, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+            if(!exists) {
+                rv.println(CSV_HEADER);
+                rv.flush();
+            }
+            return rv;
+        }
+
+        private void testCard(long insertedNanos) {
+            int card = m_cards.incrementAndGet();
+            s_logger.info("Card {} inserted in {}", card, m_readerName);
+            m_session.resetCard();
+            CardSettingsSingleton css = m_session.getCardSettings();
+            boolean failed = false;
+            List<String> lines = new ArrayList<>();
+            try {
+                CardUtils.setUpCardAndVerifyPinInSingleton();
+                List<ConformanceTestPlan.Result> results = m_plan.execute(m_launcher);
+                for(int i = 0; i < results.size(); i++) {
+                    ConformanceTestPlan.TestCase testCase = m_plan.getTestCases().get(i);
+                    ConformanceTestPlan.Result result = results.get(i);
+                    failed |= result.hasFailed();
+                    lines.add(String.join(",", csvField(testCase.identifier), result.getResult(),
+                            Integer.toString(result.passed), Integer.toString(result.failed), Integer.toString(result.skipped)));
+                }
+            } catch (ConformanceTestException e) {
+                s_logger.error("Unable to test card {} in {}: {}", card, m_readerName, e.getMessage());
+                failed = true;
+                lines.add(String.join(",", "", "ERROR", "0", "0", "0"));
+            } finally {
+                CardHandle ch = css.getCardHandle();
+                // the identity is only known once a container has been read
+                String identity = ch == null ? null : ch.getCardIdentity();
+                long firstApdu = ch == null ? 0 : ch.getTransmitCounters().getFirstTransmitNanos();
+                String firstApduMillis = "";
+                if(firstApdu != 0) {
+                    m_lastFirstApduNanos = firstApdu - insertedNanos;
+                    m_firstApduNanos.add(m_lastFirstApduNanos);
+                    m_firstApduCards.increment();
+                    firstApduMillis = String.format("%.1f", m_lastFirstApduNanos / 1e6);
+                    s_logger.info("First APDU sent to card {} in {} {} ms after insertion", card, m_readerName, firstApduMillis);
+                }
+                for(String line : lines) {
+                    m_csv.println(card + "," + csvField(identity) + "," + line + "," + firstApduMillis);
+                }
+                m_csv.flush();
+                if(ch != null && ch.isValid()) {
+                    PIVMiddleware.pivDisconnect(ch);
+                }
+            }
+            if(failed) {
+                m_failedCards.incrementAndGet();
+            }
+            m_cardsTested.incrementAndGet();
+            s_logger.info("Card {} in {} {}", card, m_readerName, failed ? "failed" : "passed");
+        }
+    }
+
+    private final ConformanceTestPlan m_plan;
+    private final Path m_outputDir;
+    private final String m_applicationPin;
+    private final int m_maxCards;
+    private final AtomicInteger m_cardsClaimed = new AtomicInteger();
+    private final AtomicInteger m_cardsTested = new AtomicInteger();
+    private final LongAdder m_firstApduNanos = new LongAdder();
+    private final LongAdder m_firstApduCards = new LongAdder();
+    private final List<ReaderStation> m_readers = new ArrayList<>();
+    private volatile boolean m_stopping = false;
+    private long m_startNanos;
+
+    StationRunner(ConformanceTestPlan plan, Path outputDir, String applicationPin, int maxCards) {
+        m_plan = plan;
+        m_outputDir = outputDir;
+        m_applicationPin = applicationPin;
+        m_maxCards = maxCards;
+    }
+
+    private static void PrintHelpAndExit(int exitCode) {
+        new HelpFormatter().printHelp("StationRunner <options>", s_options);
+        System.exit(exitCode);
+    }
+
+    public static void main(String[] args) {
+        s_logger.info("main class: {}", StationRunner.class.getSimpleName());
+        s_logger.info("package version: {}", VersionUtils.GetPackageVersionString());
+        PCSCUtils.ConfigureUserProperties();
+        CommandLineParser p = new DefaultParser();
+        CommandLine cmd = null;
+        try {
+            cmd = p.parse(s_options, args);
+        } catch (ParseException e) {
+            s_logger.error("Failed to parse command line arguments", e);
+            PrintHelpAndExit(1);
+        }
+        if(cmd.hasOption("help") || !cmd.hasOption("config")) {
+            PrintHelpAndExit(cmd.hasOption("help") ? 0 : 1);
+        }
+
+        Connection conn = null;
+        File f = new File(cmd.getOptionValue("config"));
+        if(!f.exists()) {
+            s_logger.error("No such file: {}", f);
+            System.exit(1);
+        }
+        try {
+            conn = DriverManager.getConnection("jdbc:sqlite:" + f.getCanonicalPath());
+        } catch (SQLException | IOException e) {
+            s_logger.error("Unable to establish JDBC connection for SQLite database", e);
+            System.exit(1);
+        }
+        s_logger.info("Opened configuration in {}", f);
+
+        String appPin = cmd.getOptionValue("appPin");
+        if(appPin == null) {
+            try (Statement configStatement = conn.createStatement()) {
+                ResultSet rs = configStatement.executeQuery(FIRST_CONFIG);
+                if(rs.next()) {
+                    appPin = rs.getString("ApplicationPIN");
+                }
+            } catch (SQLException e) {
+                s_logger.error("Failed to read configuration", e);
+            }
+        }
+        if(appPin == null || appPin.isEmpty()) {
+            Console cons = System.console();
+            char[] passwd;
+            if (cons != null && (passwd = cons.readPassword("[Enter %s]", "Application Pin")) != null) {
+                appPin = new String(passwd);
+            }
+        }
+        if(appPin == null || appPin.isEmpty()) {
+            s_logger.error("An application PIN is needed to test cards");
+            System.exit(1);
+        }
+
+        Path outputDir = Paths.get(cmd.getOptionValue("output", "station"));
+        try {
+            Files.createDirectories(outputDir);
+        } catch (IOException e) {
+            s_logger.error("Unable to create {}", outputDir, e);
+            System.exit(1);
+        }
+        ReaderLogAppender.install(Logger.ROOT_LOGGER_NAME, outputDir.toString());
+
+        int maxCards = cmd.hasOption("cards") ? Integer.parseInt(cmd.getOptionValue("cards")) : -1;
+        StationRunner station = new StationRunner(ConformanceTestPlan.load(conn), outputDir, appPin, maxCards);
+
+        String[] prefixes = cmd.hasOption("readers") ? cmd.getOptionValue("readers").split(",") : null;
+        for(String reader : PCSCUtils.GetConnectedReaders()) {
+            if(prefixes != null && !matchesAny(reader, prefixes)) {
+                continue;
+            }
+            CardTerminal terminal = PCSCUtils.TerminalForReaderName(reader);
+            if(terminal != null) {
+                station.addReader(reader, terminal);
+            }
+        }
+        if(station.m_readers.isEmpty()) {
+            s_logger.error("No readers to test cards in");
+            System.exit(1);
+        }
+
+        int interval = Integer.parseInt(cmd.getOptionValue("summaryInterval", "30"));
+        Runtime.getRuntime().addShutdownHook(new Thread(station::stop));
+        station.run(interval);
+        station.printSummary(System.out);
+    }
+
+    private static boolean matchesAny(String reader, String[] prefixes) {
+        for(String prefix : prefixes) {
+            if(reader.toUpperCase().startsWith(prefix.trim().toUpperCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void addReader(String readerName, CardTerminal terminal) {
+        s_logger.info("Testing cards in {}", readerName);
+        m_readers.add(new ReaderStation(readerName, terminal));
+    }
+
+    // reserves the next card against the --cards limit
+    private boolean claimCard() {
+        if(m_maxCards < 0) {
+            return true;
+        }
+        if(m_cardsClaimed.incrementAndGet() > m_maxCards) {
+            stop();
+            return false;
+        }
+        return true;
+    }
+
+    void stop() {
+        m_stopping = true;
+        for(ReaderStation reader : m_readers) {
+            reader.m_loop.stop();
+        }
+    }
+
+    // runs until every reader has stopped
+    void run(int summaryIntervalSeconds) {
+        m_startNanos = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for(ReaderStation reader : m_readers) {
+            Thread t = new Thread(reader, "station-" + reader.m_dirName);
+            threads.add(t);
+            t.start();
+        }
+        ScheduledExecutorService summary = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "station-summary");
+            t.setDaemon(true);
+            return t;
+        });
+        summary.scheduleAtFixedRate(() -> printSummary(System.out), summaryIntervalSeconds, summaryIntervalSeconds, TimeUnit.SECONDS);
+        try {
+            for(Thread t : threads) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            summary.shutdownNow();
+        }
+    }
+
+    synchronized void printSummary(PrintStream out) {
+        double hours = (System.nanoTime() - m_startNanos) / 3.6e12;
+        int cards = m_cardsTested.get();
+        long firstApduCards = m_firstApduCards.sum();
+        out.println("--------------------------------------------------------------");
+        for(ReaderStation reader : m_readers) {
+            long firstApdu = reader.m_lastFirstApduNanos;
+            out.println(String.format("%-40s %-24s %5d cards %5d failed %s", reader.m_readerName, reader.getState(),
+                    reader.m_cards.get(), reader.m_failedCards.get(),
+                    firstApdu < 0 ? "" : String.format("(last first APDU %.1f ms)", firstApdu / 1e6)));
+        }
+        out.println(String.format("%d readers, %d cards tested (%.1f cards/hour, %.1f ms from insertion to first APDU on average)",
+                m_readers.size(), cards, hours > 0 ? cards / hours : 0.0, firstApduCards > 0 ? m_firstApduNanos.sum() / 1e6 / firstApduCards : 0.0));
+        out.flush();
+    }
+}
@@ -21,6 +21,8 @@ import gov.gsa.pivconformance.cardlib.card.client.SignedPIVDataObject;
 import gov.gsa.pivconformance.cardlib.card.client.X509CertificateDataObject;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton.LOGIN_STATUS;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
+import gov.gsa.pivconformance.conformancelib.configuration.DecodedObjectCache;
 import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
 
 public class AtomHelper {
@@ -42,32 +44,7 @@ public class AtomHelper {
 			fail(e);
 		}
 		
-// This snippet can be used to target a folder full of containers
-//		byte[] allBytes = null;
-//		 try (
-//		            InputStream inputStream = new FileInputStream("G:\\GSA\\GSA_GIT\\piv-conformance-pkix-11\\tools\\85b-swing-gui\\85b-swing-gui-201907010300\\" + oid + ".bin");
-//		            
-//		        ) {
-//		 
-//		            long fileSize = new File("G:\\GSA\\GSA_GIT\\piv-conformance-pkix-11\\tools\\85b-swing-gui\\85b-swing-gui-201907010300\\" + oid + ".bin").length();
-//		 
-//		            allBytes = new byte[(int) fileSize];
-//		 
-//		            inputStream.read(allBytes);
-//		 
-//		        } catch (IOException ex) {
-//		            ex.printStackTrace();
-//		        }
-//		 PIVDataObject o = PIVDataObjectFactory.createDataObjectForOid(oid);
-//		 o.setOID(oid);
-//         o.setBytes(allBytes);
-//         
-// 		if (o.decode() != true) {
-//			ConformanceTestException e  = new ConformanceTestException("Failed to decode object for OID " + oid);
-//			fail(e);
-//		}
-		
-		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
+		CardSettingsSingleton css = ConformanceSession.current().getCardSettings();
 		
 		//Check that CardSettingsSingleton
 		if (css == null) {
@@ -84,8 +61,9 @@ public class AtomHelper {
 		
 		try {
 			CardUtils.setUpPivAppHandleInSingleton();
-			if (APDUConstants.isProtectedContainer(oid))
-				CardUtils.authenticateInSingleton(false); // TODO: Not always needed
+			// a container dump already holds the protected containers
+			if (APDUConstants.isProtectedContainer(oid) && !css.isOffline())
+				CardUtils.authenticateInSingleton(false); // no VERIFY is sent if the PIN still stands
 		} catch (ConformanceTestException e) {
 			fail(e);
 		}
@@ -114,8 +92,11 @@ public class AtomHelper {
 			fail(e);
 		}
 
+		// Wait for a background read of the container, if one is under way
+		ContainerPrefetcher.awaitContainer(oid);
+
 		// Get data from the card corresponding to the OID value
-		MiddlewareStatus result = piv.pivGetData(ch, oid, o);
+		MiddlewareStatus result = CardUtils.getData(ch, piv, oid, o);
 		
 		switch (result) {
 		case PIV_DATA_OBJECT_NOT_FOUND:	// Only fail mandatory containers 
@@ -132,19 +113,29 @@ public class AtomHelper {
 			return null;
 		}
 
-		if (o == null) {
-			ConformanceTestException e  = new ConformanceTestException("Object for OID " + oid + " is null");
-			fail(e);
-		} else if (o.decode() != true) {
-			ConformanceTestException e  = new ConformanceTestException("Failed to decode object for OID " + oid);
-			fail(e);
-		}
+		// Containers are decoded once per card, and the decoded object shared by the tests that follow
+		DecodedObjectCache decodedObjects = ConformanceSession.current().getDecodedObjects();
+		byte[] bytes = o.getBytes();
+		synchronized (decodedObjects.lockFor(oid)) {
+			PIVDataObject decoded = decodedObjects.get(oid, bytes);
+			if (decoded != null) {
+				return decoded;
+			}
 
-		if ((o instanceof SignedPIVDataObject) && ((SignedPIVDataObject) o).getCertCount() > 1) {
-			ConformanceTestException e  = new ConformanceTestException("More than one cert found in " + APDUConstants.oidNameMap.get(oid) + " container");
-			fail(e);
-		}
+			if (o.decode() != true) {
+				ConformanceTestException e  = new ConformanceTestException("Failed to decode object for OID " + oid);
+				fail(e);
+			}
 
+			if ((o instanceof SignedPIVDataObject) && ((SignedPIVDataObject) o).getCertCount() > 1) {
+				ConformanceTestException e  = new ConformanceTestException("More than one cert found in " + APDUConstants.oidNameMap.get(oid) + " container");
+				fail(e);
+			}
+
+			// Shared from here on, so a test can neither decode it again nor replace its contents
+			o.freeze();
+			decodedObjects.put(oid, bytes, o);
+		}
 		return o;		
 	}
 	
@@ -212,7 +203,7 @@ public class AtomHelper {
 			throw new IllegalArgumentException("isDataObjectPresent called with null oid");
 		}
 
-		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
+		CardSettingsSingleton css = ConformanceSession.current().getCardSettings();
 
 		// Check that CardSettingsSingleton
 		if (css == null) {
@@ -225,7 +216,7 @@ public class AtomHelper {
 			return false;
 		}
 
-		if (authenticate) {
+		if (authenticate && !css.isOffline()) {
 			try {
 				CardUtils.setUpPivAppHandleInSingleton();
 				CardUtils.authenticateInSingleton(false);
@@ -257,8 +248,11 @@ public class AtomHelper {
 			return false;
 		}
 
+		// Wait for a background read of the container, if one is under way
+		ContainerPrefetcher.awaitContainer(oid);
+
 		// Get data from the card corresponding to the OID value
-		MiddlewareStatus result = piv.pivGetData(ch, oid, o);
+		MiddlewareStatus result = CardUtils.getData(ch, piv, oid, o);
 
 		if (result != MiddlewareStatus.PIV_OK) {
 			s_logger.error("isDataObjectPresent() failed to get data for {} {} authentication: {}.", oid, authenticate ? "with":"without", result);
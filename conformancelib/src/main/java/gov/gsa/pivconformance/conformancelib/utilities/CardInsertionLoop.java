@@ -0,0 +1,94 @@
+package gov.gsa.pivconformance.conformancelib.utilities;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for cards to be inserted in a reader and hands each one to a listener, then waits for it to be
+ * removed before looking for the next, until stopped. This lets a runner stay up and test one card after
+ * another instead of being restarted for each card.
+ */
+public class CardInsertionLoop {
+	private static final Logger s_logger = LoggerFactory.getLogger(CardInsertionLoop.class);
+
+	// how long to block in waitForCardPresent/Absent before checking whether the loop has been stopped
+	private static final long POLL_MILLIS = 1000;
+
+	public interface CardListener {
+		/**
+		 * Called on the loop's thread when a card is inserted. The card is not removed from the
+		 * loop's point of view until this returns.
+		 * @param terminal the reader the card was inserted in
+		 * @param insertedNanos System.nanoTime() when the insertion was detected
+		 * @return false to stop the loop
+		 */
+		boolean cardInserted(CardTerminal terminal, long insertedNanos);
+	}
+
+	public enum State {
+		WAITING_FOR_CARD,
+		TESTING,
+		WAITING_FOR_REMOVAL,
+		STOPPED
+	}
+
+	private final CardTerminal m_terminal;
+	private final CardListener m_listener;
+	private volatile boolean m_stopping = false;
+	private volatile State m_state = State.WAITING_FOR_CARD;
+
+	public CardInsertionLoop(CardTerminal terminal, CardListener listener) {
+		m_terminal = terminal;
+		m_listener = listener;
+	}
+
+	/**
+	 * Runs on the calling thread until stop() is called, the listener asks to stop or the reader fails
+	 * @throws CardException if the reader fails
+	 */
+	public void run() throws CardException {
+		try {
+			// a card that is already in the reader counts as just inserted
+			while (!m_stopping) {
+				m_state = State.WAITING_FOR_CARD;
+				if (!m_terminal.waitForCardPresent(POLL_MILLIS)) {
+					continue;
+				}
+				long inserted = System.nanoTime();
+				s_logger.debug("Card inserted in {}", m_terminal.getName());
+				m_state = State.TESTING;
+				if (!m_listener.cardInserted(m_terminal, inserted)) {
+					break;
+				}
+				waitForRemoval();
+			}
+		} finally {
+			m_state = State.STOPPED;
+		}
+	}
+
+	private void waitForRemoval() throws CardException {
+		m_state = State.WAITING_FOR_REMOVAL;
+		while (!m_stopping && !m_terminal.waitForCardAbsent(POLL_MILLIS)) {
+			// the operator has not taken the card out yet
+		}
+	}
+
+	/**
+	 * Stops the loop once the card being tested, if any, is done
+	 */
+	public void stop() {
+		m_stopping = true;
+	}
+
+	public State getState() {
+		return m_state;
+	}
+
+	public CardTerminal getTerminal() {
+		return m_terminal;
+	}
+}
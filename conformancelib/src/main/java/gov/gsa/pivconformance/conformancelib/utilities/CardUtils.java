@@ -1,11 +1,14 @@
 package gov.gsa.pivconformance.conformancelib.utilities;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.locks.Lock;
 
 import javax.smartcardio.CardException;
 import javax.smartcardio.CardTerminal;
 
+import org.junit.jupiter.api.Assumptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,16 +20,27 @@ import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
 import gov.gsa.pivconformance.cardlib.card.client.ConnectionDescription;
 import gov.gsa.pivconformance.cardlib.card.client.DefaultPIVApplication;
 import gov.gsa.pivconformance.cardlib.card.client.MiddlewareStatus;
+import gov.gsa.pivconformance.cardlib.card.client.OfflinePIVApplication;
 import gov.gsa.pivconformance.cardlib.card.client.PIVAuthenticators;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
 import gov.gsa.pivconformance.cardlib.card.client.PIVMiddleware;
+import gov.gsa.pivconformance.conformancelib.configuration.CardInfoController;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton.LOGIN_STATUS;
 import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
 import gov.gsa.pivconformance.cardlib.utils.PCSCUtils;
+import gov.gsa.pivconformance.cardlib.utils.PCSCWrapper;
 
 public class CardUtils {
 	static Logger s_logger = LoggerFactory.getLogger(CardUtils.class);
 
+	// resource lock for test methods that can reach the card. Methods that only read containers hold it
+	// in READ mode, which is safe because the decoded containers they share are frozen; a method that
+	// needs to change one works on its own copy. Methods that log in, sign with a card key or otherwise
+	// change shared state hold it in READ_WRITE mode so they are not run alongside anything else. The
+	// card commands themselves are kept apart by the CardHandle lock
+	public static final String CARD_RESOURCE = "gov.gsa.pivconformance.card";
+
 	static {
 		PCSCUtils.ConfigureUserProperties();
 	}
@@ -60,6 +74,9 @@ public class CardUtils {
 	// according to the reader index if specified
 	public static boolean setUpPivAppHandleInSingleton() throws ConformanceTestException {
 		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
+		if (css.isOffline()) {
+			return true;
+		}
 		CardTerminal reader = css.getTerminal();
 		if (reader == null) {
 			setUpReaderInSingleton();
@@ -90,18 +107,117 @@ public class CardUtils {
 				throw new ConformanceTestException("pivSelectCardApplication() failed");
 			}
 			css.setPivHandle(piv);
+		} else {
+			selectPivIfNeeded(ch, css.getPivHandle());
+		}
+		return true;
+	}
+
+	/**
+	 * Selects the PIV Card Application unless it is known to be selected already, as it is for the
+	 * rest of a connection once selected
+	 * @param ch the card handle
+	 * @param piv the PIV application handle to select with
+	 * @throws ConformanceTestException if the application can't be selected
+	 */
+	public static void selectPivIfNeeded(CardHandle ch, AbstractPIVApplication piv) throws ConformanceTestException {
+		Lock lock = ch.getLock();
+		lock.lock();
+		try {
+			if (ch.isPivSelected()) {
+				ch.getTransmitCounters().incrementAvoidedSelectCount();
+				PCSCWrapper.getInstance().incrementAvoidedSelectCount();
+				return;
+			}
+			MiddlewareStatus result = piv.pivSelectCardApplication(ch, new ApplicationAID(), new ApplicationProperties());
+			if (result != MiddlewareStatus.PIV_OK) {
+				throw new ConformanceTestException("pivSelectCardApplication() failed: " + result);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads a container, holding the card's lock so that the GET DATA, and the short APDU it may be retried
+	 * with, are not sent in the middle of another thread's sequence of commands
+	 * @param ch the card handle
+	 * @param piv the PIV application handle to read with
+	 * @param oid the container OID
+	 * @param o the data object that receives the container
+	 * @return the result of pivGetData()
+	 */
+	public static MiddlewareStatus getData(CardHandle ch, AbstractPIVApplication piv, String oid, PIVDataObject o) {
+		Lock lock = ch.getLock();
+		lock.lock();
+		try {
+			return piv.pivGetData(ch, oid, o);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// counts a VERIFY that wasn't sent because the card's security status already had the PIN
+	private static void countAvoidedVerify(CardHandle ch) {
+		ch.getTransmitCounters().incrementAvoidedVerifyCount();
+		PCSCWrapper.getInstance().incrementAvoidedVerifyCount();
+	}
+
+	// this method will connect to the card in the singleton's reader and verify the application PIN,
+	// refusing to go on if a wrong PIN could lock the card
+	public static void setUpCardAndVerifyPinInSingleton() throws ConformanceTestException {
+		setUpPivAppHandleInSingleton();
+		if (CardInfoController.getEncodedRetries() <= 1) {
+			throw new ConformanceTestException("PIN retry count is too low. Proceeding with tests risks locking the card");
+		}
+		if (!CardInfoController.checkPin(true)) {
+			throw new ConformanceTestException("Application PIN is invalid");
+		}
+	}
+
+	// this method will set up the singleton to read containers from a container dump directory
+	// instead of a card
+	public static void setUpOfflineInSingleton(Path dumpDirectory) {
+		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
+		css.setTerminal(null);
+		css.setCardHandle(new CardHandle());
+		css.setPivHandle(new OfflinePIVApplication(dumpDirectory));
+	}
+
+	// skips the calling test when there is no live card to run it against
+	public static void assumeLiveCard() {
+		Assumptions.assumeFalse(CardSettingsSingleton.getInstance().isOffline(),
+				"Test requires a live card and is being run against a container dump");
+	}
+
+	// this method will set up the card and piv application handles in the singleton and start
+	// reading the card's containers in the background
+	public static boolean startContainerPrefetchInSingleton() throws ConformanceTestException {
+		setUpPivAppHandleInSingleton();
+		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
+		if (css.isOffline()) {
+			// nothing to overlap with when containers come from files
+			return true;
 		}
+		ContainerPrefetcher.start(css.getCardHandle(), css.getPivHandle(),
+				css.getLastLoginStatus() == LOGIN_STATUS.LOGIN_SUCCESS);
 		return true;
 	}
 
 	// this method will authenticate to the card
 	public static boolean authenticateInSingleton(boolean useGlobal) throws ConformanceTestException {
 
+		assumeLiveCard();
 		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
 
 		PIVAuthenticators authenticators = new PIVAuthenticators();
 
-		if (css.getLastLoginStatus() != LOGIN_STATUS.LOGIN_SUCCESS) {
+		// the PIN is verified again only when the card has been reset, reconnected or has
+		// answered 6982 since it was last verified
+		CardHandle handle = css.getCardHandle();
+		if (handle != null && handle.isPinVerified()) {
+			countAvoidedVerify(handle);
+		} else {
 
 			if (useGlobal) {
 
@@ -147,11 +263,7 @@ public class CardUtils {
 			CardHandle ch = css.getCardHandle();
 			AbstractPIVApplication piv = css.getPivHandle();
 
-			MiddlewareStatus result = piv.pivLogIntoCardApplication(ch, authenticators.getBytes());
-			if (MiddlewareStatus.PIV_OK != result) {
-				css.setLastLoginStatus(LOGIN_STATUS.LOGIN_FAIL);
-				throw new ConformanceTestException("authenticateInSingleton() failed");
-			}
+			logIn(ch, piv, authenticators);
 		}
 
 		// Cache the last login status status here, not inside the if block, guarantees
@@ -159,17 +271,52 @@ public class CardUtils {
 
 		css.setLastLoginStatus(LOGIN_STATUS.LOGIN_SUCCESS);
 
+		// PIN protected containers can be read ahead now that the PIN has been verified
+		ContainerPrefetcher prefetcher = ContainerPrefetcher.getCurrent();
+		if (prefetcher != null) {
+			prefetcher.prefetchProtected();
+		}
+
 		return true;
 	}
 
+	// selects the PIV application if needed and verifies the PIN, holding the card's lock so that
+	// nothing is sent to the card between the SELECT and the VERIFY
+	private static void logIn(CardHandle ch, AbstractPIVApplication piv, PIVAuthenticators authenticators) throws ConformanceTestException {
+		Lock lock = ch.getLock();
+		lock.lock();
+		try {
+			selectPivIfNeeded(ch, piv);
+			MiddlewareStatus result = piv.pivLogIntoCardApplication(ch, authenticators.getBytes());
+			if (MiddlewareStatus.PIV_OK != result) {
+				CardSettingsSingleton.getInstance().setLastLoginStatus(LOGIN_STATUS.LOGIN_FAIL);
+				throw new ConformanceTestException("authenticateInSingleton() failed");
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	// this method will re-authenticate to the card
 	public static boolean reauthenticateInSingleton() throws ConformanceTestException {
+		return reauthenticateInSingleton(true);
+	}
+
+	// this method will re-authenticate to the card ahead of using a key. keys that need the PIN
+	// verified immediately before each use get a VERIFY every time, others only when the card's
+	// security status no longer has the PIN. callers using a PIN Always key hold the card's lock
+	// until the key has been used, so that the VERIFY is the command right before it
+	public static boolean reauthenticateInSingleton(boolean pinAlways) throws ConformanceTestException {
 
+		assumeLiveCard();
 		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
 
 		PIVAuthenticators authenticators = new PIVAuthenticators();
 
-		if (css.getLastLoginStatus() == LOGIN_STATUS.LOGIN_SUCCESS) {
+		CardHandle handle = css.getCardHandle();
+		if (!pinAlways && handle != null && handle.isPinVerified()) {
+			countAvoidedVerify(handle);
+		} else if (css.getLastLoginStatus() == LOGIN_STATUS.LOGIN_SUCCESS) {
 
 			if (css.getApplicationPin() == null || css.getApplicationPin().length() == 0) {
 				css.setLastLoginStatus(LOGIN_STATUS.LOGIN_FAIL);
@@ -182,11 +329,7 @@ public class CardUtils {
 			CardHandle ch = css.getCardHandle();
 			AbstractPIVApplication piv = css.getPivHandle();
 
-			MiddlewareStatus result = piv.pivLogIntoCardApplication(ch, authenticators.getBytes());
-			if (MiddlewareStatus.PIV_OK != result) {
-				css.setLastLoginStatus(LOGIN_STATUS.LOGIN_FAIL);
-				throw new ConformanceTestException("authenticateInSingleton() failed");
-			}
+			logIn(ch, piv, authenticators);
 		}
 
 		// Cache the last login status status here, not inside the if block, guarantees
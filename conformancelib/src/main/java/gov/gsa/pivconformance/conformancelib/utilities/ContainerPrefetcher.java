@@ -0,0 +1,268 @@
+package gov.gsa.pivconformance.conformancelib.utilities;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.cardlib.card.client.AbstractPIVApplication;
+import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
+import gov.gsa.pivconformance.cardlib.card.client.MiddlewareStatus;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+import gov.gsa.pivconformance.cardlib.card.client.PIVDataObjectFactory;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
+
+/**
+ * Reads the card's containers on a dedicated card I/O thread so that container retrieval overlaps
+ * with the decoding and validation done by the test atoms. Containers are read into the PIV handle's
+ * cache (see CachingDefaultPIVApplication) and each one has a future that AtomHelper waits on before
+ * it calls pivGetData(), so an atom only blocks on the container it needs.
+ *
+ * The Discovery Object and CCC are read first, followed by the containers used by the test plan in the
+ * order the plan uses them, followed by everything else. Waiting on a container that has not been read
+ * yet moves it to the head of the queue. PIN protected containers are only queued once the application
+ * PIN has been verified.
+ *
+ * Each read holds the card handle's lock, so a container is never read between commands that the tests
+ * send as a sequence, such as a VERIFY and the GENERAL AUTHENTICATE that needs it. The running prefetcher
+ * and the test plan order belong to the ConformanceSession bound to the calling thread.
+ */
+public class ContainerPrefetcher {
+	private static final Logger s_logger = LoggerFactory.getLogger(ContainerPrefetcher.class);
+
+	private final CardHandle m_cardHandle;
+	private final AbstractPIVApplication m_piv;
+	private final LinkedList<String> m_pending = new LinkedList<String>();
+	private final Map<String, CompletableFuture<MiddlewareStatus>> m_futures = new ConcurrentHashMap<String, CompletableFuture<MiddlewareStatus>>();
+	private final Thread m_thread;
+	private volatile boolean m_stopped = false;
+
+	private ContainerPrefetcher(CardHandle cardHandle, AbstractPIVApplication piv) {
+		m_cardHandle = cardHandle;
+		m_piv = piv;
+		m_thread = new Thread(this::run, "piv-container-prefetch");
+		m_thread.setDaemon(true);
+	}
+
+	/**
+	 * Sets the order in which the current session's test plan uses containers. Entries may be OIDs or
+	 * APDUConstants field names as found in the TestCaseContainer column of the test database.
+	 * @param containers container OIDs or names in test plan order
+	 */
+	public static void setTestPlanOrder(List<String> containers) {
+		List<String> oids = new ArrayList<String>();
+		for (String container : containers) {
+			String oid = resolveOid(container);
+			if (oid != null && !oids.contains(oid)) {
+				oids.add(oid);
+			}
+		}
+		ConformanceSession session = ConformanceSession.current();
+		synchronized (session) {
+			session.setTestPlanContainers(oids);
+			ContainerPrefetcher current = session.getContainerPrefetcher();
+			if (current != null) {
+				current.prioritize(oids);
+			}
+		}
+	}
+
+	/**
+	 * Starts prefetching containers from the card for the current session, stopping any prefetch the
+	 * session already has running
+	 * @param cardHandle the card handle
+	 * @param piv the PIV application handle whose cache will receive the containers
+	 * @param includeProtected true if the PIN protected containers can be read as well
+	 * @return the running prefetcher
+	 */
+	public static ContainerPrefetcher start(CardHandle cardHandle, AbstractPIVApplication piv, boolean includeProtected) {
+		ConformanceSession session = ConformanceSession.current();
+		synchronized (session) {
+			stop();
+			ContainerPrefetcher prefetcher = new ContainerPrefetcher(cardHandle, piv);
+			List<String> order = new ArrayList<String>();
+			order.add(APDUConstants.DISCOVERY_OBJECT_OID);
+			order.add(APDUConstants.CARD_CAPABILITY_CONTAINER_OID);
+			order.addAll(session.getTestPlanContainers());
+			order.addAll(APDUConstants.AllContainers());
+			for (String oid : order) {
+				if (includeProtected || !APDUConstants.isProtectedContainer(oid)) {
+					prefetcher.schedule(oid);
+				}
+			}
+			s_logger.debug("Prefetching {} containers for {}", prefetcher.m_futures.size(), session);
+			session.setContainerPrefetcher(prefetcher);
+			prefetcher.m_thread.start();
+			return prefetcher;
+		}
+	}
+
+	/**
+	 * Gets the current session's running prefetcher
+	 * @return the running prefetcher, or null if none is running
+	 */
+	public static ContainerPrefetcher getCurrent() {
+		return ConformanceSession.current().getContainerPrefetcher();
+	}
+
+	/**
+	 * Stops the current session's running prefetcher, if any. Containers already read remain in the cache.
+	 */
+	public static void stop() {
+		ConformanceSession session = ConformanceSession.current();
+		synchronized (session) {
+			ContainerPrefetcher current = session.getContainerPrefetcher();
+			if (current != null) {
+				current.shutdown();
+				session.setContainerPrefetcher(null);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the running prefetcher, if any, to finish reading a container
+	 * @param oid the container OID
+	 */
+	public static void awaitContainer(String oid) {
+		ContainerPrefetcher prefetcher = getCurrent();
+		if (prefetcher != null) {
+			prefetcher.await(oid);
+		}
+	}
+
+	/**
+	 * Queues the PIN protected containers, to be called once the application PIN has been verified
+	 */
+	public void prefetchProtected() {
+		for (String oid : APDUConstants.ProtectedContainers()) {
+			schedule(oid);
+		}
+	}
+
+	/**
+	 * Waits for a container to be read, moving it to the head of the queue if it has not been read yet
+	 * @param oid the container OID
+	 * @return the status of the read, or null if the container was not prefetched
+	 */
+	public MiddlewareStatus await(String oid) {
+		CompletableFuture<MiddlewareStatus> future = m_futures.get(oid);
+		// a thread holding the card lock would wait forever for a read that needs it
+		if (future == null || Thread.currentThread() == m_thread || m_cardHandle.getLock().isHeldByCurrentThread()) {
+			return null;
+		}
+		if (!future.isDone()) {
+			synchronized (m_pending) {
+				if (m_pending.remove(oid)) {
+					m_pending.addFirst(oid);
+				}
+			}
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			s_logger.error("Prefetch of {} failed", APDUConstants.oidNameMap.get(oid), e.getCause());
+		}
+		return null;
+	}
+
+	private void schedule(String oid) {
+		if (m_futures.putIfAbsent(oid, new CompletableFuture<MiddlewareStatus>()) == null) {
+			synchronized (m_pending) {
+				m_pending.addLast(oid);
+				m_pending.notifyAll();
+			}
+		}
+	}
+
+	private void prioritize(List<String> oids) {
+		synchronized (m_pending) {
+			for (int i = oids.size() - 1; i >= 0; i--) {
+				if (m_pending.remove(oids.get(i))) {
+					m_pending.addFirst(oids.get(i));
+				}
+			}
+		}
+	}
+
+	private void shutdown() {
+		// not interrupted, so that a read in progress is not cut off mid-exchange
+		m_stopped = true;
+		synchronized (m_pending) {
+			m_pending.clear();
+			m_pending.notifyAll();
+		}
+		// release anyone still waiting; they will read the container themselves
+		for (CompletableFuture<MiddlewareStatus> future : m_futures.values()) {
+			future.complete(null);
+		}
+	}
+
+	private void run() {
+		int count = 0;
+		while (!m_stopped) {
+			String oid;
+			synchronized (m_pending) {
+				// stay around for the protected containers queued after login
+				while (m_pending.isEmpty() && !m_stopped) {
+					try {
+						m_pending.wait();
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+				oid = m_pending.poll();
+			}
+			if (oid == null) {
+				break;
+			}
+			CompletableFuture<MiddlewareStatus> future = m_futures.get(oid);
+			Lock lock = m_cardHandle.getLock();
+			lock.lock();
+			try {
+				if (m_stopped) {
+					break;
+				}
+				PIVDataObject o = PIVDataObjectFactory.createDataObjectForOid(oid);
+				MiddlewareStatus result = m_piv.pivGetData(m_cardHandle, oid, o);
+				s_logger.debug("Prefetched {}: {}", APDUConstants.oidNameMap.get(oid), result);
+				future.complete(result);
+				count++;
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			} finally {
+				lock.unlock();
+			}
+		}
+		s_logger.debug("Prefetch thread exiting after reading {} containers", count);
+	}
+
+	/**
+	 * Resolves an entry in the TestCaseContainer column of the test database to a container OID
+	 * @param container a container OID or APDUConstants field name
+	 * @return the container OID, or null if the entry does not name a container
+	 */
+	public static String resolveOid(String container) {
+		if (container == null || container.isEmpty()) {
+			return null;
+		}
+		if (APDUConstants.oidMAP.containsKey(container)) {
+			return container;
+		}
+		String oid = APDUConstants.getStringForFieldNamed(container);
+		if (oid == null || !APDUConstants.oidMAP.containsKey(oid)) {
+			s_logger.debug("Test plan container {} does not name a container OID", container);
+			return null;
+		}
+		return oid;
+	}
+}
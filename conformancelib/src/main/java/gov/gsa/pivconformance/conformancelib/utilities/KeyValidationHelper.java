@@ -2,14 +2,16 @@ package gov.gsa.pivconformance.conformancelib.utilities;
 
 import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
 import gov.gsa.pivconformance.cardlib.card.client.CardClientException;
+import gov.gsa.pivconformance.cardlib.card.client.CardHandle;
 import gov.gsa.pivconformance.cardlib.card.client.GeneralAuthenticateHelper;
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
 import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
 import java.security.spec.ECPoint;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import org.apache.commons.codec.binary.Hex;
+import java.util.concurrent.locks.Lock;
 import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import org.bouncycastle.jcajce.provider.asymmetric.util.EC5Util;
 import org.bouncycastle.jce.ECNamedCurveTable;
@@ -37,12 +39,30 @@ public class KeyValidationHelper {
 	private final HashMap<String, ECNamedCurveParameterSpec> validCurves = new HashMap<>();
 
 	public void validateKey(X509Certificate containerCert, String containerOid) throws ConformanceTestException {
+		CardUtils.assumeLiveCard();
+		CardHandle ch = CardSettingsSingleton.getInstance().getCardHandle();
+		if (ch == null) {
+			throw new ConformanceTestException("No card handle to validate the key for " + containerOid + " with");
+		}
+		// nothing else may be sent to the card from the VERIFY through to the GENERAL AUTHENTICATE, as a
+		// PIN Always key can only be used by the command right after the VERIFY
+		Lock lock = ch.getLock();
+		lock.lock();
+		try {
+			signChallenge(containerCert, containerOid);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void signChallenge(X509Certificate containerCert, String containerOid) throws ConformanceTestException {
 		ResponseAPDU resp = null;
 		byte[] template = null;
 		byte[] challengeResponse = null;
 
 		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
-		CardUtils.reauthenticateInSingleton();
+		// only the digital signature key needs the PIN verified immediately before each use
+		CardUtils.reauthenticateInSingleton(APDUConstants.X509_CERTIFICATE_FOR_DIGITAL_SIGNATURE_OID.equals(containerOid));
 		if (!APDUConstants.oidToContainerIdMap.containsKey(containerOid)) {
 			s_logger.error("{} is not a valid container OID for this test", containerOid);
 			throw new ConformanceTestException("validateKey was passed container OID " + containerOid
@@ -74,7 +94,7 @@ public class KeyValidationHelper {
 				s_logger.error("Failed to digest and pad the challenge");
 				throw new ConformanceTestException("Failed to digest and pad the challenge");
 			}
-			s_logger.debug("padded challenge: {}", Hex.encodeHexString(paddedChallenge));
+			s_logger.debug("padded challenge: {}", HexUtil.toLowerHexString(paddedChallenge));
 			template = GeneralAuthenticateHelper.generateRequest(containerOid, paddedChallenge);
 			try {
 				resp = GeneralAuthenticateHelper.sendRequest(css.getCardHandle(), 0x07, containerId, template);
@@ -82,13 +102,13 @@ public class KeyValidationHelper {
 				s_logger.error("Error during GeneralAuthenticateHelper.sendRequest()", e);
 				throw new ConformanceTestException("Sending APDU to card failed", e);
 			}
-			s_logger.debug("response was {}", Hex.encodeHexString(resp.getData()));
+			s_logger.debug("response was {}", HexUtil.toLowerHexString(resp.getData()));
 			challengeResponse = GeneralAuthenticateHelper.getChallengeResponseFromData(resp.getData());
 			if (challengeResponse == null) {
 				s_logger.error("Invalid challenge response buffer.");
 				throw new ConformanceTestException("APDU with status word of " + Integer.toHexString(resp.getSW1()) + Integer.toHexString(resp.getSW2()) + " contained no response to challenge");
 			}
-			s_logger.info("parsed challenge response: {}", Hex.encodeHexString(challengeResponse));
+			s_logger.info("parsed challenge response: {}", HexUtil.toLowerHexString(challengeResponse));
 			// XXX *** for now, the digest we'll use in the challenge block is always sha256
 			// for RSA. We likely need to change that.
 			boolean verified = GeneralAuthenticateHelper.verifyResponseSignature(containerCert.getSigAlgName(), pubKey, challengeResponse, challenge);
@@ -148,7 +168,7 @@ public class KeyValidationHelper {
 				s_logger.error("Error during GeneralAuthenticateHelper.sendRequest()", e);
 				throw new ConformanceTestException("Sending APDU to card failed", e);
 			}
-			s_logger.debug("response was {}", Hex.encodeHexString(resp.getData()));
+			s_logger.debug("response was {}", HexUtil.toLowerHexString(resp.getData()));
 
 			challengeResponse = GeneralAuthenticateHelper.getChallengeResponseFromData(resp.getData());
 			assertTrue(resp.getSW() == APDUConstants.SUCCESSFUL_EXEC, "Request failure");
@@ -158,7 +178,7 @@ public class KeyValidationHelper {
 				s_logger.error("Invalid challenge response buffer.");
 				throw new ConformanceTestException("APDU with status word of " + Integer.toHexString(resp.getSW1()) + Integer.toHexString(resp.getSW2()) + " contained no response to challenge");
 			}
-			s_logger.info("parsed challenge response: {}", Hex.encodeHexString(challengeResponse));
+			s_logger.info("parsed challenge response: {}", HexUtil.toLowerHexString(challengeResponse));
 
 			// NoneWithECDSA tells the algorithm provider that we are doing a "raw" ecdsa and are simply providing it with a digest versus
 			// the bytes that the digest is the hash of.
@@ -0,0 +1,92 @@
+package gov.gsa.pivconformance.conformancelib.utilities;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.FileAppender;
+
+/**
+ * This appender gives each card reader in a station its own log file. Events are routed by the reader
+ * name that the thread testing cards in the reader puts in the MDC; events from other threads are
+ * left to the other appenders.
+ */
+public class ReaderLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+	public static final String READER_KEY = "reader";
+	private static final String PATTERN = "%d{HH:mm:ss.SSS} %-5level %logger{36} - %msg%n";
+
+	private final Map<String, FileAppender<ILoggingEvent>> m_appenders = new ConcurrentHashMap<String, FileAppender<ILoggingEvent>>();
+	private String m_directory = ".";
+	private String m_fileName = "station.log";
+
+	/**
+	 * Sets the directory holding a subdirectory for each reader
+	 * @param directory the station output directory
+	 */
+	public void setDirectory(String directory) {
+		m_directory = directory;
+	}
+
+	public void setFileName(String fileName) {
+		m_fileName = fileName;
+	}
+
+	/**
+	 * Adds an appender writing to &lt;directory&gt;/&lt;reader&gt;/station.log to the given logger
+	 * @param loggerName the logger to add the appender to, usually the root logger
+	 * @param directory the station output directory
+	 * @return the appender
+	 */
+	public static ReaderLogAppender install(String loggerName, String directory) {
+		LoggerContext ctx = (LoggerContext) LoggerFactory.getILoggerFactory();
+		ReaderLogAppender appender = new ReaderLogAppender();
+		appender.setContext(ctx);
+		appender.setName("READERLOG");
+		appender.setDirectory(directory);
+		appender.start();
+		Logger logger = ctx.getLogger(loggerName);
+		logger.addAppender(appender);
+		return appender;
+	}
+
+	@Override
+	protected void append(ILoggingEvent event) {
+		// the file appenders do their own locking, so readers only wait on each other when creating them
+		String reader = event.getMDCPropertyMap().get(READER_KEY);
+		if (reader == null) {
+			return;
+		}
+		m_appenders.computeIfAbsent(reader, this::createAppender).doAppend(event);
+	}
+
+	private FileAppender<ILoggingEvent> createAppender(String reader) {
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(getContext());
+		encoder.setPattern(PATTERN);
+		encoder.start();
+		FileAppender<ILoggingEvent> rv = new FileAppender<ILoggingEvent>();
+		rv.setContext(getContext());
+		rv.setName(getName() + "-" + reader);
+		rv.setFile(m_directory + File.separator + reader + File.separator + m_fileName);
+		rv.setAppend(true);
+		rv.setEncoder(encoder);
+		rv.start();
+		return rv;
+	}
+
+	@Override
+	public void stop() {
+		for (FileAppender<ILoggingEvent> a : m_appenders.values()) {
+			a.stop();
+		}
+		m_appenders.clear();
+		super.stop();
+	}
+}
@@ -14,6 +14,7 @@ import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
 import gov.gsa.pivconformance.cardlib.card.client.ArtifactWriter;
 import gov.gsa.pivconformance.cardlib.card.client.CardHolderUniqueIdentifier;
 import gov.gsa.pivconformance.cardlib.card.client.PIVDataObject;
+import gov.gsa.pivconformance.cardlib.utils.APDUStatistics;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
@@ -24,6 +25,7 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.security.ProtectionDomain;
+import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
@@ -331,7 +333,7 @@ public class TestRunLogController {
 	 */
 	public void captureIdentifiers() {
 		PIVDataObject o = AtomHelper.getDataObject(APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
-		if (o.decode()) {
+		if (o != null) {
 			byte[] fascn = ((CardHolderUniqueIdentifier)o).getfASCN();
 			if (fascn != null) {
 				String cookedFascn = CardHolderUniqueIdentifier.cook(fascn);
@@ -343,7 +345,7 @@ public class TestRunLogController {
 				setGuid(cookedGuid);
 			}
 		} else {
-			s_logger.error("Couldn't decode CHUID");
+			s_logger.error("Couldn't read CHUID");
 		}
 	}
 
@@ -437,6 +439,31 @@ public class TestRunLogController {
 	}
 
 
+	/**
+	 * Writes the APDU latency and byte count summary for the run next to the CONFORMANCE log, named
+	 * with the same time stamp as the logs rolled by setTimeStamps()
+	 * 
+	 * @param statistics the statistics to write
+	 * @return the path written, or null if it couldn't be written
+	 */
+	public String writeAPDUStatistics(APDUStatistics statistics) {
+		String conformanceLog = m_filenames != null ? m_filenames.get("CONFORMANCELOG") : null;
+		File dir = conformanceLog != null ? new File(conformanceLog).getAbsoluteFile().getParentFile() : new File("logs/conformancelog");
+		String timeStamp = m_timeStamp != null ? m_timeStamp : new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+		File f = new File(dir, timeStamp + "-apdu_statistics.csv");
+		try {
+			Files.createDirectories(dir.toPath());
+			try (PrintStream p = new PrintStream(f)) {
+				statistics.writeCsv(p);
+			}
+			s_logger.debug("Wrote APDU statistics to {}", f.getPath());
+			return f.getPath();
+		} catch (IOException e) {
+			s_logger.error("Unable to write APDU statistics to {}: {}", f.getPath(), e.getMessage());
+			return null;
+		}
+	}
+
 	/**
 	 * Copies the contents of oldPath to newPath and removes the existing
 	 * 
@@ -1,5 +1,6 @@
 package gov.gsa.pivconformance.conformancelib.utilities;
 
+import gov.gsa.pivconformance.cardlib.events.PathValidationEvent;
 import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
 import org.apache.commons.cli.*;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -70,6 +71,7 @@ public class Validator {
     private String m_defaultAlias = null;
     private boolean m_downloadAia = true;
     private CertPath m_certPath = null;
+    private String m_containerOid = null;
 
     public static final List<String> s_validCryptoProviders = new ArrayList<String>() {
         private static final long serialVersionUID = 1L;
@@ -418,6 +420,23 @@ public class Validator {
         return m_eeCert;
     }
 
+    /**
+     * Sets the OID of the container the end-entity cert was read from, recorded with the
+     * path validation in flight recordings
+     * @param containerOid the container OID
+     */
+    public void setContainerOid(String containerOid) {
+        m_containerOid = containerOid;
+    }
+
+    /**
+     * Gets the OID of the container the end-entity cert was read from
+     * @return the container OID, or null if not set
+     */
+    public String getContainerOid() {
+        return m_containerOid;
+    }
+
     /**
      * Sets the validator's resulting CertPath
      * @param certPath a validated certificate path
@@ -702,6 +721,22 @@ public class Validator {
      * @throws NoSuchProviderException
      */
     public boolean isValid(X509Certificate eeCert, String policyOids, X509Certificate trustAnchorCert) throws NoSuchAlgorithmException, CertStoreException, CertPathBuilderException, InvalidAlgorithmParameterException, NoSuchProviderException, ConformanceTestException {
+        PathValidationEvent event = new PathValidationEvent();
+        event.begin();
+        boolean rv = false;
+        try {
+            rv = buildAndValidatePath(eeCert, policyOids, trustAnchorCert);
+        } finally {
+            event.oid = m_containerOid;
+            event.subject = eeCert == null ? null : eeCert.getSubjectX500Principal().getName();
+            event.policyOids = policyOids;
+            event.valid = rv;
+            event.finish();
+        }
+        return rv;
+    }
+
+    private boolean buildAndValidatePath(X509Certificate eeCert, String policyOids, X509Certificate trustAnchorCert) throws NoSuchAlgorithmException, CertStoreException, CertPathBuilderException, InvalidAlgorithmParameterException, NoSuchProviderException, ConformanceTestException {
         boolean rv = false;
         HashSet<String> policies = null;
         if (eeCert == null) {
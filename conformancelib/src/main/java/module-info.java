@@ -11,6 +11,7 @@ module gov.gsa.pivconformance.conformancelib {
 	requires gov.gsa.pivconformance.cardlib;
 	requires java.smartcardio;
 	requires java.sql;
+	requires jdk.jfr;
 	requires junit;
 	requires org.apache.commons.cli;
 	requires org.apache.commons.codec;
@@ -0,0 +1,93 @@
+package gov.gsa.pivconformance.conformancelib.tools;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
+import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@Tag("Runner")
+public class CorpusRunnerTests {
+    private static final String DISCOVERY_OBJECT = Steps.class.getName() + "#discoveryObject(java.lang.String)";
+    // a discovery object holding the PIV AID and a PIN usage policy
+    private static final byte[] DISCOVERY_OBJECT_BYTES = {
+            0x7E, 0x12,
+            0x4F, 0x0B, (byte) 0xA0, 0x00, 0x00, 0x03, 0x08, 0x00, 0x00, 0x10, 0x00, 0x01, 0x00,
+            0x5F, 0x2F, 0x02, 0x40, 0x00
+    };
+
+    // the step of the test plan below, only run through CorpusRunner
+    @ExtendWith(ConformanceSessionExtension.class)
+    static class Steps {
+        @ParameterizedTest
+        @ArgumentsSource(ParameterizedArgumentsProvider.class)
+        void discoveryObject(String oid) {
+            assertNotNull(AtomHelper.getDataObject(oid));
+        }
+    }
+
+    @Test
+    @DisplayName("A dump with a corrupt container is reported as failing and the rest of the corpus is still tested")
+    void testCorruptDump(@TempDir Path corpus) throws IOException {
+        Path good = writeDump(corpus.resolve("a"), DISCOVERY_OBJECT_BYTES);
+        Path corrupt = writeDump(corpus.resolve("b"), Arrays.copyOf(DISCOVERY_OBJECT_BYTES, 7));
+        Path alsoGood = writeDump(corpus.resolve("c"), DISCOVERY_OBJECT_BYTES);
+        List<Path> dumps = CorpusRunner.findDumps(corpus);
+        assertEquals(Arrays.asList(good, corrupt, alsoGood), dumps);
+
+        ParameterProviderSingleton parameters = ParameterProviderSingleton.createIsolatedInstance();
+        parameters.addTestCaseStep("DO", DISCOVERY_OBJECT, Collections.emptyList(), APDUConstants.DISCOVERY_OBJECT_OID);
+        ConformanceTestPlan plan = new ConformanceTestPlan(
+                Collections.singletonList(new ConformanceTestPlan.TestCase("DO", APDUConstants.DISCOVERY_OBJECT_OID,
+                        Collections.singletonList(DISCOVERY_OBJECT))),
+                new LinkedHashSet<>(Collections.singletonList(DISCOVERY_OBJECT)), 1);
+
+        StringWriter csv = new StringWriter();
+        ParameterProviderSingleton previous = ParameterProviderSingleton.bindToCurrentThread(parameters);
+        try (PrintWriter out = new PrintWriter(csv)) {
+            new CorpusRunner(plan, out).run(dumps, 2);
+        } finally {
+            ParameterProviderSingleton.bindToCurrentThread(previous);
+        }
+
+        // one row for each dump, in whatever order they finished
+        Map<String, String> rows = new HashMap<>();
+        for(String row : csv.toString().split("\\R")) {
+            String[] fields = row.split(",");
+            assertEquals("DO", fields[1], row);
+            rows.put(fields[0], fields[2] + "," + fields[3] + "," + fields[4]);
+        }
+        assertEquals(3, rows.size());
+        assertEquals("PASS,1,0", rows.get(good.toString()));
+        assertEquals("FAIL,0,1", rows.get(corrupt.toString()));
+        assertEquals("PASS,1,0", rows.get(alsoGood.toString()));
+    }
+
+    private static Path writeDump(Path dump, byte[] discoveryObject) throws IOException {
+        Files.createDirectories(dump);
+        Files.write(dump.resolve(APDUConstants.DISCOVERY_OBJECT_OID + ".bin"), discoveryObject);
+        return dump;
+    }
+}
@@ -0,0 +1,127 @@
+package gov.gsa.pivconformance.conformancelib.tools;
+
+import gov.gsa.pivconformance.cardlib.card.client.APDUConstants;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
+import gov.gsa.pivconformance.conformancelib.configuration.ParameterizedArgumentsProvider;
+import gov.gsa.pivconformance.conformancelib.junitoptions.ConformanceSessionExtension;
+import gov.gsa.pivconformance.conformancelib.junitoptions.TestCaseRouter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@Tag("Runner")
+public class TestCaseRouterTests {
+    private static final String SHARED = Steps.class.getName() + "#shared()";
+    private static final String BROKEN = Steps.class.getName() + "#broken()";
+    private static final String PER_TEST_CASE = Steps.class.getName() + "#perTestCase(java.lang.String)";
+
+    // the steps of the test cases below, only run through the router
+    @ExtendWith(ConformanceSessionExtension.class)
+    static class Steps {
+        @Test
+        void shared() {
+        }
+
+        @Test
+        void broken() {
+            fail("broken on purpose");
+        }
+
+        @ParameterizedTest
+        @ArgumentsSource(ParameterizedArgumentsProvider.class)
+        void perTestCase(String oid) {
+            assertNotNull(oid);
+        }
+    }
+
+    @Test
+    @DisplayName("A method run once for several test cases is counted once, for the first of them")
+    void testSharedMethodCountedOnce() {
+        List<ConformanceTestPlan.Result> results = new ArrayList<>();
+        List<TestPlan> plans = new ArrayList<>();
+        TestCaseRouter router = new TestCaseRouter((identifier, out) -> {
+            ConformanceTestPlan.Result result = new ConformanceTestPlan.Result();
+            results.add(result);
+            TestExecutionListener plan = new TestExecutionListener() {
+                @Override
+                public void testPlanExecutionFinished(TestPlan testPlan) {
+                    plans.add(testPlan);
+                }
+            };
+            return Arrays.asList(result, plan);
+        }, null);
+        ParameterProviderSingleton parameters = ParameterProviderSingleton.createIsolatedInstance();
+        Set<String> selected = new LinkedHashSet<>();
+        addTestCase(router, parameters, selected, "A", SHARED);
+        addTestCase(router, parameters, selected, "B", SHARED, BROKEN, PER_TEST_CASE);
+        addTestCase(router, parameters, selected, "C", BROKEN, PER_TEST_CASE);
+
+        SummaryGeneratingListener summary = new SummaryGeneratingListener();
+        try (ConformanceSession session = ConformanceSession.create("TestCaseRouterTests", parameters)) {
+            ConformanceSession.Binding binding = session.bind();
+            try {
+                LauncherFactory.create().execute(ConformanceTestPlan.createRequest(selected, 1), router, summary);
+            } finally {
+                binding.close();
+            }
+        }
+
+        // shared() ran once, for A, broken() once, for B, and perTestCase() once for each of B and C
+        assertEquals(4, summary.getSummary().getTestsStartedCount());
+        assertEquals(3, results.size());
+        assertCounts(results.get(0), 1, 0, "PASS");
+        assertCounts(results.get(1), 1, 1, "FAIL");
+        assertCounts(results.get(2), 1, 0, "FAIL");
+        int passed = 0;
+        int failed = 0;
+        for(ConformanceTestPlan.Result result : results) {
+            passed += result.passed;
+            failed += result.failed;
+        }
+        assertEquals(summary.getSummary().getTestsSucceededCount(), passed);
+        assertEquals(summary.getSummary().getTestsFailedCount(), failed);
+
+        // each test case sees a plan of just its own steps
+        assertEquals(3, plans.size());
+        assertTrue(plans.get(0) instanceof TestCaseRouter.TestCasePlan);
+        assertEquals(1, plans.get(0).countTestIdentifiers(TestIdentifier::isTest));
+        assertEquals(3, plans.get(1).countTestIdentifiers(TestIdentifier::isTest));
+        assertEquals(2, plans.get(2).countTestIdentifiers(TestIdentifier::isTest));
+    }
+
+    private static void addTestCase(TestCaseRouter router, ParameterProviderSingleton parameters, Set<String> selected,
+            String identifier, String... methods) {
+        for(String method : methods) {
+            parameters.addTestCaseStep(identifier, method, Collections.emptyList(), APDUConstants.CARD_HOLDER_UNIQUE_IDENTIFIER_OID);
+            selected.add(method);
+        }
+        router.addTestCase(identifier, Arrays.asList(methods));
+    }
+
+    private static void assertCounts(ConformanceTestPlan.Result result, int passed, int failed, String outcome) {
+        assertEquals(passed, result.passed, "passed");
+        assertEquals(failed, result.failed, "failed");
+        assertEquals(outcome, result.getResult());
+    }
+}
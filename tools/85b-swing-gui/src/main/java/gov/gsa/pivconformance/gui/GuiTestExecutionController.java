@@ -5,7 +5,11 @@ import static org.junit.platform.engine.discovery.DiscoverySelectors.selectMetho
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.swing.JDialog;
@@ -15,7 +19,12 @@ import javax.swing.SwingUtilities;
 
 import gov.gsa.pivconformance.cardlib.card.client.*;
 import gov.gsa.pivconformance.conformancelib.configuration.TestStatus;
+import gov.gsa.pivconformance.conformancelib.junitoptions.TestCaseRouter;
+import gov.gsa.pivconformance.conformancelib.junitoptions.TestPlanMethodOrderer;
 import gov.gsa.pivconformance.conformancelib.utilities.AtomHelper;
+import gov.gsa.pivconformance.conformancelib.utilities.CardUtils;
+import gov.gsa.pivconformance.conformancelib.utilities.ContainerPrefetcher;
+import gov.gsa.pivconformance.conformancelib.tests.ConformanceTestException;
 import org.junit.platform.engine.DiscoverySelector;
 import org.junit.platform.launcher.Launcher;
 import org.junit.platform.launcher.LauncherDiscoveryRequest;
@@ -27,6 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import ch.qos.logback.classic.LoggerContext;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
+import gov.gsa.pivconformance.conformancelib.configuration.ConformanceSession;
 import gov.gsa.pivconformance.conformancelib.configuration.ConformanceTestDatabase;
 import gov.gsa.pivconformance.conformancelib.configuration.ParameterProviderSingleton;
 import gov.gsa.pivconformance.conformancelib.configuration.TestCaseModel;
@@ -128,6 +138,8 @@ public class GuiTestExecutionController {
 		GuiRunnerAppController.getInstance().reloadTree();
 		PCSCWrapper pcsc = PCSCWrapper.getInstance();
 		DataModelSingleton.getInstance().reset();
+		ConformanceSession.current().getDecodedObjects().clear();
+		ConformanceSession.current().getDecodedObjects().resetCounters();
 
 		int atomCount = 0;
 		JProgressBar progress = m_testExecutionPanel.getTestProgressBar();
@@ -148,8 +160,22 @@ public class GuiTestExecutionController {
 			return;
 		}
 
-		GuiTestListener guiListener = new GuiTestListener();
-		guiListener.setProgressBar(progress);
+		// read the containers in the background, in the order the test plan needs them
+		List<String> containers = new ArrayList<String>();
+		GuiTestCaseTreeNode node = (GuiTestCaseTreeNode) root.getFirstChild();
+		while(node != null) {
+			String containerName = node.getTestCase().getContainer();
+			if(containerName != null && !containerName.isEmpty()) {
+				containers.add(containerName);
+			}
+			node = (GuiTestCaseTreeNode) node.getNextSibling();
+		}
+		ContainerPrefetcher.setTestPlanOrder(containers);
+		try {
+			CardUtils.startContainerPrefetchInSingleton();
+		} catch (ConformanceTestException e) {
+			s_logger.warn("Unable to read containers ahead of the tests, they will be read as needed", e);
+		}
 
 		/* Workaround to ensure that the tool is primed with the CHUID cert.
 		 * TODO: Create "factory" database with 8.2.2.1 as the only test, open,
@@ -157,9 +183,27 @@ public class GuiTestExecutionController {
 		 */
 		
 		int passes = 0;
+		// the whole pass is run from one request, with one invocation of each test method for every
+		// test case it is a step of, and the results split back into test cases for the listeners
+		Launcher l = LauncherFactory.create();
 		
 		do {
 			GuiTestCaseTreeNode curr = (GuiTestCaseTreeNode) root.getFirstChild();
+			ParameterProviderSingleton.getInstance().reset();
+			Set<String> selected = new LinkedHashSet<String>();
+			Map<String, TestCaseModel> testCases = new HashMap<String, TestCaseModel>();
+			// the rows of the CONFORMANCE log are written in the order of the tree
+			TestCaseRouter router = new TestCaseRouter((identifier, out) -> {
+				TestCaseModel model = testCases.get(identifier);
+				GuiTestListener guiListener = new GuiTestListener();
+				guiListener.setProgressBar(progress);
+				guiListener.setTestCaseIdentifier(identifier);
+				guiListener.setTestCaseDescription(model.getDescription());
+				guiListener.setTestCaseExpectedResult(model.getExpectedStatus() == 1);
+				List<TestExecutionListener> listeners = new ArrayList<TestExecutionListener>();
+				listeners.add(guiListener);
+				return listeners;
+			}, null, true);
 
 			while(curr != null) {
 				TestCaseModel testCase = curr.getTestCase();
@@ -176,8 +220,7 @@ public class GuiTestExecutionController {
 					runTest = false;
 				}
 				if (runTest) {
-					LauncherDiscoveryRequestBuilder suiteBuilder = LauncherDiscoveryRequestBuilder.request();
-					List<DiscoverySelector> discoverySelectors = new ArrayList<>();
+					List<String> methods = new ArrayList<String>();
 					List<TestStepModel> steps = testCase.getSteps();
 					for(TestStepModel currentStep : steps) {
 						atomCount++;
@@ -234,31 +277,27 @@ public class GuiTestExecutionController {
 
 						if(className != null && !className.isEmpty() && testClass != null) {
 							s_logger.trace("Adding {} from config", fqmn);
-							discoverySelectors.add(selectMethod(fqmn));
-							ParameterProviderSingleton.getInstance().addNamedParameter(fqmn, parameters);
-							String containerName = testCase.getContainer();
-							if(containerName != null && !containerName.isEmpty()) {
-								ParameterProviderSingleton.getInstance().addContainer(fqmn, containerName);
-							}
+							selected.add(fqmn);
+							methods.add(fqmn);
+							ParameterProviderSingleton.getInstance().addTestCaseStep(id, fqmn, parameters, testCase.getContainer());
 							s_logger.trace("Added {} from config: {}", fqmn, parameters);
 						}
 
 					}
-					suiteBuilder.selectors(discoverySelectors);
-					suiteBuilder.configurationParameter("TestCaseIdentifier", testCase.getIdentifier());
-					LauncherDiscoveryRequest ldr = suiteBuilder.build();
-					Launcher l = LauncherFactory.create();
-					guiListener.setTestCaseIdentifier(testCase.getIdentifier());
-					guiListener.setTestCaseDescription(testCase.getDescription());
-					guiListener.setTestCaseExpectedResult(testCase.getExpectedStatus() == 1);
-					List<TestExecutionListener> listeners = new ArrayList<TestExecutionListener>();
-					listeners.add(guiListener);
-					registerListeners(l, listeners);
-					
-					l.execute(ldr);
+					testCases.put(id, testCase);
+					router.addTestCase(id, methods);
 				}
 				curr = (GuiTestCaseTreeNode) curr.getNextSibling();
 			}
+			List<DiscoverySelector> discoverySelectors = new ArrayList<>();
+			for(String fqmn : selected) {
+				discoverySelectors.add(selectMethod(fqmn));
+			}
+			LauncherDiscoveryRequest ldr = LauncherDiscoveryRequestBuilder.request()
+					.selectors(discoverySelectors)
+					.configurationParameter(TestPlanMethodOrderer.DEFAULT_ORDER_PARAMETER, TestPlanMethodOrderer.class.getName())
+					.build();
+			l.execute(ldr, router);
 		} while (++passes < 2); // End of CHUID priming workaround
 
 
@@ -276,20 +315,26 @@ public class GuiTestExecutionController {
 		s_logger.debug("Tree count: {}", root.getChildCount() + root.getLeafCount() );
 		s_logger.debug("PCSC counters - connect() was called {} times, transmit() was called {} times",
 				pcsc.getConnectCount(), pcsc.getTransmitCount());
+		s_logger.debug("PCSC counters - {} short APDU round trips, {} extended length APDU round trips",
+				pcsc.getShortRoundTripCount(), pcsc.getExtendedRoundTripCount());
+		s_logger.debug("PCSC counters - APDU exchanges: {}", pcsc.getStatistics().getTotal());
+		s_logger.debug("PCSC counters - SELECT avoided: {}, VERIFY avoided: {}", pcsc.getAvoidedSelectCount(), pcsc.getAvoidedVerifyCount());
+		s_logger.debug("Decoded objects: {}", ConformanceSession.current().getDecodedObjects());
 
 		m_trlc.setTimeStamps(); // Sets the timestamp for all of the logger files
+		m_trlc.writeAPDUStatistics(pcsc.getStatistics());
 		m_trlc.cleanup();
 		m_running = false;
+		ContainerPrefetcher.stop();
 		CardSettingsSingleton css = CardSettingsSingleton.getInstance();
 		CachingDefaultPIVApplication cpiv = (CachingDefaultPIVApplication) css.getPivHandle();
-		cpiv.clearCache();
-		display.setEnabled(true);
-	}
-
-	private void registerListeners(Launcher l, List<TestExecutionListener> listeners) {
-		for(TestExecutionListener listener: listeners) {
-			l.registerTestExecutionListeners(listener);
+		if (cpiv != null) {
+			// containers are cached by card identity, so they can be kept for the next run
+			ContainerCache cache = cpiv.getCache();
+			s_logger.debug("Container cache - {} hits, {} misses, {} bytes in {} containers, {} evictions",
+					cache.getHitCount(), cache.getMissCount(), cache.getByteCount(), cache.getEntryCount(), cache.getEvictionCount());
 		}
+		display.setEnabled(true);
 	}
 
 	void runOneTest(GuiTestCaseTreeNode testCase) {
@@ -19,10 +19,10 @@ import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.LayoutStyle.ComponentPlacement;
 
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.gsa.pivconformance.cardlib.tlv.HexUtil;
 import gov.gsa.pivconformance.conformancelib.configuration.CardInfoController;
 import gov.gsa.pivconformance.conformancelib.configuration.CardSettingsSingleton;
 import gov.gsa.pivconformance.conformancelib.configuration.ConformanceTestDatabase;
@@ -401,7 +401,7 @@ public class SimpleTestExecutionPanel extends JPanel {
 				String status = null;
 				byte[] atr = CardInfoController.getATR();
 				if(atr != null) {
-					String hexAtr = Hex.encodeHexString(atr);
+					String hexAtr = HexUtil.toLowerHexString(atr);
 					status = "Card present: " + hexAtr;
 				} else {
 					status = "Unable to connect to card";